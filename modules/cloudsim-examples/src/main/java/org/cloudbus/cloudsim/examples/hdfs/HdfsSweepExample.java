@@ -0,0 +1,252 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation
+ *               of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.examples.hdfs;
+
+import org.cloudbus.cloudsim.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.examples.hdfs.utils.HdfsSweepRunner;
+import org.cloudbus.cloudsim.hdfs.*;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelLinear;
+
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.cloudbus.cloudsim.core.CloudSimTags.HDFS_CLIENT;
+import static org.cloudbus.cloudsim.core.CloudSimTags.HDFS_DN;
+import static org.cloudbus.cloudsim.examples.hdfs.utils.HdfsUtils.*;
+
+/**
+ * Writes the same files into HDFS with different replica counts, block sizes and network topologies, running
+ * the scenarios in parallel with {@link HdfsSweepRunner}, and writes the metrics of every run in a CSV file.
+ *
+ * Usage: HdfsSweepExample [output file] [threads]
+ */
+public class HdfsSweepExample {
+
+	// SCENARIO PARAMETERS (the same for every run of the sweep)
+
+	private static final int CLIENT_FILE_COUNT = 4;		// number of files the client writes
+	private static final int CLIENT_FILE_SIZE = 40000;	// size of each file, it's split into blocks
+	private static final int DATANODE_HOST_COUNT = 6;	// number of Hosts (and Data Nodes) in each Data Nodes Datacenter
+	private static final int DATANODE_DATACENTER_COUNT = 2;	// number of Data Nodes Datacenters, the replicas cross between them
+	private static final int HOSTS_PER_RACK = 3;		// amount of Hosts in each Rack of the Datacenters
+	private static final int HOST_BW = 10000;			// amount of Bandwidth assigned to each Host
+	private static final int DISK_SIZE = 10000000;		// capacity of each Hard Drive
+
+	// the power of a Hard Drive when it's busy, and the part of it which is drawn when it's idle
+	private static final double DISK_MAX_POWER = 10;
+	private static final double DISK_STATIC_POWER_PERCENT = 0.6;
+
+	/**
+	 * Creates main() to run this example
+	 */
+	public static void main(String[] args) {
+
+		Log.printLine("Starting HdfsSweepExample...");
+
+		try {
+			String outputFile = args.length > 0 ? args[0] : "hdfs-sweep.csv";
+
+			// the parameters of the sweep, every combination of their values is a run
+			HdfsSweepRunner runner = new HdfsSweepRunner()
+					.addParameter("replicas", "1", "2", "3")
+					.addParameter("blockSize", "2500", "5000", "10000")
+					.addParameter("topology", "none", "topology.brite");
+
+			if (args.length > 1) {
+				runner.setThreads(Integer.parseInt(args[1]));
+			}
+
+			long startTime = System.currentTimeMillis();
+
+			Writer out = new FileWriter(outputFile);
+			int runs;
+			try {
+				runs = runner.run(new HdfsSweepRunner.Scenario() {
+
+					@Override
+					public Map<String, Object> run(Map<String, String> parameters) throws Exception {
+						return runScenario(Integer.parseInt(parameters.get("replicas")),
+								Integer.parseInt(parameters.get("blockSize")), parameters.get("topology"));
+					}
+
+				}, out);
+			} finally {
+				out.close();
+			}
+
+			Log.printLine(runs + " runs written to " + outputFile + " in "
+					+ (System.currentTimeMillis() - startTime) + " ms");
+			Log.printLine("HdfsSweepExample finished!");
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			Log.printLine("The simulation has been terminated due to an unexpected error");
+		}
+	}
+
+	/**
+	 * Runs a single scenario of the sweep in the current simulation: a client writes its files into two
+	 * Data Nodes Datacenters, whose racks are numbered one after the other, so the replicas of a block
+	 * that land on different racks may cross the network between them.
+	 *
+	 * @param replicas the number of replicas of every block
+	 * @param blockSize the size of the blocks the files are split into
+	 * @param topology the BRITE file of the network topology, "none" to run without network
+	 * @return the metrics of the run
+	 * @throws Exception if the scenario can't be created
+	 */
+	public static Map<String, Object> runScenario(int replicas, int blockSize, String topology) throws Exception {
+
+		// the sweep writes one row per run, the log of every simulation isn't needed
+		Log.disable();
+
+		// First step: Initialize CloudSim
+		CloudSim.init(2, Calendar.getInstance(), false);
+
+		// Second step: create the datacenters
+
+		// Client datacenter, the files to write are stored in its only Host
+		List<HdfsHost> clientHostList = createHostList(1, HOSTS_PER_RACK, 0, 2048, 100000, HOST_BW, 1, 1000);
+		HdfsDatacenter clientDatacenter = new HdfsDatacenter("Datacenter_0", createCharacteristics(clientHostList),
+				new VmAllocationPolicySimple(clientHostList), createStorageList(clientHostList, DISK_SIZE), 0);
+
+		// Data Nodes datacenters, every Hard Drive keeps track of how long it's busy
+		List<HdfsDatacenter> dataNodeDatacenters = new ArrayList<HdfsDatacenter>();
+		for (int i = 0; i < DATANODE_DATACENTER_COUNT; i++) {
+			int baseRackId = i * DATANODE_HOST_COUNT / HOSTS_PER_RACK;
+			List<HdfsHost> dataNodeHostList = createHostList(DATANODE_HOST_COUNT, HOSTS_PER_RACK, baseRackId, 2048, 100000, HOST_BW, 1, 1000);
+			HdfsDatacenter dataNodeDatacenter = new HdfsDatacenter("Datacenter_" + (i + 1), 0, createCharacteristics(dataNodeHostList),
+					new VmAllocationPolicySimple(dataNodeHostList), createStorageList(dataNodeHostList, DISK_SIZE), 0);
+			for (Storage storage : dataNodeDatacenter.getStorageList()) {
+				((HarddriveStorage) storage).setIoScheduler(new StorageIoSchedulerFifo());
+			}
+			dataNodeDatacenters.add(dataNodeDatacenter);
+		}
+
+		// Third step: Create Brokers and the NameNode
+
+		HdfsDatacenterBroker broker = new HdfsDatacenterBroker("Broker");
+		HdfsReplicationBroker replicationBroker = new HdfsReplicationBroker("ReplicationBroker", 100000);
+		for (HdfsDatacenter dataNodeDatacenter : dataNodeDatacenters) {
+			dataNodeDatacenter.setReplicationBrokerId(replicationBroker.getId());
+		}
+		broker.getReplicationBrokersId().add(replicationBroker.getId());
+
+		NameNode nameNode = new NameNode("NameNode1", blockSize, replicas);
+		broker.setNameNodeId(nameNode.getId());
+
+		// Fourth step: Create VMs, the first one is the client, all the others are Data Nodes, which fill up the
+		// first Data Nodes datacenter before going to the next one
+
+		List<HdfsVm> vmList = createVmList(DATANODE_DATACENTER_COUNT * DATANODE_HOST_COUNT + 1, broker.getId(), 250, 1, 2048, 1000, 10000, "Xen", "Time");
+		vmList.get(0).setHdfsType(HDFS_CLIENT);
+		List<HdfsVm> dnList = new ArrayList<HdfsVm>();
+		for (int i = 1; i < vmList.size(); i++) {
+			vmList.get(i).setHdfsType(HDFS_DN);
+			dnList.add(vmList.get(i));
+		}
+
+		broker.submitVmList(vmList);
+		replicationBroker.submitVmList(dnList);
+
+		// Fifth step: Create Cloudlets, each one writes a whole file, which is split into blocks by the broker
+
+		List<File> fileList = createBlockList(CLIENT_FILE_COUNT, CLIENT_FILE_SIZE);
+		clientDatacenter.addFiles(fileList);
+
+		List<HdfsCloudlet> cloudletList = new ArrayList<HdfsCloudlet>();
+		for (int i = 0; i < fileList.size(); i++) {
+			List<String> requiredFiles = new ArrayList<String>();
+			requiredFiles.add(fileList.get(i).getName());
+
+			UtilizationModel utilizationModel = new UtilizationModelFull();
+			HdfsCloudlet cloudlet = new HdfsCloudlet(i, 40000, 1, 300, 300, utilizationModel, utilizationModel,
+					utilizationModel, requiredFiles, blockSize);
+			cloudlet.setFileSize(CLIENT_FILE_SIZE);
+			cloudlet.setUserId(broker.getId());
+			cloudlet.setVmId(vmList.get(0).getId());
+			cloudletList.add(cloudlet);
+		}
+
+		broker.submitCloudletList(cloudletList);
+
+		// Sixth step: configure network
+
+		if (!"none".equals(topology)) {
+			NetworkTopology.buildNetworkTopology(topology);
+			NetworkTopology.setTransferModel(new NetworkTransferModel());
+
+			// the same mapping of HdfsExample0, the second Data Nodes datacenter is on the node left
+			NetworkTopology.mapNode(clientDatacenter.getId(), 0);
+			NetworkTopology.mapNode(broker.getId(), 1);
+			NetworkTopology.mapNode(dataNodeDatacenters.get(0).getId(), 3);
+			NetworkTopology.mapNode(dataNodeDatacenters.get(1).getId(), 4);
+		}
+
+		// Seventh step: Starts the simulation
+
+		double endTime = CloudSim.startSimulation();
+		CloudSim.stopSimulation();
+
+		// Final step: collect the metrics of the run
+
+		double storedData = 0;
+		double diskData = 0;
+		double energy = 0;
+		PowerModel diskPowerModel = new PowerModelLinear(DISK_MAX_POWER, DISK_STATIC_POWER_PERCENT);
+		for (HdfsDatacenter dataNodeDatacenter : dataNodeDatacenters) {
+			for (Storage storage : dataNodeDatacenter.getStorageList()) {
+				StorageIoScheduler ioScheduler = ((HarddriveStorage) storage).getIoScheduler();
+				storedData += storage.getCurrentSize();
+				diskData += ioScheduler.getTransferredData();
+				if (endTime > 0) {
+					energy += diskPowerModel.getPower(ioScheduler.getUtilization(endTime)) * endTime;
+				}
+			}
+		}
+
+		NetworkTransferModel transferModel = NetworkTopology.getTransferModel();
+		List<Double> writeLatencies = broker.getWriteLatencies();
+
+		Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+		metrics.put("blocks", writeLatencies.size());
+		metrics.put("writeLatencyP50", HdfsSweepRunner.format(HdfsSweepRunner.percentile(writeLatencies, 50), 4));
+		metrics.put("writeLatencyP95", HdfsSweepRunner.format(HdfsSweepRunner.percentile(writeLatencies, 95), 4));
+		metrics.put("writeLatencyP99", HdfsSweepRunner.format(HdfsSweepRunner.percentile(writeLatencies, 99), 4));
+		metrics.put("writeLatencyMax", HdfsSweepRunner.format(HdfsSweepRunner.percentile(writeLatencies, 100), 4));
+		metrics.put("storedData", HdfsSweepRunner.format(storedData, 2));
+		metrics.put("diskData", HdfsSweepRunner.format(diskData, 2));
+		metrics.put("networkData", HdfsSweepRunner.format(transferModel != null ? transferModel.getTransferredData() : 0.0, 2));
+		metrics.put("diskEnergy", HdfsSweepRunner.format(energy, 2));
+		metrics.put("simulationTime", HdfsSweepRunner.format(endTime, 4));
+		return metrics;
+	}
+
+	private static DatacenterCharacteristics createCharacteristics(List<HdfsHost> hostList) {
+		String arch = "x86";			// system architecture
+		String os = "Linux";          	// operating system
+		String vmm = "Xen";				// virtual machine manager
+		double time_zone = 10.0;        // time zone this resource located
+		double cost = 3.0;              // the cost of using processing in this resource
+		double costPerMem = 0.05;		// the cost of using memory in this resource
+		double costPerStorage = 0.001;	// the cost of using storage in this resource
+		double costPerBw = 0.0;			// the cost of using bw in this resource
+
+		return new DatacenterCharacteristics(arch, os, vmm, hostList, time_zone, cost, costPerMem, costPerStorage, costPerBw);
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.cloudbus.cloudsim.examples.hdfs.utils;
+
+import org.cloudbus.cloudsim.core.Simulation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the same scenario once for every point of a parameter grid (the cartesian product of the values of every
+ * parameter), on a bounded thread pool, and writes the metrics of every run as a row of a CSV file.
+ * <p>
+ * Every run has its own {@link Simulation}, so the scenario can use the static CloudSim API as usual, as long as it
+ * doesn't keep its own state in static fields. The rows are written in grid order as soon as the runs before them are
+ * done, so the file grows while the sweep goes on and a long sweep can be watched or stopped half way.
+ */
+public class HdfsSweepRunner {
+
+    // a scenario of the sweep, it's called once for every point of the grid, each time in a new simulation
+    public interface Scenario {
+
+        // runs the scenario with the given values of the parameters and returns its metrics, by name, in the order
+        // of the CSV columns (every run must return the same metrics)
+        Map<String, Object> run(Map<String, String> parameters) throws Exception;
+    }
+
+    private static final String DELIMITER = ",";
+
+    // the values of every parameter, in the order of the CSV columns
+    private final Map<String, List<String>> grid = new LinkedHashMap<String, List<String>>();
+
+    // how many runs are executed at the same time
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public HdfsSweepRunner addParameter(String name, String... values) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, values);
+        grid.put(name, list);
+        return this;
+    }
+
+    // every point of the grid, the last parameter changes first
+    public List<Map<String, String>> getPoints() {
+        List<Map<String, String>> points = new ArrayList<Map<String, String>>();
+        points.add(new LinkedHashMap<String, String>());
+
+        for (Map.Entry<String, List<String>> parameter : grid.entrySet()) {
+            List<Map<String, String>> extended = new ArrayList<Map<String, String>>();
+            for (Map<String, String> point : points) {
+                for (String value : parameter.getValue()) {
+                    Map<String, String> newPoint = new LinkedHashMap<String, String>(point);
+                    newPoint.put(parameter.getKey(), value);
+                    extended.add(newPoint);
+                }
+            }
+            points = extended;
+        }
+
+        return points;
+    }
+
+    /**
+     * Runs the scenario for every point of the grid and writes a CSV row for each of them, with the values of the
+     * parameters followed by the metrics of the run. The header is written with the first row.
+     *
+     * @param scenario the scenario to run
+     * @param out where the CSV is written, it's flushed after every row but not closed
+     * @return the number of runs
+     * @throws IOException if the CSV can't be written
+     * @throws ExecutionException if a run fails, the runs not started yet are cancelled
+     * @throws InterruptedException if the thread is interrupted while waiting for a run
+     */
+    public int run(final Scenario scenario, Writer out) throws IOException, ExecutionException, InterruptedException {
+
+        List<Map<String, String>> points = getPoints();
+        List<Future<Map<String, Object>>> results = new ArrayList<Future<Map<String, Object>>>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, points.size())));
+        try {
+            for (final Map<String, String> point : points) {
+                results.add(executor.submit(new Callable<Map<String, Object>>() {
+
+                    @Override
+                    public Map<String, Object> call() throws Exception {
+                        return new Simulation().execute(new Callable<Map<String, Object>>() {
+
+                            @Override
+                            public Map<String, Object> call() throws Exception {
+                                return scenario.run(point);
+                            }
+
+                        });
+                    }
+
+                }));
+            }
+
+            // the rows are written in grid order, a run that finishes early waits for the ones before it
+            for (int i = 0; i < points.size(); i++) {
+                Map<String, Object> metrics = results.get(i).get();
+                if (i == 0) {
+                    writeRow(out, points.get(i).keySet(), metrics.keySet());
+                }
+                writeRow(out, points.get(i).values(), metrics.values());
+                out.flush();
+
+                // the metrics of a written row aren't needed anymore
+                results.set(i, null);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return points.size();
+    }
+
+    private static void writeRow(Writer out, Iterable<?> parameters, Iterable<?> metrics) throws IOException {
+        StringBuilder row = new StringBuilder();
+        for (Object value : parameters) {
+            row.append(value).append(DELIMITER);
+        }
+        for (Object value : metrics) {
+            row.append(value).append(DELIMITER);
+        }
+        row.setLength(row.length() - DELIMITER.length());
+        out.write(row.append('\n').toString());
+    }
+
+    // formats a metric with the given number of decimals, always with a dot as decimal separator: the default locale
+    // may use a comma, which is also the delimiter of the CSV
+    public static String format(double value, int decimals) {
+        return String.format(Locale.ROOT, "%." + decimals + "f", value);
+    }
+
+    // the value below which the given percentage of the values falls (nearest rank), 0 if there are no values
+    public static double percentile(List<Double> values, double percentage) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Double> sorted = new ArrayList<Double>(values);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentage / 100 * sorted.size());
+        return sorted.get(Math.min(sorted.size(), Math.max(1, rank)) - 1);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
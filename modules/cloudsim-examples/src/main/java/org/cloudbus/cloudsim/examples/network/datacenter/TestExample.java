@@ -75,8 +75,8 @@ public class TestExample {
 			List<Cloudlet> newList = broker.getCloudletReceivedList();
 			printCloudletList(newList);
 			System.out.println("numberofcloudlet " + newList.size() + " Cached "
-					+ NetDatacenterBroker.cachedcloudlet + " Data transfered "
-					+ NetworkConstants.totaldatatransfer);
+					+ NetDatacenterBroker.getCachedcloudlet() + " Data transfered "
+					+ NetworkConstants.getTotalDataTransfer());
 
 			Log.printLine("CloudSimExample1 finished!");
 		} catch (Exception e) {
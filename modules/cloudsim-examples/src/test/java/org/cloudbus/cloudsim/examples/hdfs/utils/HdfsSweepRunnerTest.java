@@ -0,0 +1,114 @@
+package org.cloudbus.cloudsim.examples.hdfs.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.examples.hdfs.HdfsSweepExample;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HdfsSweepRunnerTest {
+
+    private Locale defaultLocale;
+
+    // the sweep runs with a default locale whose decimal separator is a comma, the delimiter of the CSV
+    @Before
+    public void setUp() {
+        defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.ITALY);
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    // splits a CSV into its rows and columns, every row must have as many columns as the header
+    private static List<List<String>> parse(String csv) {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        for (String line : csv.split("\n")) {
+            List<String> row = Arrays.asList(line.split(",", -1));
+            if (!rows.isEmpty()) {
+                assertEquals(line, rows.get(0).size(), row.size());
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testPoints() {
+        HdfsSweepRunner runner = new HdfsSweepRunner().addParameter("a", "1", "2").addParameter("b", "x", "y", "z");
+        List<Map<String, String>> points = runner.getPoints();
+        assertEquals(6, points.size());
+        assertEquals("1", points.get(2).get("a"));
+        assertEquals("z", points.get(2).get("b"));
+        assertEquals("2", points.get(3).get("a"));
+        assertEquals("x", points.get(3).get("b"));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("1234.5000", HdfsSweepRunner.format(1234.5, 4));
+        assertEquals("0.33", HdfsSweepRunner.format(1 / 3.0, 2));
+    }
+
+    // runs the scenarios of HdfsSweepExample with 1 and 3 replicas, and returns the CSV they are written to
+    private static String runSweep(String topology) throws Exception {
+        HdfsSweepRunner runner = new HdfsSweepRunner()
+                .addParameter("replicas", "1", "3")
+                .addParameter("blockSize", "10000")
+                .addParameter("topology", topology);
+        runner.setThreads(2);
+
+        StringWriter out = new StringWriter();
+        int runs = runner.run(new HdfsSweepRunner.Scenario() {
+
+            @Override
+            public Map<String, Object> run(Map<String, String> parameters) throws Exception {
+                return HdfsSweepExample.runScenario(Integer.parseInt(parameters.get("replicas")),
+                        Integer.parseInt(parameters.get("blockSize")), parameters.get("topology"));
+            }
+
+        }, out);
+        assertEquals(2, runs);
+        return out.toString();
+    }
+
+    @Test
+    public void testSweepCsv() throws Exception {
+        // a header and a row for every run, whose metrics are all numbers
+        List<List<String>> rows = parse(runSweep("none"));
+        assertEquals(3, rows.size());
+        assertEquals(Arrays.asList("replicas", "blockSize", "topology", "blocks"), rows.get(0).subList(0, 4));
+        int storedData = rows.get(0).indexOf("storedData");
+        for (List<String> row : rows.subList(1, rows.size())) {
+            for (String value : row.subList(3, row.size())) {
+                Double.parseDouble(value);
+            }
+        }
+
+        // every block is stored as many times as it has replicas
+        assertEquals("1", rows.get(1).get(0));
+        assertEquals("3", rows.get(2).get(0));
+        assertEquals(3 * Double.parseDouble(rows.get(1).get(storedData)), Double.parseDouble(rows.get(2).get(storedData)),
+                1e-6);
+    }
+
+    @Test
+    public void testSweepNetworkData() throws Exception {
+        // the replicas of a block cross the network when they go to the other Data Nodes datacenter
+        List<List<String>> rows = parse(runSweep("topology.brite"));
+        int networkData = rows.get(0).indexOf("networkData");
+        assertTrue(Double.parseDouble(rows.get(2).get(networkData)) > Double.parseDouble(rows.get(1).get(networkData)));
+    }
+
+}
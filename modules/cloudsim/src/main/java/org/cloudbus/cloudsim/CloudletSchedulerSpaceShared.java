@@ -26,6 +26,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * @since CloudSim Toolkit 1.0
  */
 public class CloudletSchedulerSpaceShared extends CloudletScheduler {
+	private static final long serialVersionUID = 1L;
+
 	/** The number of PEs currently available for the VM using the scheduler,
          * according to the mips share provided to it by
          * {@link #updateVmProcessing(double, java.util.List)} method. */
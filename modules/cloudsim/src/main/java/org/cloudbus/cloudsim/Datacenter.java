@@ -17,6 +17,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.WakeUpTimer;
 
 /**
  * Datacenter class is a CloudResource whose hostList are virtualized. It deals with processing of
@@ -36,6 +37,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class Datacenter extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -50,6 +53,9 @@ public class Datacenter extends SimEntity {
 	/** The last time some cloudlet was processed in the datacenter. */
 	private double lastProcessTime;
 
+	/** The timer that sends the {@link CloudSimTags#VM_DATACENTER_EVENT} to the datacenter itself. */
+	private final WakeUpTimer wakeUpTimer = new WakeUpTimer(this, CloudSimTags.VM_DATACENTER_EVENT);
+
 	/** The storage list. */
 	private List<Storage> storageList;
 
@@ -253,8 +259,7 @@ public class Datacenter extends SimEntity {
 				break;
 
 			case CloudSimTags.VM_DATACENTER_EVENT:
-				updateCloudletProcessing();
-				checkCloudletCompletion();
+				processWakeUp(ev);
 				break;
 
 			// other unknown tags are processed by this method
@@ -763,7 +768,7 @@ public class Datacenter extends SimEntity {
 			// if this cloudlet is in the exec queue
 			if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
 				estimatedFinishTime += fileTransferTime;
-				send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+				getWakeUpTimer().schedule(estimatedFinishTime);
 			}
 
 			if (ack) {
@@ -831,7 +836,7 @@ public class Datacenter extends SimEntity {
 		if (eventTime > 0.0) { // if this cloudlet is in the exec queue
 			status = true;
 			if (eventTime > CloudSim.clock()) {
-				schedule(getId(), eventTime, CloudSimTags.VM_DATACENTER_EVENT);
+				getWakeUpTimer().schedule(eventTime);
 			}
 		}
 
@@ -923,12 +928,24 @@ public class Datacenter extends SimEntity {
 				smallerTime = CloudSim.clock() + CloudSim.getMinTimeBetweenEvents() + 0.01;
 			}
 			if (smallerTime != Double.MAX_VALUE) {
-				schedule(getId(), (smallerTime - CloudSim.clock()), CloudSimTags.VM_DATACENTER_EVENT);
+				getWakeUpTimer().schedule(smallerTime - CloudSim.clock());
 			}
 			setLastProcessTime(CloudSim.clock());
 		}
 	}
 
+	/**
+	 * Processes a {@link CloudSimTags#VM_DATACENTER_EVENT}: updates the processing of the cloudlets,
+	 * returns the finished ones to their users and schedules the next wake-up.
+	 * 
+	 * @param ev the event
+	 */
+	protected void processWakeUp(SimEvent ev) {
+		getWakeUpTimer().process(ev);
+		updateCloudletProcessing();
+		checkCloudletCompletion();
+	}
+
 	/**
 	 * Verifies if some cloudlet inside this Datacenter already finished. 
          * If yes, send it to the User/Broker
@@ -1139,6 +1156,17 @@ public class Datacenter extends SimEntity {
 		this.vmAllocationPolicy = vmAllocationPolicy;
 	}
 
+	/**
+	 * Gets the timer that wakes the datacenter up to process its cloudlets. Every
+	 * {@link CloudSimTags#VM_DATACENTER_EVENT} the datacenter sends to itself goes through it, so
+	 * that the ones for the same time are a single event.
+	 * 
+	 * @return the wake-up timer
+	 */
+	public WakeUpTimer getWakeUpTimer() {
+		return wakeUpTimer;
+	}
+
 	/**
 	 * Gets the last time some cloudlet was processed in the datacenter.
 	 * 
@@ -32,6 +32,8 @@ import org.cloudbus.cloudsim.lists.VmList;
  */
 public class DatacenterBroker extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The list of VMs submitted to be managed by the broker. */
 	protected List<? extends Vm> vmList;
 
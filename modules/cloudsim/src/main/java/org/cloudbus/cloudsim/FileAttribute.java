@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
 import java.util.Date;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -24,7 +25,9 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * There would be a relation between File and FileAttribute. There is a lot of duplicated
  * methods to, such as {@link #setMasterCopy(boolean)} or {@link #isReadOnly()}
  */
-public class FileAttribute {
+public class FileAttribute implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
         /** Logical file name. */
 	private String name;           
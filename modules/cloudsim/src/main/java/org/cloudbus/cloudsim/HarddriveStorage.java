@@ -9,8 +9,10 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 
@@ -30,12 +32,32 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
  */
 public class HarddriveStorage implements Storage {
 
+	private static final long serialVersionUID = 1L;
+
 	/** A list storing the names of all files on the hard drive. */
 	private List<String> nameList;
 
 	/** A list storing all files stored on the hard drive. */
 	private List<File> fileList;
 
+	/** The files stored on the hard drive, indexed by name. */
+	private Map<String, File> fileMap;
+
+	/**
+	 * The position of every stored file in {@link #offsetTree}. Positions grow in the same order as
+	 * {@link #fileList}, so the files before a given one are exactly the ones with a lower position.
+	 */
+	private Map<String, Integer> filePositions;
+
+	/**
+	 * A Fenwick tree over the file positions holding the file sizes, used to get in logarithmic time
+	 * the total size of the files stored up to a given one (the offset used by the seek model).
+	 */
+	private long[] offsetTree;
+
+	/** The number of positions used so far in {@link #offsetTree}, including the ones of deleted files. */
+	private int usedPositions;
+
 	/** The name of the hard drive. */
 	private final String name;
 
@@ -60,6 +82,9 @@ public class HarddriveStorage implements Storage {
 	// The host this drive belongs to
 	private int hostId;
 
+	/** The I/O queue of the drive, null if the drive serves every operation as if it was the only one. */
+	private StorageIoScheduler ioScheduler;
+
 	public HarddriveStorage(String name, double capacity, int hostId) throws ParameterException {
 		if (name == null || name.length() == 0) {
 			throw new ParameterException("HarddriveStorage(): Error - invalid storage name.");
@@ -121,6 +146,10 @@ public class HarddriveStorage implements Storage {
 	private void init() {
 		fileList = new ArrayList<File>();
 		nameList = new ArrayList<String>();
+		fileMap = new HashMap<String, File>();
+		filePositions = new HashMap<String, Integer>();
+		offsetTree = new long[16];
+		usedPositions = 0;
 		gen = null;
 		currentSize = 0;
 
@@ -311,28 +340,13 @@ public class HarddriveStorage implements Storage {
 			return obj;
 		}
 
-		Iterator<File> it = fileList.iterator();
-		int size = 0;
-		int index = 0;
-		boolean found = false;
-		File tempFile = null;
-
 		// find the file in the disk
-		while (it.hasNext()) {
-			tempFile = it.next();
-			size += tempFile.getSize();
-			if (tempFile.getName().equals(fileName)) {
-				found = true;
-				obj = tempFile;
-				break;
-			}
-
-			index++;
-		}
+		obj = fileMap.get(fileName);
 
 		// if the file is found, then determine the time taken to get it
-		if (found) {
-			obj = fileList.get(index);
+		if (obj != null) {
+			// the seek offset is the size of all the files stored up to this one, included
+			long size = getOffset(filePositions.get(fileName));
 			double seekTime = getSeekTime(size);
 			double transferTime = getTransferTime(obj.getSize());
 
@@ -355,7 +369,7 @@ public class HarddriveStorage implements Storage {
 	 * @param fileSize the size of a file in MB
 	 * @return the seek time in seconds
 	 */
-	private double getSeekTime(int fileSize) {
+	private double getSeekTime(long fileSize) {
 		double result = 0;
 
 		if (gen != null) {
@@ -384,6 +398,56 @@ public class HarddriveStorage implements Storage {
 		return result;
 	}
 
+	/**
+	 * Gets the total size of the files stored in the positions up to the given one, included.
+	 * 
+	 * @param position a position of {@link #offsetTree}, starting from 1
+	 * @return the total size in MB
+	 */
+	private long getOffset(int position) {
+		long result = 0;
+		for (int i = position; i > 0; i -= i & -i) {
+			result += offsetTree[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the given size to a position of {@link #offsetTree}.
+	 * 
+	 * @param position a position of {@link #offsetTree}, starting from 1
+	 * @param size the size to add, negative to remove a file
+	 */
+	private void updateOffset(int position, long size) {
+		for (int i = position; i < offsetTree.length; i += i & -i) {
+			offsetTree[i] += size;
+		}
+	}
+
+	/**
+	 * Indexes a file that has just been appended to {@link #fileList}. When the tree is full, it is
+	 * rebuilt with twice the room, reassigning the positions so the ones of deleted files are reused.
+	 * 
+	 * @param file the new file
+	 */
+	private void indexFile(File file) {
+		if (usedPositions + 1 >= offsetTree.length) {
+			offsetTree = new long[Math.max(16, 2 * (fileList.size() + 1))];
+			filePositions.clear();
+			usedPositions = 0;
+			for (File stored : fileList) {
+				usedPositions++;
+				filePositions.put(stored.getName(), usedPositions);
+				updateOffset(usedPositions, stored.getSize());
+			}
+		} else {
+			usedPositions++;
+			filePositions.put(file.getName(), usedPositions);
+			updateOffset(usedPositions, file.getSize());
+		}
+		fileMap.put(file.getName(), file);
+	}
+
 	/**
 	 * Check if the file is valid or not. This method checks whether the given file or the file name
 	 * of the file is valid. The method name parameter is used for debugging purposes, to output in
@@ -433,12 +497,12 @@ public class HarddriveStorage implements Storage {
 		}
 
 		// check if the same file name is already taken
-		boolean test = contains(file.getName());
 		if (!contains(file.getName())) {
 			double seekTime = getSeekTime(file.getSize());
 			double transferTime = getTransferTime(file.getSize());
 
 			fileList.add(file);               // add the file into the HD
+			indexFile(file);                  // index its name and offset
 			nameList.add(file.getName());     // add the name to the name list
 			currentSize += file.getSize();    // increment the current HD size
 			result = seekTime + transferTime;  // add total time
@@ -470,20 +534,11 @@ public class HarddriveStorage implements Storage {
 			return null;
 		}
 
-		Iterator<File> it = fileList.iterator();
-		File file = null;
-		while (it.hasNext()) {
-			file = it.next();
-			String name = file.getName();
-
-			// if a file is found then delete
-			if (fileName.equals(name)) {
-				double result = deleteFile(file);
-				file.setTransactionTime(result);
-				break;
-			} else {
-				file = null;
-			}
+		// if a file is found then delete
+		File file = fileMap.get(fileName);
+		if (file != null) {
+			double result = deleteFile(file);
+			file.setTransactionTime(result);
 		}
 		return file;
 	}
@@ -505,7 +560,9 @@ public class HarddriveStorage implements Storage {
 
 		// check if the file is in the storage
 		if (contains(file)) {
-			fileList.remove(file);            // remove the file HD
+			File stored = fileMap.remove(file.getName());
+			updateOffset(filePositions.remove(file.getName()), -stored.getSize());
+			fileList.remove(stored);          // remove the file HD
 			nameList.remove(file.getName());  // remove the name from name list
 			currentSize -= file.getSize();    // decrement the current HD space
 			result = seekTime + transferTime;  // total time
@@ -521,15 +578,7 @@ public class HarddriveStorage implements Storage {
 			Log.printConcatLine(name, ".contains(): Warning - invalid file name");
 			return result;
 		}
-		// check each file in the list
-		Iterator<String> it = nameList.iterator();
-		while (it.hasNext()) {
-			String name = it.next();
-			if (name.equals(fileName)) {
-				result = true;
-				break;
-			}
-		}
+		result = fileMap.containsKey(fileName);
 		return result;
 	}
 
@@ -554,18 +603,21 @@ public class HarddriveStorage implements Storage {
 		}
 
 		// replace the file name in the file (physical) list
-		File obj = getFile(file.getName());
+		String oldName = file.getName();
+		File obj = getFile(oldName);
 		if (obj == null) {
 			return result;
 		} else {
 			obj.setName(newName);
+			fileMap.put(newName, fileMap.remove(oldName));
+			filePositions.put(newName, filePositions.remove(oldName));
 		}
 
 		// replace the file name in the name list
 		Iterator<String> it = nameList.iterator();
 		while (it.hasNext()) {
 			String name = it.next();
-			if (name.equals(file.getName())) {
+			if (name.equals(oldName)) {
 				file.setTransactionTime(0);
 				nameList.remove(name);
 				nameList.add(newName);
@@ -584,4 +636,23 @@ public class HarddriveStorage implements Storage {
 	public void setHostId(int hostId) {
 		this.hostId = hostId;
 	}
+
+	/**
+	 * Gets the I/O queue of the drive.
+	 * 
+	 * @return the I/O scheduler, or null if concurrent operations don't slow each other down
+	 */
+	public StorageIoScheduler getIoScheduler() {
+		return ioScheduler;
+	}
+
+	/**
+	 * Sets the I/O queue of the drive. The times returned by the drive don't change: the scheduler is
+	 * used by whoever submits the operations (e.g. a Datacenter) to add the time spent waiting.
+	 * 
+	 * @param ioScheduler the I/O scheduler, or null if concurrent operations don't slow each other down
+	 */
+	public void setIoScheduler(StorageIoScheduler ioScheduler) {
+		this.ioScheduler = ioScheduler;
+	}
 }
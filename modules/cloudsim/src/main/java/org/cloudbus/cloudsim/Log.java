@@ -10,10 +10,14 @@ package org.cloudbus.cloudsim;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Serializable;
+
+import org.cloudbus.cloudsim.core.Simulation;
 
 /**
  * Logger used for performing logging of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * Every {@link Simulation} has its own output stream and disabled flag.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
@@ -25,15 +29,34 @@ public class Log {
 	/** The Constant LINE_SEPARATOR. */
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	/** The stream where the log will the outputted. */
-	private static OutputStream output;
+	/**
+	 * The state of the logger in a simulation. The output stream is not saved by a checkpoint,
+	 * a restored simulation logs to the standard output until it is set again.
+	 */
+	public static class State implements Serializable {
 
-	/** Indicates if the logger is disabled or not. If set to true,
-         the call for any print method has no effect. */
-	private static boolean disabled;
-	
-	/** Buffer to avoid creating new string builder upon every print. */
-	private static StringBuilder buffer = new StringBuilder();		    
+		private static final long serialVersionUID = 1L;
+
+		/** The stream where the log will the outputted. */
+		private transient OutputStream output;
+
+		/** Indicates if the logger is disabled or not. If set to true,
+		 the call for any print method has no effect. */
+		private boolean disabled;
+
+		/** Buffer to avoid creating new string builder upon every print. */
+		private final StringBuilder buffer = new StringBuilder();
+
+	}
+
+	/**
+	 * Gets the state of the logger in the current simulation.
+	 * 
+	 * @return the state
+	 */
+	private static State state() {
+		return Simulation.getCurrent().getComponent(State.class);
+	}
 
 	/**
 	 * Prints a message.
@@ -89,6 +112,7 @@ public class Log {
 	 */
 	public static void printConcat(Object... messages) {
 		if (!isDisabled()) {
+			StringBuilder buffer = state().buffer;
 			buffer.setLength(0); // Clear the buffer		    
 			for(int i = 0 ; i < messages.length ; i ++) {
 				buffer.append(String.valueOf(messages[i]));
@@ -104,6 +128,7 @@ public class Log {
 	 */
 	public static void printConcatLine(Object... messages) {
 		if (!isDisabled()) {
+			StringBuilder buffer = state().buffer;
 			buffer.setLength(0); // Clear the buffer		    
 			for(int i = 0 ; i < messages.length ; i ++) {
 				buffer.append(String.valueOf(messages[i]));
@@ -157,7 +182,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setOutput(OutputStream _output) {
-		output = _output;
+		state().output = _output;
 	}
 
 	/**
@@ -166,10 +191,11 @@ public class Log {
 	 * @return the output
 	 */
 	public static OutputStream getOutput() {
-		if (output == null) {
-			setOutput(System.out);
+		State state = state();
+		if (state.output == null) {
+			state.output = System.out;
 		}
-		return output;
+		return state.output;
 	}
 
 	/**
@@ -178,7 +204,7 @@ public class Log {
 	 * @param _disabled the new disabled
 	 */
 	public static void setDisabled(boolean _disabled) {
-		disabled = _disabled;
+		state().disabled = _disabled;
 	}
 
 	/**
@@ -187,7 +213,7 @@ public class Log {
 	 * @return true, if is disable
 	 */
 	public static boolean isDisabled() {
-		return disabled;
+		return state().disabled;
 	}
 
 	/**
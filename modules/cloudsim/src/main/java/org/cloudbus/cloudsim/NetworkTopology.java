@@ -9,10 +9,17 @@
 package org.cloudbus.cloudsim;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
@@ -30,6 +37,12 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p/>
+ * The links added one by one with {@link #addLink(int, int, double, double)} are batched: the delay
+ * matrix is only computed when a delay is first needed, once for all of them. A link added after
+ * that updates the delays incrementally.
+ * <p/>
+ * Every {@link Simulation} has its own topology.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -40,34 +53,75 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * A private default constructor would be created to avoid instantiation.
  */
 public class NetworkTopology {
-        /**
-         * The BRITE id to use for the next node to be created in the network.
-         */
-	protected static int nextIdx = 0;
-
-	private static boolean networkEnabled = false;
-
-        /**
-         * A matrix containing the delay between every pair of nodes in the network.
-         */
-	protected static DelayMatrix_Float delayMatrix = null;
-
-        /**
-         * A matrix containing the bandwidth between every pair of nodes in the network.
-         */
-	protected static double[][] bwMatrix = null;
+	/**
+	 * The network topology of a simulation.
+	 */
+	public static class State implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The BRITE id to use for the next node to be created in the network.
+		 */
+		private int nextIdx = 0;
+
+		private boolean networkEnabled = false;
+
+		/**
+		 * A matrix containing the delay between every pair of nodes in the network.
+		 */
+		private DelayMatrix_Float delayMatrix = null;
+
+		/**
+		 * A matrix containing the bandwidth between every pair of nodes in the network.
+		 */
+		private double[][] bwMatrix = null;
+
+		/**
+		 * Whether links were added to the graph since the matrices were generated, so that they
+		 * have to be generated again before being used.
+		 */
+		private volatile boolean matricesStale = false;
+
+		/**
+		 * The Topological Graph of the network.
+		 */
+		private TopologicalGraph graph = null;
+
+		/**
+		 * The map between CloudSim entities and BRITE entities.
+		 * Each key is a CloudSim entity ID and each value the corresponding
+		 * BRITE entity ID.
+		 */
+		private Map<Integer, Integer> map = null;
+
+		/**
+		 * The links leaving every BRITE node, built from the graph when a path is first needed.
+		 */
+		private List<List<TopologicalLink>> adjacency = null;
+
+		/**
+		 * For every BRITE source node whose shortest paths were computed, the link through which
+		 * every other node is reached (null for the source itself and for unreachable nodes).
+		 */
+		private final Map<Integer, TopologicalLink[]> pathLinks = new HashMap<Integer, TopologicalLink[]>();
+
+		/**
+		 * The model used to compute the time data messages take to cross the network, null if
+		 * data messages only pay the latency.
+		 */
+		private NetworkTransferModel transferModel = null;
 
-        /**
-         * The Topological Graph of the network.
-         */
-	protected static TopologicalGraph graph = null;
+	}
 
 	/**
-         * The map between CloudSim entities and BRITE entities.
-         * Each key is a CloudSim entity ID and each value the corresponding
-         * BRITE entity ID.
-         */
-        protected static Map<Integer, Integer> map = null;
+	 * Gets the network topology of the current simulation.
+	 * 
+	 * @return the state of the topology
+	 */
+	protected static State state() {
+		return Simulation.getCurrent().getComponent(State.class);
+	}
 
 	/**
 	 * Creates the network topology if the file exists and can be successfully parsed. File is
@@ -78,15 +132,16 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
+		State state = state();
 		Log.printConcatLine("Topology file: ", fileName);
 
 		// try to find the file
 		GraphReaderBrite reader = new GraphReaderBrite();
 
 		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
-			generateMatrices();
+			state.graph = reader.readGraphFile(fileName);
+			state.map = new HashMap<Integer, Integer>();
+			generateMatrices(state);
 		} catch (IOException e) {
 			// problem with the file. Does not simulate network
 			Log.printLine("Problem in processing BRITE file. Network simulation is disabled. Error: "
@@ -98,20 +153,45 @@ public class NetworkTopology {
 	/**
 	 * Generates the matrices used internally to set latency and bandwidth between elements.
 	 */
-	private static void generateMatrices() {
+	private static void generateMatrices(State state) {
 		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
+		state.delayMatrix = new DelayMatrix_Float(state.graph, false);
 
 		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		state.bwMatrix = createBwMatrix(state.graph, false);
 
-		networkEnabled = true;
+		// the shortest paths are computed again when needed
+		state.adjacency = null;
+		state.pathLinks.clear();
+
+		state.networkEnabled = true;
+		state.matricesStale = false;
+	}
+
+	/**
+	 * Generates the matrices again if links were added since they were generated. The first
+	 * entity that needs them generates them, while the others wait.
+	 * 
+	 * @param state the topology
+	 */
+	private static void updateMatrices(State state) {
+		if (state.matricesStale) {
+			synchronized (state) {
+				if (state.matricesStale) {
+					generateMatrices(state);
+				}
+			}
+		}
 	}
 
 	/**
 	 * Adds a new link in the network topology.
          * The CloudSim entities that represent the source and destination of the link
          * will be mapped to BRITE entities.
+	 * <p/>
+	 * If the delay matrix is in use, it is updated with the paths through the new link, in
+	 * O(n^2). Otherwise, or if there already is a link between the two nodes, it is generated
+	 * again once, when a delay is needed.
 	 * 
 	 * @param srcId ID of the CloudSim entity that represents the link's source node
 	 * @param destId ID of the CloudSim entity that represents the link's destination node
@@ -122,33 +202,87 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		State state = state();
 
-		if (graph == null) {
-			graph = new TopologicalGraph();
+		if (state.graph == null) {
+			state.graph = new TopologicalGraph();
 		}
 
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
+		if (state.map == null) {
+			state.map = new HashMap<Integer, Integer>();
 		}
 
 		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(srcId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(srcId, state.nextIdx);
+			state.nextIdx++;
 		}
 
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
+		if (!state.map.containsKey(destId)) {
+			state.graph.addNode(new TopologicalNode(state.nextIdx));
+			state.map.put(destId, state.nextIdx);
+			state.nextIdx++;
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		int src = state.map.get(srcId);
+		int dest = state.map.get(destId);
+		TopologicalLink link = new TopologicalLink(src, dest, (float) lat, (float) bw);
+		boolean parallel = state.delayMatrix != null && !state.matricesStale && hasLink(state.graph, src, dest);
+		state.graph.addLink(link);
+		state.networkEnabled = true;
+
+		if (state.delayMatrix == null || state.matricesStale || parallel) {
+			state.matricesStale = true;
+			state.adjacency = null;
+			state.pathLinks.clear();
+			return;
+		}
+
+		int nodes = state.graph.getNumberOfNodes();
+		state.delayMatrix.addLink(src, dest, link.getLinkDelay(), false);
+		if (nodes > state.bwMatrix.length) {
+			double[][] mtx = new double[Math.max(nodes, 2 * state.bwMatrix.length)][];
+			for (int i = 0; i < mtx.length; i++) {
+				mtx[i] = new double[mtx.length];
+				if (i < state.bwMatrix.length) {
+					System.arraycopy(state.bwMatrix[i], 0, mtx[i], 0, state.bwMatrix.length);
+				}
+			}
+			state.bwMatrix = mtx;
+		}
+		state.bwMatrix[src][dest] = link.getLinkBw();
+		state.bwMatrix[dest][src] = link.getLinkBw();
 
-		generateMatrices();
+		if (state.adjacency != null) {
+			while (state.adjacency.size() < nodes) {
+				state.adjacency.add(new ArrayList<TopologicalLink>());
+			}
+			state.adjacency.get(src).add(link);
+			state.adjacency.get(dest).add(link);
+		}
+		state.pathLinks.clear();
+	}
 
+	/**
+	 * Checks whether there is a link between two nodes, either way.
+	 * 
+	 * @param graph the topological graph
+	 * @param node1 the BRITE id of a node
+	 * @param node2 the BRITE id of the other node
+	 * @return true if the nodes are linked
+	 */
+	private static boolean hasLink(TopologicalGraph graph, int node1, int node2) {
+		Iterator<TopologicalLink> iter = graph.getLinkIterator();
+		while (iter.hasNext()) {
+			TopologicalLink link = iter.next();
+			if ((link.getSrcNodeID() == node1 && link.getDestNodeID() == node2)
+					|| (link.getSrcNodeID() == node2 && link.getDestNodeID() == node1)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
@@ -194,12 +328,13 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
 			try {
 				// this CloudSim entity was already mapped?
-				if (!map.containsKey(cloudSimEntityID)) {
-					if (!map.containsValue(briteID)) { // this BRITE node was already mapped?
-						map.put(cloudSimEntityID, briteID);
+				if (!state.map.containsKey(cloudSimEntityID)) {
+					if (!state.map.containsValue(briteID)) { // this BRITE node was already mapped?
+						state.map.put(cloudSimEntityID, briteID);
 					} else {
 						Log.printConcatLine("Error in network mapping. BRITE node ", briteID, " already in use.");
 					}
@@ -222,15 +357,27 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
 			try {
-				map.remove(cloudSimEntityID);
+				state.map.remove(cloudSimEntityID);
 			} catch (Exception e) {
 				Log.printConcatLine("Error in network unmapping. CloudSim node: ", cloudSimEntityID);
 			}
 		}
 	}
 
+	/**
+	 * Checks whether a CloudSim entity is mapped to a node of the network topology.
+	 * 
+	 * @param cloudSimEntityID ID of the entity
+	 * @return true if the network is enabled and the entity is mapped
+	 */
+	public static boolean isMapped(int cloudSimEntityID) {
+		State state = state();
+		return state.networkEnabled && state.map != null && state.map.containsKey(cloudSimEntityID);
+	}
+
 	/**
 	 * Calculates the delay between two nodes.
 	 * 
@@ -242,10 +389,12 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
+		State state = state();
+		if (state.networkEnabled) {
+			updateMatrices(state);
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = state.delayMatrix.getDelay(state.map.get(srcID), state.map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -255,6 +404,146 @@ public class NetworkTopology {
 		return 0.0;
 	}
 
+	/**
+	 * Gets the links of the lowest delay path between two nodes, the same path the delay between
+	 * them is computed on.
+	 * 
+	 * @param srcID ID of the CloudSim entity that represents the source node
+	 * @param destID ID of the CloudSim entity that represents the destination node
+	 * @return the links from the source to the destination, empty if the nodes are the same, are
+	 *         not mapped or are not connected
+	 */
+	public static List<TopologicalLink> getPath(int srcID, int destID) {
+		State state = state();
+		if (!state.networkEnabled || state.map == null || !state.map.containsKey(srcID) || !state.map.containsKey(destID)) {
+			return Collections.emptyList();
+		}
+
+		int src = state.map.get(srcID);
+		int dest = state.map.get(destID);
+		TopologicalLink[] links = state.pathLinks.get(src);
+		if (links == null) {
+			links = computePathLinks(state, src);
+			state.pathLinks.put(src, links);
+		}
+
+		List<TopologicalLink> path = new ArrayList<TopologicalLink>();
+		int node = dest;
+		while (node != src) {
+			TopologicalLink link = links[node];
+			if (link == null) {
+				return Collections.emptyList();
+			}
+			path.add(link);
+			node = link.getSrcNodeID() == node ? link.getDestNodeID() : link.getSrcNodeID();
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	/**
+	 * Gets the bandwidth available to a transfer between two nodes, that is the bandwidth of the
+	 * bottleneck link of the path between them. Links without a bandwidth don't limit it.
+	 * 
+	 * @param srcID ID of the CloudSim entity that represents the source node
+	 * @param destID ID of the CloudSim entity that represents the destination node
+	 * @return the bandwidth, {@link Double#POSITIVE_INFINITY} if nothing limits it
+	 */
+	public static double getBandwidth(int srcID, int destID) {
+		double bw = Double.POSITIVE_INFINITY;
+		for (TopologicalLink link : getPath(srcID, destID)) {
+			if (link.getLinkBw() > 0) {
+				bw = Math.min(bw, link.getLinkBw());
+			}
+		}
+		return bw;
+	}
+
+	/**
+	 * Computes the time a data message takes to cross the network, besides the latency, using the
+	 * transfer model set with {@link #setTransferModel(NetworkTransferModel)}. The transfer starts
+	 * at the current simulation time.
+	 * 
+	 * @param srcID ID of the CloudSim entity that sends the data
+	 * @param destID ID of the CloudSim entity that receives the data
+	 * @param size the amount of data, in the unit of the link bandwidths times seconds
+	 * @return the transfer time, 0.0 if the network or the transfer model are not enabled
+	 */
+	public static double getTransferTime(int srcID, int destID, double size) {
+		State state = state();
+		if (state.networkEnabled && state.transferModel != null && srcID != destID) {
+			return state.transferModel.getTransferTime(CloudSim.clock(), srcID, destID, size);
+		}
+		return 0.0;
+	}
+
+	public static NetworkTransferModel getTransferModel() {
+		return state().transferModel;
+	}
+
+	/**
+	 * Sets the model used to compute the time data messages take to cross the network.
+	 * 
+	 * @param transferModel the transfer model, null if data messages only pay the latency
+	 */
+	public static void setTransferModel(NetworkTransferModel transferModel) {
+		state().transferModel = transferModel;
+	}
+
+	/**
+	 * Finds the lowest delay paths from a node to all the others (Dijkstra).
+	 * 
+	 * @param src the BRITE id of the source node
+	 * @return the link through which every node is reached
+	 */
+	private static TopologicalLink[] computePathLinks(State state, int src) {
+		int nodes = state.graph.getNumberOfNodes();
+		if (state.adjacency == null) {
+			state.adjacency = new ArrayList<List<TopologicalLink>>(nodes);
+			for (int i = 0; i < nodes; i++) {
+				state.adjacency.add(new ArrayList<TopologicalLink>());
+			}
+			Iterator<TopologicalLink> iter = state.graph.getLinkIterator();
+			while (iter.hasNext()) {
+				TopologicalLink link = iter.next();
+				state.adjacency.get(link.getSrcNodeID()).add(link);
+				state.adjacency.get(link.getDestNodeID()).add(link);
+			}
+		}
+
+		TopologicalLink[] links = new TopologicalLink[nodes];
+		double[] distance = new double[nodes];
+		boolean[] done = new boolean[nodes];
+		for (int i = 0; i < nodes; i++) {
+			distance[i] = Double.POSITIVE_INFINITY;
+		}
+		distance[src] = 0;
+
+		for (int step = 0; step < nodes; step++) {
+			int node = -1;
+			for (int i = 0; i < nodes; i++) {
+				if (!done[i] && distance[i] < Double.POSITIVE_INFINITY && (node == -1 || distance[i] < distance[node])) {
+					node = i;
+				}
+			}
+			if (node == -1) {
+				break;
+			}
+			done[node] = true;
+
+			for (TopologicalLink link : state.adjacency.get(node)) {
+				int other = link.getSrcNodeID() == node ? link.getDestNodeID() : link.getSrcNodeID();
+				double candidate = distance[node] + link.getLinkDelay();
+				if (candidate < distance[other]) {
+					distance[other] = candidate;
+					links[other] = link;
+				}
+			}
+		}
+
+		return links;
+	}
+
 	/**
 	 * Checks if the network simulation is working. If there were some problem during
 	 * creation of network (e.g., during parsing of BRITE file) that does not allow a proper
@@ -265,7 +554,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return state().networkEnabled;
 	}
 
 }
@@ -0,0 +1,260 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.network.TopologicalLink;
+
+/**
+ * NetworkTransferModel computes the time a data transfer takes to cross the links of the path
+ * between two nodes of the {@link NetworkTopology}.
+ *
+ * <p/>Without fair sharing, a transfer always gets the whole bandwidth of the bottleneck link of
+ * its path. With fair sharing, the transfers in progress share the links with max-min fairness:
+ * every link splits its bandwidth equally among the transfers crossing it, and a transfer limited
+ * elsewhere leaves its unused share to the others.
+ *
+ * <p/>As for the {@link StorageIoScheduler}, the completion time of a transfer is computed when it
+ * starts, assuming no other transfer starts before it completes. Later transfers see the transfers
+ * in progress with the data they really have left, but they do not change the completion times
+ * already returned. Transfers must start in non-decreasing time order.
+ *
+ * @see NetworkTopology#setTransferModel(NetworkTransferModel)
+ */
+public class NetworkTransferModel implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Transfers with less data left than this are considered completed. */
+	private static final double EPSILON = 1e-12;
+
+	/** Whether the transfers in progress share the links. */
+	private final boolean fairSharing;
+
+	/** The transfers in progress, at {@link #lastUpdate}. */
+	private final List<Transfer> transfers = new ArrayList<Transfer>();
+
+	/** The time {@link #transfers} refers to. */
+	private double lastUpdate;
+
+	/** The number of transfers started so far. */
+	private int transferCount;
+
+	/** The amount of data transferred so far. */
+	private double transferredData;
+
+	/**
+	 * Creates a model in which every transfer gets the whole bandwidth of its bottleneck link.
+	 */
+	public NetworkTransferModel() {
+		this(false);
+	}
+
+	/**
+	 * Creates a model.
+	 *
+	 * @param fairSharing whether the transfers in progress share the links with max-min fairness
+	 */
+	public NetworkTransferModel(boolean fairSharing) {
+		this.fairSharing = fairSharing;
+	}
+
+	/**
+	 * Starts a transfer and computes how long it takes.
+	 *
+	 * @param time the time the transfer starts
+	 * @param srcID ID of the CloudSim entity that sends the data
+	 * @param destID ID of the CloudSim entity that receives the data
+	 * @param size the amount of data, in the unit of the link bandwidths times seconds
+	 * @return the transfer time, 0.0 if no link limits the transfer
+	 */
+	public double getTransferTime(double time, int srcID, int destID, double size) {
+		transferCount++;
+		transferredData += size;
+
+		List<TopologicalLink> links = new ArrayList<TopologicalLink>();
+		for (TopologicalLink link : NetworkTopology.getPath(srcID, destID)) {
+			if (link.getLinkBw() > 0) {
+				links.add(link);
+			}
+		}
+		if (links.isEmpty() || size <= 0) {
+			return 0.0;
+		}
+
+		if (!fairSharing) {
+			double bw = Double.MAX_VALUE;
+			for (TopologicalLink link : links) {
+				bw = Math.min(bw, link.getLinkBw());
+			}
+			return size / bw;
+		}
+
+		update(time);
+		Transfer transfer = new Transfer(links, size);
+		transfers.add(transfer);
+
+		// plays the transfers in progress forward, on a copy, until the new one completes
+		List<Transfer> copy = new ArrayList<Transfer>(transfers.size());
+		Transfer copyOfNew = null;
+		for (Transfer t : transfers) {
+			Transfer c = new Transfer(t.links, t.remaining);
+			copy.add(c);
+			if (t == transfer) {
+				copyOfNew = c;
+			}
+		}
+		return advance(copy, Double.MAX_VALUE, copyOfNew);
+	}
+
+	/**
+	 * Gets the number of transfers in progress at the given time.
+	 *
+	 * @param time the time, not before the last transfer started
+	 * @return the number of transfers in progress, always 0 without fair sharing
+	 */
+	public int getActiveTransfers(double time) {
+		update(time);
+		return transfers.size();
+	}
+
+	/**
+	 * Moves the transfers in progress forward to the given time.
+	 *
+	 * @param time the time to advance to
+	 */
+	protected void update(double time) {
+		if (time > lastUpdate) {
+			advance(transfers, time - lastUpdate, null);
+			lastUpdate = time;
+		}
+	}
+
+	/**
+	 * Moves a set of transfers forward, removing the completed ones, for the given time or until
+	 * the given transfer completes.
+	 *
+	 * @param active the transfers
+	 * @param duration the time to move forward by
+	 * @param until the transfer to stop at when it completes, null to move for the whole duration
+	 * @return the time moved forward by
+	 */
+	private double advance(List<Transfer> active, double duration, Transfer until) {
+		double elapsed = 0;
+		while (!active.isEmpty() && elapsed < duration) {
+			Map<Transfer, Double> rates = computeRates(active);
+
+			// the rates hold until the first transfer completes
+			double step = duration - elapsed;
+			for (Transfer t : active) {
+				step = Math.min(step, t.remaining / rates.get(t));
+			}
+
+			elapsed += step;
+			List<Transfer> updated = new ArrayList<Transfer>(active.size());
+			boolean done = false;
+			for (Transfer t : active) {
+				t.remaining -= rates.get(t) * step;
+				if (t.remaining > EPSILON) {
+					updated.add(t);
+				} else if (t == until) {
+					done = true;
+				}
+			}
+			active.clear();
+			active.addAll(updated);
+			if (done) {
+				break;
+			}
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Computes the max-min fair rates of a set of transfers by progressive filling: the link with
+	 * the smallest share fixes the rate of all its transfers, which are then removed with the
+	 * bandwidth they use, until every transfer has a rate.
+	 *
+	 * @param active the transfers, each with at least one link
+	 * @return the rate of every transfer
+	 */
+	private Map<Transfer, Double> computeRates(List<Transfer> active) {
+		Map<TopologicalLink, Double> capacity = new HashMap<TopologicalLink, Double>();
+		Map<TopologicalLink, Integer> users = new HashMap<TopologicalLink, Integer>();
+		for (Transfer t : active) {
+			for (TopologicalLink link : t.links) {
+				if (!capacity.containsKey(link)) {
+					capacity.put(link, (double) link.getLinkBw());
+					users.put(link, 0);
+				}
+				users.put(link, users.get(link) + 1);
+			}
+		}
+
+		Map<Transfer, Double> rates = new HashMap<Transfer, Double>();
+		while (rates.size() < active.size()) {
+			TopologicalLink bottleneck = null;
+			double share = Double.MAX_VALUE;
+			for (Map.Entry<TopologicalLink, Integer> entry : users.entrySet()) {
+				if (entry.getValue() > 0) {
+					double linkShare = capacity.get(entry.getKey()) / entry.getValue();
+					if (linkShare < share) {
+						share = linkShare;
+						bottleneck = entry.getKey();
+					}
+				}
+			}
+
+			for (Transfer t : active) {
+				if (!rates.containsKey(t) && t.links.contains(bottleneck)) {
+					rates.put(t, share);
+					for (TopologicalLink link : t.links) {
+						capacity.put(link, Math.max(0, capacity.get(link) - share));
+						users.put(link, users.get(link) - 1);
+					}
+				}
+			}
+		}
+		return rates;
+	}
+
+	public boolean isFairSharing() {
+		return fairSharing;
+	}
+
+	public int getTransferCount() {
+		return transferCount;
+	}
+
+	public double getTransferredData() {
+		return transferredData;
+	}
+
+	/**
+	 * A transfer in progress: the links it crosses and the data it has left.
+	 */
+	private static class Transfer {
+
+		private final List<TopologicalLink> links;
+
+		private double remaining;
+
+		private Transfer(List<TopologicalLink> links, double remaining) {
+			this.links = links;
+			this.remaining = remaining;
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+
+/**
+ * StorageIoScheduler is an abstract class that represents the I/O queue of a storage device. The
+ * storage computes the time an operation takes when it has the whole device for itself (seek plus
+ * transfer time); the scheduler turns it into the time the operation really takes, given the other
+ * operations that are using the same device. It also collects the utilization metrics of the device.
+ *
+ * <p/>Operations must be submitted in non-decreasing time order, which is always the case when the
+ * submission time is the simulation clock.
+ *
+ * @see HarddriveStorage#setIoScheduler(StorageIoScheduler)
+ */
+public abstract class StorageIoScheduler implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of operations submitted so far. */
+	private int operations;
+
+	/** The amount of data read or written so far, in MB. */
+	private double transferredData;
+
+	/** The sum of the service times of the operations submitted so far. */
+	private double totalServiceTime;
+
+	/** The sum of the time the operations submitted so far spent waiting for other operations. */
+	private double totalWaitingTime;
+
+	/** The longest response time of an operation so far. */
+	private double maxResponseTime;
+
+	/**
+	 * Submits an operation to the device.
+	 *
+	 * @param time the time the operation is submitted
+	 * @param serviceTime the time the operation takes when it has the device for itself
+	 * @param size the amount of data read or written, in MB
+	 * @return the time the operation takes to complete, waiting included
+	 */
+	public double submit(double time, double serviceTime, double size) {
+		double responseTime = schedule(time, serviceTime);
+
+		operations++;
+		transferredData += size;
+		totalServiceTime += serviceTime;
+		totalWaitingTime += responseTime - serviceTime;
+		maxResponseTime = Math.max(maxResponseTime, responseTime);
+
+		return responseTime;
+	}
+
+	/**
+	 * Queues an operation and computes when it completes.
+	 *
+	 * @param time the time the operation is submitted
+	 * @param serviceTime the time the operation takes when it has the device for itself
+	 * @return the time the operation takes to complete, waiting included
+	 */
+	protected abstract double schedule(double time, double serviceTime);
+
+	/**
+	 * Gets the service time that the device still has to perform at the given time.
+	 *
+	 * @param time the time, not before the last submission
+	 * @return the pending service time
+	 */
+	public abstract double getBacklog(double time);
+
+	/**
+	 * Gets the number of operations that are queued or in progress at the given time.
+	 *
+	 * @param time the time, not before the last submission
+	 * @return the number of pending operations
+	 */
+	public abstract int getQueueLength(double time);
+
+	/**
+	 * Gets the time the device has spent serving operations up to the given time.
+	 *
+	 * @param time the time, not before the last submission
+	 * @return the busy time
+	 */
+	public double getBusyTime(double time) {
+		return totalServiceTime - getBacklog(time);
+	}
+
+	/**
+	 * Gets the fraction of time the device has been busy since the beginning of the simulation.
+	 *
+	 * @param time the time, not before the last submission
+	 * @return the utilization, between 0 and 1
+	 */
+	public double getUtilization(double time) {
+		if (time <= 0) {
+			return 0;
+		}
+		return Math.min(1.0, getBusyTime(time) / time);
+	}
+
+	/**
+	 * Gets the average time an operation spent waiting for the other operations.
+	 *
+	 * @return the average waiting time
+	 */
+	public double getAverageWaitingTime() {
+		if (operations == 0) {
+			return 0;
+		}
+		return totalWaitingTime / operations;
+	}
+
+	public int getOperations() {
+		return operations;
+	}
+
+	public double getTransferredData() {
+		return transferredData;
+	}
+
+	public double getTotalServiceTime() {
+		return totalServiceTime;
+	}
+
+	public double getTotalWaitingTime() {
+		return totalWaitingTime;
+	}
+
+	public double getMaxResponseTime() {
+		return maxResponseTime;
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StorageIoSchedulerFairShare splits the bandwidth of a storage device equally among all the
+ * operations in progress, like a time-shared scheduler does with the processing power of a PE.
+ *
+ * <p/>The completion time of an operation is computed when it is submitted, assuming no other
+ * operation arrives before it completes. Later submissions see the operations in progress with the
+ * service they really have left, but they do not change the completion times already returned.
+ */
+public class StorageIoSchedulerFairShare extends StorageIoScheduler {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Operations with less service left than this are considered completed. */
+	private static final double EPSILON = 1e-12;
+
+	/** The service time left to every operation in progress, at {@link #lastUpdate}. */
+	private final List<Double> remaining = new ArrayList<Double>();
+
+	/** The time {@link #remaining} refers to. */
+	private double lastUpdate;
+
+	@Override
+	protected double schedule(double time, double serviceTime) {
+		update(time);
+
+		// until it completes, the new operation shares the device with every operation in progress,
+		// and each of them delays it by the service they have in common
+		double responseTime = serviceTime;
+		for (double left : remaining) {
+			responseTime += Math.min(left, serviceTime);
+		}
+
+		remaining.add(serviceTime);
+		return responseTime;
+	}
+
+	@Override
+	public double getBacklog(double time) {
+		update(time);
+		double backlog = 0;
+		for (double left : remaining) {
+			backlog += left;
+		}
+		return backlog;
+	}
+
+	@Override
+	public int getQueueLength(double time) {
+		update(time);
+		return remaining.size();
+	}
+
+	/**
+	 * Serves the operations in progress up to the given time.
+	 *
+	 * @param time the time to advance to
+	 */
+	protected void update(double time) {
+		double elapsed = time - lastUpdate;
+		lastUpdate = Math.max(lastUpdate, time);
+
+		while (elapsed > 0 && !remaining.isEmpty()) {
+			double shortest = Double.MAX_VALUE;
+			for (double left : remaining) {
+				shortest = Math.min(shortest, left);
+			}
+
+			// every operation gets an equal share, so the shortest one completes first
+			int count = remaining.size();
+			double served;
+			if (shortest * count >= elapsed) {
+				served = elapsed / count;
+				elapsed = 0;
+			} else {
+				served = shortest;
+				elapsed -= shortest * count;
+			}
+
+			List<Double> updated = new ArrayList<Double>(count);
+			for (double left : remaining) {
+				if (left - served > EPSILON) {
+					updated.add(left - served);
+				}
+			}
+			remaining.clear();
+			remaining.addAll(updated);
+		}
+	}
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.LinkedList;
+
+/**
+ * StorageIoSchedulerFifo serves the operations of a storage device one at a time, in the order in
+ * which they are submitted: every operation waits until all the previous ones are completed.
+ */
+public class StorageIoSchedulerFifo extends StorageIoScheduler {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The time at which the device completes all the operations submitted so far. */
+	private double busyUntil;
+
+	/** The completion times of the operations that may still be pending, in order. */
+	private final LinkedList<Double> finishTimes = new LinkedList<Double>();
+
+	@Override
+	protected double schedule(double time, double serviceTime) {
+		double start = Math.max(time, busyUntil);
+		busyUntil = start + serviceTime;
+		finishTimes.add(busyUntil);
+		return busyUntil - time;
+	}
+
+	@Override
+	public double getBacklog(double time) {
+		return Math.max(0, busyUntil - time);
+	}
+
+	@Override
+	public int getQueueLength(double time) {
+		while (!finishTimes.isEmpty() && finishTimes.getFirst() <= time) {
+			finishTimes.removeFirst();
+		}
+		return finishTimes.size();
+	}
+
+}
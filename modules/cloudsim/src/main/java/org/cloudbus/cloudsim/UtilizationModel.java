@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim;
 
+import java.io.Serializable;
+
 /**
  * The UtilizationModel interface needs to be implemented in order to provide a fine-grained control
  * over resource usage by a Cloudlet.
@@ -18,7 +20,7 @@ package org.cloudbus.cloudsim;
  * the name of the interface and implementing classes would include the word "Cloudlet"
  * to make clear their for what kind of entity they are related.
  */
-public interface UtilizationModel {
+public interface UtilizationModel extends Serializable {
 
 	/**
 	 * Gets the utilization percentage of a given resource.
@@ -28,6 +28,8 @@ import java.util.Map;
  */
 public class VmSchedulerSpaceShared extends VmScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** A map between each VM and its allocated PEs, where the key is a VM ID and
          * the value a list of PEs allocated to VM. */
 	private Map<String, List<Pe>> peAllocationMap;
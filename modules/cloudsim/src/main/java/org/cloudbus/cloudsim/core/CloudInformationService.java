@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.Log;
  */
 public class CloudInformationService extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** A list containing the id of all entities that are registered at the 
          * Cloud Information Service (CIS). 
          * @todo It is not clear if this list is a list of host id's or datacenter id's.
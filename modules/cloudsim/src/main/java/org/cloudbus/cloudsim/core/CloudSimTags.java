@@ -307,6 +307,24 @@ public class CloudSimTags {
 	// Replication Broker
 	public static final int HDFS_REP_BROKER_ADD_DN = BASE + 61;
 
+	// Read path: block locations request and answer (Name Node)
+	public static final int HDFS_NAMENODE_GET_BLOCK_LOCATIONS = BASE + 62;
+	public static final int HDFS_NAMENODE_RETURN_BLOCK_LOCATIONS = BASE + 63;
+
+	// Read path: submission of a read Cloudlet to the Datacenter of the chosen Data Node, and the return of the block to the Broker
+	public static final int HDFS_READ_CLOUDLET_SUBMIT = BASE + 64;
+	public static final int HDFS_READ_CLOUDLET_RETURN = BASE + 65;
+
+	/**
+	 * Denotes the wake-up of a NetworkDatacenter when a flow of its flow-level network model completes.
+	 */
+	public static final int Network_Event_Flow = BASE + 66;
+
+	/**
+	 * Denotes the wake-up of a NetworkDatacenter to sample the counters of its network monitor.
+	 */
+	public static final int Network_Event_Sample = BASE + 67;
+
 	/** Private Constructor. */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSimTags cannot be instantiated");
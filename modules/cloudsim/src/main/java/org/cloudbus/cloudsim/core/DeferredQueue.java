@@ -8,41 +8,60 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 /**
- * This class implements the deferred event queue used by {@link CloudSim}. 
- * The event queue uses a linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link CloudSim}.
+ * The events are kept in one mailbox per destination entity, a linked list sorted by time, so an
+ * entity looking for its own events only goes through them, and not through the events of all the
+ * other entities.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see CloudSim
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The events of every destination entity, indexed by the entity id. */
+	private final List<LinkedList<SimEvent>> mailboxes = new ArrayList<LinkedList<SimEvent>>();
 
-	/** The list of events. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The number of events in all the mailboxes. */
+	private int size;
 
-	/** The max time that an added event is scheduled. */
-	private double maxTime = -1;
+	/** The last event of all the mailboxes, see {@link #getLast()}. */
+	private SimEvent last;
+
+	/** Whether the last event was removed, so that {@link #last} has to be found again. */
+	private boolean lastRemoved;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		LinkedList<SimEvent> list = getMailbox(newEvent.getDestination());
+		size++;
+		if (!lastRemoved && newEvent.compareTo(last) > 0) {
+			last = newEvent;
+		}
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
+		if (list.isEmpty() || eventTime >= list.getLast().eventTime()) {
 			list.add(newEvent);
-			maxTime = eventTime;
 			return;
 		}
 
@@ -61,28 +80,158 @@ public class DeferredQueue {
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Returns an iterator to the events in the queue, grouped by destination entity. The events of
+	 * every entity are in temporal order.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new Iterator<SimEvent>() {
+
+			/** The mailbox of the next event. */
+			private int destination = -1;
+
+			/** The iterator over the mailbox of the next event. */
+			private Iterator<SimEvent> current = Collections.<SimEvent> emptyList().iterator();
+
+			/** The iterator that returned the last event. */
+			private Iterator<SimEvent> last;
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext() && destination + 1 < mailboxes.size()) {
+					destination++;
+					current = iterator(destination);
+				}
+				return current.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = current;
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				last.remove();
+				last = null;
+			}
+
+		};
+	}
+
+	/**
+	 * Returns an iterator to the events of an entity, in temporal order.
+	 *
+	 * @param destination the id of the entity the events are sent to
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		if (destination < 0 || destination >= mailboxes.size()) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+
+		final Iterator<SimEvent> iterator = mailboxes.get(destination).iterator();
+		return new Iterator<SimEvent>() {
+
+			/** The event returned by the last call to next. */
+			private SimEvent current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				current = iterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				size--;
+				if (current == last) {
+					last = null;
+					lastRemoved = size > 0;
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Returns the last event of the queue, that is the last one of all the entities. It is kept
+	 * as the events are added, and only looked for in the mailboxes of all the entities again
+	 * after it has been removed.
+	 *
+	 * @return the last event, null if the queue is empty
+	 */
+	public SimEvent getLast() {
+		if (lastRemoved) {
+			for (LinkedList<SimEvent> list : mailboxes) {
+				if (!list.isEmpty() && list.getLast().compareTo(last) > 0) {
+					last = list.getLast();
+				}
+			}
+			lastRemoved = false;
+		}
+		return last;
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
+	}
+
+	/**
+	 * Returns the number of events of an entity.
+	 *
+	 * @param destination the id of the entity the events are sent to
+	 * @return the number of events of the entity
+	 */
+	public int size(int destination) {
+		if (destination < 0 || destination >= mailboxes.size()) {
+			return 0;
+		}
+		return mailboxes.get(destination).size();
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		for (LinkedList<SimEvent> list : mailboxes) {
+			list.clear();
+		}
+		size = 0;
+		last = null;
+		lastRemoved = false;
+	}
+
+	/**
+	 * Gets the mailbox of an entity, creating it if needed.
+	 *
+	 * @param destination the id of the entity
+	 * @return the mailbox
+	 */
+	private LinkedList<SimEvent> getMailbox(int destination) {
+		while (mailboxes.size() <= destination) {
+			mailboxes.add(new LinkedList<SimEvent>());
+		}
+		return mailboxes.get(destination);
 	}
 
-}
\ No newline at end of file
+}
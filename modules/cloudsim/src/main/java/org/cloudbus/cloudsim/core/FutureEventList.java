@@ -0,0 +1,122 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * FutureEventList is an abstract class that represents the data structure in which the
+ * {@link FutureQueue} keeps its events. Events are ordered by time and, for the same time, by
+ * serial number, as defined by {@link SimEvent#compareTo(SimEvent)}.
+ *
+ * <p/>The simulation loop only needs the events at the head of the list, which every
+ * implementation gets in order; iterating over the whole list is only needed to cancel events, so
+ * implementations that do not keep the events sorted may take a sorted copy.
+ *
+ * @see FutureQueue#FutureQueue(FutureEventList)
+ * @see CloudSim#setFutureEventListClass(Class)
+ */
+public abstract class FutureEventList implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Adds an event to the list.
+	 *
+	 * @param event the event, with its serial number already set
+	 */
+	public abstract void add(SimEvent event);
+
+	/**
+	 * Gets the first event of the list, without removing it.
+	 *
+	 * @return the first event, null if the list is empty
+	 */
+	public abstract SimEvent peek();
+
+	/**
+	 * Removes all the events that have the same time as the first event of the list.
+	 *
+	 * @param events the list the removed events are appended to, in order
+	 * @return the number of removed events
+	 */
+	public abstract int pollFirstEvents(List<SimEvent> events);
+
+	/**
+	 * Removes an event from the list.
+	 *
+	 * @param event the event
+	 * @return true if the event was in the list
+	 */
+	public abstract boolean remove(SimEvent event);
+
+	/**
+	 * Gets the number of events in the list.
+	 *
+	 * @return the size
+	 */
+	public abstract int size();
+
+	/**
+	 * Removes all the events from the list.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Copies all the events of the list, in no particular order.
+	 *
+	 * @param events the list the events are appended to
+	 */
+	protected abstract void copyTo(List<SimEvent> events);
+
+	/**
+	 * Returns an iterator over the events, in order. The iterator works on a copy of the list, but
+	 * its remove method removes the event from the list.
+	 *
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator() {
+		final List<SimEvent> sorted = new ArrayList<SimEvent>(size());
+		copyTo(sorted);
+		Collections.sort(sorted);
+
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < sorted.size();
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return sorted.get(next++);
+			}
+
+			@Override
+			public void remove() {
+				if (next == 0) {
+					throw new IllegalStateException();
+				}
+				FutureEventList.this.remove(sorted.get(next - 1));
+			}
+
+		};
+	}
+
+}
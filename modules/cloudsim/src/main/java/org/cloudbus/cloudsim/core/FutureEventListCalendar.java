@@ -0,0 +1,293 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FutureEventListCalendar keeps the events in a calendar queue (R. Brown, "Calendar queues: a fast
+ * O(1) priority queue implementation for the simulation event set problem", 1988). Time is split in
+ * "days" of a fixed width, and every bucket of the calendar holds, sorted, the events of one day of
+ * every "year". When the day width is close to the average time between events, adding an event
+ * and removing the first one take constant time on average, whatever the number of events. The
+ * calendar is resized, and the day width estimated again, when the number of events doubles or
+ * halves.
+ *
+ * <p/>All the events with the same time are in the same bucket, one after the other, so they are
+ * removed together with a single operation.
+ *
+ * <p/>The calendar pays off with large queues whose event times are spread smoothly. When the times
+ * are bursty, or the queue is small, the {@link FutureEventListHeap} is usually faster.
+ */
+public class FutureEventListCalendar extends FutureEventList {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The smallest number of buckets of the calendar. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of events, from the head of the queue, used to estimate the day width. */
+	private static final int SAMPLE_SIZE = 25;
+
+	/**
+	 * The smallest time between events, relative to their time, that counts when estimating the day
+	 * width: shorter times are rounding errors of events meant to happen together.
+	 */
+	private static final double MIN_SEPARATION = 1e-9;
+
+	/** The buckets of the calendar, every one sorted. */
+	private List<List<SimEvent>> buckets;
+
+	/** The width of a day. */
+	private double width = 1.0;
+
+	/** The number of events in the calendar. */
+	private int size;
+
+	/** The bucket of the day the first event is searched from. */
+	private int currentBucket;
+
+	/** The day the first event is searched from. */
+	private long currentDay;
+
+	/**
+	 * Creates an empty calendar.
+	 */
+	public FutureEventListCalendar() {
+		setBuckets(MIN_BUCKETS, width, 0);
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		double time = event.eventTime();
+		List<SimEvent> bucket = buckets.get(getBucket(time));
+
+		// the new event usually goes after all the others
+		int index = bucket.size();
+		if (index > 0 && event.compareTo(bucket.get(index - 1)) < 0) {
+			index = -Collections.binarySearch(bucket, event) - 1;
+		}
+		bucket.add(index, event);
+		size++;
+
+		// the first event may now be before the day the search starts from
+		if (getDay(time) < currentDay) {
+			setCurrentDay(time);
+		}
+
+		if (size > 2 * buckets.size()) {
+			resize(buckets.size() * 2);
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (size == 0) {
+			return null;
+		}
+		return buckets.get(findFirstBucket()).get(0);
+	}
+
+	@Override
+	public int pollFirstEvents(List<SimEvent> events) {
+		if (size == 0) {
+			return 0;
+		}
+
+		List<SimEvent> bucket = buckets.get(findFirstBucket());
+		double time = bucket.get(0).eventTime();
+		int count = 1;
+		while (count < bucket.size() && bucket.get(count).eventTime() == time) {
+			count++;
+		}
+
+		List<SimEvent> first = bucket.subList(0, count);
+		events.addAll(first);
+		first.clear();
+		size -= count;
+
+		if (size < buckets.size() / 2 && buckets.size() > MIN_BUCKETS) {
+			resize(buckets.size() / 2);
+		}
+		return count;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		List<SimEvent> bucket = buckets.get(getBucket(event.eventTime()));
+		for (int i = 0; i < bucket.size(); i++) {
+			if (bucket.get(i) == event) {
+				bucket.remove(i);
+				size--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		setBuckets(MIN_BUCKETS, width, 0);
+		size = 0;
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> events) {
+		for (List<SimEvent> bucket : buckets) {
+			events.addAll(bucket);
+		}
+	}
+
+	public double getWidth() {
+		return width;
+	}
+
+	public int getBucketCount() {
+		return buckets.size();
+	}
+
+	/**
+	 * Finds the bucket that holds the first event, and makes its day the one the next search
+	 * starts from. The calendar must not be empty.
+	 *
+	 * @return the bucket
+	 */
+	private int findFirstBucket() {
+		// looks for an event in the current day, then in the following days, for one year
+		int bucketCount = buckets.size();
+		for (int i = 0; i < bucketCount; i++) {
+			List<SimEvent> bucket = buckets.get(currentBucket);
+			if (!bucket.isEmpty() && getDay(bucket.get(0).eventTime()) <= currentDay) {
+				return currentBucket;
+			}
+			currentBucket = (currentBucket + 1) % bucketCount;
+			currentDay++;
+		}
+
+		// no event in the next year: the first event is the first of the bucket heads
+		SimEvent first = null;
+		for (List<SimEvent> bucket : buckets) {
+			if (!bucket.isEmpty() && (first == null || bucket.get(0).compareTo(first) < 0)) {
+				first = bucket.get(0);
+			}
+		}
+		setCurrentDay(first.eventTime());
+		return currentBucket;
+	}
+
+	/**
+	 * Gets the bucket that holds the events of the given time.
+	 *
+	 * @param time the time
+	 * @return the bucket
+	 */
+	private int getBucket(double time) {
+		return (int) (getDay(time) % buckets.size());
+	}
+
+	/**
+	 * Gets the day the given time belongs to, counted from time 0.
+	 *
+	 * @param time the time
+	 * @return the day
+	 */
+	private long getDay(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Makes the day of the given time the one the next search for the first event starts from.
+	 *
+	 * @param time the time
+	 */
+	private void setCurrentDay(double time) {
+		currentDay = getDay(time);
+		currentBucket = (int) (currentDay % buckets.size());
+	}
+
+	/**
+	 * Creates empty buckets.
+	 *
+	 * @param bucketCount the number of buckets
+	 * @param newWidth the width of a day
+	 * @param time the time the search for the first event starts from
+	 */
+	private void setBuckets(int bucketCount, double newWidth, double time) {
+		buckets = new ArrayList<List<SimEvent>>(bucketCount);
+		for (int i = 0; i < bucketCount; i++) {
+			buckets.add(new ArrayList<SimEvent>());
+		}
+		width = newWidth;
+		setCurrentDay(time);
+	}
+
+	/**
+	 * Moves all the events to a calendar with a different number of buckets, estimating the width
+	 * of a day again.
+	 *
+	 * @param bucketCount the new number of buckets
+	 */
+	private void resize(int bucketCount) {
+		List<SimEvent> events = new ArrayList<SimEvent>(size);
+		copyTo(events);
+		Collections.sort(events);
+
+		setBuckets(bucketCount, estimateWidth(events), events.isEmpty() ? 0 : events.get(0).eventTime());
+		for (SimEvent event : events) {
+			// the events are sorted, so every one goes after those already in its bucket
+			buckets.get(getBucket(event.eventTime())).add(event);
+		}
+	}
+
+	/**
+	 * Estimates the width of a day as three times the average time between the first events,
+	 * ignoring the times much longer than the average (as suggested by Brown). Events at the same
+	 * time, or almost, don't count, since they are removed together or nearly so.
+	 *
+	 * @param events the events, sorted
+	 * @return the width, the current one if it cannot be estimated
+	 */
+	private double estimateWidth(List<SimEvent> events) {
+		List<Double> separations = new ArrayList<Double>(SAMPLE_SIZE);
+		for (int i = 1; i < events.size() && separations.size() < SAMPLE_SIZE; i++) {
+			double time = events.get(i).eventTime();
+			double separation = time - events.get(i - 1).eventTime();
+			if (separation > MIN_SEPARATION * Math.max(1.0, time)) {
+				separations.add(separation);
+			}
+		}
+		if (separations.isEmpty()) {
+			return width;
+		}
+
+		double average = 0;
+		for (double separation : separations) {
+			average += separation;
+		}
+		average /= separations.size();
+
+		double total = 0;
+		int count = 0;
+		for (double separation : separations) {
+			if (separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+		return 3 * total / count;
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * FutureEventListHeap keeps the events in an implicit 4-ary heap. Adding an event and removing the
+ * first one take logarithmic time, like in a tree, but the heap is a single array, so it does not
+ * allocate anything per event and is much more cache friendly. A 4-ary heap is shallower than a
+ * binary one, which makes removals cheaper.
+ *
+ * <p/>Removing an event that is not the first one takes linear time: it only happens when events
+ * are cancelled.
+ */
+public class FutureEventListHeap extends FutureEventList {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of children of every node of the heap. */
+	private static final int ARITY = 4;
+
+	/** The heap: the children of the event at position i are at positions 4i+1 to 4i+4. */
+	private SimEvent[] heap = new SimEvent[64];
+
+	/** The number of events in the heap. */
+	private int size;
+
+	@Override
+	public void add(SimEvent event) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		siftUp(size++, event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public int pollFirstEvents(List<SimEvent> events) {
+		if (size == 0) {
+			return 0;
+		}
+
+		double time = heap[0].eventTime();
+		int count = 0;
+		while (size > 0 && heap[0].eventTime() == time) {
+			events.add(heap[0]);
+			removeAt(0);
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int i = 0; i < size; i++) {
+			if (heap[i] == event) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(heap, 0, size, null);
+		size = 0;
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> events) {
+		events.addAll(Arrays.asList(heap).subList(0, size));
+	}
+
+	/**
+	 * Removes the event at the given position, filling the hole with the last event.
+	 *
+	 * @param index the position
+	 */
+	private void removeAt(int index) {
+		SimEvent last = heap[--size];
+		heap[size] = null;
+		if (index == size) {
+			return;
+		}
+
+		siftDown(index, last);
+		if (heap[index] == last) {
+			siftUp(index, last);
+		}
+	}
+
+	/**
+	 * Puts an event at the given position or, if it comes before its parent, higher in the heap.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftUp(int index, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) / ARITY;
+			if (event.compareTo(heap[parent]) >= 0) {
+				break;
+			}
+			heap[index] = heap[parent];
+			index = parent;
+		}
+		heap[index] = event;
+	}
+
+	/**
+	 * Puts an event at the given position or, if it comes after one of its children, lower in the
+	 * heap.
+	 *
+	 * @param index the position
+	 * @param event the event
+	 */
+	private void siftDown(int index, SimEvent event) {
+		while (true) {
+			int first = index * ARITY + 1;
+			if (first >= size) {
+				break;
+			}
+
+			int smallest = first;
+			int end = Math.min(first + ARITY, size);
+			for (int child = first + 1; child < end; child++) {
+				if (heap[child].compareTo(heap[smallest]) < 0) {
+					smallest = child;
+				}
+			}
+
+			if (event.compareTo(heap[smallest]) <= 0) {
+				break;
+			}
+			heap[index] = heap[smallest];
+			index = smallest;
+		}
+		heap[index] = event;
+	}
+
+}
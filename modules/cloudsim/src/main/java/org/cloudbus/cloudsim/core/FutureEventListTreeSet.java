@@ -0,0 +1,87 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * FutureEventListTreeSet keeps the events in a {@link TreeSet}. Adding and removing an event take
+ * logarithmic time, and the events are always sorted. This is the default future event list.
+ */
+public class FutureEventListTreeSet extends FutureEventList {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The sorted set of events. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	@Override
+	public void add(SimEvent event) {
+		sortedSet.add(event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public int pollFirstEvents(List<SimEvent> events) {
+		if (sortedSet.isEmpty()) {
+			return 0;
+		}
+
+		double time = sortedSet.first().eventTime();
+		int count = 0;
+		Iterator<SimEvent> iterator = sortedSet.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (event.eventTime() != time) {
+				break;
+			}
+			events.add(event);
+			iterator.remove();
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+	@Override
+	protected void copyTo(List<SimEvent> events) {
+		events.addAll(sortedSet);
+	}
+
+	/**
+	 * Returns an iterator over the events, in order, directly on the set.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+}
@@ -8,32 +8,77 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
  * This class implements the future event queue used by {@link CloudSim}. 
- * The event queue uses a {@link TreeSet} in order to store the events.
+ * The events are stored in a {@link FutureEventList}, by default a {@link FutureEventListTreeSet}.
+ * 
+ * <p/>The pending events are also indexed by source entity and tag, so cancelling the events an
+ * entity has sent only looks at them, and not at the whole queue; an event is taken out of the
+ * index in constant time, and the index keeps no entry for the sources and tags that have no
+ * pending events. A cancelled event is not removed from the list at once but marked as cancelled,
+ * and it is dropped when it gets to the head of the list; the list is compacted when the
+ * cancelled events outnumber the pending ones.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see FutureEventList
  * 
  * @todo It would be used a common interface for queues
  * such as this one and {@link DeferredQueue}
  */
-public class FutureQueue {
+public class FutureQueue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of cancelled events below which the list is never compacted. */
+	private static final int MIN_COMPACT_SIZE = 1024;
+
+	/** The events, sorted by time and serial number, including the cancelled ones. */
+	private final FutureEventList events;
+
+	/** The pending events of every source entity, by tag, in the order they were added. */
+	private final Map<Integer, Map<Integer, Set<SimEvent>>> index = new HashMap<Integer, Map<Integer, Set<SimEvent>>>();
 
-	/** The sorted set of events. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/** The number of cancelled events still in {@link #events}. */
+	private int cancelled;
 
 	/** A incremental number used for {@link SimEvent#serial} event attribute.
          */
 	private long serial = 0;
 
+	/**
+	 * Creates a queue that stores the events in a {@link FutureEventListTreeSet}.
+	 */
+	public FutureQueue() {
+		this(new FutureEventListTreeSet());
+	}
+
+	/**
+	 * Creates a queue that stores the events in the given list.
+	 * 
+	 * @param events the empty list the events are stored in
+	 */
+	public FutureQueue(FutureEventList events) {
+		this.events = events;
+	}
+
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
@@ -42,7 +87,8 @@ public class FutureQueue {
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		events.add(newEvent);
+		getEvents(newEvent.getSource(), newEvent.getTag()).add(newEvent);
 	}
 
 	/**
@@ -52,7 +98,75 @@ public class FutureQueue {
 	 */
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		events.add(newEvent);
+		getEvents(newEvent.getSource(), newEvent.getTag()).add(newEvent);
+	}
+
+	/**
+	 * Adds an event whose serial number has already been set, such as the ones sent by the
+	 * {@link ParallelEngine}, whose order comes from the clock tick in which they were sent.
+	 * 
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addOrderedEvent(SimEvent newEvent) {
+		events.add(newEvent);
+		getEvents(newEvent.getSource(), newEvent.getTag()).add(newEvent);
+	}
+
+	/**
+	 * Removes the first event of the queue.
+	 * 
+	 * @return the first event, null if the queue is empty
+	 */
+	SimEvent poll() {
+		SimEvent first = peek();
+		if (first != null) {
+			events.remove(first);
+			unindex(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns the first event of the queue, without removing it.
+	 * 
+	 * @return the first event, null if the queue is empty
+	 */
+	public SimEvent peek() {
+		SimEvent first = events.peek();
+		while (first != null && first.isCancelled()) {
+			events.remove(first);
+			cancelled--;
+			first = events.peek();
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events that have the same time as the first event of the queue.
+	 * 
+	 * @param firstEvents the list the removed events are appended to, in order
+	 * @return the number of removed events
+	 */
+	public int pollFirstEvents(List<SimEvent> firstEvents) {
+		int from = firstEvents.size();
+		int last = from;
+		while (last == from && events.size() > 0) {
+			events.pollFirstEvents(firstEvents);
+
+			// the cancelled events are dropped, if they all are the next time is taken
+			for (int i = from; i < firstEvents.size(); i++) {
+				SimEvent event = firstEvents.get(i);
+				if (event.isCancelled()) {
+					cancelled--;
+				} else {
+					unindex(event);
+					firstEvents.set(last++, event);
+				}
+			}
+			firstEvents.subList(last, firstEvents.size()).clear();
+		}
+		return last - from;
 	}
 
 	/**
@@ -61,7 +175,47 @@ public class FutureQueue {
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final Iterator<SimEvent> iterator = events.iterator();
+		return new Iterator<SimEvent>() {
+
+			/** The next event that has not been cancelled. */
+			private SimEvent next;
+
+			/** The last event returned. */
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && iterator.hasNext()) {
+					SimEvent event = iterator.next();
+					if (!event.isCancelled()) {
+						next = event;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = null;
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				// the list isn't compacted while it's being iterated
+				cancel(last);
+				last = null;
+			}
+
+		};
 	}
 
 	/**
@@ -70,7 +224,7 @@ public class FutureQueue {
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return events.size() - cancelled;
 	}
 
 	/**
@@ -80,7 +234,11 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (!cancel(event)) {
+			return false;
+		}
+		compact();
+		return true;
 	}
 
 	/**
@@ -90,14 +248,210 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean removed = false;
+		for (SimEvent event : events) {
+			removed |= remove(event);
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the first event, in temporal order, sent by an entity that matches a predicate.
+	 * 
+	 * @param src the id of the entity that sent the event
+	 * @param p the predicate
+	 * @return the removed event, null if no event matches
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		SimEvent first = null;
+		for (Set<SimEvent> pending : getEvents(src, p)) {
+			for (SimEvent event : pending) {
+				if ((first == null || event.compareTo(first) < 0) && p.match(event)) {
+					first = event;
+				}
+			}
+		}
+
+		if (first != null) {
+			unindex(first);
+			markCancelled(first);
+			compact();
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events sent by an entity that match a predicate.
+	 * 
+	 * @param src the id of the entity that sent the events
+	 * @param p the predicate
+	 * @return the number of removed events
+	 */
+	public int cancelAll(int src, Predicate p) {
+		// the events are taken out of the index once they have all been found, as the sets being
+		// iterated may be dropped from it
+		List<SimEvent> matching = new ArrayList<SimEvent>();
+		for (Set<SimEvent> pending : getEvents(src, p)) {
+			for (SimEvent event : pending) {
+				if (p.match(event)) {
+					matching.add(event);
+				}
+			}
+		}
+
+		for (SimEvent event : matching) {
+			unindex(event);
+			markCancelled(event);
+		}
+		if (!matching.isEmpty()) {
+			compact();
+		}
+		return matching.size();
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		events.clear();
+		index.clear();
+		cancelled = 0;
+	}
+
+	/**
+	 * Takes an event out of the index and marks it as cancelled.
+	 * 
+	 * @param event the event
+	 * @return true if the event was pending
+	 */
+	private boolean cancel(SimEvent event) {
+		if (event.isCancelled() || !unindex(event)) {
+			return false;
+		}
+		markCancelled(event);
+		return true;
+	}
+
+	/**
+	 * Marks an event, already taken out of the index, as cancelled.
+	 * 
+	 * @param event the event
+	 */
+	private void markCancelled(SimEvent event) {
+		event.setCancelled(true);
+		cancelled++;
+	}
+
+	/**
+	 * Removes the cancelled events from the list, if they are more than the pending ones.
+	 */
+	private void compact() {
+		if (cancelled < MIN_COMPACT_SIZE || cancelled < events.size() - cancelled) {
+			return;
+		}
+
+		List<SimEvent> all = new ArrayList<SimEvent>(events.size());
+		events.copyTo(all);
+		events.clear();
+		for (SimEvent event : all) {
+			if (!event.isCancelled()) {
+				events.add(event);
+			}
+		}
+		cancelled = 0;
+	}
+
+	/**
+	 * Takes a pending event out of the index, and drops the entries of its tag and of its source
+	 * if they are left with no events.
+	 * 
+	 * @param event the event
+	 * @return true if the event was in the index
+	 */
+	private boolean unindex(SimEvent event) {
+		Map<Integer, Set<SimEvent>> tags = index.get(event.getSource());
+		if (tags == null) {
+			return false;
+		}
+		Set<SimEvent> pending = tags.get(event.getTag());
+		if (pending == null || !pending.remove(event)) {
+			return false;
+		}
+
+		if (pending.isEmpty()) {
+			tags.remove(event.getTag());
+			if (tags.isEmpty()) {
+				index.remove(event.getSource());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of entries of the index, one for every source entity and tag that have
+	 * pending events.
+	 * 
+	 * @return the number of entries
+	 */
+	int getIndexSize() {
+		int size = 0;
+		for (Map<Integer, Set<SimEvent>> tags : index.values()) {
+			size += tags.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the pending events sent by an entity with a tag, adding them to the index if they are
+	 * not there.
+	 * 
+	 * @param src the id of the entity that sent the events
+	 * @param tag the tag
+	 * @return the events, in the order they were added
+	 */
+	private Set<SimEvent> getEvents(int src, int tag) {
+		Map<Integer, Set<SimEvent>> tags = index.get(src);
+		if (tags == null) {
+			tags = new HashMap<Integer, Set<SimEvent>>();
+			index.put(src, tags);
+		}
+
+		// the events are equal only to themselves, so one is found in constant time
+		Set<SimEvent> pending = tags.get(tag);
+		if (pending == null) {
+			pending = new LinkedHashSet<SimEvent>();
+			tags.put(tag, pending);
+		}
+		return pending;
+	}
+
+	/**
+	 * Gets the sets of pending events sent by an entity that may match a predicate: the ones of
+	 * its tags if it is a {@link PredicateType}, all of them otherwise.
+	 * 
+	 * @param src the id of the entity that sent the events
+	 * @param p the predicate
+	 * @return the sets of events
+	 */
+	private Collection<Set<SimEvent>> getEvents(int src, Predicate p) {
+		Map<Integer, Set<SimEvent>> tags = index.get(src);
+		if (tags == null) {
+			return Collections.emptyList();
+		}
+		if (!(p instanceof PredicateType)) {
+			return tags.values();
+		}
+
+		// a tag given twice is looked at once, the sets themselves compare by content
+		List<Set<SimEvent>> sets = new ArrayList<Set<SimEvent>>();
+		Set<Integer> seen = new HashSet<Integer>();
+		for (int tag : ((PredicateType) p).getTags()) {
+			Set<SimEvent> pending = tags.get(tag);
+			if (pending != null && seen.add(tag)) {
+				sets.add(pending);
+			}
+		}
+		return sets;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,350 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A group of entities that the {@link ParallelEngine} runs on one thread at a time: they have
+ * their own clock and event queues, and the events they send to the entities of the other
+ * logical processes are kept aside until the end of the step of the engine.
+ * <p>
+ * A logical process runs the same clock ticks as the sequential engine, restricted to its
+ * entities: every tick delivers the events of a time and round (see {@link SimEvent#getRound()})
+ * and then runs the entities that received them, in the order of their ids.
+ *
+ * @see ParallelEngine
+ * @since CloudSim Toolkit 5.0
+ */
+class LogicalProcess {
+
+	/** The engine the logical process belongs to. */
+	private final ParallelEngine engine;
+
+	/** The index of the logical process in the engine. */
+	private final int index;
+
+	/** The ids of the entities, in ascending order. */
+	private final List<Integer> entities = new ArrayList<Integer>();
+
+	/** The events sent to the entities of the logical process. */
+	private final FutureQueue future;
+
+	/** The events delivered to the entities and not processed yet. */
+	private final DeferredQueue deferred = new DeferredQueue();
+
+	/** The ids of the entities that received events since they last ran. */
+	private final BitSet readyEntities = new BitSet();
+
+	/** The events sent to the other logical processes in the current step of the engine. */
+	private final List<SimEvent> outbox = new ArrayList<SimEvent>();
+
+	/** The log written by the entities in the current step, see {@link #getLog()}. */
+	private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+	/** The log written by every entity that ran, in the order of the clock ticks. */
+	private final List<LogChunk> logChunks = new ArrayList<LogChunk>();
+
+	/** Whether the entities still have to run in the clock tick the simulation started with. */
+	private boolean startPending;
+
+	/** The time of the current clock tick. */
+	private double clock;
+
+	/** The round of the current clock tick. */
+	private int round = -1;
+
+	/** Whether the logical process has run at least one clock tick. */
+	private boolean started;
+
+	/** The time of the next clock tick, see {@link #updateNextTick()}. */
+	private double nextTime;
+
+	/** The round of the next clock tick. */
+	private int nextRound;
+
+	/** The time before which the clock ticks can be run in the current step. */
+	private double bound;
+
+	/** The id of the entity that is running, -1 if there is none. */
+	private int runningEntity = -1;
+
+	/** The number of events sent by the running entity in the current clock tick. */
+	private int sent;
+
+	/** Whether an entity of the logical process has terminated the simulation. */
+	private boolean terminated;
+
+	/**
+	 * Creates a logical process.
+	 *
+	 * @param engine the engine
+	 * @param index the index of the logical process in the engine
+	 * @param future the queue the events sent to the entities are stored in
+	 */
+	LogicalProcess(ParallelEngine engine, int index, FutureQueue future) {
+		this.engine = engine;
+		this.index = index;
+		this.future = future;
+		clock = engine.getSimulation().clock();
+	}
+
+	/**
+	 * Adds an entity, the entities are added in the order of their ids.
+	 *
+	 * @param id the id of the entity
+	 * @param ready whether the entity has to run in the first clock tick
+	 */
+	void addEntity(int id, boolean ready) {
+		entities.add(id);
+		if (ready) {
+			readyEntities.set(id);
+			startPending = true;
+		}
+	}
+
+	/**
+	 * Runs the clock ticks allowed in the current step of the engine: the ones before the bound,
+	 * or the first tick of the whole simulation, and none after the simulation has been
+	 * terminated.
+	 */
+	void run() {
+		engine.setCurrent(this);
+		try {
+			boolean first = true;
+			while (updateNextTick()) {
+				if (!(nextTime < bound || first && engine.isFirstTick(nextTime, nextRound))
+						|| engine.isAfterTermination(nextTime, nextRound)) {
+					break;
+				}
+				runTick();
+				first = false;
+				if (terminated) {
+					break;
+				}
+			}
+		} finally {
+			engine.setCurrent(null);
+		}
+	}
+
+	/**
+	 * Delivers the events of the next clock tick, and then runs the entities that received them.
+	 */
+	private void runTick() {
+		if (startPending) {
+			startPending = false;
+		} else {
+			SimEvent e = future.peek();
+			while (e != null && e.eventTime() == nextTime && e.getRound() == nextRound) {
+				future.poll();
+				deliver(e);
+				e = future.peek();
+			}
+		}
+		clock = nextTime;
+		round = nextRound;
+		started = true;
+
+		for (int i = readyEntities.nextSetBit(0); i >= 0; i = readyEntities.nextSetBit(i + 1)) {
+			readyEntities.clear(i);
+			SimEntity ent = engine.getSimulation().getEntity(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				runningEntity = i;
+				sent = 0;
+				ent.run();
+				if (log.size() > 0) {
+					logChunks.add(new LogChunk(clock, round, i, log.toByteArray()));
+					log.reset();
+				}
+			}
+		}
+		runningEntity = -1;
+	}
+
+	/**
+	 * Puts an event in the deferred queue of its destination.
+	 *
+	 * @param e the event
+	 */
+	private void deliver(SimEvent e) {
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		if (e.getType() != SimEvent.SEND) {
+			throw new IllegalStateException("Event of type " + e.getType() + " in a parallel simulation.");
+		}
+		int dest = e.getDestination();
+		if (dest < 0) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		}
+		deferred.addEvent(e);
+		readyEntities.set(dest);
+	}
+
+	/**
+	 * Sends an event from the running entity. Its place among the events of the same time is the
+	 * one it would have in the sequential engine, which sends the events of a clock tick in the
+	 * order of the ids of the entities.
+	 *
+	 * @param e the event
+	 * @param destination the logical process of the destination
+	 * @param lookahead the lowest delay of the events sent to the destination
+	 * @throws IllegalStateException if the event is sent to another logical process with a delay
+	 *             lower than the lookahead
+	 */
+	void send(SimEvent e, LogicalProcess destination, double lookahead) {
+		e.setSendTick(clock, round);
+		e.setSerial(((long) runningEntity << 32) | sent++);
+		if (destination == this) {
+			future.addOrderedEvent(e);
+			return;
+		}
+		if (e.eventTime() < clock + lookahead) {
+			throw new IllegalStateException("The event with tag " + e.getTag() + " sent by entity "
+					+ e.getSource() + " to entity " + e.getDestination() + " has a delay of "
+					+ (e.eventTime() - clock) + ", lower than the lookahead " + lookahead
+					+ " of the parallel engine.");
+		}
+		outbox.add(e);
+	}
+
+	/**
+	 * Finds the next clock tick, which is the first one when the simulation starts.
+	 *
+	 * @return true if there is a next clock tick
+	 */
+	boolean updateNextTick() {
+		if (startPending) {
+			nextTime = clock;
+			nextRound = -1;
+			return true;
+		}
+		SimEvent e = future.peek();
+		if (e == null) {
+			return false;
+		}
+		nextTime = e.eventTime();
+		nextRound = e.getRound();
+		return true;
+	}
+
+	/**
+	 * Takes note that an entity of the logical process has terminated the simulation, in the
+	 * current clock tick.
+	 */
+	void terminate() {
+		terminated = true;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	List<Integer> getEntities() {
+		return entities;
+	}
+
+	FutureQueue getFuture() {
+		return future;
+	}
+
+	DeferredQueue getDeferred() {
+		return deferred;
+	}
+
+	BitSet getReadyEntities() {
+		return readyEntities;
+	}
+
+	List<SimEvent> getOutbox() {
+		return outbox;
+	}
+
+	/**
+	 * Gets the stream the log is written to while an entity of the logical process runs.
+	 *
+	 * @return the stream
+	 */
+	ByteArrayOutputStream getLog() {
+		return log;
+	}
+
+	List<LogChunk> getLogChunks() {
+		return logChunks;
+	}
+
+	double getClock() {
+		return clock;
+	}
+
+	int getRound() {
+		return round;
+	}
+
+	boolean isStarted() {
+		return started;
+	}
+
+	boolean isTerminated() {
+		return terminated;
+	}
+
+	double getNextTime() {
+		return nextTime;
+	}
+
+	int getNextRound() {
+		return nextRound;
+	}
+
+	void setBound(double bound) {
+		this.bound = bound;
+	}
+
+	/**
+	 * The log written by an entity in a clock tick. The chunks of all the logical processes are
+	 * written in the order of the ticks and of the entities, as the sequential engine would.
+	 */
+	static class LogChunk implements Comparable<LogChunk> {
+
+		/** The time of the clock tick. */
+		final double time;
+
+		/** The round of the clock tick. */
+		final int round;
+
+		/** The id of the entity. */
+		final int entity;
+
+		/** The text written. */
+		final byte[] text;
+
+		LogChunk(double time, int round, int entity, byte[] text) {
+			this.time = time;
+			this.round = round;
+			this.entity = entity;
+			this.text = text;
+		}
+
+		@Override
+		public int compareTo(LogChunk chunk) {
+			int tick = ParallelEngine.compareTicks(time, round, chunk.time, chunk.round);
+			if (tick != 0) {
+				return tick;
+			}
+			return entity < chunk.entity ? -1 : entity > chunk.entity ? 1 : 0;
+		}
+
+	}
+
+}
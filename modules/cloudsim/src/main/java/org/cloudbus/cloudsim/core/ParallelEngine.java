@@ -0,0 +1,698 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+
+/**
+ * Runs a simulation on several threads with a conservative synchronisation: the entities are
+ * partitioned into {@link LogicalProcess logical processes}, and every step of the engine runs at
+ * the same time the logical processes that cannot receive, in the step, an event earlier than the
+ * clock ticks they run. The lowest delay of the events between two logical processes, the
+ * <i>lookahead</i>, is the lowest latency between their entities in the {@link NetworkTopology},
+ * which {@link SimEntity#send(int, double, int, Object)} adds to the events. An entity that is
+ * not mapped to the topology has no lookahead, so the logical processes it sends events to only
+ * run the clock ticks of the same time and round as the first one of the whole simulation.
+ * <p>
+ * The results are the same as the ones of the sequential engine: every event gets the place it
+ * would have among the events of the same time (see {@link SimEvent#setSendTick(double, int)}),
+ * the entities of a logical process run in the same order, and the log written by the entities
+ * is put back in the sequential order. This holds as long as the entities of different logical
+ * processes share no state but the events: that's why the engine is not used when the network
+ * has a transfer model, which keeps the links every message crosses. The one exception is the
+ * {@link CloudInformationService}, whose list of datacenters the brokers get without sending it an
+ * event: its logical process runs alone, one clock tick at a time. The engine doesn't support
+ * the entities waiting for events, holding, sending events with priority or being added while
+ * the simulation runs; cancelling an event only finds the ones sent to the same logical process.
+ * <p>
+ * By default, every entity mapped to a node of the topology is a logical process on its own, and
+ * all the other entities are another one; they can be grouped differently with
+ * {@link Simulation#setLogicalProcess(int, int)}. When the simulation has to pause, or to
+ * terminate at a given time, the engine stops and the sequential engine goes on from there.
+ *
+ * @see Simulation#setParallelism(int)
+ * @since CloudSim Toolkit 5.0
+ */
+class ParallelEngine {
+
+	/** The simulation. */
+	private final Simulation simulation;
+
+	/** The logical processes. */
+	private final List<LogicalProcess> processes = new ArrayList<LogicalProcess>();
+
+	/** The logical process of every entity, by entity id. */
+	private final LogicalProcess[] processOf;
+
+	/** The lowest delay of the events sent from a logical process to another, by index. */
+	private final double[][] lookahead;
+
+	/**
+	 * The lowest delay after which an event sent by a logical process can make another one send
+	 * an event, directly or through other logical processes.
+	 */
+	private final double[][] distance;
+
+	/**
+	 * The logical process of the {@link CloudInformationService}, whose list of datacenters the
+	 * other entities read without sending events; null if there is none.
+	 */
+	private final LogicalProcess cisProcess;
+
+	/** The logical process run by every thread. */
+	private final ThreadLocal<LogicalProcess> current = new ThreadLocal<LogicalProcess>();
+
+	/** The threads that run the logical processes, besides the one running the engine. */
+	private final ExecutorService executor;
+
+	/** The log of the entities that can't be written yet, because some entity may log before it. */
+	private final List<LogicalProcess.LogChunk> pendingLog = new ArrayList<LogicalProcess.LogChunk>();
+
+	/** The log output of the simulation, while the engine runs. */
+	private OutputStream logOutput;
+
+	/** The time of the first clock tick of all the logical processes, in the current step. */
+	private double firstTime;
+
+	/** The round of the first clock tick. */
+	private int firstRound;
+
+	/** Whether the simulation has been terminated by an entity. */
+	private boolean terminated;
+
+	/** The time of the clock tick in which the simulation has been terminated. */
+	private double terminationTime;
+
+	/** The round of the clock tick in which the simulation has been terminated. */
+	private int terminationRound;
+
+	/** The number of steps in which some logical processes have been run. */
+	private int steps;
+
+	/**
+	 * Creates an engine for a simulation that has just started.
+	 *
+	 * @param simulation the simulation
+	 * @param threads the number of threads
+	 */
+	ParallelEngine(final Simulation simulation, int threads) {
+		this.simulation = simulation;
+
+		// the partition of the entities
+		int entities = simulation.getNumEntities();
+		processOf = new LogicalProcess[entities];
+		Map<String, LogicalProcess> byKey = new HashMap<String, LogicalProcess>();
+		for (int id = 0; id < entities; id++) {
+			String key = getProcessKey(simulation, id);
+			LogicalProcess process = byKey.get(key);
+			if (process == null) {
+				process = new LogicalProcess(this, processes.size(), new FutureQueue(simulation.createFutureEventList()));
+				processes.add(process);
+				byKey.put(key, process);
+			}
+			processOf[id] = process;
+			process.addEntity(id, simulation.getReadyEntities().get(id));
+		}
+		simulation.getReadyEntities().clear();
+		int cisId = simulation.getCloudInfoServiceEntityId();
+		cisProcess = cisId >= 0 ? processOf[cisId] : null;
+
+		lookahead = computeLookahead();
+		distance = computeDistance(lookahead);
+
+		executor = Executors.newFixedThreadPool(threads - 1, new ThreadFactory() {
+
+			private int count;
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogicalProcess-" + count++);
+				thread.setDaemon(true);
+				return thread;
+			}
+
+		});
+	}
+
+	/**
+	 * Checks whether a simulation that has just started can be run in parallel.
+	 *
+	 * @param simulation the simulation
+	 * @return true if it can
+	 */
+	static boolean canRun(Simulation simulation) {
+		if (simulation.getNumEntities() < 2 || simulation.hasAlwaysReadyEntities()
+				|| simulation.isPauseRequested() || NetworkTopology.getTransferModel() != null
+				|| simulation.deferred.size() > 0) {
+			return false;
+		}
+		Iterator<SimEvent> iterator = simulation.future.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getType() != SimEvent.SEND) {
+				return false;
+			}
+		}
+
+		// a single logical process would run the simulation on one thread anyway
+		String first = getProcessKey(simulation, 0);
+		for (int id = 1; id < simulation.getNumEntities(); id++) {
+			if (!first.equals(getProcessKey(simulation, id))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the key of the logical process of an entity: the entities with the same key are in the
+	 * same logical process.
+	 *
+	 * @param simulation the simulation
+	 * @param id the id of the entity
+	 * @return the key
+	 */
+	private static String getProcessKey(Simulation simulation, int id) {
+		if (simulation.getLogicalProcess(id) >= 0) {
+			return "process " + simulation.getLogicalProcess(id);
+		}
+		if (NetworkTopology.isMapped(id)) {
+			return "entity " + id;
+		}
+		return "unmapped";
+	}
+
+	/**
+	 * Computes the lookahead between every two logical processes. The entity that shuts the
+	 * simulation down has none, as it can end the simulation for all of them.
+	 *
+	 * @return the lookahead, by index of the logical processes
+	 */
+	private double[][] computeLookahead() {
+		int size = processes.size();
+		double[][] lookahead = new double[size][size];
+
+		// the logical processes with an entity that is not mapped have no lookahead
+		List<Integer> mapped = new ArrayList<Integer>();
+		boolean[] unmapped = new boolean[size];
+		for (int id = 0; id < processOf.length; id++) {
+			if (NetworkTopology.isMapped(id)) {
+				mapped.add(id);
+			} else {
+				unmapped[processOf[id].getIndex()] = true;
+			}
+		}
+		int shutdown = simulation.getShutdownId() >= 0 ? processOf[simulation.getShutdownId()].getIndex() : -1;
+		for (int from = 0; from < size; from++) {
+			for (int to = 0; to < size; to++) {
+				boolean none = unmapped[from] || unmapped[to] || from == shutdown;
+				lookahead[from][to] = from == to || none ? 0 : Double.POSITIVE_INFINITY;
+			}
+		}
+
+		for (int src : mapped) {
+			int from = processOf[src].getIndex();
+			for (int dest : mapped) {
+				int to = processOf[dest].getIndex();
+				if (from != to) {
+					lookahead[from][to] = Math.min(lookahead[from][to], NetworkTopology.getDelay(src, dest));
+				}
+			}
+		}
+		return lookahead;
+	}
+
+	/**
+	 * Computes the lowest delay of the chains of events between every two logical processes
+	 * (Floyd-Warshall).
+	 *
+	 * @param lookahead the lookahead between every two logical processes
+	 * @return the lowest delays
+	 */
+	private static double[][] computeDistance(double[][] lookahead) {
+		int size = lookahead.length;
+		double[][] distance = new double[size][];
+		for (int i = 0; i < size; i++) {
+			distance[i] = lookahead[i].clone();
+			distance[i][i] = 0;
+		}
+		for (int k = 0; k < size; k++) {
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
+					if (distance[i][k] + distance[k][j] < distance[i][j]) {
+						distance[i][j] = distance[i][k] + distance[k][j];
+					}
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Runs the simulation until it has no more events, or it has to be terminated or paused, and
+	 * then gives it back to the sequential engine at the end of the last clock tick.
+	 */
+	void run() {
+		// the events sent so far, when the entities started, come before all the others
+		SimEvent e;
+		while ((e = simulation.future.poll()) != null) {
+			e.setSendTick(Double.NEGATIVE_INFINITY, 0);
+			getProcess(e.getDestination()).getFuture().addOrderedEvent(e);
+		}
+
+		logOutput = Log.getOutput();
+		Log.setOutput(new LogOutput());
+		try {
+			while (step()) {
+				// the steps go on until the simulation ends
+			}
+			writeLog(Double.POSITIVE_INFINITY, 0);
+		} finally {
+			Log.setOutput(logOutput);
+			executor.shutdownNow();
+		}
+
+		finish();
+	}
+
+	/**
+	 * Runs the logical processes that can go on, at the same time.
+	 *
+	 * @return false if the simulation has to go back to the sequential engine
+	 */
+	private boolean step() {
+		LogicalProcess first = null;
+		List<LogicalProcess> waiting = new ArrayList<LogicalProcess>();
+		for (LogicalProcess process : processes) {
+			if (process.updateNextTick()) {
+				waiting.add(process);
+				if (first == null || compareTicks(process.getNextTime(), process.getNextRound(),
+						first.getNextTime(), first.getNextRound()) < 0) {
+					first = process;
+				}
+			}
+		}
+		if (first == null) {
+			return false;
+		}
+		firstTime = first.getNextTime();
+		firstRound = first.getNextRound();
+		writeLog(firstTime, firstRound);
+
+		double terminateAt = simulation.getTerminateAt() > 0 ? simulation.getTerminateAt() : Double.POSITIVE_INFINITY;
+		if (firstTime >= terminateAt || isAfterTermination(firstTime, firstRound) || simulation.isPauseRequested()) {
+			return false;
+		}
+		steps++;
+
+		// a logical process can run the ticks before the first event another one may send it
+		List<LogicalProcess> running = new ArrayList<LogicalProcess>();
+		for (LogicalProcess process : waiting) {
+			double bound = terminateAt;
+			for (LogicalProcess other : waiting) {
+				if (other != process) {
+					bound = Math.min(bound, other.getNextTime() + distance[other.getIndex()][process.getIndex()]);
+				}
+			}
+			if (process == cisProcess) {
+				// the entities must read the list of datacenters as it is in their clock tick
+				bound = Math.min(bound, firstTime);
+			}
+			process.setBound(bound);
+			if (process.getNextTime() < bound || isFirstTick(process.getNextTime(), process.getNextRound())) {
+				running.add(process);
+			}
+		}
+		if (running.size() > 1 && running.remove(cisProcess)) {
+			execute(Collections.singletonList(cisProcess));
+			execute(running);
+			running.add(cisProcess);
+		} else {
+			execute(running);
+		}
+
+		// the events sent to the other logical processes are delivered at the end of the step
+		for (LogicalProcess process : running) {
+			for (SimEvent sent : process.getOutbox()) {
+				getProcess(sent.getDestination()).getFuture().addOrderedEvent(sent);
+			}
+			process.getOutbox().clear();
+			pendingLog.addAll(process.getLogChunks());
+			process.getLogChunks().clear();
+		}
+
+		checkTermination(running);
+		return true;
+	}
+
+	/**
+	 * Runs some logical processes at the same time, one of them on the calling thread.
+	 *
+	 * @param running the logical processes
+	 */
+	private void execute(List<LogicalProcess> running) {
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int i = 1; i < running.size(); i++) {
+			final LogicalProcess process = running.get(i);
+			results.add(executor.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					Simulation previous = Simulation.setCurrent(simulation);
+					try {
+						process.run();
+					} finally {
+						Simulation.setCurrent(previous);
+					}
+					return null;
+				}
+
+			}));
+		}
+
+		Throwable failure = null;
+		try {
+			running.get(0).run();
+		} catch (RuntimeException e) {
+			failure = e;
+		} catch (Error e) {
+			failure = e;
+		}
+
+		// the other logical processes must be done before going on, even after a failure
+		for (Future<Void> result : results) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new IllegalStateException(failure);
+		}
+	}
+
+	/**
+	 * Takes note of the clock tick in which an entity has terminated the simulation, if it has,
+	 * and checks that no logical process has already run a later one.
+	 *
+	 * @param running the logical processes that ran in the last step
+	 * @throws IllegalStateException if a logical process has run a later clock tick
+	 */
+	private void checkTermination(List<LogicalProcess> running) {
+		for (LogicalProcess process : running) {
+			if (process.isTerminated() && (!terminated || compareTicks(process.getClock(), process.getRound(),
+					terminationTime, terminationRound) < 0)) {
+				terminated = true;
+				terminationTime = process.getClock();
+				terminationRound = process.getRound();
+			}
+		}
+		if (!terminated) {
+			return;
+		}
+		for (LogicalProcess process : processes) {
+			if (process.isStarted()
+					&& compareTicks(process.getClock(), process.getRound(), terminationTime, terminationRound) > 0) {
+				throw new IllegalStateException("The simulation has been terminated at time " + terminationTime
+						+ ", when some entities had already gone on to time " + process.getClock()
+						+ ": the entity that terminates it must be in a logical process with no lookahead.");
+			}
+		}
+	}
+
+	/**
+	 * Gives the simulation back to the sequential engine, with all the events in its queues.
+	 */
+	private void finish() {
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		double clock = 0;
+		for (LogicalProcess process : processes) {
+			SimEvent e;
+			while ((e = process.getFuture().poll()) != null) {
+				events.add(e);
+			}
+			for (int id : process.getEntities()) {
+				Iterator<SimEvent> iterator = process.getDeferred().iterator(id);
+				while (iterator.hasNext()) {
+					simulation.deferred.addEvent(iterator.next());
+				}
+			}
+			simulation.getReadyEntities().or(process.getReadyEntities());
+			if (process.isStarted()) {
+				clock = Math.max(clock, process.getClock());
+			}
+		}
+
+		// the order of the events is kept by the serial numbers of the sequential engine
+		Collections.sort(events);
+		for (SimEvent e : events) {
+			e.setSendTick(0, 0);
+			simulation.future.addEvent(e);
+		}
+		simulation.endParallelTick(clock);
+	}
+
+	/**
+	 * Writes the log of the entities that ran before a clock tick.
+	 *
+	 * @param time the time of the tick
+	 * @param round the round of the tick
+	 */
+	private void writeLog(double time, int round) {
+		if (pendingLog.isEmpty()) {
+			return;
+		}
+		Collections.sort(pendingLog);
+		int written = 0;
+		try {
+			for (LogicalProcess.LogChunk chunk : pendingLog) {
+				if (compareTicks(chunk.time, chunk.round, time, round) >= 0) {
+					break;
+				}
+				logOutput.write(chunk.text);
+				written++;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		pendingLog.subList(0, written).clear();
+	}
+
+	/**
+	 * Sends an event from the entity running on the calling thread.
+	 *
+	 * @param src the id of the entity that sends the event
+	 * @param dest the id of the entity the event is sent to
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	void send(int src, int dest, double delay, int tag, Object data) {
+		LogicalProcess process = current.get();
+		if (process == null) {
+			throw new IllegalStateException("Only the entities can send events while the simulation runs in parallel.");
+		}
+		SimEvent e = new SimEvent(SimEvent.SEND, process.getClock() + delay, src, dest, tag, data);
+		LogicalProcess destination = dest >= 0 && dest < processOf.length ? processOf[dest] : process;
+		process.send(e, destination, lookahead[process.getIndex()][destination.getIndex()]);
+	}
+
+	/**
+	 * Takes note that the entity running on the calling thread has terminated the simulation.
+	 */
+	void terminate() {
+		LogicalProcess process = current.get();
+		if (process != null) {
+			process.terminate();
+		}
+	}
+
+	/**
+	 * Checks whether a clock tick is the first one of all the logical processes in the current
+	 * step, which can be run by all of them at the same time.
+	 *
+	 * @param time the time of the tick
+	 * @param round the round of the tick
+	 * @return true if it is the first one
+	 */
+	boolean isFirstTick(double time, int round) {
+		return time == firstTime && round == firstRound;
+	}
+
+	/**
+	 * Checks whether a clock tick comes after the one in which the simulation has been
+	 * terminated.
+	 *
+	 * @param time the time of the tick
+	 * @param round the round of the tick
+	 * @return true if it comes after
+	 */
+	boolean isAfterTermination(double time, int round) {
+		return terminated && compareTicks(time, round, terminationTime, terminationRound) > 0;
+	}
+
+	/**
+	 * Compares two clock ticks.
+	 *
+	 * @return a negative number, zero or a positive number if the first tick comes before, is the
+	 *         same or comes after the second one
+	 */
+	static int compareTicks(double time1, int round1, double time2, int round2) {
+		if (time1 != time2) {
+			return time1 < time2 ? -1 : 1;
+		}
+		return round1 < round2 ? -1 : round1 > round2 ? 1 : 0;
+	}
+
+	Simulation getSimulation() {
+		return simulation;
+	}
+
+	/**
+	 * Gets the number of steps in which some logical processes have been run.
+	 *
+	 * @return the number of steps
+	 */
+	int getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Gets the number of logical processes the entities have been partitioned into.
+	 *
+	 * @return the number of logical processes
+	 */
+	int getProcessCount() {
+		return processes.size();
+	}
+
+	/**
+	 * Gets the lowest delay of the events sent from the logical process of an entity to the one
+	 * of another entity.
+	 *
+	 * @param src the id of the entity that sends the events
+	 * @param dest the id of the entity the events are sent to
+	 * @return the lookahead, 0 if the entities are in the same logical process
+	 */
+	double getLookahead(int src, int dest) {
+		return lookahead[getProcess(src).getIndex()][getProcess(dest).getIndex()];
+	}
+
+	/**
+	 * Gets the lowest delay after which an event sent by the logical process of an entity can
+	 * make the one of another entity send an event.
+	 *
+	 * @param src the id of the entity that sends the events
+	 * @param dest the id of the entity the events are sent to
+	 * @return the distance, 0 if the entities are in the same logical process
+	 */
+	double getDistance(int src, int dest) {
+		return distance[getProcess(src).getIndex()][getProcess(dest).getIndex()];
+	}
+
+	/**
+	 * Gets the logical process run by the calling thread.
+	 *
+	 * @return the logical process, null if the thread isn't running one
+	 */
+	LogicalProcess getCurrent() {
+		return current.get();
+	}
+
+	void setCurrent(LogicalProcess process) {
+		if (process == null) {
+			current.remove();
+		} else {
+			current.set(process);
+		}
+	}
+
+	/**
+	 * Gets the logical process of an entity.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the logical process
+	 */
+	private LogicalProcess getProcess(int entityId) {
+		if (entityId < 0 || entityId >= processOf.length) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		}
+		return processOf[entityId];
+	}
+
+	FutureQueue getFuture(int entityId) {
+		return getProcess(entityId).getFuture();
+	}
+
+	DeferredQueue getDeferred(int entityId) {
+		return getProcess(entityId).getDeferred();
+	}
+
+	/**
+	 * The log output of the simulation while the engine runs: what an entity writes is kept by its
+	 * logical process until it can be written in order.
+	 */
+	private class LogOutput extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			LogicalProcess process = current.get();
+			if (process != null) {
+				process.getLog().write(b);
+			} else {
+				logOutput.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			LogicalProcess process = current.get();
+			if (process != null) {
+				process.getLog().write(b, off, len);
+			} else {
+				logOutput.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			logOutput.flush();
+		}
+
+	}
+
+}
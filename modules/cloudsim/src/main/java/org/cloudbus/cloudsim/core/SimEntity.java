@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -32,7 +34,9 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The entity name. */
 	private String name;
@@ -322,7 +326,8 @@ public abstract class SimEntity implements Cloneable {
 	 * Extracts the first event matching a predicate waiting in the entity's deferred queue.
 	 * 
 	 * @param p The event selection predicate
-	 * @return the simulation event
+	 * @return the simulation event; if none matches, the last event of the deferred queue of any
+	 *         entity, which is not removed, see {@link CloudSim#select(int, Predicate)}
 	 */
 	public SimEvent selectEvent(Predicate p) {
 		if (!CloudSim.running()) {
@@ -425,6 +430,7 @@ public abstract class SimEntity implements Cloneable {
 
 		while (ev != null) {
 			processEvent(ev);
+			Simulation.getCurrent().releaseEvent(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,13 +17,15 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** Internal event type. **/
-	private final int etype;
+	private int etype;
 
 	/** The time that this event was scheduled, at which it should occur. **/
-	private final double time;
+	private double time;
 
 	/** Time that the event was removed from the queue to start service. **/
 	private double endWaitingTime;
@@ -33,7 +37,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** The user defined type of the event. **/
-	private final int tag;
+	private int tag;
 
 	/** 
          * Any data the event is carrying. 
@@ -41,7 +45,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          * But this modification would incur several changes in the simulator core
          * that has to be assessed first.
          **/
-	private final Object data;
+	private Object data;
 
         /**
          * An attribute to help CloudSim to identify the order of received events
@@ -53,6 +57,19 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
          */
 	private long serial = -1;
 
+	/** Whether the event has been cancelled while waiting in the future queue, see {@link FutureQueue}. */
+	private boolean cancelled;
+
+	/**
+	 * The time of the clock tick in which the event was sent by the parallel engine, which orders
+	 * the events of the same {@link #time} before the {@link #serial}; 0 for all the events sent
+	 * by the sequential engine. See {@link ParallelEngine}.
+	 */
+	private double sendTime;
+
+	/** The round of the clock tick in which the event was sent, along with {@link #sendTime}. */
+	private int sendRound;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -95,10 +112,61 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Gives the event new contents, so that it can be reused when event pooling is enabled, see
+	 * {@link Simulation#setEventPooling(boolean)}.
+	 *
+	 * @return this event
+	 */
+	SimEvent reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = 0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+		cancelled = false;
+		sendTime = 0;
+		sendRound = 0;
+		return this;
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	/**
+	 * Sets the clock tick in which the event was sent, see {@link ParallelEngine}.
+	 *
+	 * @param sendTime the time of the tick
+	 * @param sendRound the round of the tick among the ones of the same time
+	 */
+	void setSendTick(double sendTime, int sendRound) {
+		this.sendTime = sendTime;
+		this.sendRound = sendRound;
+	}
+
+	/**
+	 * Gets the round of the clock tick in which the event is delivered: the events sent before
+	 * their time are delivered in the first round, the ones sent with no delay in the round after
+	 * the one they were sent in.
+	 *
+	 * @return the round
+	 */
+	int getRound() {
+		return sendTime < time ? 0 : sendRound + 1;
+	}
+
+	protected boolean isCancelled() {
+		return cancelled;
+	}
+
+	protected void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
 	/**
 	 * Sets the time that the event was removed from the queue to start service. 
 	 * 
@@ -134,6 +202,10 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 			return -1;
 		} else if (time > event.time) {
 			return 1;
+		} else if (sendTime != event.sendTime) {
+			return sendTime < event.sendTime ? -1 : 1;
+		} else if (sendRound != event.sendRound) {
+			return sendRound < event.sendRound ? -1 : 1;
 		} else if (serial < event.serial) {
 			return -1;
 		} else if (this == event) {
@@ -0,0 +1,1484 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * The state of one simulation: the entities, the event queues, the clock, and the state of the
+ * other parts of the toolkit that belong to a simulation, such as the network topology and the
+ * log (see {@link #getComponent(Class)}).
+ * <p>
+ * The static methods of {@link CloudSim} work on the <i>current</i> simulation, which is the one
+ * bound to the calling thread with {@link #setCurrent(Simulation)} or, if there is none, the
+ * default one. Programs that run one simulation at a time don't need to know about this class.
+ * To run several simulations at the same time, every one of them is created, set up and run on a
+ * thread it is bound to, for example with {@link #execute(Callable)}:
+ *
+ * <pre>
+ * double time = new Simulation().execute(new Callable&lt;Double&gt;() {
+ * 	public Double call() throws Exception {
+ * 		CloudSim.init(1, null, false);
+ * 		// create the datacenters, the brokers, ...
+ * 		return CloudSim.startSimulation();
+ * 	}
+ * });
+ * </pre>
+ *
+ * A simulation must not be used by more than one thread at a time, with the exception of
+ * pausing and resuming it.
+ * <p>
+ * A simulation can be run up to a given time with {@link #runUntil(double)}, saved with
+ * {@link #checkpoint(OutputStream)} and restored any number of times with
+ * {@link #restore(InputStream)}, or copied in memory with {@link #fork()}. A restored simulation
+ * goes on from where the saved one stopped when it is run, so a warm-up shared by several
+ * experiments is simulated only once:
+ *
+ * <pre>
+ * Simulation.getCurrent().runUntil(warmUpTime);
+ * Simulation warm = Simulation.getCurrent().fork();
+ * // change the policies of the entities of a fork, then run it
+ * double time = warm.fork().execute(new Callable&lt;Double&gt;() {
+ * 	public Double call() throws Exception {
+ * 		return CloudSim.startSimulation();
+ * 	}
+ * });
+ * </pre>
+ *
+ * Everything the simulation references is saved with Java serialization: the entities, their
+ * state and the components. The static fields are not part of a simulation and are not saved. A
+ * checkpoint can only be restored by the same version of the classes that wrote it.
+ * <p>
+ * A simulation can also be run on several threads, see {@link #setParallelism(int)}: the entities
+ * are partitioned into logical processes, which run at the same time as long as none of them can
+ * receive an event from the others, and the results are the same as when it is run on one thread.
+ *
+ * @see CloudSim
+ * @since CloudSim Toolkit 5.0
+ */
+public class Simulation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The Constant CLOUDSIM_VERSION_STRING. */
+	private static final String CLOUDSIM_VERSION_STRING = "5.0";
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The simulation used by the threads that aren't bound to one. */
+	private static final Simulation defaultSimulation = new Simulation();
+
+	/** The simulation bound to every thread. */
+	private static final ThreadLocal<Simulation> boundSimulation = new ThreadLocal<Simulation>();
+
+	/**
+	 * Whether a simulation has ever been bound to a thread; until then the default simulation is
+	 * the current one of every thread, and the thread local isn't looked up.
+	 */
+	private static volatile boolean anyBound = false;
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The trace flag. */
+	@SuppressWarnings("unused")
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.01;
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/** The future event queue. */
+	protected FutureQueue future;
+
+	/** The deferred event queue. */
+	protected DeferredQueue deferred;
+
+	/** The type of list the future event queue stores the events in. */
+	private Class<? extends FutureEventList> futureEventListClass = FutureEventListTreeSet.class;
+
+	/**
+	 * The ids of the entities that may have something to do in the next clock tick: they have
+	 * received events, or have been woken up, since they last ran.
+	 */
+	private BitSet readyEntities;
+
+	/**
+	 * The ids of the entities that override {@link SimEntity#run()}, which run at every clock tick
+	 * regardless of their events.
+	 */
+	private BitSet alwaysReadyEntities;
+
+	/** The events processed in the current clock tick, reused between ticks. */
+	private final List<SimEvent> currentEvents = new ArrayList<SimEvent>();
+
+	/** The maximum number of processed events kept for reuse. */
+	private static final int MAX_EVENT_POOL_SIZE = 4096;
+
+	/** Whether processed events are reused, see {@link #setEventPooling(boolean)}. */
+	private boolean eventPooling = false;
+
+	/** The processed events that can be reused, they are not saved by a checkpoint. */
+	private transient ArrayDeque<SimEvent> eventPool = new ArrayDeque<SimEvent>();
+
+	/** The current simulation clock. */
+	private double clock;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	/** The predicates used in entity wait methods. */
+	private Map<Integer, Predicate> waitPredicates;
+
+	/** The paused flag, which may be changed by another thread. */
+	private volatile boolean paused = false;
+
+	/** The pause at. */
+	private long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/**
+	 * Whether the entities have already run in the current clock tick, which happens when the
+	 * simulation has been stopped by {@link #runUntil(double)} in the middle of a tick.
+	 */
+	private boolean entitiesRun = false;
+
+	/** The number of threads the simulation is run on, see {@link #setParallelism(int)}. */
+	private int parallelism = 1;
+
+	/** The logical processes the entities have been assigned to, by entity id. */
+	private final Map<Integer, Integer> logicalProcesses = new HashMap<Integer, Integer>();
+
+	/** The engine running the simulation on several threads, null when it runs on one. */
+	private transient ParallelEngine engine;
+
+	/**
+	 * The number of steps the {@link ParallelEngine} has run since the simulation was last started,
+	 * 0 if it has been run on one thread.
+	 */
+	private transient int parallelSteps;
+
+	/** The state of the other parts of the toolkit, by type. */
+	private final ConcurrentHashMap<Class<?>, Object> components = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Gets the simulation used by the threads that aren't bound to one.
+	 *
+	 * @return the default simulation
+	 */
+	public static Simulation getDefault() {
+		return defaultSimulation;
+	}
+
+	/**
+	 * Gets the simulation the static methods of {@link CloudSim} work on in the calling thread.
+	 *
+	 * @return the simulation bound to the thread, or the default one
+	 */
+	public static Simulation getCurrent() {
+		if (anyBound) {
+			Simulation simulation = boundSimulation.get();
+			if (simulation != null) {
+				return simulation;
+			}
+		}
+		return defaultSimulation;
+	}
+
+	/**
+	 * Binds a simulation to the calling thread.
+	 *
+	 * @param simulation the simulation, null to go back to the default one
+	 * @return the simulation previously bound to the thread, null if there was none
+	 */
+	public static Simulation setCurrent(Simulation simulation) {
+		Simulation previous = anyBound ? boundSimulation.get() : null;
+		if (simulation == null) {
+			boundSimulation.remove();
+		} else {
+			anyBound = true;
+			boundSimulation.set(simulation);
+		}
+		return previous;
+	}
+
+	/**
+	 * Calls a task with this simulation bound to the calling thread, and then restores the
+	 * simulation previously bound to it.
+	 *
+	 * @param task the task, which usually sets up and runs the simulation
+	 * @return the result of the task
+	 * @throws Exception the exception thrown by the task
+	 */
+	public <T> T execute(Callable<T> task) throws Exception {
+		Simulation previous = setCurrent(this);
+		try {
+			return task.call();
+		} finally {
+			setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Gets the object that keeps the state of a part of the toolkit in this simulation, creating
+	 * it the first time it is needed. This is how the classes with static methods, such as
+	 * {@link org.cloudbus.cloudsim.NetworkTopology}, keep a separate state for every simulation.
+	 *
+	 * @param type the type of the object, which needs a public constructor without arguments
+	 * @return the object
+	 */
+	public <T> T getComponent(Class<T> type) {
+		Object component = components.get(type);
+		if (component == null) {
+			try {
+				component = type.getDeclaredConstructor().newInstance();
+			} catch (InvocationTargetException e) {
+				throw new IllegalArgumentException("Cannot create a simulation component of type "
+						+ type.getName(), e.getCause());
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Cannot create a simulation component of type "
+						+ type.getName(), e);
+			}
+			Object existing = components.putIfAbsent(type, component);
+			if (existing != null) {
+				component = existing;
+			}
+		}
+		return type.cast(component);
+	}
+
+	/**
+	 * Initialises all the common attributes.
+	 *
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises the simulation, see {@link CloudSim#init(int, Calendar, boolean)}.
+	 *
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		}
+	}
+
+	/**
+	 * Initialises the simulation, see {@link CloudSim#init(int, Calendar, boolean, double)}.
+	 *
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents the minimal period between events
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+		if (periodBetweenEvents <= 0) {
+			throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+		}
+
+		init(numUser, cal, traceFlag);
+		minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Starts the execution of the simulation, see {@link CloudSim#startSimulation()}.
+	 *
+	 * @return the last clock time
+	 * @throws NullPointerException if the simulation hasn't been initialised
+	 */
+	public double startSimulation() throws NullPointerException {
+		Log.printConcatLine("Starting CloudSim version ", CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset all the variables
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Stops the simulation, see {@link CloudSim#stopSimulation()}.
+	 *
+	 * @throws NullPointerException if the simulation can't be stopped
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * Terminates the simulation.
+	 *
+	 * @return true
+	 */
+	public boolean terminateSimulation() {
+		checkSequential("Terminating the simulation");
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * Terminates the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded.
+	 *
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+		return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 *
+	 * @return a new copy of Calendar object, null if the simulation hasn't been initialized
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 *
+	 * @return the Entity ID, -1 if it is not found
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Gets the list of the ids of all the resources registered with the CIS entity.
+	 *
+	 * @return the list, null if a CIS entity hasn't been created
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	protected void initialize() {
+		Log.printLine("Initializing...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		future = new FutureQueue(createFutureEventList());
+		deferred = new DeferredQueue();
+		readyEntities = new BitSet();
+		alwaysReadyEntities = new BitSet();
+		waitPredicates = new HashMap<Integer, Predicate>();
+		logicalProcesses.clear();
+		clock = 0;
+		running = false;
+	}
+
+	/**
+	 * Creates an empty list of the type set with {@link #setFutureEventListClass(Class)}.
+	 *
+	 * @return the list
+	 */
+	FutureEventList createFutureEventList() {
+		try {
+			return futureEventListClass.getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			throw new IllegalArgumentException("Cannot create a future event list of type "
+					+ futureEventListClass.getName(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create a future event list of type "
+					+ futureEventListClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Gets the type of list the future event queue stores the events in.
+	 *
+	 * @return the type of list
+	 */
+	public Class<? extends FutureEventList> getFutureEventListClass() {
+		return futureEventListClass;
+	}
+
+	/**
+	 * Sets the type of list the future event queue stores the events in, see
+	 * {@link CloudSim#setFutureEventListClass(Class)}.
+	 *
+	 * @param futureEventListClass the type of list
+	 */
+	public void setFutureEventListClass(Class<? extends FutureEventList> futureEventListClass) {
+		this.futureEventListClass = futureEventListClass;
+	}
+
+	/**
+	 * Checks whether processed events are reused.
+	 *
+	 * @return true if the events are reused
+	 */
+	public boolean isEventPooling() {
+		return eventPooling;
+	}
+
+	/**
+	 * Sets whether processed events are reused, see {@link CloudSim#setEventPooling(boolean)}.
+	 *
+	 * @param eventPooling true to reuse the events
+	 */
+	public void setEventPooling(boolean eventPooling) {
+		this.eventPooling = eventPooling;
+		if (!eventPooling) {
+			eventPool.clear();
+		}
+	}
+
+	/**
+	 * Creates an event, reusing a processed one if event pooling is enabled.
+	 *
+	 * @return the event
+	 */
+	private SimEvent newEvent(int evtype, double time, int src, int dest, int tag, Object data) {
+		SimEvent e = eventPooling ? eventPool.pollLast() : null;
+		if (e == null) {
+			return new SimEvent(evtype, time, src, dest, tag, data);
+		}
+		return e.reset(evtype, time, src, dest, tag, data);
+	}
+
+	/**
+	 * Gives back an event that has been processed and is not referenced any more, so that it can be
+	 * reused if event pooling is enabled. The events sent to an entity are given back by
+	 * {@link SimEntity#run()} once {@link SimEntity#processEvent(SimEvent)} has returned, the
+	 * {@link SimEvent#HOLD_DONE} ones as soon as the entity is woken up. No event is pooled while
+	 * the {@link ParallelEngine} runs, whose logical processes would share the pool across threads.
+	 *
+	 * @param e the event
+	 */
+	void releaseEvent(SimEvent e) {
+		if (eventPooling && engine == null && eventPool.size() < MAX_EVENT_POOL_SIZE) {
+			// the data is dropped at once, it must not be kept alive by the pool
+			eventPool.addLast(e.reset(SimEvent.ENULL, -1, -1, -1, -1, null));
+		}
+	}
+
+	/**
+	 * Gets the number of threads the simulation is run on.
+	 *
+	 * @return the number of threads, 1 if it is run sequentially
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the number of threads the simulation is run on, see
+	 * {@link CloudSim#setParallelism(int)}. It is used when the simulation is started.
+	 * <p>
+	 * The simulation falls back to one thread, without notice and with the same results, when the
+	 * network has a transfer model: the lookahead of the logical processes comes from the
+	 * latencies of the topology, and doesn't account for the shared links of the transfer model.
+	 * It does so as well when it has to be paused, when it is started with deferred events or with
+	 * events other than messages, when some entities override {@link SimEntity#run()}, and when all
+	 * the entities would be in a single logical process. The logical processes only run ahead of
+	 * each other when all the entities are mapped to the topology, including the ones created by
+	 * {@link CloudSim#init(int, Calendar, boolean)}: an entity that is not mapped can relay an event
+	 * from any logical process to any other with no delay.
+	 *
+	 * @param parallelism the number of threads, 1 to run it sequentially
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be at least 1, but is: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Gets the number of steps the {@link ParallelEngine} has run since the simulation was last
+	 * started.
+	 *
+	 * @return the number of steps, 0 if the simulation has been run on one thread
+	 */
+	int getParallelSteps() {
+		return parallelSteps;
+	}
+
+	/**
+	 * Gets the logical process an entity has been assigned to.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the logical process, -1 if the entity has not been assigned to one
+	 */
+	public int getLogicalProcess(int entityId) {
+		Integer logicalProcess = logicalProcesses.get(entityId);
+		return logicalProcess == null ? -1 : logicalProcess;
+	}
+
+	/**
+	 * Assigns an entity to a logical process, see {@link CloudSim#setLogicalProcess(int, int)}.
+	 *
+	 * @param entityId the id of the entity
+	 * @param logicalProcess the logical process, -1 to go back to the default one
+	 */
+	public void setLogicalProcess(int entityId, int logicalProcess) {
+		if (logicalProcess < 0) {
+			logicalProcesses.remove(entityId);
+		} else {
+			logicalProcesses.put(entityId, logicalProcess);
+		}
+	}
+
+	/**
+	 * Get the current simulation time. While the simulation runs in parallel, it is the time of
+	 * the logical process of the calling entity.
+	 *
+	 * @return the simulation time
+	 */
+	public double clock() {
+		ParallelEngine engine = this.engine;
+		if (engine != null) {
+			LogicalProcess process = engine.getCurrent();
+			if (process != null) {
+				return process.getClock();
+			}
+		}
+		return clock;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 *
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 *
+	 * @param id the entity's unique id number
+	 * @return The entity
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity, null if it could not be found
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity's unique id number, -1 if it could not be found
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 *
+	 * @param entityID the entity ID
+	 * @return the Entity name, null if this object does not have one
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 *
+	 * @return a copy of the list of the entities
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		List<SimEntity> list = new LinkedList<SimEntity>();
+		list.addAll(entities);
+		return list;
+	}
+
+	/**
+	 * Add a new entity to the simulation.
+	 *
+	 * @param e The new entity
+	 */
+	public void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (running) {
+			checkSequential("Adding an entity");
+			// Post an event to make this entity
+			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+			if (overridesRun(e)) {
+				alwaysReadyEntities.set(id);
+			}
+			readyEntities.set(id);
+		}
+	}
+
+	/**
+	 * Checks whether an entity has its own {@link SimEntity#run()} method, which may do something
+	 * even when the entity has no events.
+	 *
+	 * @param e the entity
+	 * @return true if the entity overrides the method
+	 */
+	private static boolean overridesRun(SimEntity e) {
+		try {
+			return e.getClass().getMethod("run").getDeclaringClass() != SimEntity.class;
+		} catch (NoSuchMethodException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 *
+	 * @param e The new entity
+	 */
+	protected void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation.
+	 *
+	 * @return true if there are no more future events
+	 */
+	public boolean runClockTick() {
+		boolean queue_empty;
+
+		if (!entitiesRun) {
+			runEntities();
+		}
+		entitiesRun = false;
+
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+
+			// all the events at the time of the first one, in order
+			future.pollFirstEvents(currentEvents);
+			for (int i = 0; i < currentEvents.size(); i++) {
+				processEvent(currentEvents.get(i));
+			}
+			currentEvents.clear();
+
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage(clock + ": Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Runs the entities that can do something, in the first half of a clock tick.
+	 */
+	private void runEntities() {
+		SimEntity ent;
+		int entities_size = entities.size();
+
+		// only the entities that received events or were woken up can do something, and they run
+		// in the order of their ids
+		for (int i = readyEntities.nextSetBit(0); i >= 0 && i < entities_size; i = readyEntities.nextSetBit(i + 1)) {
+			ent = entities.get(i);
+			if (!alwaysReadyEntities.get(i)) {
+				readyEntities.clear(i);
+			}
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				ent.run();
+			}
+		}
+	}
+
+	/**
+	 * Internal method used to stop the simulation.
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void hold(int src, long delay) {
+		checkSequential("Holding an entity");
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock + delay, src, -1, -1, null);
+		future.addEvent(e);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void pause(int src, double delay) {
+		checkSequential("Pausing an entity");
+		SimEvent e = newEvent(SimEvent.HOLD_DONE, clock + delay, src, -1, -1, null);
+		future.addEvent(e);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if(delay >= Double.MAX_VALUE) {
+			throw new RuntimeException("Send delay can't be infinite.");
+		}
+		if (engine != null) {
+			engine.send(src, dest, delay, tag, data);
+			return;
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		checkSequential("Sending an event with priority");
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = newEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEventFirst(e);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting. Only events that satisfy the predicate will be passed
+	 * to the entity.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 */
+	public void wait(int src, Predicate p) {
+		checkSequential("Waiting for an event");
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			waitPredicates.put(src, p);
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 *
+	 * @param d the d
+	 * @param p the p
+	 * @return the number of matching events
+	 */
+	public int waiting(int d, Predicate p) {
+		DeferredQueue deferred = getDeferred(d);
+		if (p == CloudSim.SIM_ANY) {
+			return deferred.size(d);
+		}
+
+		int count = 0;
+		SimEvent event;
+		Iterator<SimEvent> iterator = deferred.iterator(d);
+		while (iterator.hasNext()) {
+			event = iterator.next();
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Selects an event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event; if none matches, the last event of the deferred queue (which is not
+	 *         removed), as when all the entities shared one list, or of the logical process of the
+	 *         entity when the simulation runs in parallel
+	 */
+	public SimEvent select(int src, Predicate p) {
+		DeferredQueue deferred = getDeferred(src);
+		SimEvent ev;
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			ev = iterator.next();
+			if (p.match(ev)) {
+				iterator.remove();
+				return ev;
+			}
+		}
+		return deferred.getLast();
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event; if none matches, the last event of the deferred queue, as when all the
+	 *         entities shared one list, or of the logical process of the entity when the simulation
+	 *         runs in parallel
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		DeferredQueue deferred = getDeferred(src);
+		SimEvent ev;
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			ev = iterator.next();
+			if (p.match(ev)) {
+				return ev;
+			}
+		}
+		return deferred.getLast();
+	}
+
+	/**
+	 * Removes the first event sent by an entity that matches a predicate from the future event
+	 * queue. Only the events of the entity are looked at, see {@link FutureQueue#cancel(int, Predicate)}.
+	 *
+	 * @param src the id of the entity that sent the event
+	 * @param p the predicate
+	 * @return the removed event, null if no event matches
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		return getFuture(src).cancel(src, p);
+	}
+
+	/**
+	 * Removes all events sent by an entity that match a given predicate from the future event
+	 * queue.
+	 *
+	 * @param src the id of the entity that sent the events
+	 * @param p the predicate
+	 * @return true if at least one event has been removed
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		return getFuture(src).cancelAll(src, p) > 0;
+	}
+
+	/**
+	 * Gets the future event queue the events sent by an entity are in. When the simulation runs
+	 * in parallel, it is the queue of the logical process of the entity, which only has the events
+	 * sent to the entities of the same logical process.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the queue
+	 */
+	private FutureQueue getFuture(int entityId) {
+		return engine != null ? engine.getFuture(entityId) : future;
+	}
+
+	/**
+	 * Gets the deferred event queue the events of an entity are in.
+	 *
+	 * @param entityId the id of the entity
+	 * @return the queue
+	 */
+	private DeferredQueue getDeferred(int entityId) {
+		return engine != null ? engine.getDeferred(entityId) : deferred;
+	}
+
+	/**
+	 * Checks that the simulation is not running in parallel, for the operations the parallel
+	 * engine doesn't support.
+	 *
+	 * @param operation what is being done
+	 * @throws UnsupportedOperationException if the simulation is running in parallel
+	 */
+	private void checkSequential(String operation) {
+		if (engine != null) {
+			throw new UnsupportedOperationException(operation + " is not supported while the simulation runs in parallel.");
+		}
+	}
+
+	//
+	// Private internal methods
+	//
+
+	/**
+	 * Processes an event.
+	 *
+	 * @param e the e
+	 */
+	private void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				addEntityDynamically(newe);
+				readyEntities.set(newe.getId());
+				break;
+
+			case SimEvent.SEND:
+				// Check for matching wait
+				dest = e.getDestination();
+				if (dest < 0) {
+					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+				} else {
+					int tag = e.getTag();
+					dest_ent = entities.get(dest);
+					if (dest_ent.getState() == SimEntity.WAITING) {
+						Integer destObj = Integer.valueOf(dest);
+						Predicate p = waitPredicates.get(destObj);
+						if ((p == null) || (tag == 9999) || (p.match(e))) {
+							// the event has left the queues, it is handed over without a copy
+							dest_ent.setEventBuffer(e);
+							dest_ent.setState(SimEntity.RUNNABLE);
+							waitPredicates.remove(destObj);
+						} else {
+							deferred.addEvent(e);
+						}
+					} else {
+						deferred.addEvent(e);
+					}
+					readyEntities.set(dest);
+				}
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					entities.get(src).setState(SimEntity.RUNNABLE);
+					readyEntities.set(src);
+				}
+				releaseEvent(e);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Internal method used to start the simulation.
+	 */
+	public void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+			readyEntities.set(ent.getId());
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running.
+	 *
+	 * @return true if the simulation is still running
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * Pauses the simulation.
+	 *
+	 * @return true
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * Pauses the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * Resumes the simulation that has previously been paused.
+	 *
+	 * @return true if the simulation has been restarted
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked. A simulation stopped by {@link #runUntil(double)}, or
+	 * restored from a checkpoint, goes on from where it stopped, on one thread.
+	 *
+	 * @return the last clock value
+	 */
+	public double run() {
+		if (!running) {
+			runStart();
+			parallelSteps = 0;
+			if (parallelism > 1 && ParallelEngine.canRun(this)) {
+				engine = new ParallelEngine(this, parallelism);
+				try {
+					engine.run();
+				} finally {
+					parallelSteps = engine.getSteps();
+					engine = null;
+				}
+			}
+		}
+		while (!runStep()) {
+			// the steps go on until the simulation ends
+		}
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Runs the simulation until the entities have processed all the events up to a given time,
+	 * and then stops without finishing it, so that it can be saved with
+	 * {@link #checkpoint(OutputStream)} and run again later with {@link #run()}. The clock is left
+	 * at the time of the last events processed; when the simulation is run again it goes on
+	 * exactly as if it had never stopped.
+	 *
+	 * @param time the time up to which the events are processed
+	 * @return true if the simulation has finished before the given time
+	 */
+	public boolean runUntil(double time) {
+		if (!running) {
+			runStart();
+		}
+		while (true) {
+			// the first half of the tick, the second half delivers the next events
+			if (!entitiesRun) {
+				runEntities();
+				entitiesRun = true;
+			}
+			if (future.size() > 0 && future.peek().eventTime() > time) {
+				return false;
+			}
+			if (runStep()) {
+				finishSimulation();
+				runStop();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Runs one clock tick, and then terminates or pauses the simulation if it has been asked to.
+	 *
+	 * @return true if the simulation has to stop
+	 */
+	private boolean runStep() {
+		if (runClockTick() || abruptTerminate) {
+			return true;
+		}
+
+		// this block allows termination of simulation at a specific time
+		if (terminateAt > 0.0 && clock >= terminateAt) {
+			terminateSimulation();
+			clock = terminateAt;
+			return true;
+		}
+
+		if (pauseAt != -1
+				&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.peek().eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+			pauseSimulation();
+			clock = pauseAt;
+		}
+
+		while (paused) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Saves the whole state of the simulation: the clock, the event queues, the entities and the
+	 * components. It must not be called while the simulation is running a clock tick, for example
+	 * from an entity; it is usually called after {@link #runUntil(double)}.
+	 *
+	 * @param out where the state is written, it is flushed but not closed
+	 * @throws IOException if the state can't be written, for example because an entity references
+	 *             an object that is not serializable
+	 */
+	public void checkpoint(OutputStream out) throws IOException {
+		ObjectOutputStream stream = new ObjectOutputStream(out);
+		stream.writeObject(this);
+		stream.flush();
+	}
+
+	/**
+	 * Restores a simulation saved with {@link #checkpoint(OutputStream)}. The restored simulation
+	 * is independent of the saved one and of any other simulation restored from the same state; it
+	 * has to be bound to a thread, for example with {@link #execute(Callable)}, to be run.
+	 *
+	 * @param in where the state is read from
+	 * @return the restored simulation
+	 * @throws IOException if the state can't be read
+	 * @throws ClassNotFoundException if a class of the saved objects can't be found
+	 */
+	public static Simulation restore(InputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream stream = new ObjectInputStream(in);
+		return (Simulation) stream.readObject();
+	}
+
+	/**
+	 * Copies the simulation in memory, as a checkpoint restored at once.
+	 *
+	 * @return the copy, which is independent of this simulation
+	 * @throws IOException if the state can't be copied
+	 */
+	public Simulation fork() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		checkpoint(out);
+		try {
+			return restore(new ByteArrayInputStream(out.toByteArray()));
+		} catch (ClassNotFoundException e) {
+			// the classes have just been used to write the state
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates the fields that are not saved by a checkpoint.
+	 *
+	 * @param in the stream the simulation is read from
+	 * @throws IOException if the simulation can't be read
+	 * @throws ClassNotFoundException if a class of the saved objects can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		eventPool = new ArrayDeque<SimEvent>();
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate.
+	 */
+	public void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+
+		// reset all the variables
+		entities = null;
+		entitiesByName = null;
+		future = null;
+		deferred = null;
+		readyEntities = null;
+		alwaysReadyEntities = null;
+		clock = 0L;
+		running = false;
+
+		waitPredicates = null;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+		entitiesRun = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+		if (engine != null) {
+			engine.terminate();
+		}
+	}
+
+	// Methods used by the ParallelEngine
+
+	/**
+	 * Gets the id of the entity that shuts the simulation down.
+	 *
+	 * @return the id
+	 */
+	int getShutdownId() {
+		return shutdownId;
+	}
+
+	/**
+	 * Gets the ids of the entities that may have something to do in the next clock tick.
+	 *
+	 * @return the ids
+	 */
+	BitSet getReadyEntities() {
+		return readyEntities;
+	}
+
+	/**
+	 * Checks whether some entity runs at every clock tick, regardless of its events.
+	 *
+	 * @return true if there is such an entity
+	 */
+	boolean hasAlwaysReadyEntities() {
+		return !alwaysReadyEntities.isEmpty();
+	}
+
+	/**
+	 * Gets the time the simulation has to be terminated at.
+	 *
+	 * @return the time, not positive if there is none
+	 */
+	double getTerminateAt() {
+		return terminateAt;
+	}
+
+	/**
+	 * Checks whether the simulation has been asked to pause, now or at a given time.
+	 *
+	 * @return true if it has to pause
+	 */
+	boolean isPauseRequested() {
+		return paused || pauseAt != -1;
+	}
+
+	/**
+	 * Goes back to the sequential engine at the end of a clock tick, after the entities have run.
+	 *
+	 * @param time the time of the tick
+	 */
+	void endParallelTick(double time) {
+		clock = time;
+		entitiesRun = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 *
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 *
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+}
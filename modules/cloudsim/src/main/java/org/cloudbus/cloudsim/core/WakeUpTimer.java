@@ -0,0 +1,118 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.TreeSet;
+
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * WakeUpTimer coalesces the events an entity sends to itself to be woken up, such as the
+ * {@link CloudSimTags#VM_DATACENTER_EVENT} of a datacenter. The entity can request any number of
+ * wake-ups, but the ones requested for the same time share a single event in the future queue.
+ *
+ * <p/>The wake-ups requested for different times are all sent, even if the later ones look
+ * superseded by the earlier ones: every wake-up is a point where the entity updates its state, so
+ * dropping or postponing one would change the results of the simulation.
+ *
+ * @see org.cloudbus.cloudsim.Datacenter
+ */
+public class WakeUpTimer implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The entity woken up. */
+	private final SimEntity entity;
+
+	/** The tag of the wake-up events. */
+	private final int tag;
+
+	/** The times of the wake-up events in the future queue. */
+	private final TreeSet<Double> requests = new TreeSet<Double>();
+
+	/**
+	 * Creates a timer.
+	 *
+	 * @param entity the entity woken up
+	 * @param tag the tag of the wake-up events
+	 */
+	public WakeUpTimer(SimEntity entity, int tag) {
+		this.entity = entity;
+		this.tag = tag;
+	}
+
+	/**
+	 * Requests a wake-up. If a wake-up event is already in the future queue for the same time, no
+	 * event is sent.
+	 *
+	 * @param delay how long from now the entity has to be woken up, a negative delay is taken as 0
+	 */
+	public void schedule(double delay) {
+		if (!CloudSim.running()) {
+			return;
+		}
+
+		delay = Math.max(0, delay);
+		if (requests.add(CloudSim.clock() + delay)) {
+			CloudSim.send(entity.getId(), entity.getId(), delay, tag, null);
+		}
+	}
+
+	/**
+	 * Cancels all the wake-ups requested so far.
+	 */
+	public void cancel() {
+		requests.clear();
+		CloudSim.cancelAll(entity.getId(), new PredicateType(tag));
+	}
+
+	/**
+	 * Takes note that a wake-up event has been received: the wake-ups requested up to now are over.
+	 *
+	 * @param ev the event received
+	 * @return true if the event has been sent by this timer
+	 */
+	public boolean process(SimEvent ev) {
+		while (!requests.isEmpty() && requests.first() <= CloudSim.clock()) {
+			requests.pollFirst();
+		}
+		return ev.getSource() == entity.getId() && ev.getTag() == tag;
+	}
+
+	/**
+	 * Gets the time of the earliest wake-up event in the future queue. An event earlier than the
+	 * current time has already been processed, even if {@link #process(SimEvent)} was not called.
+	 *
+	 * @return the time, -1 if there is none
+	 */
+	public double getScheduledTime() {
+		Double time = requests.ceiling(CloudSim.clock());
+		return time == null ? -1 : time;
+	}
+
+	/**
+	 * Checks whether there is a wake-up event in the future queue.
+	 *
+	 * @return true if there is a wake-up event
+	 */
+	public boolean isScheduled() {
+		return getScheduledTime() >= 0;
+	}
+
+	/**
+	 * Gets the number of wake-ups requested that have not fired yet.
+	 *
+	 * @return the number of wake-ups
+	 */
+	public int getRequestCount() {
+		return requests.size();
+	}
+
+}
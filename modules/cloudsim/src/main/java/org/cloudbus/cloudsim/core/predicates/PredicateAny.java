@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.core.predicates;
 
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
 
 /**
@@ -25,6 +26,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateAny extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Considers there is no criteria to match an event,
          * so any event received by the predicate will match.
@@ -37,4 +40,14 @@ public class PredicateAny extends Predicate {
 		return true;
 	}
 
+	/**
+	 * Keeps {@link CloudSim#SIM_ANY} the only instance of the predicate in a
+	 * simulation restored from a checkpoint.
+	 * 
+	 * @return the shared instance
+	 */
+	private Object readResolve() {
+		return CloudSim.SIM_ANY;
+	}
+
 }
@@ -21,6 +21,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateFrom extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The IDs of source entities to check the reception of events from. */
 	private final int[] ids;
 
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.core.predicates;
 
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
 
 /**
@@ -23,6 +24,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateNone extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Considers that no event received by the predicate matches.
 	 * 
@@ -33,4 +36,15 @@ public class PredicateNone extends Predicate {
 	public boolean match(SimEvent ev) {
 		return false;
 	}
+
+	/**
+	 * Keeps {@link CloudSim#SIM_NONE} the only instance of the predicate in a
+	 * simulation restored from a checkpoint.
+	 * 
+	 * @return the shared instance
+	 */
+	private Object readResolve() {
+		return CloudSim.SIM_NONE;
+	}
+
 }
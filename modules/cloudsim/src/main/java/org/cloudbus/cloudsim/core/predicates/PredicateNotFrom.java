@@ -20,6 +20,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateNotFrom extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The IDs of source entities to check if events were not sent from. */
 	private final int[] ids;
 
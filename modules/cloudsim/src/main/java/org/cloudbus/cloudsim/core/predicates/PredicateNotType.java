@@ -20,6 +20,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateNotType extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/** Array of tags to verify if the tag of received events doesn't correspond to. */
 	private final int[] tags;
 
@@ -20,6 +20,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class PredicateType extends Predicate {
 
+	private static final long serialVersionUID = 1L;
+
 	/** Array of tags to verify if the tag of received events correspond to. */
 	private final int[] tags;
 
@@ -59,4 +61,13 @@ public class PredicateType extends Predicate {
 		return false;
 	}
 
+	/**
+	 * Gets the tags the events are selected by.
+	 * 
+	 * @return a copy of the {@link #tags}
+	 */
+	public int[] getTags() {
+		return tags.clone();
+	}
+
 }
@@ -8,13 +8,15 @@
 
 package org.cloudbus.cloudsim.distributions;
 
+import java.io.Serializable;
+
 /**
  * Interface to be implemented by a random number generator.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public interface ContinuousDistribution {
+public interface ContinuousDistribution extends Serializable {
 
 	/**
 	 * Generate a new pseudo random number.
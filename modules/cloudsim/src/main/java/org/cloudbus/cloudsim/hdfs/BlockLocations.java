@@ -0,0 +1,61 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_RETURN_BLOCK_LOCATIONS}: the replicas
+ * of the block asked with a {@link BlockLocationsRequest}, in no particular order, each one as the DataNode vm id, the
+ * id of its Datacenter, its rack id and the id of its host in that Datacenter. There are no replicas if the block is
+ * unknown.
+ */
+public final class BlockLocations implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int readId;
+
+    private final int[] dataNodeIds;
+
+    private final int[] datacenterIds;
+
+    private final int[] rackIds;
+
+    private final int[] hostIds;
+
+    // the arrays are not copied, the caller must not change them after creating the message
+    public BlockLocations(int readId, int[] dataNodeIds, int[] datacenterIds, int[] rackIds, int[] hostIds) {
+        if (dataNodeIds.length != datacenterIds.length || dataNodeIds.length != rackIds.length
+                || dataNodeIds.length != hostIds.length) {
+            throw new IllegalArgumentException("Every replica needs a DataNode, a Datacenter, a rack and a host");
+        }
+        this.readId = readId;
+        this.dataNodeIds = dataNodeIds;
+        this.datacenterIds = datacenterIds;
+        this.rackIds = rackIds;
+        this.hostIds = hostIds;
+    }
+
+    public int getReadId() {
+        return readId;
+    }
+
+    public int size() {
+        return dataNodeIds.length;
+    }
+
+    public int getDataNodeId(int index) {
+        return dataNodeIds[index];
+    }
+
+    public int getDatacenterId(int index) {
+        return datacenterIds[index];
+    }
+
+    public int getRackId(int index) {
+        return rackIds[index];
+    }
+
+    public int getHostId(int index) {
+        return hostIds[index];
+    }
+}
@@ -0,0 +1,37 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_GET_BLOCK_LOCATIONS}: a broker asks the
+ * NameNode which DataNodes hold a block it wants to read. The NameNode answers with a {@link BlockLocations}.
+ */
+public final class BlockLocationsRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String blockName;
+
+    private final int brokerId;
+
+    // the id of the read cloudlet waiting in the broker, it's sent back with the answer
+    private final int readId;
+
+    public BlockLocationsRequest(String blockName, int brokerId, int readId) {
+        this.blockName = blockName;
+        this.brokerId = brokerId;
+        this.readId = readId;
+    }
+
+    public String getBlockName() {
+        return blockName;
+    }
+
+    public int getBrokerId() {
+        return brokerId;
+    }
+
+    public int getReadId() {
+        return readId;
+    }
+}
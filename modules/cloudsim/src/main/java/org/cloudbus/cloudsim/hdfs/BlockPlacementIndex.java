@@ -0,0 +1,313 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the NameNode metadata needed to place blocks in sorted structures, so that a placement decision does not have
+ * to scan every DataNode and every stored block. For every DataNode it tracks rack, capacity and usage ratio; nodes are
+ * kept ordered by usage both globally and inside their rack, racks are ordered by their overall usage, and every block
+ * name is hashed to the set of DataNodes holding a replica of it.
+ *
+ * Ties are broken exactly like the original linear scans did: nodes with the same usage are ordered by registration
+ * order, racks with the same usage by ascending rack id.
+ *
+ * All the structures are updated incrementally through {@link #addDataNode(int, int, int)},
+ * {@link #setNodeUsage(int, double)} and {@link #addBlock(String, int)}.
+ */
+public class BlockPlacementIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // registration order of every DataNode, used to break ties between nodes with the same usage
+    protected Map<Integer, Integer> mapDataNodeToOrder;
+
+    protected Map<Integer, Integer> mapDataNodeToRackId;
+
+    protected Map<Integer, Integer> mapDataNodeToCapacity;
+
+    protected Map<Integer, Double> mapDataNodeToUsage;
+
+    // sum of the capacities of the DataNodes in every rack
+    protected Map<Integer, Long> mapRackToCapacity;
+
+    // sum of the space used by the DataNodes in every rack (usage * capacity)
+    protected Map<Integer, Double> mapRackToSpaceUsed;
+
+    // every DataNode, least used first
+    protected TreeSet<Integer> nodesByUsage;
+
+    // the DataNodes of every rack, least used first
+    protected Map<Integer, TreeSet<Integer>> mapRackToNodes;
+
+    // every rack, least used first
+    protected TreeSet<Integer> racksByUsage;
+
+    // maps every block (file name) to the DataNodes that contain it
+    protected Map<String, Set<Integer>> mapBlockToDataNodes;
+
+    // every DataNode and the DataNodes of every rack, in registration order (used for random choices)
+    protected List<Integer> dataNodeList;
+
+    protected Map<Integer, List<Integer>> mapRackToNodeList;
+
+    private final Comparator<Integer> nodeComparator = new NodeComparator();
+
+    private final Comparator<Integer> rackComparator = new RackComparator();
+
+    // the comparators are classes and not anonymous, so that the index can be saved with the simulation
+    private class NodeComparator implements Comparator<Integer>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Integer a, Integer b) {
+            int result = Double.compare(mapDataNodeToUsage.get(a), mapDataNodeToUsage.get(b));
+            if (result != 0) {
+                return result;
+            }
+            return mapDataNodeToOrder.get(a).compareTo(mapDataNodeToOrder.get(b));
+        }
+    }
+
+    private class RackComparator implements Comparator<Integer>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int compare(Integer a, Integer b) {
+            int result = Double.compare(getRackUsage(a), getRackUsage(b));
+            if (result != 0) {
+                return result;
+            }
+            return a.compareTo(b);
+        }
+    }
+
+    public BlockPlacementIndex() {
+        mapDataNodeToOrder = new HashMap<Integer, Integer>();
+        mapDataNodeToRackId = new HashMap<Integer, Integer>();
+        mapDataNodeToCapacity = new HashMap<Integer, Integer>();
+        mapDataNodeToUsage = new HashMap<Integer, Double>();
+        mapRackToCapacity = new HashMap<Integer, Long>();
+        mapRackToSpaceUsed = new HashMap<Integer, Double>();
+        nodesByUsage = new TreeSet<Integer>(nodeComparator);
+        mapRackToNodes = new HashMap<Integer, TreeSet<Integer>>();
+        racksByUsage = new TreeSet<Integer>(rackComparator);
+        mapBlockToDataNodes = new HashMap<String, Set<Integer>>();
+        dataNodeList = new ArrayList<Integer>();
+        mapRackToNodeList = new HashMap<Integer, List<Integer>>();
+    }
+
+    /**
+     * Registers a new, empty DataNode. Nodes that are already known are ignored.
+     *
+     * @param dataNodeId the id of the DataNode vm
+     * @param rackId the rack the DataNode belongs to
+     * @param capacity the storage capacity of the DataNode
+     */
+    public void addDataNode(int dataNodeId, int rackId, int capacity) {
+        if (mapDataNodeToOrder.containsKey(dataNodeId)) {
+            return;
+        }
+
+        mapDataNodeToOrder.put(dataNodeId, mapDataNodeToOrder.size());
+        mapDataNodeToRackId.put(dataNodeId, rackId);
+        mapDataNodeToCapacity.put(dataNodeId, capacity);
+        mapDataNodeToUsage.put(dataNodeId, 0.0);
+
+        // the rack aggregates change, so the rack has to be taken out of the sorted set before updating them
+        boolean knownRack = mapRackToNodes.containsKey(rackId);
+        if (knownRack) {
+            racksByUsage.remove(rackId);
+        } else {
+            mapRackToNodes.put(rackId, new TreeSet<Integer>(nodeComparator));
+            mapRackToNodeList.put(rackId, new ArrayList<Integer>());
+            mapRackToCapacity.put(rackId, 0L);
+            mapRackToSpaceUsed.put(rackId, 0.0);
+        }
+        mapRackToCapacity.put(rackId, mapRackToCapacity.get(rackId) + capacity);
+        racksByUsage.add(rackId);
+
+        nodesByUsage.add(dataNodeId);
+        mapRackToNodes.get(rackId).add(dataNodeId);
+        dataNodeList.add(dataNodeId);
+        mapRackToNodeList.get(rackId).add(dataNodeId);
+    }
+
+    /**
+     * Sets the usage ratio of a DataNode, updating its position in the sorted sets and the aggregates of its rack.
+     *
+     * @param dataNodeId the id of the DataNode vm
+     * @param usage the new usage ratio (used space / capacity)
+     */
+    public void setNodeUsage(int dataNodeId, double usage) {
+        Integer rackId = mapDataNodeToRackId.get(dataNodeId);
+        TreeSet<Integer> rackNodes = mapRackToNodes.get(rackId);
+
+        nodesByUsage.remove(dataNodeId);
+        rackNodes.remove(dataNodeId);
+        racksByUsage.remove(rackId);
+
+        double capacity = mapDataNodeToCapacity.get(dataNodeId);
+        double oldUsage = mapDataNodeToUsage.get(dataNodeId);
+        mapRackToSpaceUsed.put(rackId, mapRackToSpaceUsed.get(rackId) + (usage - oldUsage) * capacity);
+        mapDataNodeToUsage.put(dataNodeId, usage);
+
+        nodesByUsage.add(dataNodeId);
+        rackNodes.add(dataNodeId);
+        racksByUsage.add(rackId);
+    }
+
+    // records that the given DataNode now contains a replica of the block
+    public void addBlock(String fileName, int dataNodeId) {
+        Set<Integer> holders = mapBlockToDataNodes.get(fileName);
+        if (holders == null) {
+            holders = new HashSet<Integer>();
+            mapBlockToDataNodes.put(fileName, holders);
+        }
+        holders.add(dataNodeId);
+    }
+
+    // the DataNodes that already contain the block, never null
+    public Set<Integer> getBlockLocations(String fileName) {
+        Set<Integer> holders = mapBlockToDataNodes.get(fileName);
+        if (holders == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(holders);
+    }
+
+    public boolean containsBlock(int dataNodeId, String fileName) {
+        Set<Integer> holders = mapBlockToDataNodes.get(fileName);
+        return holders != null && holders.contains(dataNodeId);
+    }
+
+    // overall usage of a rack, computed from the incremental aggregates
+    public double getRackUsage(Integer rackId) {
+        return mapRackToSpaceUsed.get(rackId) / mapRackToCapacity.get(rackId);
+    }
+
+    /**
+     * Finds the least used DataNode that does not already contain the block, in O(log n + replicas).
+     *
+     * @param fileName the block to place
+     * @param excluded further DataNodes that cannot be chosen
+     * @return the chosen DataNode, or null if every DataNode is excluded
+     */
+    public Integer findLeastUsedNode(String fileName, Set<Integer> excluded) {
+        for (Integer node : nodesByUsage) {
+            if (!excluded.contains(node) && !containsBlock(node, fileName)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the least used rack, among the ones not excluded, that has at least the given number of DataNodes able to
+     * receive the block.
+     *
+     * @param fileName the block to place
+     * @param excludedRacks the racks that cannot be chosen
+     * @param excludedNodes further DataNodes that cannot receive the block
+     * @param minNodes the number of acceptable DataNodes the rack must have
+     * @return the chosen rack id, or null if no rack qualifies
+     */
+    public Integer findLeastUsedRack(String fileName, Set<Integer> excludedRacks, Set<Integer> excludedNodes, int minNodes) {
+        // count, per rack, the nodes that can't take the block: only the holders and the excluded nodes need checking
+        Map<Integer, Integer> unavailablePerRack = new HashMap<Integer, Integer>();
+        Set<Integer> unavailable = new HashSet<Integer>(getBlockLocations(fileName));
+        unavailable.addAll(excludedNodes);
+        for (Integer node : unavailable) {
+            Integer rack = mapDataNodeToRackId.get(node);
+            if (rack != null) {
+                Integer count = unavailablePerRack.get(rack);
+                unavailablePerRack.put(rack, count == null ? 1 : count + 1);
+            }
+        }
+
+        for (Integer rack : racksByUsage) {
+            if (excludedRacks.contains(rack)) {
+                continue;
+            }
+            Integer count = unavailablePerRack.get(rack);
+            int acceptableNodes = mapRackToNodes.get(rack).size() - (count == null ? 0 : count);
+            if (acceptableNodes >= minNodes) {
+                return rack;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds, inside a rack, up to {@code count} least used DataNodes that can receive the block.
+     *
+     * @param rackId the rack to search
+     * @param fileName the block to place
+     * @param excluded further DataNodes that cannot be chosen
+     * @param count the maximum number of DataNodes to return
+     * @return the chosen DataNodes, least used first
+     */
+    public List<Integer> findLeastUsedNodesInRack(Integer rackId, String fileName, Set<Integer> excluded, int count) {
+        List<Integer> result = new ArrayList<Integer>();
+        TreeSet<Integer> rackNodes = mapRackToNodes.get(rackId);
+        if (rackNodes == null) {
+            return result;
+        }
+        for (Integer node : rackNodes) {
+            if (result.size() >= count) {
+                break;
+            }
+            if (!excluded.contains(node) && !containsBlock(node, fileName)) {
+                result.add(node);
+            }
+        }
+        return result;
+    }
+
+    public boolean containsDataNode(int dataNodeId) {
+        return mapDataNodeToOrder.containsKey(dataNodeId);
+    }
+
+    // every DataNode, in registration order
+    public List<Integer> getDataNodes() {
+        return Collections.unmodifiableList(dataNodeList);
+    }
+
+    // the DataNodes of a rack, in registration order
+    public List<Integer> getRackNodes(Integer rackId) {
+        List<Integer> nodes = mapRackToNodeList.get(rackId);
+        if (nodes == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    // every DataNode, least used first
+    public Set<Integer> getNodesByUsage() {
+        return Collections.unmodifiableSet(nodesByUsage);
+    }
+
+    public int getDataNodeCount() {
+        return mapDataNodeToOrder.size();
+    }
+
+    public Integer getRackId(int dataNodeId) {
+        return mapDataNodeToRackId.get(dataNodeId);
+    }
+
+    public Double getNodeUsage(int dataNodeId) {
+        return mapDataNodeToUsage.get(dataNodeId);
+    }
+
+    public Set<Integer> getRacks() {
+        return Collections.unmodifiableSet(mapRackToNodes.keySet());
+    }
+}
@@ -0,0 +1,30 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Decides on which DataNodes the replicas of a block are written. Every {@link NameNode} has its own policy, which
+ * is asked for the write pipeline of each block in {@link NameNode#processWriteFile}.
+ *
+ * To write a new placement policy this class should be extended.
+ */
+public abstract class BlockPlacementPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Chooses the DataNodes that will receive the replicas of a block, in pipeline order. DataNodes that already
+     * contain the block must not be returned.
+     *
+     * @param nameNode the NameNode asking for the placement, which gives access to the cluster metadata
+     * @param fileName the name of the block to place
+     * @param replicas the number of replicas to place
+     * @param writerVmId the id of the client vm that writes the block, or -1 if unknown
+     * @param writerEntityId the id of the entity that sends the block to the first DataNode (the client broker)
+     * @return the ids of the chosen DataNode vms, possibly less than the requested replicas, empty if none is available
+     */
+    public abstract List<Integer> chooseTargets(NameNode nameNode, String fileName, int replicas, int writerVmId,
+                                                int writerEntityId);
+
+}
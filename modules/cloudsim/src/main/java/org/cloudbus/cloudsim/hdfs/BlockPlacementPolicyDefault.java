@@ -0,0 +1,148 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The stock HDFS placement: the first replica goes to the writer's node if the writer is itself a DataNode, otherwise
+ * to a random node; the second one to a random node of a different rack; the third one to another node of the same
+ * rack as the second; any further replica to random nodes, with at most two replicas per rack while possible.
+ */
+public class BlockPlacementPolicyDefault extends BlockPlacementPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    // the maximum number of random draws before falling back to a linear scan of the candidates
+    private static final int MAX_RANDOM_ATTEMPTS = 32;
+
+    protected Random random;
+
+    public BlockPlacementPolicyDefault() {
+        this(new Random());
+    }
+
+    public BlockPlacementPolicyDefault(long seed) {
+        this(new Random(seed));
+    }
+
+    public BlockPlacementPolicyDefault(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public List<Integer> chooseTargets(NameNode nameNode, String fileName, int replicas, int writerVmId,
+                                       int writerEntityId) {
+
+        BlockPlacementIndex index = nameNode.getPlacementIndex();
+        List<Integer> destinationIds = new ArrayList<Integer>();
+        Set<Integer> chosen = new HashSet<Integer>();
+
+        if (replicas <= 0) {
+            return destinationIds;
+        }
+
+        // first replica: local to the writer when possible
+        Integer first = null;
+        if (index.containsDataNode(writerVmId) && !index.containsBlock(writerVmId, fileName)) {
+            first = writerVmId;
+        } else {
+            first = chooseRandom(index.getDataNodes(), index, fileName, chosen, null);
+        }
+        if (first == null) {
+            return destinationIds;
+        }
+        add(first, destinationIds, chosen);
+
+        // second replica: on a remote rack
+        Integer second = null;
+        if (destinationIds.size() < replicas) {
+            Set<Integer> excludedRacks = new HashSet<Integer>();
+            excludedRacks.add(index.getRackId(first));
+            second = chooseRandom(index.getDataNodes(), index, fileName, chosen, excludedRacks);
+            if (second == null) {
+                // single rack cluster, any other node will do
+                second = chooseRandom(index.getDataNodes(), index, fileName, chosen, null);
+            }
+            if (second != null) {
+                add(second, destinationIds, chosen);
+            }
+        }
+
+        // third replica: same rack as the second one
+        if (second != null && destinationIds.size() < replicas) {
+            Integer third = chooseRandom(index.getRackNodes(index.getRackId(second)), index, fileName, chosen, null);
+            if (third == null) {
+                third = chooseRandom(index.getDataNodes(), index, fileName, chosen, null);
+            }
+            if (third != null) {
+                add(third, destinationIds, chosen);
+            }
+        }
+
+        // remaining replicas: random nodes, preferring racks that hold less than two replicas
+        while (destinationIds.size() < replicas) {
+            Set<Integer> fullRacks = new HashSet<Integer>();
+            Set<Integer> seenRacks = new HashSet<Integer>();
+            for (Integer node : destinationIds) {
+                Integer rack = index.getRackId(node);
+                if (!seenRacks.add(rack)) {
+                    fullRacks.add(rack);
+                }
+            }
+            Integer next = chooseRandom(index.getDataNodes(), index, fileName, chosen, fullRacks);
+            if (next == null) {
+                next = chooseRandom(index.getDataNodes(), index, fileName, chosen, null);
+            }
+            if (next == null) {
+                break;
+            }
+            add(next, destinationIds, chosen);
+        }
+
+        return destinationIds;
+    }
+
+    private void add(Integer node, List<Integer> destinationIds, Set<Integer> chosen) {
+        destinationIds.add(node);
+        chosen.add(node);
+    }
+
+    /**
+     * Picks a random node from the candidates that doesn't hold the block, hasn't been chosen yet and isn't in an
+     * excluded rack. A few random draws are tried first, then the candidates are scanned from a random offset.
+     *
+     * @return the chosen node, or null if no candidate is acceptable
+     */
+    protected Integer chooseRandom(List<Integer> candidates, BlockPlacementIndex index, String fileName,
+                                   Set<Integer> chosen, Set<Integer> excludedRacks) {
+        int size = candidates.size();
+        if (size == 0) {
+            return null;
+        }
+
+        for (int i = 0; i < MAX_RANDOM_ATTEMPTS; i++) {
+            Integer node = candidates.get(random.nextInt(size));
+            if (isAcceptable(node, index, fileName, chosen, excludedRacks)) {
+                return node;
+            }
+        }
+
+        int offset = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            Integer node = candidates.get((offset + i) % size);
+            if (isAcceptable(node, index, fileName, chosen, excludedRacks)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private boolean isAcceptable(Integer node, BlockPlacementIndex index, String fileName, Set<Integer> chosen,
+                                 Set<Integer> excludedRacks) {
+        return !chosen.contains(node) && !index.containsBlock(node, fileName)
+                && (excludedRacks == null || !excludedRacks.contains(index.getRackId(node)));
+    }
+}
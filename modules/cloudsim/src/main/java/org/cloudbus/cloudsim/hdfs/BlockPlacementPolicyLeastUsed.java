@@ -0,0 +1,65 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The original placement of this simulator (not true HDFS): the first replica goes to the least used DataNode of the
+ * whole cluster, the remaining ones go two at a time to the least used nodes of the least used remote racks.
+ */
+public class BlockPlacementPolicyLeastUsed extends BlockPlacementPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public List<Integer> chooseTargets(NameNode nameNode, String fileName, int replicas, int writerVmId,
+                                       int writerEntityId) {
+
+        BlockPlacementIndex index = nameNode.getPlacementIndex();
+        List<Integer> destinationIds = new ArrayList<Integer>();
+
+        // IL DATANODE NON PUÒ GIÀ CONTENERE IL BLOCCO, SE LO CONTIENE GIÀ È UN RIFIUTO SECCO.
+        // IL PRIMO BLOCCO LO SCRIVIAMO NEL NODO CON MINORE % DI RIEMPIMENTO (GIUSTIFICAZIONE: TUTTI I NODI SONO EQUIDISTANTI DAI CLIENT)
+        // PER IL SECONDO BLOCCO: CONSIDERO TUTTI GLI ALTRI RACKS, SCELGO IL RACK CON MENO % DI RIEMPIMENTO
+        // ALL'INTERNO DI QUESTO RACK SCELGO I DUE NODI CON MENO % DI RIEMPIMENTO
+
+        // prendiamo il nodo in cui la % di utilizzo è minima tra quelli che non contengono già il blocco
+        Integer firstNode = index.findLeastUsedNode(fileName, Collections.<Integer>emptySet());
+
+        if (firstNode == null) {
+            return destinationIds;
+        }
+
+        destinationIds.add(firstNode);
+        replicas--;
+
+        // per iniziare sono accettabili tutti i racks tranne quello della prima destinazione
+        Set<Integer> excludedRacks = new HashSet<Integer>();
+        excludedRacks.add(index.getRackId(firstNode));
+
+        // 2 nodi max per rack, fino a esaurimento repliche
+        // scegliamo il rack con meno overall usage e con almeno due nodi che fanno parte di quelli accettabili
+        int cycles = (int) Math.ceil(replicas / (double) 2);
+        for (int i = 1; i <= cycles && replicas > 0; i++) {
+
+            Set<Integer> chosenNodes = new HashSet<Integer>(destinationIds);
+            Integer chosenRack = index.findLeastUsedRack(fileName, excludedRacks, chosenNodes, 2);
+
+            if (chosenRack == null) {
+                continue;
+            }
+            excludedRacks.add(chosenRack);
+
+            // all'interno di questo rack scelgo i due nodi con usage ratio minore
+            for (Integer chosenNode : index.findLeastUsedNodesInRack(chosenRack, fileName, chosenNodes, Math.min(2, replicas))) {
+                destinationIds.add(chosenNode);
+                replicas--;
+            }
+        }
+
+        return destinationIds;
+    }
+}
@@ -0,0 +1,124 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import org.cloudbus.cloudsim.NetworkTopology;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A placement that follows the rack layout of stock HDFS (first replica, then two replicas on one remote rack, then
+ * at most two replicas per further rack) but, instead of choosing at random, builds the pipeline greedily: every
+ * replica goes to the acceptable DataNode whose Datacenter is closest, according to the {@link NetworkTopology}
+ * delays, to the previous hop of the pipeline (the writer's broker for the first replica). Nodes at the same distance
+ * are ordered by usage, least used first.
+ *
+ * Without a network topology every delay is 0.0 and the policy degenerates into a least used, rack-aware choice.
+ */
+public class BlockPlacementPolicyTopologyAware extends BlockPlacementPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public List<Integer> chooseTargets(NameNode nameNode, String fileName, int replicas, int writerVmId,
+                                       int writerEntityId) {
+
+        BlockPlacementIndex index = nameNode.getPlacementIndex();
+        Map<Integer, Integer> mapDataNodeToDatacenter = nameNode.getMapDataNodeToDatacenter();
+
+        List<Integer> destinationIds = new ArrayList<Integer>();
+        Set<Integer> chosen = new HashSet<Integer>();
+        Map<Integer, Integer> replicasPerRack = new HashMap<Integer, Integer>();
+
+        int previousHop = writerEntityId;
+
+        while (destinationIds.size() < replicas) {
+            int position = destinationIds.size();
+            Integer firstRack = position > 0 ? index.getRackId(destinationIds.get(0)) : null;
+            Integer secondRack = position > 1 ? index.getRackId(destinationIds.get(1)) : null;
+            boolean remoteRackHasRoom = position == 1 && hasAcceptableRemoteNode(index, firstRack, fileName, chosen);
+            boolean secondRackHasRoom = position == 2 && hasAcceptableNode(index, secondRack, fileName, chosen);
+            boolean roomElsewhere = position > 2 && hasRoomElsewhere(index, replicasPerRack, fileName, chosen);
+
+            // the candidates are scanned least used first, so the first node at the minimum delay is also the least used
+            Integer best = null;
+            double bestDelay = Double.MAX_VALUE;
+            Map<Integer, Double> delayCache = new HashMap<Integer, Double>();
+
+            for (Integer node : index.getNodesByUsage()) {
+                if (chosen.contains(node) || index.containsBlock(node, fileName)) {
+                    continue;
+                }
+
+                Integer rack = index.getRackId(node);
+                if (position == 1 && rack.equals(firstRack) && remoteRackHasRoom) {
+                    continue;   // the second replica goes to a remote rack
+                }
+                if (position == 2 && !rack.equals(secondRack) && secondRackHasRoom) {
+                    continue;   // the third replica stays in the rack of the second
+                }
+                Integer count = replicasPerRack.get(rack);
+                if (position > 2 && count != null && count >= 2 && roomElsewhere) {
+                    continue;   // no more than two replicas per rack while other racks can take them
+                }
+
+                Integer datacenterId = mapDataNodeToDatacenter.get(node);
+                Double delay = delayCache.get(datacenterId);
+                if (delay == null) {
+                    delay = NetworkTopology.getDelay(previousHop, datacenterId);
+                    delayCache.put(datacenterId, delay);
+                }
+                if (delay < bestDelay) {
+                    best = node;
+                    bestDelay = delay;
+                }
+            }
+
+            if (best == null) {
+                break;
+            }
+
+            destinationIds.add(best);
+            chosen.add(best);
+            Integer rack = index.getRackId(best);
+            Integer count = replicasPerRack.get(rack);
+            replicasPerRack.put(rack, count == null ? 1 : count + 1);
+            previousHop = mapDataNodeToDatacenter.get(best);
+        }
+
+        return destinationIds;
+    }
+
+    private boolean hasAcceptableNode(BlockPlacementIndex index, Integer rackId, String fileName, Set<Integer> chosen) {
+        for (Integer node : index.getRackNodes(rackId)) {
+            if (!chosen.contains(node) && !index.containsBlock(node, fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasAcceptableRemoteNode(BlockPlacementIndex index, Integer localRack, String fileName,
+                                            Set<Integer> chosen) {
+        for (Integer rack : index.getRacks()) {
+            if (!rack.equals(localRack) && hasAcceptableNode(index, rack, fileName, chosen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasRoomElsewhere(BlockPlacementIndex index, Map<Integer, Integer> replicasPerRack, String fileName,
+                                     Set<Integer> chosen) {
+        for (Integer rack : index.getRacks()) {
+            Integer count = replicasPerRack.get(rack);
+            if ((count == null || count < 2) && hasAcceptableNode(index, rack, fileName, chosen)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
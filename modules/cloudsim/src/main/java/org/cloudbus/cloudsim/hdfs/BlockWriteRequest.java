@@ -0,0 +1,69 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_WRITE_FILE}: a broker asks the NameNode
+ * in which DataNodes a block has to be written. The NameNode answers with a {@link BlockWriteTargets}.
+ */
+public final class BlockWriteRequest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String blockName;
+
+    // 0 means the default number of replicas of the NameNode
+    private final int replicas;
+
+    private final int blockSize;
+
+    private final int brokerId;
+
+    // -1 if the client vm is unknown
+    private final int clientVmId;
+
+    // the id of the staged cloudlet waiting in the broker, it's sent back with the answer
+    private final int writeId;
+
+    // the HDFS file the block belongs to
+    private final String fileName;
+
+    public BlockWriteRequest(String blockName, int replicas, int blockSize, int brokerId, int clientVmId, int writeId,
+                             String fileName) {
+        this.blockName = blockName;
+        this.replicas = replicas;
+        this.blockSize = blockSize;
+        this.brokerId = brokerId;
+        this.clientVmId = clientVmId;
+        this.writeId = writeId;
+        this.fileName = fileName != null ? fileName : blockName;
+    }
+
+    public String getBlockName() {
+        return blockName;
+    }
+
+    public int getReplicas() {
+        return replicas;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getBrokerId() {
+        return brokerId;
+    }
+
+    public int getClientVmId() {
+        return clientVmId;
+    }
+
+    public int getWriteId() {
+        return writeId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+}
@@ -0,0 +1,33 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_RETURN_DN_LIST}: the DataNodes chosen
+ * by the NameNode for a {@link BlockWriteRequest}, in pipeline order. The list is empty if no DataNode can store the
+ * block.
+ */
+public final class BlockWriteTargets implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int writeId;
+
+    private final List<Integer> dataNodeIds;
+
+    // the list is not copied, the caller must not change it after creating the message
+    public BlockWriteTargets(int writeId, List<Integer> dataNodeIds) {
+        this.writeId = writeId;
+        this.dataNodeIds = Collections.unmodifiableList(dataNodeIds);
+    }
+
+    public int getWriteId() {
+        return writeId;
+    }
+
+    public List<Integer> getDataNodeIds() {
+        return dataNodeIds;
+    }
+}
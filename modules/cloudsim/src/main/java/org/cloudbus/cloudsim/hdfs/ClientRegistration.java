@@ -0,0 +1,29 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_ADD_CLIENT}: a broker tells the NameNode
+ * about a client vm it has created, so the NameNode knows where to send the answers for that client.
+ */
+public final class ClientRegistration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int clientVmId;
+
+    private final int brokerId;
+
+    public ClientRegistration(int clientVmId, int brokerId) {
+        this.clientVmId = clientVmId;
+        this.brokerId = brokerId;
+    }
+
+    public int getClientVmId() {
+        return clientVmId;
+    }
+
+    public int getBrokerId() {
+        return brokerId;
+    }
+}
@@ -0,0 +1,53 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import java.io.Serializable;
+
+/**
+ * The payload of {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_NAMENODE_ADD_DN} and
+ * {@link org.cloudbus.cloudsim.core.CloudSimTags#HDFS_REP_BROKER_ADD_DN}: a broker tells the NameNode and the
+ * Replication Brokers about a DataNode vm it has created. The same instance is sent to all of them.
+ */
+public final class DataNodeRegistration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int dataNodeId;
+
+    private final int datacenterId;
+
+    private final int rackId;
+
+    // the host of the DataNode when it was created, the brokers use it to find the replicas local to their clients
+    private final int hostId;
+
+    // the capacity of the drive of the host of the DataNode
+    private final int storageCapacity;
+
+    public DataNodeRegistration(int dataNodeId, int datacenterId, int rackId, int hostId, int storageCapacity) {
+        this.dataNodeId = dataNodeId;
+        this.datacenterId = datacenterId;
+        this.rackId = rackId;
+        this.hostId = hostId;
+        this.storageCapacity = storageCapacity;
+    }
+
+    public int getDataNodeId() {
+        return dataNodeId;
+    }
+
+    public int getDatacenterId() {
+        return datacenterId;
+    }
+
+    public int getRackId() {
+        return rackId;
+    }
+
+    public int getHostId() {
+        return hostId;
+    }
+
+    public int getStorageCapacity() {
+        return storageCapacity;
+    }
+}
@@ -5,12 +5,22 @@ import org.cloudbus.cloudsim.File;
 import org.cloudbus.cloudsim.UtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModelFull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.cloudbus.cloudsim.core.CloudSimTags.HDFS_DN;
 
 public class HdfsCloudlet extends Cloudlet {
 
+    private static final long serialVersionUID = 1L;
+
+    // the operations a cloudlet can perform on its block
+    public static final int WRITE = 0;
+    public static final int READ = 1;
+
+    // either WRITE (the default) or READ
+    protected int operation;
+
     // the HDFS type: either Client or Data Node, by default it's going to be Data Node
     protected int hdfsType;
 
@@ -30,6 +40,24 @@ public class HdfsCloudlet extends Cloudlet {
     // number of replicas desired for the file of this cloudlet
     protected int replicaNum;
 
+    // the size of the whole file the client writes: if it's bigger than blockSize the file is split into blocks,
+    // 0 means the file is a single block
+    protected int fileSize;
+
+    // for a block of a bigger file, the name of that file (null if the block is the whole file)
+    protected String hdfsFileName;
+
+    // the client vm that writes the block, it stays the same along the whole replication pipeline
+    protected int clientVmId = -1;
+
+    // in pipelined replication, the simulation time at which the last packet of the block reaches this hop, set by the
+    // broker that sends it; the Datacenter of the hop then sets it to when the hop finishes receiving the block
+    protected double pipelineFinishTime;
+
+    // the simulation time at which the client asked the NameNode where to write the block (-1 if it's not a write),
+    // it stays the same along the whole replication pipeline
+    protected double writeStartTime = -1;
+
     /**
      * Non so se i costruttori vanno re-implementati tutti, quindi per ora ho messo solo quello che mi interessa, esteso
      * come serve a me (ho aggiunto hdfsBlock, che contiene le info per la scrittura del file nel DN)
@@ -83,11 +111,63 @@ public class HdfsCloudlet extends Cloudlet {
         // set the destination vms ids
         newCl.setDestVmIds(cl.getDestVmIds());
 
+        // the next hop of a pipelined write needs to know when this one finishes
+        newCl.setPipelineFinishTime(cl.getPipelineFinishTime());
+
+        newCl.setReplicaNum(cl.getReplicaNum());
+        newCl.setFileSize(cl.getFileSize());
+        newCl.setHdfsFileName(cl.getHdfsFileName());
+        newCl.setClientVmId(cl.getClientVmId());
+        newCl.setWriteStartTime(cl.getWriteStartTime());
+
         return newCl;
     }
 
+    // clones the given cloudlet into the cloudlet that writes the block with the given index of its file
+    public static HdfsCloudlet cloneBlockCloudlet(HdfsCloudlet cl, int newId, int blockIndex){
+
+        HdfsCloudlet newCl = cloneCloudletAssignNewId(cl, newId);
+
+        String fileName = cl.getRequiredFiles().get(0);
+        List<String> blockList = new ArrayList<String>();
+        blockList.add(getBlockName(fileName, blockIndex));
+        newCl.setRequiredFiles(blockList);
+        newCl.setHdfsFileName(fileName);
+
+        // every block is full, except the last one which holds what's left of the file
+        int blockSize = cl.getBlockSize();
+        newCl.setBlockSize((int) Math.min(blockSize, (long) cl.getFileSize() - (long) blockIndex * blockSize));
+
+        return newCl;
+    }
+
+    // the name given to the block with the given index of a file
+    public static String getBlockName(String fileName, int blockIndex){
+        return fileName + "_blk_" + blockIndex;
+    }
+
+    // the number of blocks the file of this cloudlet is split into
+    public int getBlockCount() {
+        if (blockSize <= 0 || fileSize <= blockSize) {
+            return 1;
+        }
+        return (int) (((long) fileSize + blockSize - 1) / blockSize);
+    }
+
     // Getters and Setters
 
+    public int getOperation() {
+        return operation;
+    }
+
+    public void setOperation(int operation) {
+        this.operation = operation;
+    }
+
+    public boolean isRead() {
+        return operation == READ;
+    }
+
     public int getHdfsType() {
         return hdfsType;
     }
@@ -120,6 +200,11 @@ public class HdfsCloudlet extends Cloudlet {
         this.blockSize = blockSize;
     }
 
+    // the block size is in MB, the network transfer times need it in Mb like the bandwidths of the links
+    public double getBlockSizeInMegabits() {
+        return getBlockSize() * 8.0;
+    }
+
     public int getReplicaNum() {
         return replicaNum;
     }
@@ -127,4 +212,44 @@ public class HdfsCloudlet extends Cloudlet {
     public void setReplicaNum(int replicaNum) {
         this.replicaNum = replicaNum;
     }
+
+    public int getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(int fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getHdfsFileName() {
+        return hdfsFileName;
+    }
+
+    public void setHdfsFileName(String hdfsFileName) {
+        this.hdfsFileName = hdfsFileName;
+    }
+
+    public int getClientVmId() {
+        return clientVmId;
+    }
+
+    public void setClientVmId(int clientVmId) {
+        this.clientVmId = clientVmId;
+    }
+
+    public double getPipelineFinishTime() {
+        return pipelineFinishTime;
+    }
+
+    public void setPipelineFinishTime(double pipelineFinishTime) {
+        this.pipelineFinishTime = pipelineFinishTime;
+    }
+
+    public double getWriteStartTime() {
+        return writeStartTime;
+    }
+
+    public void setWriteStartTime(double writeStartTime) {
+        this.writeStartTime = writeStartTime;
+    }
 }
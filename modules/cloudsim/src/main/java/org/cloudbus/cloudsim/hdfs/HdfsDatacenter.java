@@ -5,11 +5,18 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
 
+import org.cloudbus.cloudsim.lists.VmList;
+
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class HdfsDatacenter extends Datacenter {
 
+    private static final long serialVersionUID = 1L;
+
     private int fileNameCounter;
 
     // either a HDFS_CLIENT or HDFS_DN, which is going to be the role of the vms inside this Datacenter
@@ -21,6 +28,19 @@ public class HdfsDatacenter extends Datacenter {
     // creating a new variable with the same name as the super, to make it accessible through a getter
     private List<Storage> storageList;
 
+    // maps every vm running in this Datacenter to its host, so the drives of the host can be found directly
+    protected Map<Integer, HdfsHost> mapVmToHost;
+
+    // the default size of a packet of the write pipeline, 64 KB as in HDFS (sizes are in MB)
+    public static final double DEFAULT_PACKET_SIZE = 0.0625;
+
+    // if true the replicas are streamed packet by packet through the pipeline of DataNodes, otherwise (the default)
+    // every DataNode forwards the block only after it has received all of it (store and forward)
+    protected boolean pipelinedReplication;
+
+    // the size of a packet of the write pipeline, in MB
+    protected double packetSize;
+
     /**
      * Allocates a new Datacenter object. COSTRUTTORE PER I DATACENTERS DEI CLIENTS.
      *
@@ -47,6 +67,9 @@ public class HdfsDatacenter extends Datacenter {
 
         fileNameCounter = 0;
         setHdfsType(CloudSimTags.HDFS_CLIENT);
+        setPacketSize(DEFAULT_PACKET_SIZE);
+        setMapVmToHost(new HashMap<Integer, HdfsHost>());
+        attachDrivesToHosts();
     }
 
     // costruttore per i data centers dei data nodes, gli serve sapere l'id del replication broker
@@ -57,6 +80,9 @@ public class HdfsDatacenter extends Datacenter {
         fileNameCounter = 0;
         setReplicationBrokerId(replicationBrokerId);
         setHdfsType(CloudSimTags.HDFS_DN);
+        setPacketSize(DEFAULT_PACKET_SIZE);
+        setMapVmToHost(new HashMap<Integer, HdfsHost>());
+        attachDrivesToHosts();
 
     }
 
@@ -70,8 +96,36 @@ public class HdfsDatacenter extends Datacenter {
 
     }
 
+    // every drive of the storage list that isn't attached to its host yet (i.e. it only has the host id set) is
+    // attached to it, so the write path never has to scan the whole storage list
+    protected void attachDrivesToHosts() {
+        Map<Integer, HdfsHost> hostsById = new HashMap<Integer, HdfsHost>();
+        for (Host host : getHostList()) {
+            if (host instanceof HdfsHost) {
+                hostsById.put(host.getId(), (HdfsHost) host);
+            }
+        }
+
+        for (Storage storage : getStorageList()) {
+            if (storage instanceof HarddriveStorage) {
+                HdfsHost host = hostsById.get(((HarddriveStorage) storage).getHostId());
+                if (host != null) {
+                    host.addDrive((HarddriveStorage) storage);
+                }
+            }
+        }
+    }
+
     // GETTERS AND SETTERS
 
+    public Map<Integer, HdfsHost> getMapVmToHost() {
+        return mapVmToHost;
+    }
+
+    public void setMapVmToHost(Map<Integer, HdfsHost> mapVmToHost) {
+        this.mapVmToHost = mapVmToHost;
+    }
+
     public int getHdfsType() {
         return hdfsType;
     }
@@ -98,6 +152,27 @@ public class HdfsDatacenter extends Datacenter {
         this.replicationBrokerId = replicationBrokerId;
     }
 
+    public boolean isPipelinedReplication() {
+        return pipelinedReplication;
+    }
+
+    public void setPipelinedReplication(boolean pipelinedReplication) {
+        this.pipelinedReplication = pipelinedReplication;
+    }
+
+    public double getPacketSize() {
+        return packetSize;
+    }
+
+    public void setPacketSize(double packetSize) {
+        this.packetSize = packetSize;
+    }
+
+    // the part of a block that a packet of the write pipeline carries, the whole block if it's smaller than a packet
+    public double getPacketFraction(HdfsCloudlet cl) {
+        return Math.min(1.0, getPacketSize() / cl.getBlockSize());
+    }
+
     // NEW METHODS
 
     @Override
@@ -227,8 +302,7 @@ public class HdfsDatacenter extends Datacenter {
                 break;
 
             case CloudSimTags.VM_DATACENTER_EVENT:
-                updateCloudletProcessing();
-                checkCloudletCompletion();
+                processWakeUp(ev);
                 break;
 
             /**
@@ -255,6 +329,11 @@ public class HdfsDatacenter extends Datacenter {
                 processDNCloudletSubmit(ev, true);
                 break;
 
+            // Submit of a read cloudlet, which reads a block from a Data Node of this Datacenter
+            case CloudSimTags.HDFS_READ_CLOUDLET_SUBMIT:
+                processReadCloudletSubmit(ev);
+                break;
+
             // other unknown tags are processed by this method
             default:
                 processOtherEvent(ev);
@@ -323,13 +402,19 @@ public class HdfsDatacenter extends Datacenter {
             int userId = cl.getUserId();
             int vmId = cl.getVmId();
 
+            // the broker splits the file into blocks by its size, if it wasn't set we take it from the disk
+            if (cl.getFileSize() <= 0) {
+                cl.setFileSize(getStoredFileSize(cl.getRequiredFiles().get(0)));
+            }
+
+            // troviamo l'host in cui si trova la vm del cloudlet
+            Host host = getVmAllocationPolicy().getHost(vmId, userId);
+
             // il tempo necessario per leggere i requiredFiles dal disco
-            double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
+            double fileTransferTime = predictFileReadTime(cl.getRequiredFiles(), host);
 
             send(cl.getUserId(), fileTransferTime, CloudSimTags.HDFS_CLIENT_CLOUDLET_RETURN, cl);
 
-            // troviamo l'host in cui si trova la vm del cloudlet
-            Host host = getVmAllocationPolicy().getHost(vmId, userId);
             // get the vm as well
             Vm vm = host.getVm(vmId, userId);
             CloudletScheduler scheduler = vm.getCloudletScheduler();
@@ -341,7 +426,7 @@ public class HdfsDatacenter extends Datacenter {
                 estimatedFinishTime += fileTransferTime;
 
                 // il Datacenter invia a se stesso l'evento generico che lo fa attendere il tempo necessario
-                send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+                getWakeUpTimer().schedule(estimatedFinishTime);
             }
 
             if (ack) {
@@ -381,7 +466,7 @@ public class HdfsDatacenter extends Datacenter {
                 Storage tempStorage = getStorageList().get(i);
                 File tempFile = tempStorage.getFile(fileName);
                 if (tempFile != null) {
-                    time += tempFile.getTransactionTime();
+                    time += scheduleDiskOperation(tempStorage, tempFile.getTransactionTime(), tempFile.getSize());
                     break;
                 }
             }
@@ -389,6 +474,122 @@ public class HdfsDatacenter extends Datacenter {
         return time;
     }
 
+    /**
+     * Processes a read Cloudlet submission: the cloudlet is bound to the Data Node vm that was chosen by the client,
+     * the block is read from the drive of that vm's host and sent back to the broker, which receives it after the
+     * read time plus the network delay.
+     *
+     * @param ev information about the event just happened
+     *
+     * @pre ev != null
+     * @post $none
+     */
+    protected void processReadCloudletSubmit(SimEvent ev) {
+
+        updateCloudletProcessing();
+
+        try {
+            HdfsCloudlet cl = (HdfsCloudlet) ev.getData();
+
+            cl.setResourceParameter(
+                    getId(), getCharacteristics().getCostPerSecond(),
+                    getCharacteristics().getCostPerBw());
+
+            // the Data Node vm may belong to a different user than the reading client
+            Vm vm = VmList.getById(getVmList(), cl.getVmId());
+            if (vm == null) {
+                Log.printLine(CloudSim.clock() + ": " + getName() + ": Data Node VM #" + cl.getVmId()
+                        + " not found, read cloudlet #" + cl.getCloudletId() + " failed");
+                cl.setCloudletStatus(Cloudlet.FAILED);
+                sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+                return;
+            }
+
+            double readTime = predictBlockReadTime(cl.getRequiredFiles().get(0), vm.getHost());
+
+            // the block is streamed to the client while it is read, so the slower of the disk and the
+            // network sets the time it takes (the network time is 0 if no transfer model is set)
+            double transferTime = NetworkTopology.getTransferTime(getId(), cl.getUserId(), cl.getBlockSizeInMegabits());
+
+            // the block goes back to the client once it has been read
+            send(cl.getUserId(), Math.max(readTime, transferTime), CloudSimTags.HDFS_READ_CLOUDLET_RETURN, cl);
+
+            CloudletScheduler scheduler = vm.getCloudletScheduler();
+            double estimatedFinishTime = scheduler.cloudletSubmit(cl, readTime);
+
+            if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+                estimatedFinishTime += readTime;
+                getWakeUpTimer().schedule(estimatedFinishTime);
+            }
+
+        } catch (ClassCastException c) {
+            Log.printLine(getName() + ".processReadCloudletSubmit(): " + "ClassCastException error.");
+            c.printStackTrace();
+        } catch (Exception e) {
+            Log.printLine(getName() + ".processReadCloudletSubmit(): " + "Exception error.");
+            e.printStackTrace();
+        }
+
+        checkCloudletCompletion();
+    }
+
+    /**
+     * Submits an operation to the I/O queue of a drive, if the drive has one.
+     *
+     * @param storage the drive
+     * @param serviceTime the time the operation takes when it has the drive for itself
+     * @param size the amount of data read or written
+     * @return the time the operation takes, the time spent waiting for the other operations on the drive included
+     */
+    protected double scheduleDiskOperation(Storage storage, double serviceTime, double size) {
+        if (storage instanceof HarddriveStorage && ((HarddriveStorage) storage).getIoScheduler() != null) {
+            return ((HarddriveStorage) storage).getIoScheduler().submit(CloudSim.clock(), serviceTime, size);
+        }
+        return serviceTime;
+    }
+
+    // the size of a file stored in one of the drives of this Datacenter, 0 if no drive contains it
+    protected int getStoredFileSize(String fileName) {
+        for (Storage storage : getStorageList()) {
+            if (storage.contains(fileName)) {
+                return storage.getFile(fileName).getSize();
+            }
+        }
+        return 0;
+    }
+
+    // the time needed to read a block from the drive attached to the given host, 0.0 if the host doesn't have it
+    protected double predictBlockReadTime(String fileName, Host host) {
+        return predictBlockReadTime(fileName, host, 1.0);
+    }
+
+    // the time needed to read a part of a block, such as its first packet, from the drive attached to the given host
+    protected double predictBlockReadTime(String fileName, Host host, double fraction) {
+        HarddriveStorage drive = host instanceof HdfsHost ? ((HdfsHost) host).findDrive(fileName) : null;
+        if (drive != null) {
+            File tempFile = drive.getFile(fileName);
+            return scheduleDiskOperation(drive, tempFile.getTransactionTime() * fraction, tempFile.getSize() * fraction);
+        }
+        Log.printLine(CloudSim.clock() + ": " + getName() + ": Block " + fileName + " not found in Host #" + host.getId());
+        return 0.0;
+    }
+
+    // the time needed to read files from the drives attached to the given host; the files the host doesn't have, such
+    // as the ones added to the Datacenter with addFile(), are looked for in the whole storage list
+    protected double predictFileReadTime(List<String> fileNames, Host host) {
+        double time = 0.0;
+        for (String fileName : fileNames) {
+            HarddriveStorage drive = host instanceof HdfsHost ? ((HdfsHost) host).findDrive(fileName) : null;
+            if (drive != null) {
+                File tempFile = drive.getFile(fileName);
+                time += scheduleDiskOperation(drive, tempFile.getTransactionTime(), tempFile.getSize());
+            } else {
+                time += predictFileTransferTime(Collections.singletonList(fileName));
+            }
+        }
+        return time;
+    }
+
     // il metodo predictFileTransferTime() viene sostituito con un metodo che scrive il file su disco e ritorna il tempo
     // stimato per effettuare l'operazione
     protected void processDNCloudletSubmit(SimEvent ev, boolean ack) {
@@ -441,20 +642,32 @@ public class HdfsDatacenter extends Datacenter {
             int userId = cl.getUserId();
             int vmId = cl.getVmId();
 
+            // troviamo l'host in cui si trova la vm del cloudlet
+            Host host = getVmAllocationPolicy().getHost(vmId, userId);
+
             // il tempo necessario per leggere i requiredFiles dal disco
             double fileTransferTime = writeAndPredictTime(cl.getRequiredFiles().get(0), cl.getVmId(), cl.getBlockSize());
 
-            // REPLICATION:
-            // il tempo necessario per leggere i requiredFiles dal disco
-            double fileReadTime = predictFileTransferTime(cl.getRequiredFiles());
+            // REPLICATION: the block is read back from the drive of this DN to be forwarded to the next one, the last
+            // DN of the pipeline has nothing to forward. When the block is streamed in packets only the first one is
+            // read before the next hop starts
+            double packetFraction = isPipelinedReplication() ? getPacketFraction(cl) : 1.0;
+            double fileReadTime = 0.0;
+            if (cl.getDestVmIds() != null && !cl.getDestVmIds().isEmpty()) {
+                fileReadTime = predictBlockReadTime(cl.getRequiredFiles().get(0), host, packetFraction);
+            }
+
+            if (isPipelinedReplication()) {
+                // the block is streamed in packets: the next hop starts as soon as the first packet is here, and this
+                // hop can't finish receiving before the last packet has reached it
+                double upstreamFinishDelay = cl.getPipelineFinishTime() + fileTransferTime * packetFraction - CloudSim.clock();
+                fileTransferTime = Math.max(fileTransferTime, upstreamFinishDelay);
+                cl.setPipelineFinishTime(CloudSim.clock() + fileTransferTime);
+            }
 
             // dopo aver letto il file inviamo al replication broker il messaggio per creare la prossima replica
             send(replicationBrokerId, fileReadTime, CloudSimTags.HDFS_DN_CLOUDLET_RETURN, cl);
 
-
-
-            // troviamo l'host in cui si trova la vm del cloudlet
-            Host host = getVmAllocationPolicy().getHost(vmId, userId);
             // get the vm as well
             Vm vm = host.getVm(vmId, userId);
             CloudletScheduler scheduler = vm.getCloudletScheduler();
@@ -466,7 +679,7 @@ public class HdfsDatacenter extends Datacenter {
                 estimatedFinishTime += fileTransferTime;
 
                 // il Datacenter invia a se stesso l'evento generico che lo fa attendere il tempo necessario
-                send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+                getWakeUpTimer().schedule(estimatedFinishTime);
             }
 
             if (ack) {
@@ -528,25 +741,25 @@ public class HdfsDatacenter extends Datacenter {
 
         HarddriveStorage tempStorage = null;
 
-        HdfsHost writingHost = null;
-        for (Host tempHost : getHostList()){
-            if (tempHost.getVmList().get(0).getId() == sourceVmId)
-                writingHost = (HdfsHost) tempHost;  // troviamo qual'è l'host in cui si trova la VM che vuole scrivere il blocco
-        }
+        // troviamo qual'è l'host in cui si trova la VM che vuole scrivere il blocco
+        HdfsHost writingHost = getMapVmToHost().get(sourceVmId);
 
-        // cycle through all the available drives in the Datacenter
-        for (int i = 0; i < getStorageList().size(); i++) {
-
-            tempStorage = (HarddriveStorage) getStorageList().get(i);
-            if (tempStorage.getHostId() == writingHost.getId()){
-                // store the file and get the estimated time
-                time += tempStorage.addFile(hdfsBlock);
-            }
+        // the vm may have been destroyed in the meantime (e.g. its broker has already finished)
+        if (writingHost == null){
+            Log.printLine(CloudSim.clock() + ": " + getName() + ": VM #" + sourceVmId + " is not running in any host, couldn't add the file.");
+            return time;
+        }
 
-            // time is only equal 0.0 if the addFile failed for some reason, so if the addFile was successful, we break
-            // NOTE: if a file with the same name is already present, the addFile will fail and return 0.0
-            if (time > 0.0){
-                break;
+        // a DataNode doesn't store two replicas of the same block, otherwise the volume choosing policy of the host
+        // decides which of its drives gets the block
+        if (hdfsBlock != null && writingHost.findDrive(hdfsBlock.getName()) == null) {
+            tempStorage = writingHost.chooseDrive(hdfsBlock);
+            if (tempStorage != null) {
+                // store the file and get the estimated time, waiting for the other operations on the drive included
+                double serviceTime = tempStorage.addFile(hdfsBlock);
+                if (serviceTime > 0.0) {
+                    time = scheduleDiskOperation(tempStorage, serviceTime, blockSize);
+                }
             }
         }
 
@@ -560,6 +773,28 @@ public class HdfsDatacenter extends Datacenter {
         return time;
     }
 
+    @Override
+    protected void processVmDestroy(SimEvent ev, boolean ack) {
+        Vm vm = (Vm) ev.getData();
+        if (vm.getHost() != null && getMapVmToHost().get(vm.getId()) == vm.getHost()) {
+            getMapVmToHost().remove(vm.getId());
+        }
+        super.processVmDestroy(ev, ack);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void processVmMigrate(SimEvent ev, boolean ack) {
+        super.processVmMigrate(ev, ack);
+
+        // the vm has a new host, with different drives
+        Vm vm = (Vm) ((Map<String, Object>) ev.getData()).get("vm");
+        Host host = getVmAllocationPolicy().getHost(vm);
+        if (host instanceof HdfsHost) {
+            getMapVmToHost().put(vm.getId(), (HdfsHost) host);
+        }
+    }
+
     @Override
     protected void processVmCreate(SimEvent ev, boolean ack) {
         HdfsVm vm = (HdfsVm) ev.getData();
@@ -588,6 +823,11 @@ public class HdfsDatacenter extends Datacenter {
         if (result) {
             getVmList().add(vm);
 
+            Host host = getVmAllocationPolicy().getHost(vm);
+            if (host instanceof HdfsHost) {
+                getMapVmToHost().put(vm.getId(), (HdfsHost) host);
+            }
+
             if (vm.isBeingInstantiated()) {
                 vm.setBeingInstantiated(false);
             }
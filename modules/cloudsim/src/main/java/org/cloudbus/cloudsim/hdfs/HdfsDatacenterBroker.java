@@ -3,6 +3,7 @@ package org.cloudbus.cloudsim.hdfs;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
@@ -12,16 +13,44 @@ import org.cloudbus.cloudsim.core.SimEntity;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public class HdfsDatacenterBroker extends DatacenterBroker {
 
+    private static final long serialVersionUID = 1L;
+
     protected int currentCloudletMaxId;
 
     protected int nameNodeId;
 
-    protected HdfsCloudlet stagedCloudlet;
+    // the data cloudlets waiting for the NameNode to return their DataNodes, keyed by their (new) cloudlet id,
+    // so that any number of block writes can be in flight at the same time
+    protected Map<Integer, HdfsCloudlet> pendingWrites;
+
+    // the read cloudlets waiting for the NameNode to return the locations of their block, keyed by cloudlet id
+    protected Map<Integer, HdfsCloudlet> pendingReads;
+
+    // the simulation time at which every read in progress was requested, keyed by cloudlet id
+    protected Map<Integer, Double> readStartTimes;
+
+    // the latency of every completed read (from the block locations request to the block being received)
+    protected List<Double> readLatencies;
+
+    // the latency of every completed block write (from the DataNodes request to the last replica being stored)
+    protected List<Double> writeLatencies;
+
+    // how many block pipelines every client vm can have in progress at the same time (0 means no limit)
+    protected int blockPipelinesPerClient;
+
+    // the blocks every client vm still has to start writing, in file order
+    protected Map<Integer, LinkedList<HdfsCloudlet>> queuedBlockWrites;
+
+    // how many block pipelines every client vm has in progress
+    protected Map<Integer, Integer> activeBlockWrites;
 
     protected List<Integer> replicationBrokersId;
 
@@ -40,12 +69,26 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
         super(name);
         currentCloudletMaxId = 0;
         setReplicationBrokersId(new ArrayList<Integer>());
+        setPendingWrites(new HashMap<Integer, HdfsCloudlet>());
+        setPendingReads(new HashMap<Integer, HdfsCloudlet>());
+        setReadStartTimes(new HashMap<Integer, Double>());
+        setReadLatencies(new ArrayList<Double>());
+        setWriteLatencies(new ArrayList<Double>());
+        setQueuedBlockWrites(new HashMap<Integer, LinkedList<HdfsCloudlet>>());
+        setActiveBlockWrites(new HashMap<Integer, Integer>());
     }
 
     // COSTRUTTORE PER I REPLICATION BROKERS, settare il cloudlet max ID a un numero più alto, ad esempio +100
     public HdfsDatacenterBroker(String name, int cloudletStartId) throws Exception {
         super(name);
         currentCloudletMaxId = cloudletStartId;
+        setPendingWrites(new HashMap<Integer, HdfsCloudlet>());
+        setPendingReads(new HashMap<Integer, HdfsCloudlet>());
+        setReadStartTimes(new HashMap<Integer, Double>());
+        setReadLatencies(new ArrayList<Double>());
+        setWriteLatencies(new ArrayList<Double>());
+        setQueuedBlockWrites(new HashMap<Integer, LinkedList<HdfsCloudlet>>());
+        setActiveBlockWrites(new HashMap<Integer, Integer>());
     }
 
     @Override
@@ -88,6 +131,14 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
             case CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST:
                 processSendDataCloudlet(ev);
                 break;
+            // the NameNode returns the locations of a block that has to be read
+            case CloudSimTags.HDFS_NAMENODE_RETURN_BLOCK_LOCATIONS:
+                processBlockLocations(ev);
+                break;
+            // a block that was read from a DataNode arrived
+            case CloudSimTags.HDFS_READ_CLOUDLET_RETURN:
+                processReadCloudletReturn(ev);
+                break;
 
             // other unknown tags are processed by this method
             default:
@@ -105,31 +156,118 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
         Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Cloudlet ", originalCloudlet.getCloudletId(),
                 ": the block has been read, communicating with the NameNode...");
 
-        // non molto elegante, ma dovrebbe funzionare lol, da qualche parte sto metodo lo devo prendere
-        stagedCloudlet = HdfsCloudlet.cloneCloudletAssignNewId(originalCloudlet, currentCloudletMaxId + 1);
+        // a file bigger than the block size is split into blocks, each one is written with its own pipeline
+        int blockCount = originalCloudlet.getBlockCount();
+        int clientVmId = originalCloudlet.getVmId();
 
-        // store the original vm id, so we can keep track of whose block it is in the DN
-        stagedCloudlet.setSourceVmId(originalCloudlet.getVmId());
+        for (int i = 0; i < blockCount; i++) {
 
-        // now the only thing left to do is to set the list of destination vms, for which the NameNode is needed
-        List<String> nameNodeData = new ArrayList<String>();
-        nameNodeData.add(originalCloudlet.getRequiredFiles().get(0));
-        nameNodeData.add(Integer.toString(originalCloudlet.getReplicaNum()));
-        nameNodeData.add(Integer.toString(originalCloudlet.getBlockSize()));
-        nameNodeData.add(Integer.toString(getId()));
-        sendNow(getNameNodeId(), CloudSimTags.HDFS_NAMENODE_WRITE_FILE, nameNodeData);
+            // non molto elegante, ma dovrebbe funzionare lol, da qualche parte sto metodo lo devo prendere
+            HdfsCloudlet stagedCloudlet;
+            if (blockCount == 1) {
+                stagedCloudlet = HdfsCloudlet.cloneCloudletAssignNewId(originalCloudlet, nextCloudletId());
+            } else {
+                stagedCloudlet = HdfsCloudlet.cloneBlockCloudlet(originalCloudlet, nextCloudletId(), i);
+            }
+
+            // store the original vm id, so we can keep track of whose block it is in the DN
+            stagedCloudlet.setSourceVmId(clientVmId);
+            stagedCloudlet.setClientVmId(clientVmId);
+
+            queueBlockWrite(stagedCloudlet);
+        }
+
+        // the block has been read, from now on its writes are counted instead
+        cloudletsSubmitted--;
+
+        startBlockWrites(clientVmId);
 
         // Il pezzo che era qui è andato ora in processSendDataCloudlet()
 
     }
 
-    // TODO: questo metodo!
-    // Il name node ha ritornato la lista di vms in cui il file deve essere scritto, quindi...
+    // the block waits in the queue of its client until one of the client's pipelines is free
+    protected void queueBlockWrite(HdfsCloudlet stagedCloudlet) {
+
+        LinkedList<HdfsCloudlet> queue = getQueuedBlockWrites().get(stagedCloudlet.getClientVmId());
+        if (queue == null) {
+            queue = new LinkedList<HdfsCloudlet>();
+            getQueuedBlockWrites().put(stagedCloudlet.getClientVmId(), queue);
+        }
+        queue.add(stagedCloudlet);
+
+        // the write is in progress until its pipeline is over, so the broker can't finish before it
+        cloudletsSubmitted++;
+    }
+
+    // starts writing the queued blocks of a client, as long as it has free pipelines
+    protected void startBlockWrites(int clientVmId) {
+
+        LinkedList<HdfsCloudlet> queue = getQueuedBlockWrites().get(clientVmId);
+        if (queue == null) {
+            return;
+        }
+
+        Integer active = getActiveBlockWrites().get(clientVmId);
+        int activeWrites = active == null ? 0 : active;
+
+        while (!queue.isEmpty() && (getBlockPipelinesPerClient() <= 0 || activeWrites < getBlockPipelinesPerClient())) {
+            activeWrites++;
+            requestBlockWrite(queue.poll());
+        }
+
+        getActiveBlockWrites().put(clientVmId, activeWrites);
+    }
+
+    // a pipeline of the client is over, so the next queued block can be written
+    protected void finishBlockWrite(int clientVmId) {
+
+        Integer active = getActiveBlockWrites().get(clientVmId);
+        if (active != null && active > 0) {
+            getActiveBlockWrites().put(clientVmId, active - 1);
+        }
+
+        startBlockWrites(clientVmId);
+    }
+
+    // asks the NameNode in which DataNodes the block has to be written
+    protected void requestBlockWrite(HdfsCloudlet stagedCloudlet) {
+
+        // the staged cloudlet waits here until the NameNode answers, its id identifies the write
+        getPendingWrites().put(stagedCloudlet.getCloudletId(), stagedCloudlet);
+        stagedCloudlet.setWriteStartTime(CloudSim.clock());
+
+        String blockName = stagedCloudlet.getRequiredFiles().get(0);
+
+        // now the only thing left to do is to set the list of destination vms, for which the NameNode is needed
+        BlockWriteRequest request = new BlockWriteRequest(blockName, stagedCloudlet.getReplicaNum(), stagedCloudlet.getBlockSize(),
+                getId(), stagedCloudlet.getClientVmId(), stagedCloudlet.getCloudletId(), stagedCloudlet.getHdfsFileName());
+        sendNow(getNameNodeId(), CloudSimTags.HDFS_NAMENODE_WRITE_FILE, request);
+    }
+
     protected void processSendDataCloudlet(SimEvent ev) {
 
         // spacchetto ev e prendo la lista di Ids delle vms
 
-        List<Integer> destinationVms = (List<Integer>) ev.getData();
+        BlockWriteTargets data = (BlockWriteTargets) ev.getData();
+        HdfsCloudlet stagedCloudlet = getPendingWrites().remove(data.getWriteId());
+
+        if (stagedCloudlet == null) {
+            Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Received DataNodes for unknown write #", data.getWriteId());
+            return;
+        }
+
+        List<Integer> destinationVms = new ArrayList<Integer>(data.getDataNodeIds());
+
+        // the write is no longer waiting for the NameNode, from now on its pipeline hops are counted instead
+        cloudletsSubmitted--;
+
+        if (destinationVms.isEmpty()) {
+            Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Data Cloudlet ", stagedCloudlet.getCloudletId(),
+                    ": no DataNode available for the block, the write is dropped");
+            finishBlockWrite(stagedCloudlet.getClientVmId());
+            return;
+        }
 
         // copio il pezzo dal metodo sopra (processClientCloudletReturn()) e ho fatto
 
@@ -141,6 +279,9 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
         destinationVms.remove(0);
         stagedCloudlet.setDestVmIds(destinationVms);
 
+        // every replica hop returns to this broker when it's done (the first one is counted in submitDNCloudlets())
+        cloudletsSubmitted += destinationVms.size();
+
         // alternativamente si può usare il metodo bind che fa la stessa cosa
         // bindCloudletToVm(cloudlet.getCloudletId(), cloudlet.getVmId());
 
@@ -165,29 +306,25 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
          Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": ReplicationCloudlet ", originalCloudlet.getCloudletId(),
                 ": the block has been read, sending it to the Data Node...");
 
-        // non molto elegante, ma dovrebbe funzionare lol, da qualche parte sto metodo lo devo prendere
-        stagedCloudlet = HdfsCloudlet.cloneCloudletAssignNewId(originalCloudlet, currentCloudletMaxId + 1);
-
-        // store the original vm id, so we can keep track of whose block it is in the DN
-        stagedCloudlet.setSourceVmId(originalCloudlet.getVmId());
-
         // get the destination vms list
         List<Integer> destinationVms = originalCloudlet.getDestVmIds();
 
-        if (destinationVms.isEmpty()){
+        if (destinationVms == null || destinationVms.isEmpty()){
             Log.printLine(df.format(CloudSim.clock()) + ": " + getName() + ": The replication pipeline is over");
             return;
         }
 
-        // copio il pezzo dal metodo sopra (processClientCloudletReturn()) e ho fatto
+        // non molto elegante, ma dovrebbe funzionare lol, da qualche parte sto metodo lo devo prendere
+        HdfsCloudlet stagedCloudlet = HdfsCloudlet.cloneCloudletAssignNewId(originalCloudlet, nextCloudletId());
 
-        // set the DN VM as the new VM Id for the cloudlet
+        // store the original vm id, so we can keep track of whose block it is in the DN
+        stagedCloudlet.setSourceVmId(originalCloudlet.getVmId());
 
+        // set the DN VM as the new VM Id for the cloudlet
         stagedCloudlet.setVmId(destinationVms.get(0));
 
-        // ora rimuovo la prima vm dalla lista di destination vms e la aggiungo a destVmIds
-        destinationVms.remove(0);
-        stagedCloudlet.setDestVmIds(destinationVms);
+        // the rest of the pipeline goes in a new list, every hop owns its own copy
+        stagedCloudlet.setDestVmIds(new ArrayList<Integer>(destinationVms.subList(1, destinationVms.size())));
 
         // alternativamente si può usare il metodo bind che fa la stessa cosa
         // bindCloudletToVm(cloudlet.getCloudletId(), cloudlet.getVmId());
@@ -206,6 +343,140 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
     }
 
 
+    @Override
+    protected void processCloudletReturn(SimEvent ev) {
+
+        // the last hop of a pipeline has no DataNodes left: the block has been fully replicated
+        if (ev.getData() instanceof HdfsCloudlet) {
+            HdfsCloudlet cloudlet = (HdfsCloudlet) ev.getData();
+            if (cloudlet.getDestVmIds() != null && cloudlet.getDestVmIds().isEmpty() && cloudlet.getClientVmId() != -1) {
+                if (cloudlet.getWriteStartTime() >= 0) {
+                    getWriteLatencies().add(CloudSim.clock() - cloudlet.getWriteStartTime());
+                }
+                finishBlockWrite(cloudlet.getClientVmId());
+            }
+        }
+
+        super.processCloudletReturn(ev);
+    }
+
+    // a read cloudlet doesn't go to the client Datacenter: first the NameNode is asked where the block is
+    protected void requestBlockLocations(HdfsCloudlet cloudlet) {
+
+        // the client vm is kept, it's needed to find the closest replica
+        cloudlet.setSourceVmId(cloudlet.getVmId());
+
+        getPendingReads().put(cloudlet.getCloudletId(), cloudlet);
+        getReadStartTimes().put(cloudlet.getCloudletId(), CloudSim.clock());
+
+        BlockLocationsRequest request = new BlockLocationsRequest(cloudlet.getRequiredFiles().get(0), getId(), cloudlet.getCloudletId());
+        sendNow(getNameNodeId(), CloudSimTags.HDFS_NAMENODE_GET_BLOCK_LOCATIONS, request);
+    }
+
+    // the NameNode returned the locations of a block: choose a replica and send the read cloudlet to its Datacenter
+    protected void processBlockLocations(SimEvent ev) {
+
+        BlockLocations data = (BlockLocations) ev.getData();
+        HdfsCloudlet cloudlet = getPendingReads().remove(data.getReadId());
+
+        if (cloudlet == null) {
+            Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Received block locations for unknown read #", data.getReadId());
+            return;
+        }
+
+        // one (vm id, datacenter id, rack id, host id) tuple for every replica
+        List<int[]> locations = new ArrayList<int[]>(data.size());
+        for (int i = 0; i < data.size(); i++) {
+            locations.add(new int[]{data.getDataNodeId(i), data.getDatacenterId(i), data.getRackId(i), data.getHostId(i)});
+        }
+
+        if (locations.isEmpty()) {
+            Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Read Cloudlet ", cloudlet.getCloudletId(),
+                    ": no replica of ", cloudlet.getRequiredFiles().get(0), " found, the read failed");
+            getReadStartTimes().remove(cloudlet.getCloudletId());
+            try {
+                cloudlet.setCloudletStatus(Cloudlet.FAILED);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            sendNow(getId(), CloudSimTags.CLOUDLET_RETURN, cloudlet);
+            return;
+        }
+
+        int[] chosen = chooseReadReplica(cloudlet, locations);
+
+        Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Sending Read Cloudlet ", cloudlet.getCloudletId(),
+                " to Data Node VM #", chosen[0]);
+
+        cloudlet.setVmId(chosen[0]);
+        sendNow(chosen[1], CloudSimTags.HDFS_READ_CLOUDLET_SUBMIT, cloudlet);
+    }
+
+    /**
+     * Chooses the replica a client reads, preferring a node-local replica (on the same host as the client vm), then a
+     * rack-local one (same Datacenter and rack), then the one whose Datacenter is closest to this broker according to
+     * the {@link NetworkTopology} delays. Replicas at the same distance are chosen in the given order.
+     * <p>
+     * The hosts of the replicas are the ones reported by the NameNode, so the DataNodes don't need to be vms of this
+     * broker.
+     *
+     * @param cloudlet the read cloudlet, whose source vm is the client vm
+     * @param locations the replicas, as (DataNode vm id, Datacenter id, rack id, host id) tuples
+     * @return the chosen tuple
+     */
+    protected int[] chooseReadReplica(HdfsCloudlet cloudlet, List<int[]> locations) {
+
+        int clientHostId = -1;
+        int clientRackId = -1;
+        Integer clientDatacenterId = getVmsToDatacentersMap().get(cloudlet.getSourceVmId());
+        Vm clientVm = VmList.getById(getVmsCreatedList(), cloudlet.getSourceVmId());
+        if (clientVm != null && clientVm.getHost() != null) {
+            clientHostId = clientVm.getHost().getId();
+            if (clientVm.getHost() instanceof HdfsHost) {
+                clientRackId = ((HdfsHost) clientVm.getHost()).getRackId();
+            }
+        }
+
+        int[] best = null;
+        int bestLocality = Integer.MAX_VALUE;
+        double bestDelay = Double.MAX_VALUE;
+
+        for (int[] location : locations) {
+            boolean sameDatacenter = clientDatacenterId != null && clientDatacenterId == location[1];
+            int locality = 2;
+            if (sameDatacenter) {
+                if (location[0] == cloudlet.getSourceVmId() || location[3] == clientHostId) {
+                    locality = 0;
+                } else if (location[2] == clientRackId) {
+                    locality = 1;
+                }
+            }
+            double delay = NetworkTopology.getDelay(getId(), location[1]);
+
+            if (locality < bestLocality || (locality == bestLocality && delay < bestDelay)) {
+                best = location;
+                bestLocality = locality;
+                bestDelay = delay;
+            }
+        }
+
+        return best;
+    }
+
+    // a block read from a DataNode arrived: the read is complete, so its latency is recorded
+    protected void processReadCloudletReturn(SimEvent ev) {
+
+        HdfsCloudlet cloudlet = (HdfsCloudlet) ev.getData();
+
+        Double startTime = getReadStartTimes().remove(cloudlet.getCloudletId());
+        if (startTime != null) {
+            getReadLatencies().add(CloudSim.clock() - startTime);
+        }
+
+        Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Read Cloudlet ", cloudlet.getCloudletId(),
+                ": the block ", cloudlet.getRequiredFiles().get(0), " has been read from Data Node VM #", cloudlet.getVmId());
+    }
+
     // deve comunicare (nel caso la vm sia per un client o per DN) al NameNode la vm che è stata creata
     @Override
     protected void processVmCreate(SimEvent ev) {
@@ -225,17 +496,16 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
             // comunico al name node della Vm creata
             HdfsVm tempVm = VmList.getById(getVmList(), vmId);
             assert tempVm != null;
-            int[] tempData;
             // nel caso sia una Client VM
             if (tempVm.getHdfsType() == CloudSimTags.HDFS_CLIENT) {
-                tempData = new int[]{tempVm.getId(), getId()};
-                sendNow(nameNodeId, CloudSimTags.HDFS_NAMENODE_ADD_CLIENT, tempData);
+                sendNow(nameNodeId, CloudSimTags.HDFS_NAMENODE_ADD_CLIENT, new ClientRegistration(tempVm.getId(), getId()));
             }
             // nel caso sia una DN VM
             if (tempVm.getHdfsType() == CloudSimTags.HDFS_DN) {
                 HdfsHost tempHost = (HdfsHost) tempVm.getHost();
-                // invio al NameNode 4 valori: Id del nodo, Id del datacenter, Id del rack, capacità di storage
-                tempData = new int[]{tempVm.getId(), datacenterId, tempHost.getRackId(), (int) tempHost.getProperStorage().getCapacity()};
+                // invio al NameNode 5 valori: Id del nodo, Id del datacenter, Id del rack, Id dell'host, capacità di storage
+                DataNodeRegistration tempData = new DataNodeRegistration(tempVm.getId(), datacenterId, tempHost.getRackId(),
+                        tempHost.getId(), (int) tempHost.getDriveCapacity());
                 // send the information about the DataNodes to the NameNode
                 sendNow(nameNodeId, CloudSimTags.HDFS_NAMENODE_ADD_DN, tempData);
                 // send the information about the DataNodes to the Replication Brokers
@@ -311,7 +581,15 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
             }
 
             cloudlet.setVmId(vm.getId());
-            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.HDFS_CLIENT_CLOUDLET_SUBMIT, cloudlet);
+            if (cloudlet instanceof HdfsCloudlet && ((HdfsCloudlet) cloudlet).isRead()) {
+                requestBlockLocations((HdfsCloudlet) cloudlet);
+            } else {
+                sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.HDFS_CLIENT_CLOUDLET_SUBMIT, cloudlet);
+
+                // the block read by the client comes back on its own, and it can come after the cloudlet: the broker
+                // can't finish before it, see processClientCloudletReturn()
+                cloudletsSubmitted++;
+            }
             cloudletsSubmitted++;
             currentCloudletMaxId = Math.max(cloudlet.getCloudletId(), currentCloudletMaxId);
             vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
@@ -349,7 +627,23 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
             }
 
             // il metodo dovrebbe automaticamente trovare il Datacenter in cui si trova la VM del DN senza problemi
-            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT, cloudlet);
+            // the block reaches the DN after crossing the network (0 if no transfer model is set)
+            int datacenterId = getVmsToDatacentersMap().get(vm.getId());
+            HdfsCloudlet block = (HdfsCloudlet) cloudlet;
+            double transferTime = NetworkTopology.getTransferTime(getBlockSourceId(block), datacenterId,
+                    block.getBlockSizeInMegabits());
+
+            // a block streamed in packets reaches the DN with its first packet, and its last packet arrives when the
+            // whole block has crossed the network, but not before the previous hop has received it
+            SimEntity datacenter = CloudSim.getEntity(datacenterId);
+            if (datacenter instanceof HdfsDatacenter && ((HdfsDatacenter) datacenter).isPipelinedReplication()) {
+                double packetFraction = ((HdfsDatacenter) datacenter).getPacketFraction(block);
+                double lastPacketTime = CloudSim.clock() + NetworkTopology.getDelay(getId(), datacenterId) + transferTime;
+                block.setPipelineFinishTime(Math.max(block.getPipelineFinishTime() + transferTime * packetFraction,
+                        lastPacketTime));
+                transferTime *= packetFraction;
+            }
+            send(datacenterId, transferTime, CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT, cloudlet);
 
             cloudletsSubmitted++;
             currentCloudletMaxId = Math.max(cloudlet.getCloudletId(), currentCloudletMaxId);
@@ -362,6 +656,17 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
         getCloudletList().removeAll(successfullySubmitted);
     }
 
+    // the entity the block of a DN cloudlet is sent from: the broker, which stands for the client in the topology
+    protected int getBlockSourceId(HdfsCloudlet cloudlet) {
+        return getId();
+    }
+
+    // every cloudlet created by this broker gets a new id, so concurrent writes never share one
+    protected int nextCloudletId() {
+        currentCloudletMaxId++;
+        return currentCloudletMaxId;
+    }
+
     public int getNameNodeId() {
         return nameNodeId;
     }
@@ -377,4 +682,68 @@ public class HdfsDatacenterBroker extends DatacenterBroker {
     public void setReplicationBrokersId(List<Integer> replicationBrokersId) {
         this.replicationBrokersId = replicationBrokersId;
     }
+
+    public int getBlockPipelinesPerClient() {
+        return blockPipelinesPerClient;
+    }
+
+    public void setBlockPipelinesPerClient(int blockPipelinesPerClient) {
+        this.blockPipelinesPerClient = blockPipelinesPerClient;
+    }
+
+    public Map<Integer, LinkedList<HdfsCloudlet>> getQueuedBlockWrites() {
+        return queuedBlockWrites;
+    }
+
+    public void setQueuedBlockWrites(Map<Integer, LinkedList<HdfsCloudlet>> queuedBlockWrites) {
+        this.queuedBlockWrites = queuedBlockWrites;
+    }
+
+    public Map<Integer, Integer> getActiveBlockWrites() {
+        return activeBlockWrites;
+    }
+
+    public void setActiveBlockWrites(Map<Integer, Integer> activeBlockWrites) {
+        this.activeBlockWrites = activeBlockWrites;
+    }
+
+    public Map<Integer, HdfsCloudlet> getPendingReads() {
+        return pendingReads;
+    }
+
+    public void setPendingReads(Map<Integer, HdfsCloudlet> pendingReads) {
+        this.pendingReads = pendingReads;
+    }
+
+    public Map<Integer, Double> getReadStartTimes() {
+        return readStartTimes;
+    }
+
+    public void setReadStartTimes(Map<Integer, Double> readStartTimes) {
+        this.readStartTimes = readStartTimes;
+    }
+
+    public List<Double> getReadLatencies() {
+        return readLatencies;
+    }
+
+    public void setReadLatencies(List<Double> readLatencies) {
+        this.readLatencies = readLatencies;
+    }
+
+    public List<Double> getWriteLatencies() {
+        return writeLatencies;
+    }
+
+    public void setWriteLatencies(List<Double> writeLatencies) {
+        this.writeLatencies = writeLatencies;
+    }
+
+    public Map<Integer, HdfsCloudlet> getPendingWrites() {
+        return pendingWrites;
+    }
+
+    public void setPendingWrites(Map<Integer, HdfsCloudlet> pendingWrites) {
+        this.pendingWrites = pendingWrites;
+    }
 }
@@ -1,5 +1,6 @@
 package org.cloudbus.cloudsim.hdfs;
 
+import org.cloudbus.cloudsim.File;
 import org.cloudbus.cloudsim.HarddriveStorage;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Pe;
@@ -7,43 +8,95 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
 
+import java.util.ArrayList;
 import java.util.List;
 
-// IL PROBLEMA ORA È EFFETTIVAMENTE USARE QUESTO HarddriveStorage nella simulazione!!
-
 // HdfsHost usa la class HarddriveStorage, già presente in Cloudsim, per simulare lo storage
 // Un normale Host usa un semplice "long" per tenere traccia dello storage
 
 public class HdfsHost extends Host {
 
+    private static final long serialVersionUID = 1L;
+
     private int rackId;
 
-    // TODO: this is, for now, completely useless
-    // Il motivo: a un Host, ora come ora, non è assegnato uno o più specifici Hard Drives,
-    // sono assegnati al Datacenter e ogni Host ha soltanto un numero che indica la capacità di storage
-    // lascio questo field qui per ora nel caso possa servire in futuro
-    private HarddriveStorage properStorage;
+    // the drives attached to this host (JBOD): every block is written to one of them, chosen by the volume choosing
+    // policy. The drives must also be in the storage list of the Datacenter of the host
+    private List<HarddriveStorage> driveList;
+
+    // chooses the drive every new block is written to
+    private VolumeChoosingPolicy volumeChoosingPolicy;
 
-    /**
-     * DON'T USE THIS CONSTRUCTOR FOR NOW!!
-     */
+    // costruttore per un host con un solo hard drive
     public HdfsHost(int id, RamProvisioner ramProvisioner, BwProvisioner bwProvisioner, long storage,
                     HarddriveStorage hddStorage, List<? extends Pe> peList, VmScheduler vmScheduler) {
-        super(id, ramProvisioner, bwProvisioner, storage, peList, vmScheduler);
-        properStorage = hddStorage;
+        this(id, ramProvisioner, bwProvisioner, storage, peList, vmScheduler);
+        addDrive(hddStorage);
     }
 
     public HdfsHost(int id, RamProvisioner ramProvisioner, BwProvisioner bwProvisioner, long storage,
                     List<? extends Pe> peList, VmScheduler vmScheduler) {
         super(id, ramProvisioner, bwProvisioner, storage, peList, vmScheduler);
+        driveList = new ArrayList<HarddriveStorage>();
+        volumeChoosingPolicy = new VolumeChoosingPolicyRoundRobin();
+    }
+
+    // attaches a drive to this host, a drive that is already attached is ignored
+    public void addDrive(HarddriveStorage drive) {
+        if (!driveList.contains(drive)) {
+            drive.setHostId(getId());
+            driveList.add(drive);
+        }
+    }
+
+    // the drive the volume choosing policy picks for the given block, null if no drive has room for it
+    public HarddriveStorage chooseDrive(File file) {
+        if (driveList.isEmpty()) {
+            return null;
+        }
+        return volumeChoosingPolicy.chooseVolume(driveList, file);
+    }
+
+    // the drive of this host that contains the given file, null if no drive contains it
+    public HarddriveStorage findDrive(String fileName) {
+        for (HarddriveStorage drive : driveList) {
+            if (drive.contains(fileName)) {
+                return drive;
+            }
+        }
+        return null;
+    }
+
+    // the sum of the capacities of the drives of this host
+    public double getDriveCapacity() {
+        double capacity = 0;
+        for (HarddriveStorage drive : driveList) {
+            capacity += drive.getCapacity();
+        }
+        return capacity;
+    }
+
+    public List<HarddriveStorage> getDriveList() {
+        return driveList;
     }
 
+    // the first drive of the host, null if it has none
     public HarddriveStorage getProperStorage() {
-        return properStorage;
+        return driveList.isEmpty() ? null : driveList.get(0);
     }
 
+    // attaches the drive as the only drive of this host
     public void setProperStorage(HarddriveStorage properStorage) {
-        this.properStorage = properStorage;
+        driveList.clear();
+        addDrive(properStorage);
+    }
+
+    public VolumeChoosingPolicy getVolumeChoosingPolicy() {
+        return volumeChoosingPolicy;
+    }
+
+    public void setVolumeChoosingPolicy(VolumeChoosingPolicy volumeChoosingPolicy) {
+        this.volumeChoosingPolicy = volumeChoosingPolicy;
     }
 
     public int getRackId() {
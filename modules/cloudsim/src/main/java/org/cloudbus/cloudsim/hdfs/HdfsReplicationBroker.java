@@ -1,6 +1,5 @@
 package org.cloudbus.cloudsim.hdfs;
 
-import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
@@ -10,7 +9,6 @@ import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.lists.VmList;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
@@ -18,6 +16,8 @@ import java.util.List;
 // di rigirare il cloudlets di replicazione alle vms appropriate
 public class HdfsReplicationBroker extends HdfsDatacenterBroker {
 
+    private static final long serialVersionUID = 1L;
+
     // used only to print prettier logs
     DecimalFormat df = new DecimalFormat("#.###");
 
@@ -84,102 +84,20 @@ public class HdfsReplicationBroker extends HdfsDatacenterBroker {
     }
 
     protected void processDataNodeInformation(SimEvent ev){
-        int[] data = (int[]) ev.getData();
-        int currentDataNodeId = data[0];
-        int currentDatacenterId = data[1];
-        int currentRackid = data[2];    // unused
-        int currentStorageCapacity = data[3];   // unused
+        DataNodeRegistration data = (DataNodeRegistration) ev.getData();
+        int currentDataNodeId = data.getDataNodeId();
+        int currentDatacenterId = data.getDatacenterId();
 
         getVmsToDatacentersMap().put(currentDataNodeId, currentDatacenterId);
         getVmsCreatedList().add(VmList.getById(getVmList(), currentDataNodeId));
     }
 
+    // a replica is sent from the Datacenter of the DN that has just stored the block, so it crosses the network only
+    // when the next DN is in another Datacenter
     @Override
-    protected void submitDNCloudlets() {
-        int vmIndex = 0;
-        List<Cloudlet> successfullySubmitted = new ArrayList<Cloudlet>();
-        for (Cloudlet cloudlet : getCloudletList()) {
-            Vm vm;
-            // if user didn't bind this cloudlet and it has not been executed yet
-            if (cloudlet.getVmId() == -1) {
-                vm = getVmsCreatedList().get(vmIndex);
-            } else { // submit to the specific vm
-                vm = VmList.getById(getVmsCreatedList(), cloudlet.getVmId());
-                if (vm == null) { // vm was not created
-                    if(!Log.isDisabled()) {
-                        Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Postponing execution of Data Cloudlet ",
-                                cloudlet.getCloudletId(), ": bound VM not available");
-                    }
-                    continue;
-                }
-            }
-
-            if (!Log.isDisabled()) {
-                Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": Sending Data Cloudlet ",
-                        cloudlet.getCloudletId(), " to VM #", vm.getId());
-            }
-
-            // il metodo dovrebbe automaticamente trovare il Datacenter in cui si trova la VM del DN senza problemi
-            sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT, cloudlet);
-
-            cloudletsSubmitted++;
-            currentCloudletMaxId = Math.max(cloudlet.getCloudletId(), currentCloudletMaxId);
-            vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
-            getCloudletSubmittedList().add(cloudlet);
-            successfullySubmitted.add(cloudlet);
-        }
-
-        // remove submitted cloudlets from waiting list
-        getCloudletList().removeAll(successfullySubmitted);
-    }
-
-    @Override
-    // Identico a processSendDataCloudlet però riceve come evento un HdfsCloudlet intero da rigirare alla prossima destinazione
-    protected void processSendReplicaCloudlet(SimEvent ev) {
-
-        HdfsCloudlet originalCloudlet = (HdfsCloudlet) ev.getData();
-
-        Log.printConcatLine(df.format(CloudSim.clock()), ": ", getName(), ": ReplicationCloudlet ", originalCloudlet.getCloudletId(),
-                ": the block has been read, sending it to the Data Node...");
-
-        // non molto elegante, ma dovrebbe funzionare lol, da qualche parte sto metodo lo devo prendere
-        stagedCloudlet = HdfsCloudlet.cloneCloudletAssignNewId(originalCloudlet, currentCloudletMaxId + 1);
-
-        // store the original vm id, so we can keep track of whose block it is in the DN
-        stagedCloudlet.setSourceVmId(originalCloudlet.getVmId());
-
-        // get the destination vms list
-        List<Integer> destinationVms = originalCloudlet.getDestVmIds();
-
-        if (destinationVms.isEmpty()){
-            Log.printLine(df.format(CloudSim.clock()) + ": " + getName() + ": The replication pipeline is over");
-            return;
-        }
-
-        // copio il pezzo dal metodo sopra (processClientCloudletReturn()) e ho fatto
-
-        // set the DN VM as the new VM Id for the cloudlet
-
-        stagedCloudlet.setVmId(destinationVms.get(0));
-
-        // ora rimuovo la prima vm dalla lista di destination vms e la aggiungo a destVmIds
-        destinationVms.remove(0);
-        stagedCloudlet.setDestVmIds(destinationVms);
-
-        // alternativamente si può usare il metodo bind che fa la stessa cosa
-        // bindCloudletToVm(cloudlet.getCloudletId(), cloudlet.getVmId());
-
-        // add the cloudlet to the list of submitted cloudlets
-        getCloudletList().add(stagedCloudlet);
-
-        // non so se prima settare la VM e poi aggiungere alla CloudletList, o se fare il contrario, vedremo...
-
-        /* ri-eseguiamo questo metodo, che ora troverà il nuovo unbound cloudlet nella lista, e lo invierà
-        alla VM appropriata, inoltre settando la posizione del broker uguale a quella del client nella topology,
-        avremo una corretta simulazione del delay per l'invio del file tramite network
-        */
-        submitDNCloudlets();
-
+    protected int getBlockSourceId(HdfsCloudlet cloudlet) {
+        Integer datacenterId = getVmsToDatacentersMap().get(cloudlet.getSourceVmId());
+        return datacenterId != null ? datacenterId : getId();
     }
 
     @Override
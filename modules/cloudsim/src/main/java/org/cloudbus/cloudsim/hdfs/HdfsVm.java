@@ -5,6 +5,8 @@ import org.cloudbus.cloudsim.Vm;
 
 public class HdfsVm extends Vm {
 
+    private static final long serialVersionUID = 1L;
+
     protected int hdfsType;
 
     /**
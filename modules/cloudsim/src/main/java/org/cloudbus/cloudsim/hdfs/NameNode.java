@@ -14,6 +14,8 @@ import java.util.*;
 
 public class NameNode extends SimEntity {
 
+    private static final long serialVersionUID = 1L;
+
     // the list of clients
     protected List<Integer> clientList;
 
@@ -29,9 +31,15 @@ public class NameNode extends SimEntity {
     // maps every DataNode (vm) ID with the list of blocks it contains as filenames
     protected Map<Integer, List<String>> mapDataNodeToBlocks;
 
+    // maps every file with the list of its blocks, in the order in which they were written
+    protected Map<String, List<String>> mapFileToBlocks;
+
     // maps every DataNode (vm) ID with the associated Rack ID in its own Datacenter
     protected Map<Integer, Integer> mapDataNodeToRackId;
 
+    // maps every DataNode (vm) ID with the ID of the host it was created on, in its own Datacenter
+    protected Map<Integer, Integer> mapDataNodeToHostId;
+
     // maps every DataNode (vm) ID con la max storage capacity che ha
     protected Map<Integer, Integer> mapDataNodeToCapacity;
 
@@ -44,6 +52,12 @@ public class NameNode extends SimEntity {
     // the default number of replicas per block
     protected int defaultReplicas;
 
+    // usage-ordered view of the DataNodes and racks, used to take placement decisions without full scans
+    protected BlockPlacementIndex placementIndex;
+
+    // decides in which DataNodes the replicas of every block are written
+    protected BlockPlacementPolicy placementPolicy;
+
     // the default size of a block
     // protected int defaultBlockSize;
 
@@ -53,6 +67,16 @@ public class NameNode extends SimEntity {
      * @param name the name to be associated with the entity
      */
     public NameNode(String name, int defaultBlockSize, int defaultReplicas) {
+        this(name, defaultBlockSize, defaultReplicas, new BlockPlacementPolicyLeastUsed());
+    }
+
+    /**
+     * Creates a new entity with a specific block placement policy.
+     *
+     * @param name the name to be associated with the entity
+     * @param placementPolicy the policy used to choose the DataNodes of every block
+     */
+    public NameNode(String name, int defaultBlockSize, int defaultReplicas, BlockPlacementPolicy placementPolicy) {
         super(name);
 
         setClientList(new ArrayList<Integer>());
@@ -61,9 +85,13 @@ public class NameNode extends SimEntity {
         setDataNodeList(new ArrayList<Integer>());
         setMapDataNodeToDatacenter(new HashMap<Integer, Integer>());
         setMapDataNodeToBlocks(new HashMap<Integer, List<String>>());
+        setMapFileToBlocks(new HashMap<String, List<String>>());
         setMapDataNodeToRackId(new HashMap<Integer, Integer>());
+        setMapDataNodeToHostId(new HashMap<Integer, Integer>());
         setMapDataNodeToCapacity(new HashMap<Integer, Integer>());
         setMapDataNodeToUsage(new HashMap<Integer, Double>());
+        setPlacementIndex(new BlockPlacementIndex());
+        setPlacementPolicy(placementPolicy);
 
         // setDefaultBlockSize(defaultBlockSize);
         setDefaultReplicas(defaultReplicas);
@@ -92,6 +120,10 @@ public class NameNode extends SimEntity {
             case CloudSimTags.HDFS_NAMENODE_WRITE_FILE:
                 processWriteFile(ev);
                 break;
+            // a client wants to read a block and asks where its replicas are
+            case CloudSimTags.HDFS_NAMENODE_GET_BLOCK_LOCATIONS:
+                processGetBlockLocations(ev);
+                break;
             // if the simulation finishes
             case CloudSimTags.END_OF_SIMULATION:
                 shutdownEntity();
@@ -104,12 +136,12 @@ public class NameNode extends SimEntity {
     }
 
     // adding a new Client to the list of current Clients
-    // ev contiene: int del client vm id, int del brokerId
+    // ev contiene una ClientRegistration: id della client vm e id del broker
     protected void processAddClient(SimEvent ev){
 
-        int[] data = (int[]) ev.getData();
-        int currentClientId = data[0];
-        int currentBrokerId = data[1];
+        ClientRegistration data = (ClientRegistration) ev.getData();
+        int currentClientId = data.getClientVmId();
+        int currentBrokerId = data.getBrokerId();
 
         Log.printLine(CloudSim.clock() + ": " + getName() + ": Received client VM of ID " + currentClientId + ", belonging to broker " + currentBrokerId);
 
@@ -124,16 +156,16 @@ public class NameNode extends SimEntity {
     // adding a new DataNode to the list of current DataNodes
     protected void processAddDataNode(SimEvent ev){
 
-        int[] data = (int[]) ev.getData();
-        int currentDataNodeId = data[0];
+        DataNodeRegistration data = (DataNodeRegistration) ev.getData();
+        int currentDataNodeId = data.getDataNodeId();
 
-        if (this.dataNodeList.contains(currentDataNodeId)){
+        if (this.mapDataNodeToDatacenter.containsKey(currentDataNodeId)){
             return;
         }
 
-        int currentDatacenterId = data[1];
-        int currentRackid = data[2];
-        int currentStorageCapacity = data[3];
+        int currentDatacenterId = data.getDatacenterId();
+        int currentRackid = data.getRackId();
+        int currentStorageCapacity = data.getStorageCapacity();
 
         Log.printLine(CloudSim.clock() + ": " + getName() + ": Received DataNode VM of ID " + currentDataNodeId + ", in Datacenter " + currentDatacenterId);
 
@@ -149,27 +181,37 @@ public class NameNode extends SimEntity {
         // Mappiamo il nodo al rack
         this.mapDataNodeToRackId.put(currentDataNodeId, currentRackid);
 
+        // e all'host su cui è stato creato
+        this.mapDataNodeToHostId.put(currentDataNodeId, data.getHostId());
+
         // Mappiamo il nodo alla sua capacità massima
         this.mapDataNodeToCapacity.put(currentDataNodeId, currentStorageCapacity);
 
         // Settiamo la % di utilizzo del nodo iniziale, che è 0%
         this.mapDataNodeToUsage.put(currentDataNodeId, 0.0);
 
+        // e lo registriamo nell'indice usato per il placement
+        this.placementIndex.addDataNode(currentDataNodeId, currentRackid, currentStorageCapacity);
+
         // Se il rack non è già presente setto il suo utilizzo a 0% ma NON lo faccio più, perchè mi servirebbe anche un'altra mappa che mappa
         // ogni rack a un datacenter, sennò ovviamente i rack id si sovrapporrebbero, lasciamo stare, me lo trovo a mano quando mi serve questo valore
     }
 
     // writing a new File (Block) to the HDFS cluster
     // the NameNode decides in which destination VMs the file and its replicas are supposed to go
-    // l'evento ev è un array che contiene: String nome del file, String: preferred number of replicas, String: blocksize
+    // l'evento ev contiene una BlockWriteRequest: nome del blocco, preferred number of replicas, blocksize, id del broker,
+    // id della client VM che scrive il blocco, id della scrittura e nome del file di cui fa parte il blocco
     protected void processWriteFile(SimEvent ev){
 
-        List<String> data = (List<String>) ev.getData();
+        BlockWriteRequest data = (BlockWriteRequest) ev.getData();
 
-        String fileName = data.get(0);
-        int replicasNumber = Integer.parseInt(data.get(1));
-        int blockSize = Integer.parseInt(data.get(2));  // blocksize in MB
-        int clientBrokerId = Integer.parseInt(data.get(3));  // ID della client VM che invia
+        String fileName = data.getBlockName();
+        int replicasNumber = data.getReplicas();
+        int blockSize = data.getBlockSize();  // blocksize in MB
+        int clientBrokerId = data.getBrokerId();  // ID del broker del client che invia
+        int clientVmId = data.getClientVmId();  // ID della client VM che invia
+        int writeId = data.getWriteId();  // ID del data cloudlet in attesa nel broker
+        String hdfsFileName = data.getFileName();  // il file di cui fa parte il blocco
 
         Log.printLine(CloudSim.clock() + ": NameNode: received a write request, file name: " + fileName + ", replicas: " + replicasNumber + ", block size: " + blockSize + ", from client: " + clientBrokerId);
 
@@ -178,150 +220,79 @@ public class NameNode extends SimEntity {
             replicasNumber = defaultReplicas;
         }
 
-        // il risultato finale da ritornare al broker
-        List<Integer> destinationIds = new ArrayList<Integer>();
-
-        List<Integer> acceptableDestinations = new ArrayList<Integer>();
+        // la scelta dei DataNodes è delegata alla placement policy di questo NameNode
+        List<Integer> destinationIds = getPlacementPolicy().chooseTargets(this, fileName, replicasNumber, clientVmId, clientBrokerId);
 
-        // IL DATANODE NON PUÒ GIÀ CONTENERE IL BLOCCO, SE LO CONTIENE GIÀ È UN RIFIUTO SECCO.
-        // IL PRIMO BLOCCO LO SCRIVIAMO NEL NODO CON MINORE % DI RIEMPIMENTO (GIUSTIFICAZIONE: TUTTI I NODI SONO EQUIDISTANTI DAI CLIENT)
-        // PER IL SECONDO BLOCCO: CONSIDERO TUTTI GLI ALTRI RACKS, SCELGO IL RACK CON MENO % DI RIEMPIMENTO
-        // ALL'INTERNO DI QUESTO RACK SCELGO I DUE NODI CON MENO % DI RIEMPIMENTO
-
-        // iniziamo escludendo tutti i DataNodes che già contengono il blocco
-        for (Integer iterDataNode : getDataNodeList()){
-            if (!getMapDataNodeToBlocks().containsKey(iterDataNode)) {   // se il DN non è presente nella hash map, vuol dire che il nodo è vuoto
-                acceptableDestinations.add(iterDataNode);
-            } else if (!getMapDataNodeToBlocks().get(iterDataNode).contains(fileName)){
-                acceptableDestinations.add(iterDataNode);
-            }
-        }
-
-        if (acceptableDestinations.isEmpty()){
-            Log.print(CloudSim.clock() + ": No suitable nodes were found to write the block to!");
+        // la risposta contiene l'id della scrittura, così il broker può avere più scritture in corso
+        if (destinationIds.isEmpty()){
+            Log.printLine(CloudSim.clock() + ": No suitable nodes were found to write the block to!");
+            // rispondiamo comunque, così il broker non tiene la scrittura in attesa per sempre
+            sendNow(clientBrokerId, CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST, new BlockWriteTargets(writeId, destinationIds));
             return;
         }
 
-        // prendiamo il nodo tra quelli candidati in cui la % di utilizzo è minima (questo non è true HDFS)
-        // così abbiamo scelto la destination della prima replica
-        double minUsage = 999.9;
-        Integer firstNode = null;
-
-        for (Integer tempNode : acceptableDestinations){
-            if (getMapDataNodeToUsage().get(tempNode) < minUsage){
-                firstNode = tempNode;
-                minUsage = getMapDataNodeToUsage().get(tempNode);
-            }
-        }
-
-        // il nodo scelto lo aggiungo alla lista di risultati e lo rimuovo dalle destinations candidate
-        destinationIds.add(firstNode);
-        acceptableDestinations.remove(firstNode);
-        replicasNumber--;   // ho bisogno di sapere quante repliche restano da scrivere per il prossimo ciclo
-
-        // ora mancano gli altri nodi che vanno in rack remoti
-
-        // per iniziare sono accettabili tutti i racks tranne quello della prima destinazione
-        Set<Integer> acceptableRacks = new HashSet<Integer>(getMapDataNodeToRackId().values());
-        acceptableRacks.remove(getMapDataNodeToRackId().get(firstNode));
-
-        double currentMinRackUsage;
-
-        // 2 nodi max per rack, fino a esaurimento repliche
-        // scegliamo il rack con meno overall usage e con almeno due nodi che fanno parte di quelli accettabili
-        double cycles = replicasNumber / (double) 2;
-        cycles = (int) Math.ceil(cycles);
-        for (int i = 1; i <= cycles; i++){
-
-            int validNodesPerRack = 0;
-            List<Integer> originalAcceptableRacks = new ArrayList<Integer>(acceptableRacks);
-
-            // prima di tutto tolgo da acceptableRacks i rack che non hanno almeno 2 nodi accettabili
-            for (Integer rack : originalAcceptableRacks){
-                for (Integer node : acceptableDestinations){
-                    if (getMapDataNodeToRackId().get(node).equals(rack)){
-                        validNodesPerRack++;
-                    }
-                }
-                if (validNodesPerRack < 2){
-                    acceptableRacks.remove(rack);
-                }
-            }
-
-            // ora cerco il rack tra quelli accettabili con usage ratio minore (questo non è true HDFS)
-            currentMinRackUsage = 999.9;
-            Integer chosenRack = null;
-
-            for (Integer rack : acceptableRacks){
-                if (findRackOverallUsage(rack) < currentMinRackUsage){
-                    chosenRack = rack;
-                    currentMinRackUsage = findRackOverallUsage(rack);
-                }
-            }
-
-            acceptableRacks.remove(chosenRack);
-
-            // all'interno di questo rack scelgo i due nodi con usage ratio minore
-
-            Integer previousNode = null;
-            Integer chosenNode;
-
-            for (int k = 0; k < 2; k++){
-
-                double minNodeUsage = 999.9;
-                chosenNode = null;
-
-                for (Integer tempNode : acceptableDestinations){
-                    if (getMapDataNodeToUsage().get(tempNode) < minNodeUsage && getMapDataNodeToRackId().get(tempNode).equals(chosenRack) && !tempNode.equals(previousNode)){
-                        chosenNode = tempNode;
-                        minNodeUsage = getMapDataNodeToUsage().get(tempNode);
-                    }
-                }
-
-                // il nodo scelto lo aggiungo alla lista di risultati e lo rimuovo dalle destinations candidate
-                if (chosenNode != null){
-                    previousNode = chosenNode;
-                    destinationIds.add(chosenNode);
-                    acceptableDestinations.remove(chosenNode);
-
-                    replicasNumber--;
-                    if (replicasNumber == 0){
-                        break;
-                    }
-                }
-            }
-
-        }
-
         // devo cambiare le % di utilizzo dei nodi che ho settato!!
         updateNodeUsage(destinationIds, blockSize);
 
+        // se il blocco non ha ancora repliche è un blocco nuovo del file
+        boolean newBlock = placementIndex.getBlockLocations(fileName).isEmpty();
+
         // aggiungiamo nella hashmap il blocco nei corrispondenti data nodes in cui lo abbiamo allocato
         for (Integer i : destinationIds){
             if (getMapDataNodeToBlocks().get(i) == null)
                 getMapDataNodeToBlocks().put(i, new ArrayList<String>(Collections.singleton(fileName)));
             else
                 getMapDataNodeToBlocks().get(i).add(fileName);
+            placementIndex.addBlock(fileName, i);
         }
 
+        // il blocco viene aggiunto alla lista dei blocchi del suo file
+        if (getMapFileToBlocks().get(hdfsFileName) == null)
+            getMapFileToBlocks().put(hdfsFileName, new ArrayList<String>());
+        if (newBlock)
+            getMapFileToBlocks().get(hdfsFileName).add(fileName);
+
         // inviamo indietro al Broker che ce l'ha chiesto, la lista di VMs, che il broker poi infilerà in destVm del Cloudlet (va reimplementata destVM come lista)
-        sendNow(clientBrokerId, CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST, destinationIds);
+        sendNow(clientBrokerId, CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST, new BlockWriteTargets(writeId, destinationIds));
     }
 
-    protected double findRackOverallUsage(Integer rackId){
-        double usage = 0.0;
+    // a client asks for the DataNodes that contain a block, so it can choose the replica to read
+    // l'evento ev contiene una BlockLocationsRequest: nome del blocco, id del broker, id del read cloudlet
+    // the answer is a BlockLocations with the id of the read cloudlet and the DataNode vm id, Datacenter id, rack id and
+    // host id of every replica, in no particular order; it has no replicas if the block is unknown. The host is the one
+    // the DataNode was registered with, it is not updated if the DataNode migrates
+    protected void processGetBlockLocations(SimEvent ev){
+
+        BlockLocationsRequest data = (BlockLocationsRequest) ev.getData();
+
+        String fileName = data.getBlockName();
+        int clientBrokerId = data.getBrokerId();
+        int readId = data.getReadId();
+
+        Log.printLine(CloudSim.clock() + ": NameNode: received a block locations request, file name: " + fileName + ", from client: " + clientBrokerId);
 
-        int totalCapacity = 0;
-        double totalSpaceUsed = 0.0;
+        Set<Integer> replicas = placementIndex.getBlockLocations(fileName);
+        int[] dataNodeIds = new int[replicas.size()];
+        int[] datacenterIds = new int[replicas.size()];
+        int[] rackIds = new int[replicas.size()];
+        int[] hostIds = new int[replicas.size()];
 
-        for (Integer i : getMapDataNodeToRackId().keySet()){
-            if (getMapDataNodeToRackId().get(i).equals(rackId)){
-                totalCapacity += getMapDataNodeToCapacity().get(i);
-                totalSpaceUsed += ( getMapDataNodeToUsage().get(i) * getMapDataNodeToCapacity().get(i));
-            }
+        int i = 0;
+        for (Integer dataNode : replicas){
+            dataNodeIds[i] = dataNode;
+            datacenterIds[i] = getMapDataNodeToDatacenter().get(dataNode);
+            rackIds[i] = getMapDataNodeToRackId().get(dataNode);
+            hostIds[i] = getMapDataNodeToHostId().get(dataNode);
+            i++;
         }
 
-        return (totalSpaceUsed / totalCapacity);
+        sendNow(clientBrokerId, CloudSimTags.HDFS_NAMENODE_RETURN_BLOCK_LOCATIONS,
+                new BlockLocations(readId, dataNodeIds, datacenterIds, rackIds, hostIds));
+    }
+
+    // the aggregates are kept up to date by the placement index, so this is O(1)
+    protected double findRackOverallUsage(Integer rackId){
+        return placementIndex.getRackUsage(rackId);
     }
 
     protected void updateNodeUsage (List<Integer> nodesToUpdate, int blockSize){
@@ -338,6 +309,7 @@ public class NameNode extends SimEntity {
 
             currentNodeUpdatedUsage = (currentNodeStorageAmount + blockSize) / currentNodeCapacity;
             getMapDataNodeToUsage().put(currentNode, currentNodeUpdatedUsage);
+            placementIndex.setNodeUsage(currentNode, currentNodeUpdatedUsage);
         }
     }
 
@@ -389,6 +361,23 @@ public class NameNode extends SimEntity {
         this.dataNodeList = dataNodeList;
     }
 
+    public Map<String, List<String>> getMapFileToBlocks() {
+        return mapFileToBlocks;
+    }
+
+    public void setMapFileToBlocks(Map<String, List<String>> mapFileToBlocks) {
+        this.mapFileToBlocks = mapFileToBlocks;
+    }
+
+    // the blocks of the given file, in the order in which they were written (empty if the file is unknown)
+    public List<String> getFileBlocks(String fileName) {
+        List<String> blocks = getMapFileToBlocks().get(fileName);
+        if (blocks == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(blocks);
+    }
+
     public Map<Integer, List<String>> getMapDataNodeToBlocks() {
         return mapDataNodeToBlocks;
     }
@@ -429,6 +418,14 @@ public class NameNode extends SimEntity {
         this.mapDataNodeToRackId = mapDataNodeToRackId;
     }
 
+    public Map<Integer, Integer> getMapDataNodeToHostId() {
+        return mapDataNodeToHostId;
+    }
+
+    public void setMapDataNodeToHostId(Map<Integer, Integer> mapDataNodeToHostId) {
+        this.mapDataNodeToHostId = mapDataNodeToHostId;
+    }
+
     public Map<Integer, Integer> getMapDataNodeToCapacity() {
         return mapDataNodeToCapacity;
     }
@@ -445,6 +442,22 @@ public class NameNode extends SimEntity {
         this.mapDataNodeToUsage = mapDataNodeToUsage;
     }
 
+    public BlockPlacementIndex getPlacementIndex() {
+        return placementIndex;
+    }
+
+    public void setPlacementIndex(BlockPlacementIndex placementIndex) {
+        this.placementIndex = placementIndex;
+    }
+
+    public BlockPlacementPolicy getPlacementPolicy() {
+        return placementPolicy;
+    }
+
+    public void setPlacementPolicy(BlockPlacementPolicy placementPolicy) {
+        this.placementPolicy = placementPolicy;
+    }
+
     public Map<Integer, Double> getMapRackToUsage() {
         return mapRackToUsage;
     }
@@ -0,0 +1,26 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Chooses which of the drives of a DataNode host a new block is written to, like the volume choosing policies of the
+ * HDFS DataNodes. Every {@link HdfsHost} has its own instance, so a policy can keep state about its own drives.
+ */
+public abstract class VolumeChoosingPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Chooses the drive the given block is written to.
+     *
+     * @param volumes the drives of the host
+     * @param file the block to write
+     * @return the chosen drive, or null if no drive has enough space for the block
+     */
+    public abstract HarddriveStorage chooseVolume(List<HarddriveStorage> volumes, File file);
+
+}
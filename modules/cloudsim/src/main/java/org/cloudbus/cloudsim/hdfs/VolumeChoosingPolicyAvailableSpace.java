@@ -0,0 +1,28 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+
+import java.util.List;
+
+/**
+ * Writes every block to the drive of the host with the most available space, so the drives fill up evenly even if
+ * they have different capacities. Drives with the same available space are chosen in the order they were attached.
+ */
+public class VolumeChoosingPolicyAvailableSpace extends VolumeChoosingPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public HarddriveStorage chooseVolume(List<HarddriveStorage> volumes, File file) {
+        HarddriveStorage chosen = null;
+        for (HarddriveStorage volume : volumes) {
+            if (volume.getAvailableSpace() >= file.getSize()
+                    && (chosen == null || volume.getAvailableSpace() > chosen.getAvailableSpace())) {
+                chosen = volume;
+            }
+        }
+        return chosen;
+    }
+
+}
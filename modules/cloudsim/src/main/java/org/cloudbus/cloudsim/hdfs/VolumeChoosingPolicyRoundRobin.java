@@ -0,0 +1,33 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+
+import java.util.List;
+
+/**
+ * Writes the blocks to the drives of the host in turn, skipping the ones without enough space for the block (the
+ * default policy of HDFS).
+ */
+public class VolumeChoosingPolicyRoundRobin extends VolumeChoosingPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    // the drive the next block is written to, if it has room
+    private int nextVolume;
+
+    @Override
+    public HarddriveStorage chooseVolume(List<HarddriveStorage> volumes, File file) {
+        int count = volumes.size();
+        for (int i = 0; i < count; i++) {
+            int index = (nextVolume + i) % count;
+            HarddriveStorage volume = volumes.get(index);
+            if (volume.getAvailableSpace() >= file.getSize()) {
+                nextVolume = (index + 1) % count;
+                return volume;
+            }
+        }
+        return null;
+    }
+
+}
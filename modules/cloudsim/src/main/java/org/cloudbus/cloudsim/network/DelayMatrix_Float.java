@@ -8,16 +8,23 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
  * This class represents a delay matrix between every pair or nodes
  * inside a network topology, storing every distance between connected nodes.
  * 
+ * <br/>The matrix is computed once for a whole graph, by {@link FloydWarshall_Float}, and can then
+ * be kept up to date link by link with {@link #addLink(int, int, float, boolean)}.
+ * 
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Matrix holding delay information between any two nodes.
@@ -67,6 +74,97 @@ public class DelayMatrix_Float {
 		return mDelayMatrix[srcID][destID];
 	}
 
+	/**
+	 * Adds a link to the network, updating the delays of the paths it shortens instead of
+	 * computing all of them again. As the delays are not negative, a shortest path crosses the
+	 * new link at most once, so the delay from i to j becomes the lowest of its current value and
+	 * of the delay from i to the source of the link, plus the link, plus the delay from its
+	 * destination to j: O(n^2) instead of the O(n^3) of computing the matrix again.
+	 * 
+	 * <br/>The nodes of the link beyond the ones of the matrix are added, with no path to the
+	 * others yet. A link without delay is taken as no link, as when the matrix is computed. The
+	 * delays are only the ones of computing the matrix again if there is no other link between
+	 * the two nodes, as the last link between two nodes is the only one the computation knows of.
+	 * 
+	 * @param srcID the id of the source node
+	 * @param destID the id of the destination node
+	 * @param delay the delay of the link
+	 * @param directed indicates if the link only goes from the source to the destination (true)
+	 *            or both ways (false)
+	 */
+	public void addLink(int srcID, int destID, float delay, boolean directed) {
+		addNodes(Math.max(srcID, destID) + 1);
+		if (delay == 0) {
+			return;
+		}
+
+		addPaths(srcID, destID, delay);
+		if (!directed) {
+			addPaths(destID, srcID, delay);
+		}
+	}
+
+	/**
+	 * Updates the delays of the paths crossing a link one way.
+	 * 
+	 * @param srcID the id of the source node
+	 * @param destID the id of the destination node
+	 * @param delay the delay of the link
+	 */
+	private void addPaths(int srcID, int destID, float delay) {
+		// the delays to the source and from the destination before the update
+		float[] toSource = new float[mTotalNodeNum];
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			toSource[row] = mDelayMatrix[row][srcID];
+		}
+		toSource[srcID] = 0;
+		float[] fromDest = new float[mTotalNodeNum];
+		System.arraycopy(mDelayMatrix[destID], 0, fromDest, 0, mTotalNodeNum);
+		fromDest[destID] = 0;
+
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			if (toSource[row] == Float.MAX_VALUE) {
+				continue;
+			}
+			float toDest = toSource[row] + delay;
+			float[] delays = mDelayMatrix[row];
+			for (int col = 0; col < mTotalNodeNum; ++col) {
+				if (col != row && fromDest[col] != Float.MAX_VALUE && toDest + fromDest[col] < delays[col]) {
+					delays[col] = toDest + fromDest[col];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes room for nodes, with no path to the others. The rows are allocated with spare room,
+	 * so that adding the nodes of a large network one by one doesn't copy the matrix every time.
+	 * 
+	 * @param nodeNum the number of nodes the matrix has to hold
+	 */
+	private void addNodes(int nodeNum) {
+		if (nodeNum <= mTotalNodeNum) {
+			return;
+		}
+
+		if (nodeNum > mDelayMatrix.length) {
+			int capacity = Math.max(nodeNum, 2 * mDelayMatrix.length);
+			float[][] matrix = new float[capacity][capacity];
+			for (int row = 0; row < capacity; ++row) {
+				Arrays.fill(matrix[row], Float.MAX_VALUE);
+				if (row < mTotalNodeNum) {
+					System.arraycopy(mDelayMatrix[row], 0, matrix[row], 0, mTotalNodeNum);
+				}
+			}
+			mDelayMatrix = matrix;
+		}
+
+		for (int node = mTotalNodeNum; node < nodeNum; ++node) {
+			mDelayMatrix[node][node] = 0;
+		}
+		mTotalNodeNum = nodeNum;
+	}
+
 	/**
 	 * Creates all internal necessary network-distance structures from the given graph. 
          * For similarity, we assume all communication-distances are symmetrical, 
@@ -25,19 +25,14 @@ public class FloydWarshall_Float {
 	private int numVertices;
 
 	/**
-	 * Matrices used in dynamic programming.
+	 * The delay matrix. Matrix used by dynamic programming.
 	 */
-	private float[][] Dk, Dk_minus_one;
+	private float[][] Dk;
 
 	/**
 	 * The predecessor matrix. Matrix used by dynamic programming.
 	 */
 	private int[][] Pk;
-        
-        /**
-         * Matrix used by dynamic programming.
-         */
-        private int[][] Pk_minus_one;
 
 	/**
 	 * Initialization the matrix.
@@ -48,20 +43,16 @@ public class FloydWarshall_Float {
 	public void initialize(int numVertices) {
 		this.numVertices = numVertices;
 
-		// Initialize Dk matrices.
+		// Initialize Dk matrix.
 		Dk = new float[numVertices][];
-		Dk_minus_one = new float[numVertices][];
 		for (int i = 0; i < numVertices; i++) {
 			Dk[i] = new float[numVertices];
-			Dk_minus_one[i] = new float[numVertices];
 		}
 
-		// Initialize Pk matrices.
+		// Initialize Pk matrix.
 		Pk = new int[numVertices][];
-		Pk_minus_one = new int[numVertices][];
 		for (int i = 0; i < numVertices; i++) {
 			Pk[i] = new int[numVertices];
-			Pk_minus_one[i] = new int[numVertices];
 		}
 
 	}
@@ -69,19 +60,26 @@ public class FloydWarshall_Float {
 	/**
 	 * Calculates the delay between all pairs of nodes.
 	 * 
+	 * <br/>The matrices are updated in place: the iteration over k doesn't change row k nor
+	 * column k, as going through k again never shortens a path to or from k, so D_k-1 and D_k
+	 * can share the same matrix instead of copying one into the other at every iteration.
+	 * 
 	 * @param adjMatrix original delay matrix
 	 * @return the delay matrix
 	 */
 	public float[][] allPairsShortestPaths(float[][] adjMatrix) {
-		// Dk_minus_one = weights when k = -1
+		// Dk = weights when k = -1
 		for (int i = 0; i < numVertices; i++) {
 			for (int j = 0; j < numVertices; j++) {
-				if (adjMatrix[i][j] != 0) {
-					Dk_minus_one[i][j] = adjMatrix[i][j];
-					Pk_minus_one[i][j] = i;
+				if (i == j) {
+					Dk[i][j] = 0;
+					Pk[i][j] = -1;
+				} else if (adjMatrix[i][j] != 0) {
+					Dk[i][j] = adjMatrix[i][j];
+					Pk[i][j] = i;
 				} else {
-					Dk_minus_one[i][j] = Float.MAX_VALUE;
-					Pk_minus_one[i][j] = -1;
+					Dk[i][j] = Float.MAX_VALUE;
+					Pk[i][j] = -1;
 				}
 				// NOTE: we have set the value to infinity and will exploit
 				// this to avoid a comparison.
@@ -91,32 +89,25 @@ public class FloydWarshall_Float {
 		// Now iterate over k.
 
 		for (int k = 0; k < numVertices; k++) {
+			float[] Dk_row = Dk[k];
+			int[] Pk_row = Pk[k];
 
 			// Compute Dk[i][j], for each i,j
 
 			for (int i = 0; i < numVertices; i++) {
-				for (int j = 0; j < numVertices; j++) {
-					if (i != j) {
-
-						// D_k[i][j] = min ( D_k-1[i][j], D_k-1[i][k] + D_k-1[k][j].
-						if (Dk_minus_one[i][j] <= Dk_minus_one[i][k] + Dk_minus_one[k][j]) {
-							Dk[i][j] = Dk_minus_one[i][j];
-							Pk[i][j] = Pk_minus_one[i][j];
-						} else {
-							Dk[i][j] = Dk_minus_one[i][k] + Dk_minus_one[k][j];
-							Pk[i][j] = Pk_minus_one[k][j];
-						}
-					} else {
-						Pk[i][j] = -1;
-					}
+				float Dik = Dk[i][k];
+				if (i == k || Dik == Float.MAX_VALUE) {
+					// no path from i through k
+					continue;
 				}
-			}
-
-			// Now store current Dk into D_k-1
-			for (int i = 0; i < numVertices; i++) {
+				float[] Di = Dk[i];
+				int[] Pi = Pk[i];
 				for (int j = 0; j < numVertices; j++) {
-					Dk_minus_one[i][j] = Dk[i][j];
-					Pk_minus_one[i][j] = Pk[i][j];
+					// D_k[i][j] = min ( D_k-1[i][j], D_k-1[i][k] + D_k-1[k][j].
+					if (i != j && Dk_row[j] != Float.MAX_VALUE && Di[j] > Dik + Dk_row[j]) {
+						Di[j] = Dik + Dk_row[j];
+						Pi[j] = Pk_row[j];
+					}
 				}
 			}
 
@@ -8,13 +8,17 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
+
 /**
  * This class represents an link (edge) from a network graph.
  * 
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class TopologicalLink {
+public class TopologicalLink implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The BRITE id of the source node of the link.
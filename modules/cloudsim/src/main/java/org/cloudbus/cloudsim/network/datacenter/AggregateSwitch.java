@@ -68,7 +68,7 @@ public class AggregateSwitch extends Switch {
 		if (level == NetworkConstants.Agg_LEVEL) {
 			// packet is coming from root so need to be sent to edgelevel swich
 			// find the id for edgelevel switch
-			int switchid = dc.VmToSwitchid.get(recvVMid);
+			int switchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
 			List<NetworkPacket> pktlist = downlinkswitchpktlist.get(switchid);
 			if (pktlist == null) {
 				pktlist = new ArrayList<NetworkPacket>();
@@ -97,14 +97,8 @@ public class AggregateSwitch extends Switch {
 			// packet is coming from edge level router so need to be sent to
 			// either root or another edge level swich
 			// find the id for edgelevel switch
-			int switchid = dc.VmToSwitchid.get(recvVMid);
-			boolean flagtoswtich = false;
-			for (Switch sw : downlinkswitches) {
-				if (switchid == sw.getId()) {
-					flagtoswtich = true;
-				}
-			}
-			if (flagtoswtich) {
+			int switchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
+			if (dc.getRoutingTable().getDownlinkSwitchId(getId(), switchid) == switchid) {
 				List<NetworkPacket> pktlist = downlinkswitchpktlist.get(switchid);
 				if (pktlist == null) {
 					pktlist = new ArrayList<NetworkPacket>();
@@ -113,11 +107,11 @@ public class AggregateSwitch extends Switch {
 				pktlist.add(hspkt);
 			} else// send to up
 			{
-				Switch sw = uplinkswitches.get(0);
-				List<NetworkPacket> pktlist = uplinkswitchpktlist.get(sw.getId());
+				int uplinkid = dc.getRoutingTable().getUplinkSwitchId(getId(), hspkt);
+				List<NetworkPacket> pktlist = uplinkswitchpktlist.get(uplinkid);
 				if (pktlist == null) {
 					pktlist = new ArrayList<NetworkPacket>();
-					uplinkswitchpktlist.put(sw.getId(), pktlist);
+					uplinkswitchpktlist.put(uplinkid, pktlist);
 				}
 				pktlist.add(hspkt);
 			}
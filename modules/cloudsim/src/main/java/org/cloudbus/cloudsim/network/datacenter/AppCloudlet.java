@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,7 +36,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
  * 
  * @todo The attributes have to be defined as private.
  */
-public class AppCloudlet {
+public class AppCloudlet implements Serializable {
 
 	public int type;
 
@@ -117,7 +118,7 @@ public class AppCloudlet {
 			UtilizationModel utilizationModel = new UtilizationModelFull();
 			// HPCCloudlet cl=new HPCCloudlet();
 			NetworkCloudlet cl = new NetworkCloudlet(
-					NetworkConstants.currentCloudletId,
+					NetworkConstants.nextCloudletId(),
 					length,
 					pesNumber,
 					fileSize,
@@ -127,7 +128,6 @@ public class AppCloudlet {
 					utilizationModel,
 					utilizationModel);
 			// setting the owner of these Cloudlets
-			NetworkConstants.currentCloudletId++;
 			cl.setUserId(userId);
 			cl.submittime = CloudSim.clock();
 			cl.currStagenum = -1;
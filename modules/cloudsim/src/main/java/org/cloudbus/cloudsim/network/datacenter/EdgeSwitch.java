@@ -72,12 +72,12 @@ public class EdgeSwitch extends Switch {
 		// packet is recieved from host
 		// packet is to be sent to aggregate level or to another host in the same level
 
-		int hostid = dc.VmtoHostlist.get(recvVMid);
-		NetworkHost hs = hostlist.get(hostid);
+		NetworkHost hs = dc.getRoutingTable().getHost(recvVMid);
+		int hostid = hs.getId();
 		hspkt.recieverhostid = hostid;
 
 		// packet needs to go to a host which is connected directly to switch
-		if (hs != null) {
+		if (hs.sw == this) {
 			// packet to be sent to host connected to the switch
 			List<NetworkPacket> pktlist = packetTohost.get(hostid);
 			if (pktlist == null) {
@@ -90,14 +90,13 @@ public class EdgeSwitch extends Switch {
 		}
 		// otherwise
 		// packet is to be sent to upper switch
-		// ASSUMPTION EACH EDGE is Connected to one aggregate level switch
-		// if there are more than one Aggregate level switch one need to modify following code
+		// through one of the aggregate level switches, chosen by ECMP if there are more than one
 
-		Switch sw = uplinkswitches.get(0);
-		List<NetworkPacket> pktlist = uplinkswitchpktlist.get(sw.getId());
+		int uplinkid = dc.getRoutingTable().getUplinkSwitchId(getId(), hspkt);
+		List<NetworkPacket> pktlist = uplinkswitchpktlist.get(uplinkid);
 		if (pktlist == null) {
 			pktlist = new ArrayList<NetworkPacket>();
-			uplinkswitchpktlist.put(sw.getId(), pktlist);
+			uplinkswitchpktlist.put(uplinkid, pktlist);
 		}
 		pktlist.add(hspkt);
 		return;
@@ -107,6 +106,7 @@ public class EdgeSwitch extends Switch {
 	@Override
 	protected void processpacketforward(SimEvent ev) {
 		// search for the host and packets..send to them
+		NetworkMonitor monitor = getMonitor();
 
 		if (uplinkswitchpktlist != null) {
 			for (Entry<Integer, List<NetworkPacket>> es : uplinkswitchpktlist.entrySet()) {
@@ -119,6 +119,9 @@ public class EdgeSwitch extends Switch {
 					while (it.hasNext()) {
 						NetworkPacket hspkt = it.next();
 						double delay = 1000 * hspkt.pkt.data / avband;
+						if (monitor != null) {
+							monitor.recordTransfer(getId(), tosend, hspkt.pkt.data, delay);
+						}
 
 						this.send(tosend, delay, CloudSimTags.Network_Event_UP, hspkt);
 					}
@@ -136,6 +139,10 @@ public class EdgeSwitch extends Switch {
 						NetworkPacket hspkt = it.next();
 						// hspkt.recieverhostid=tosend;
 						// hs.packetrecieved.add(hspkt);
+						if (monitor != null) {
+							monitor.recordTransfer(getId(), NetworkMonitor.getHostKey(es.getKey()), hspkt.pkt.data,
+									hspkt.pkt.data / avband);
+						}
 						this.send(getId(), hspkt.pkt.data / avband, CloudSimTags.Network_Event_Host, hspkt);
 					}
 					hspktlist.clear();
@@ -0,0 +1,264 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+
+/**
+ * FabricBuilder builds the switches of a {@link NetworkDatacenter} as a multi-path fabric and
+ * connects its hosts to them, in the order of the host list:
+ * <ul>
+ * <li>a k-ary fat-tree: k pods of k/2 edge and k/2 aggregate switches, every edge switch linked
+ * to all the aggregate switches of its pod, and (k/2)^2 root switches, the i-th aggregate switch
+ * of every pod linked to the i-th group of k/2 root switches. Every edge switch has k/2 hosts,
+ * k^3/4 in all.</li>
+ * <li>a leaf-spine fabric: leaf {@link EdgeSwitch}es, each linked to all the spine
+ * {@link AggregateSwitch}es.</li>
+ * </ul>
+ *
+ * <br/>The packets going up a fabric are spread over the uplinks of every switch by ECMP, as
+ * set with {@link RoutingTable#setEcmpMode(int)}, and go down by the single path from the
+ * switch they reach. The bandwidths are set before building; the oversubscription of the edge
+ * switches is the ratio of their bandwidth towards the hosts to their bandwidth upwards.
+ *
+ * @see NetworkDatacenter#getRoutingTable()
+ * @since CloudSim Toolkit 5.0
+ */
+public class FabricBuilder {
+
+	/** The datacenter whose network is built. */
+	private final NetworkDatacenter dc;
+
+	/** The bandwidth between a host and its edge switch. */
+	private double hostBandwidth = NetworkConstants.BandWidthEdgeHost;
+
+	/** The bandwidth between an edge switch and each of its uplink switches. */
+	private double edgeBandwidth = NetworkConstants.BandWidthEdgeAgg;
+
+	/** The bandwidth between an aggregate switch and each of its root switches. */
+	private double aggregateBandwidth = NetworkConstants.BandWidthAggRoot;
+
+	/** The edge switches built. */
+	private final List<Switch> edgeSwitches = new ArrayList<Switch>();
+
+	/** The aggregate (or spine) switches built. */
+	private final List<Switch> aggregateSwitches = new ArrayList<Switch>();
+
+	/** The root switches built. */
+	private final List<Switch> rootSwitches = new ArrayList<Switch>();
+
+	/**
+	 * Creates a builder for the network of a datacenter.
+	 *
+	 * @param dc the datacenter
+	 */
+	public FabricBuilder(NetworkDatacenter dc) {
+		this.dc = dc;
+	}
+
+	/**
+	 * Builds a k-ary fat-tree.
+	 *
+	 * @param k the number of ports of every switch, even
+	 * @throws IllegalArgumentException if k is not even or if the datacenter has more than k^3/4
+	 *             hosts
+	 */
+	public void buildFatTree(int k) {
+		if (k < 2 || k % 2 != 0) {
+			throw new IllegalArgumentException("The fat-tree needs an even number of ports, not " + k);
+		}
+		int half = k / 2;
+		checkCapacity(k * half * half);
+
+		for (int i = 0; i < half * half; i++) {
+			RootSwitch root = new RootSwitch("Root" + i, NetworkConstants.ROOT_LEVEL, dc);
+			root.downlinkbandwidth = aggregateBandwidth;
+			root.numport = k;
+			addSwitch(rootSwitches, root);
+		}
+		for (int pod = 0; pod < k; pod++) {
+			List<Switch> podAggregates = new ArrayList<Switch>();
+			for (int i = 0; i < half; i++) {
+				AggregateSwitch agg = new AggregateSwitch("Agg" + pod + "_" + i, NetworkConstants.Agg_LEVEL, dc);
+				agg.uplinkbandwidth = aggregateBandwidth;
+				agg.downlinkbandwidth = edgeBandwidth;
+				agg.numport = half;
+				addSwitch(aggregateSwitches, agg);
+				podAggregates.add(agg);
+				for (int j = 0; j < half; j++) {
+					connect(rootSwitches.get(i * half + j), agg);
+				}
+			}
+			for (int i = 0; i < half; i++) {
+				EdgeSwitch edge = createEdgeSwitch("Edge" + pod + "_" + i, half);
+				for (Switch agg : podAggregates) {
+					connect(agg, edge);
+				}
+			}
+		}
+		connectHosts(half);
+	}
+
+	/**
+	 * Builds a leaf-spine fabric.
+	 *
+	 * @param leaves the number of leaf switches
+	 * @param spines the number of spine switches
+	 * @param hostsPerLeaf the number of hosts of every leaf switch
+	 * @throws IllegalArgumentException if a number is not positive or if the datacenter has more
+	 *             hosts than the leaves
+	 */
+	public void buildLeafSpine(int leaves, int spines, int hostsPerLeaf) {
+		if (leaves < 1 || spines < 1 || hostsPerLeaf < 1) {
+			throw new IllegalArgumentException("The leaf-spine fabric needs at least a leaf, a spine and a host per leaf");
+		}
+		checkCapacity(leaves * hostsPerLeaf);
+
+		for (int i = 0; i < spines; i++) {
+			AggregateSwitch spine = new AggregateSwitch("Spine" + i, NetworkConstants.Agg_LEVEL, dc);
+			spine.downlinkbandwidth = edgeBandwidth;
+			spine.numport = leaves;
+			addSwitch(aggregateSwitches, spine);
+		}
+		for (int i = 0; i < leaves; i++) {
+			EdgeSwitch leaf = createEdgeSwitch("Leaf" + i, hostsPerLeaf);
+			for (Switch spine : aggregateSwitches) {
+				connect(spine, leaf);
+			}
+		}
+		connectHosts(hostsPerLeaf);
+	}
+
+	/**
+	 * Gets the oversubscription of the edge switches built: the bandwidth of their hosts over the
+	 * bandwidth of their uplinks.
+	 *
+	 * @return the oversubscription, 1 for a fabric with full bisection bandwidth
+	 */
+	public double getOversubscription() {
+		if (edgeSwitches.isEmpty()) {
+			return 0;
+		}
+		Switch edge = edgeSwitches.get(0);
+		return edge.numport * hostBandwidth / (edge.uplinkswitches.size() * edgeBandwidth);
+	}
+
+	public List<Switch> getEdgeSwitches() {
+		return edgeSwitches;
+	}
+
+	public List<Switch> getAggregateSwitches() {
+		return aggregateSwitches;
+	}
+
+	public List<Switch> getRootSwitches() {
+		return rootSwitches;
+	}
+
+	public double getHostBandwidth() {
+		return hostBandwidth;
+	}
+
+	public void setHostBandwidth(double hostBandwidth) {
+		this.hostBandwidth = hostBandwidth;
+	}
+
+	public double getEdgeBandwidth() {
+		return edgeBandwidth;
+	}
+
+	public void setEdgeBandwidth(double edgeBandwidth) {
+		this.edgeBandwidth = edgeBandwidth;
+	}
+
+	public double getAggregateBandwidth() {
+		return aggregateBandwidth;
+	}
+
+	public void setAggregateBandwidth(double aggregateBandwidth) {
+		this.aggregateBandwidth = aggregateBandwidth;
+	}
+
+	/**
+	 * Creates an edge switch with the bandwidths set.
+	 *
+	 * @param name the name of the switch
+	 * @param hosts the number of hosts of the switch
+	 * @return the switch
+	 */
+	private EdgeSwitch createEdgeSwitch(String name, int hosts) {
+		EdgeSwitch edge = new EdgeSwitch(name, NetworkConstants.EDGE_LEVEL, dc);
+		edge.uplinkbandwidth = edgeBandwidth;
+		edge.downlinkbandwidth = hostBandwidth;
+		edge.numport = hosts;
+		addSwitch(edgeSwitches, edge);
+		return edge;
+	}
+
+	/**
+	 * Adds a switch to the datacenter and to a list of the switches built.
+	 *
+	 * @param switches the list
+	 * @param sw the switch
+	 */
+	private void addSwitch(List<Switch> switches, Switch sw) {
+		switches.add(sw);
+		dc.Switchlist.put(sw.getId(), sw);
+	}
+
+	/**
+	 * Links a switch to one of its downlink switches.
+	 *
+	 * @param up the upper switch
+	 * @param down the lower switch
+	 */
+	private static void connect(Switch up, Switch down) {
+		up.downlinkswitches.add(down);
+		down.uplinkswitches.add(up);
+	}
+
+	/**
+	 * Connects the hosts of the datacenter to the edge switches, in order.
+	 *
+	 * @param hostsPerEdge the number of hosts of every edge switch
+	 */
+	private void connectHosts(int hostsPerEdge) {
+		int index = 0;
+		for (Host host : dc.getHostList()) {
+			NetworkHost hs = (NetworkHost) host;
+			Switch edge = edgeSwitches.get(index++ / hostsPerEdge);
+			hs.bandwidth = hostBandwidth;
+			hs.sw = edge;
+			edge.hostlist.put(hs.getId(), hs);
+			dc.HostToSwitchid.put(hs.getId(), edge.getId());
+			List<NetworkHost> hslist = edge.fintimelistHost.get(0D);
+			if (hslist == null) {
+				hslist = new ArrayList<NetworkHost>();
+				edge.fintimelistHost.put(0D, hslist);
+			}
+			hslist.add(hs);
+		}
+	}
+
+	/**
+	 * Checks that the hosts of the datacenter fit in a fabric.
+	 *
+	 * @param capacity the number of hosts of the fabric
+	 */
+	private void checkCapacity(int capacity) {
+		if (dc.getHostList().size() > capacity) {
+			throw new IllegalArgumentException("The fabric has room for " + capacity + " hosts, not "
+					+ dc.getHostList().size());
+		}
+	}
+
+}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
 /**
  * HostPacket represents the packet that travels through the virtual network within a Host.
  * It contains information about cloudlets which are communicating.
@@ -23,7 +25,7 @@ package org.cloudbus.cloudsim.network.datacenter;
  * @since CloudSim Toolkit 1.0
  * @todo Attributes should be private
  */
-public class HostPacket {
+public class HostPacket implements Serializable {
         /**
          * Id of the sender VM.
          */
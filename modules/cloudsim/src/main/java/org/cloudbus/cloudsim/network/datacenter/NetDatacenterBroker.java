@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -22,6 +23,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.distributions.UniformDistr;
 import org.cloudbus.cloudsim.lists.VmList;
 
@@ -95,11 +97,21 @@ public class NetDatacenterBroker extends SimEntity {
          * is the datacenter id and each value is the datacenter itself. */
 	private Map<Integer, DatacenterCharacteristics> datacenterCharacteristicsList;
 
-	public static NetworkDatacenter linkDC;
+	/**
+	 * The datacenter the brokers of a simulation use, which every {@link Simulation} has its own
+	 * of.
+	 */
+	public static class State implements Serializable {
 
-	public boolean createvmflag = true;
+		private static final long serialVersionUID = 1L;
 
-	public static int cachedcloudlet = 0;
+		private NetworkDatacenter linkDC;
+
+		private int cachedcloudlet = 0;
+
+	}
+
+	public boolean createvmflag = true;
 
 	/**
 	 * Creates a new DatacenterBroker object.
@@ -159,8 +171,25 @@ public class NetDatacenterBroker extends SimEntity {
 		getCloudletList().addAll(list);
 	}
 
+	/**
+	 * Gets the state shared by the brokers of the current simulation.
+	 * 
+	 * @return the state
+	 */
+	private static State state() {
+		return Simulation.getCurrent().getComponent(State.class);
+	}
+
+	public static NetworkDatacenter getLinkDC() {
+		return state().linkDC;
+	}
+
 	public static void setLinkDC(NetworkDatacenter alinkDC) {
-		linkDC = alinkDC;
+		state().linkDC = alinkDC;
+	}
+
+	public static int getCachedcloudlet() {
+		return state().cachedcloudlet;
 	}
 
 	/**
@@ -198,7 +227,7 @@ public class NetDatacenterBroker extends SimEntity {
 			// Nuovo caso
 			case CloudSimTags.NextCycle:
 				if (NetworkConstants.BASE) {
-					createVmsInDatacenterBase(linkDC.getId());
+					createVmsInDatacenterBase(getLinkDC().getId());
 				}
 				break;
 
@@ -328,8 +357,7 @@ public class NetDatacenterBroker extends SimEntity {
 		// generate Application execution Requests
 		for (int i = 0; i < 100; i++) {
 			this.getAppCloudletList().add(
-					new WorkflowApp(AppCloudlet.APP_Workflow, NetworkConstants.currentAppId, 0, 0, getId()));
-			NetworkConstants.currentAppId++;
+					new WorkflowApp(AppCloudlet.APP_Workflow, NetworkConstants.nextAppId(), 0, 0, getId()));
 
 		}
 		int k = 0;
@@ -338,7 +366,7 @@ public class NetDatacenterBroker extends SimEntity {
 		for (AppCloudlet app : this.getAppCloudletList()) {
 
 			List<Integer> vmids = new ArrayList<Integer>();
-			int numVms = linkDC.getVmList().size();
+			int numVms = getLinkDC().getVmList().size();
 			UniformDistr ufrnd = new UniformDistr(0, numVms, 5);
 			for (int i = 0; i < app.numbervm; i++) {
 
@@ -385,7 +413,7 @@ public class NetDatacenterBroker extends SimEntity {
          */
 	private void CreateVMs(int datacenterId) {
 		// two VMs per host
-		int numVM = linkDC.getHostList().size() * NetworkConstants.maxhostVM;
+		int numVM = getLinkDC().getHostList().size() * NetworkConstants.maxhostVM;
 		for (int i = 0; i < numVM; i++) {
 			int vmid = i;
 			int mips = 1;
@@ -406,7 +434,7 @@ public class NetDatacenterBroker extends SimEntity {
 					size,
 					vmm,
 					new NetworkCloudletSpaceSharedScheduler());
-			linkDC.processVmCreateNetwork(vm);
+			getLinkDC().processVmCreateNetwork(vm);
 			// add the VM to the vmList
 			getVmList().add(vm);
 			getVmsToDatacentersMap().put(vmid, datacenterId);
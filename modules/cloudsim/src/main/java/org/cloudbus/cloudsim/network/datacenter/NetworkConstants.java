@@ -8,6 +8,10 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
+import org.cloudbus.cloudsim.core.Simulation;
+
 /**
  * Network constants
  * @todo This class uses several hard-coded values that appears to be used 
@@ -22,9 +26,41 @@ public class NetworkConstants {
 
 	public static double maxMemperVM = 1024 * 1024;// kb
 
+	/**
+	 * The id the next cloudlet of the default simulation will have.
+	 * 
+	 * @deprecated the counters belong to every {@link Simulation}, use
+	 *             {@link #getCurrentCloudletId()} and {@link #nextCloudletId()}. The field follows
+	 *             the default simulation, assigning it has no effect.
+	 */
+	@Deprecated
 	public static int currentCloudletId = 0;
+
+	/**
+	 * The id the next application of the default simulation will have.
+	 * 
+	 * @deprecated the counters belong to every {@link Simulation}, use
+	 *             {@link #getCurrentAppId()} and {@link #nextAppId()}. The field follows the
+	 *             default simulation, assigning it has no effect.
+	 */
+	@Deprecated
 	public static int currentAppId = 0;
 
+	/**
+	 * The counters of a simulation, which every {@link Simulation} has its own of.
+	 */
+	public static class State implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int currentCloudletId = 0;
+
+		private int currentAppId = 0;
+
+		private long totaldatatransfer = 0;
+
+	}
+
 	/** 
          * Types of {@link TaskStage}
          * @todo should be an enum
@@ -70,5 +106,99 @@ public class NetworkConstants {
 	public static int iteration = 10;
 	public static int nexttime = 1000;
 
+	/**
+	 * The amount of data the hosts of the default simulation have sent to the switches.
+	 * 
+	 * @deprecated the counters belong to every {@link Simulation}, use
+	 *             {@link #getTotalDataTransfer()}. The field follows the default simulation,
+	 *             assigning it has no effect.
+	 */
+	@Deprecated
 	public static int totaldatatransfer = 0;
+
+	/**
+	 * Gets the counters of the current simulation.
+	 * 
+	 * @return the counters
+	 */
+	private static State state() {
+		return Simulation.getCurrent().getComponent(State.class);
+	}
+
+	/**
+	 * Copies the counters of the default simulation to the deprecated static fields, if it is the
+	 * current one.
+	 * 
+	 * @param state the counters of the current simulation
+	 */
+	@SuppressWarnings("deprecation")
+	private static void updateStaticFields(State state) {
+		if (Simulation.getCurrent() == Simulation.getDefault()) {
+			currentCloudletId = state.currentCloudletId;
+			currentAppId = state.currentAppId;
+			totaldatatransfer = (int) state.totaldatatransfer;
+		}
+	}
+
+	/**
+	 * Gets the id the next cloudlet will have.
+	 * 
+	 * @return the id
+	 */
+	public static int getCurrentCloudletId() {
+		return state().currentCloudletId;
+	}
+
+	/**
+	 * Takes a new cloudlet id.
+	 * 
+	 * @return the id
+	 */
+	public static int nextCloudletId() {
+		State state = state();
+		int id = state.currentCloudletId++;
+		updateStaticFields(state);
+		return id;
+	}
+
+	/**
+	 * Gets the id the next application will have.
+	 * 
+	 * @return the id
+	 */
+	public static int getCurrentAppId() {
+		return state().currentAppId;
+	}
+
+	/**
+	 * Takes a new application id.
+	 * 
+	 * @return the id
+	 */
+	public static int nextAppId() {
+		State state = state();
+		int id = state.currentAppId++;
+		updateStaticFields(state);
+		return id;
+	}
+
+	/**
+	 * Gets the amount of data the hosts have sent to the switches.
+	 * 
+	 * @return the amount of data
+	 */
+	public static long getTotalDataTransfer() {
+		return state().totaldatatransfer;
+	}
+
+	/**
+	 * Adds data sent by a host to a switch to the total.
+	 * 
+	 * @param data the amount of data
+	 */
+	public static void addDataTransfer(double data) {
+		State state = state();
+		state.totaldatatransfer += data;
+		updateStaticFields(state);
+	}
 }
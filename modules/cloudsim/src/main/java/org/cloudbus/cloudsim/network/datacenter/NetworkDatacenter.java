@@ -73,6 +73,21 @@ public class NetworkDatacenter extends Datacenter {
          */
 	public Map<Integer, Integer> VmtoHostlist;
 
+	/**
+	 * The host and the edge switch of every VM, and the switches, indexed by id.
+	 */
+	private final RoutingTable routingTable = new RoutingTable();
+
+	/**
+	 * The flow-level model of the network, null if the packets are forwarded by the switches.
+	 */
+	private NetworkFlowModel flowModel;
+
+	/**
+	 * The monitor of the network, null if it is not monitored.
+	 */
+	private NetworkMonitor networkMonitor;
+
 	/**
 	 * Instantiates a new NetworkDatacenter object.
 	 * 
@@ -140,6 +155,7 @@ public class NetworkDatacenter extends Datacenter {
 		if (result) {
 			VmToSwitchid.put(vm.getId(), ((NetworkHost) vm.getHost()).sw.getId());
 			VmtoHostlist.put(vm.getId(), vm.getHost().getId());
+			routingTable.addVm(vm, (NetworkHost) vm.getHost());
 			System.out.println(vm.getId() + " VM is created on " + vm.getHost().getId());
 
 			getVmList().add(vm);
@@ -150,6 +166,79 @@ public class NetworkDatacenter extends Datacenter {
 		return result;
 	}
 
+	@Override
+	protected void processVmMigrate(SimEvent ev, boolean ack) {
+		super.processVmMigrate(ev, ack);
+
+		// the packets to the VM are routed to its new host
+		Vm vm = (Vm) ((Map<?, ?>) ev.getData()).get("vm");
+		NetworkHost host = (NetworkHost) vm.getHost();
+		VmToSwitchid.put(vm.getId(), host.sw.getId());
+		VmtoHostlist.put(vm.getId(), host.getId());
+		routingTable.addVm(vm, host);
+	}
+
+	/**
+	 * Gets the routing table of the network, which the hosts and the switches use to forward
+	 * the packets.
+	 * 
+	 * @return the routing table
+	 */
+	public RoutingTable getRoutingTable() {
+		return routingTable;
+	}
+
+	/**
+	 * Gets the flow-level model of the network.
+	 * 
+	 * @return the flow model, null if the packets are forwarded by the switches
+	 */
+	public NetworkFlowModel getFlowModel() {
+		return flowModel;
+	}
+
+	/**
+	 * Sets the flow-level model of the network: the packets the hosts send to each other are
+	 * flows sharing the links, instead of being forwarded by the switches one hop at a time.
+	 * 
+	 * @param flowModel the flow model, null to forward the packets by the switches
+	 */
+	public void setFlowModel(NetworkFlowModel flowModel) {
+		this.flowModel = flowModel;
+	}
+
+	/**
+	 * Gets the monitor of the network.
+	 * 
+	 * @return the monitor, null if the network is not monitored
+	 */
+	public NetworkMonitor getNetworkMonitor() {
+		return networkMonitor;
+	}
+
+	/**
+	 * Sets the monitor of the network, which counts the data and the packets crossing the links
+	 * and the switches and samples them periodically.
+	 * 
+	 * @param networkMonitor the monitor, null not to monitor the network
+	 */
+	public void setNetworkMonitor(NetworkMonitor networkMonitor) {
+		this.networkMonitor = networkMonitor;
+	}
+
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.Network_Event_Flow && flowModel != null) {
+			flowModel.processEvent(ev);
+			return;
+		}
+		if (ev != null && ev.getTag() == CloudSimTags.Network_Event_Sample && networkMonitor != null) {
+			networkMonitor.processEvent(ev);
+			return;
+		}
+		super.processOtherEvent(ev);
+	}
+
 	@Override
 	protected void processCloudletSubmit(SimEvent ev, boolean ack) {
 		updateCloudletProcessing();
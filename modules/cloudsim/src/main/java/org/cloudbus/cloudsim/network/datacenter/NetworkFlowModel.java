@@ -0,0 +1,407 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.WakeUpTimer;
+
+/**
+ * NetworkFlowModel is a flow-level alternative to the packet forwarding of the {@link Switch}es
+ * of a {@link NetworkDatacenter}. Instead of going from switch to switch, one event per hop, every
+ * packet a {@link NetworkHost} sends to another host is a flow over the links of its path, and
+ * the flows in progress share the links with max-min fairness: every link splits its bandwidth
+ * equally among the flows crossing it, and a flow limited elsewhere leaves its unused share to
+ * the others.
+ *
+ * <br/>The rates are only recomputed when flows start or complete, and the datacenter is woken up
+ * once for the earliest completion, by a {@link WakeUpTimer}. A completed flow is delivered to the
+ * edge switch of the receiver host with a single {@link CloudSimTags#Network_Event_Host} event,
+ * delayed by the switching delays of its path; the switch puts it in the packets received by the
+ * host, as the packet forwarding does.
+ *
+ * <br/>The links are the ones the packets cross: from the host to its edge switch, up the uplink
+ * switch the {@link RoutingTable} chooses at every level until a switch that reaches the edge switch of the receiver, then
+ * down to it and to the receiver host. The bandwidth of a link is the {@link NetworkHost#bandwidth}
+ * for the link from a host, {@link Switch#uplinkbandwidth} for the links up and
+ * {@link Switch#downlinkbandwidth} for the links down, and a flow of <tt>data</tt> bytes alone on
+ * its path takes <tt>1000 * data / bandwidth</tt> of its bottleneck, as a packet does on one hop.
+ * The completed flows are counted on the links of their path by the {@link NetworkMonitor} of the
+ * datacenter, if it has one.
+ *
+ * @see NetworkDatacenter#setFlowModel(NetworkFlowModel)
+ * @since CloudSim Toolkit 5.0
+ */
+public class NetworkFlowModel implements Serializable {
+
+	/** Flows completing less than this after the current time are taken as completed. */
+	private static final double EPSILON = 1e-9;
+
+	/** The datacenter whose network is modelled. */
+	private final NetworkDatacenter dc;
+
+	/** The timer that wakes the datacenter up when the earliest flow completes. */
+	private final WakeUpTimer timer;
+
+	/** The links crossed by the flows so far, by {@link #getLinkKey(int, int)}. */
+	private final Map<Long, Link> links = new HashMap<Long, Link>();
+
+	/** The flows in progress, at {@link #lastUpdate}. */
+	private final List<Flow> flows = new ArrayList<Flow>();
+
+	/** The time {@link #flows} refers to. */
+	private double lastUpdate;
+
+	/** The number of flows started so far. */
+	private int flowCount;
+
+	/** The number of times the rates have been recomputed. */
+	private int rateUpdateCount;
+
+	/**
+	 * Creates a flow model for a datacenter.
+	 *
+	 * @param dc the datacenter
+	 */
+	public NetworkFlowModel(NetworkDatacenter dc) {
+		this.dc = dc;
+		timer = new WakeUpTimer(dc, CloudSimTags.Network_Event_Flow);
+	}
+
+	/**
+	 * Starts a flow for every packet a host sends to the other hosts.
+	 *
+	 * @param sender the host sending the packets
+	 * @param packets the packets
+	 */
+	public void startFlows(NetworkHost sender, List<NetworkPacket> packets) {
+		if (packets.isEmpty()) {
+			return;
+		}
+
+		update(CloudSim.clock());
+		for (NetworkPacket packet : packets) {
+			flowCount++;
+			Flow flow = createFlow(sender, packet);
+			if (flow.links.length == 0) {
+				deliver(flow);
+			} else {
+				flows.add(flow);
+			}
+		}
+		reschedule();
+	}
+
+	/**
+	 * Processes the wake-up event of the datacenter: delivers the flows that have completed.
+	 *
+	 * @param ev the event
+	 */
+	public void processEvent(SimEvent ev) {
+		timer.process(ev);
+		update(CloudSim.clock());
+		reschedule();
+	}
+
+	/**
+	 * Gets the number of flows in progress.
+	 *
+	 * @return the number of flows
+	 */
+	public int getActiveFlowCount() {
+		return flows.size();
+	}
+
+	/**
+	 * Gets the number of flows started so far.
+	 *
+	 * @return the number of flows
+	 */
+	public int getFlowCount() {
+		return flowCount;
+	}
+
+	/**
+	 * Gets the number of times the rates of the flows have been recomputed.
+	 *
+	 * @return the number of updates
+	 */
+	public int getRateUpdateCount() {
+		return rateUpdateCount;
+	}
+
+	/**
+	 * Creates the flow of a packet, with the links of its path.
+	 *
+	 * @param sender the host sending the packet
+	 * @param packet the packet
+	 * @return the flow
+	 */
+	private Flow createFlow(NetworkHost sender, NetworkPacket packet) {
+		int receiverId = dc.getRoutingTable().getHostId(packet.pkt.reciever);
+		int edgeId = dc.getRoutingTable().getEdgeSwitchId(packet.pkt.reciever);
+		packet.recieverhostid = receiverId;
+
+		List<Link> path = new ArrayList<Link>();
+		double latency = 0;
+
+		// up to the first switch that reaches the edge switch of the receiver
+		RoutingTable table = dc.getRoutingTable();
+		Switch sw = sender.sw;
+		addLink(path, getHostKey(sender.getId()), sw.getId(), sender.bandwidth);
+		latency += sw.switching_delay;
+		while (sw.getId() != edgeId && table.getDownlinkSwitchId(sw.getId(), edgeId) < 0) {
+			Switch up = table.getSwitch(table.getUplinkSwitchId(sw.getId(), packet));
+			addLink(path, sw.getId(), up.getId(), sw.uplinkbandwidth);
+			latency += up.switching_delay;
+			sw = up;
+		}
+
+		// down to the edge switch and the receiver host
+		while (sw.getId() != edgeId) {
+			Switch down = table.getSwitch(table.getDownlinkSwitchId(sw.getId(), edgeId));
+			addLink(path, sw.getId(), down.getId(), sw.downlinkbandwidth);
+			latency += down.latency;
+			sw = down;
+		}
+		addLink(path, sw.getId(), getHostKey(receiverId), sw.downlinkbandwidth);
+
+		return new Flow(packet, path.toArray(new Link[path.size()]), 1000 * packet.pkt.data, latency);
+	}
+
+	/**
+	 * Adds a link to a path, if it limits the flows.
+	 *
+	 * @param path the path
+	 * @param from the key of the node the link starts from
+	 * @param to the key of the node the link ends to
+	 * @param bandwidth the bandwidth of the link
+	 */
+	private void addLink(List<Link> path, int from, int to, double bandwidth) {
+		if (bandwidth <= 0) {
+			return;
+		}
+		Long key = getLinkKey(from, to);
+		Link link = links.get(key);
+		if (link == null) {
+			link = new Link(from, to, bandwidth);
+			links.put(key, link);
+		}
+		path.add(link);
+	}
+
+	/**
+	 * Moves the flows forward to the given time, and delivers the ones that have completed.
+	 *
+	 * @param time the time
+	 */
+	private void update(double time) {
+		double elapsed = Math.max(0, time - lastUpdate);
+		lastUpdate = Math.max(lastUpdate, time);
+
+		List<Flow> completed = new ArrayList<Flow>();
+		List<Flow> active = new ArrayList<Flow>(flows.size());
+		for (Flow flow : flows) {
+			flow.remaining -= flow.rate * elapsed;
+			if (flow.finishTime <= time + EPSILON) {
+				completed.add(flow);
+			} else {
+				active.add(flow);
+			}
+		}
+		flows.clear();
+		flows.addAll(active);
+		for (Flow flow : completed) {
+			deliver(flow);
+		}
+	}
+
+	/**
+	 * Delivers a completed flow to the edge switch of the receiver host.
+	 *
+	 * @param flow the flow
+	 */
+	private void deliver(Flow flow) {
+		NetworkMonitor monitor = dc.getNetworkMonitor();
+		if (monitor != null) {
+			for (Link link : flow.links) {
+				monitor.recordTransfer(link.from, link.to, flow.packet.pkt.data, flow.startTime, CloudSim.clock());
+			}
+		}
+		int edgeId = dc.getRoutingTable().getEdgeSwitchId(flow.packet.pkt.reciever);
+		CloudSim.send(dc.getId(), edgeId, flow.latency, CloudSimTags.Network_Event_Host, flow.packet);
+	}
+
+	/**
+	 * Recomputes the rates of the flows in progress and wakes the datacenter up when the earliest
+	 * one completes.
+	 */
+	private void reschedule() {
+		timer.cancel();
+		if (flows.isEmpty()) {
+			return;
+		}
+
+		computeRates();
+		double next = Double.POSITIVE_INFINITY;
+		for (Flow flow : flows) {
+			flow.finishTime = flow.rate > 0 ? lastUpdate + flow.remaining / flow.rate : Double.POSITIVE_INFINITY;
+			next = Math.min(next, flow.finishTime);
+		}
+		if (next < Double.POSITIVE_INFINITY) {
+			timer.schedule(next - lastUpdate);
+		}
+	}
+
+	/**
+	 * Computes the max-min fair rates of the flows in progress by progressive filling: the link
+	 * with the smallest share fixes the rate of all its flows, which are then removed with the
+	 * bandwidth they use, until every flow has a rate.
+	 */
+	private void computeRates() {
+		rateUpdateCount++;
+		List<Link> used = new ArrayList<Link>();
+		for (Flow flow : flows) {
+			flow.rate = -1;
+			for (Link link : flow.links) {
+				if (link.flows.isEmpty()) {
+					link.capacity = link.bandwidth;
+					used.add(link);
+				}
+				link.flows.add(flow);
+			}
+		}
+		for (Link link : used) {
+			link.users = link.flows.size();
+		}
+
+		int fixed = 0;
+		while (fixed < flows.size()) {
+			Link bottleneck = null;
+			double share = Double.MAX_VALUE;
+			for (Link link : used) {
+				if (link.users > 0 && link.capacity / link.users < share) {
+					share = link.capacity / link.users;
+					bottleneck = link;
+				}
+			}
+
+			for (Flow flow : bottleneck.flows) {
+				if (flow.rate < 0) {
+					flow.rate = share;
+					fixed++;
+					for (Link link : flow.links) {
+						link.capacity = Math.max(0, link.capacity - share);
+						link.users--;
+					}
+				}
+			}
+		}
+
+		for (Link link : used) {
+			link.flows.clear();
+		}
+	}
+
+	/**
+	 * Gets the key of a host among the nodes of the links, which can't be the id of a switch.
+	 *
+	 * @param hostId the id of the host
+	 * @return the key
+	 */
+	private static int getHostKey(int hostId) {
+		return -hostId - 1;
+	}
+
+	/**
+	 * Gets the key of a link.
+	 *
+	 * @param from the key of the node the link starts from
+	 * @param to the key of the node the link ends to
+	 * @return the key
+	 */
+	private static long getLinkKey(int from, int to) {
+		return ((long) from << 32) | (to & 0xffffffffL);
+	}
+
+	/**
+	 * A link between two nodes, one way.
+	 */
+	private static class Link implements Serializable {
+
+		/** The key of the node the link starts from. */
+		private final int from;
+
+		/** The key of the node the link ends to. */
+		private final int to;
+
+		/** The bandwidth. */
+		private final double bandwidth;
+
+		/** The flows crossing the link, while the rates are computed. */
+		private final List<Flow> flows = new ArrayList<Flow>();
+
+		/** The bandwidth not taken by the flows with a rate yet, while the rates are computed. */
+		private double capacity;
+
+		/** The number of flows without a rate yet, while the rates are computed. */
+		private int users;
+
+		private Link(int from, int to, double bandwidth) {
+			this.from = from;
+			this.to = to;
+			this.bandwidth = bandwidth;
+		}
+
+	}
+
+	/**
+	 * The flow of a packet: the links it crosses and the data it has left.
+	 */
+	private static class Flow implements Serializable {
+
+		/** The packet. */
+		private final NetworkPacket packet;
+
+		/** The links of the path. */
+		private final Link[] links;
+
+		/** The sum of the switching delays of the path. */
+		private final double latency;
+
+		/** The time the flow started. */
+		private final double startTime;
+
+		/** The data left, at {@link NetworkFlowModel#lastUpdate}. */
+		private double remaining;
+
+		/** The current rate. */
+		private double rate;
+
+		/** The time the flow completes at the current rate. */
+		private double finishTime;
+
+		private Flow(NetworkPacket packet, Link[] links, double size, double latency) {
+			this.packet = packet;
+			this.links = links;
+			this.latency = latency;
+			startTime = CloudSim.clock();
+			remaining = size;
+		}
+
+	}
+
+}
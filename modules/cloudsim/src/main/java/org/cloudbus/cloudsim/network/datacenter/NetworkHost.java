@@ -19,7 +19,6 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.lists.PeList;
-import org.cloudbus.cloudsim.lists.VmList;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
 
@@ -114,11 +113,12 @@ public class NetworkHost extends Host {
 	 * Receives packets and forward them to the corresponding VM.
 	 */
 	private void recvpackets() {
+		RoutingTable routingTable = ((NetworkDatacenter) getDatacenter()).getRoutingTable();
 		for (NetworkPacket hs : packetrecieved) {
 			hs.pkt.recievetime = CloudSim.clock();
 
 			// insert the packet in recievedlist of VM
-			Vm vm = VmList.getById(getVmList(), hs.pkt.reciever);
+			Vm vm = routingTable.getVm(hs.pkt.reciever);
 			List<HostPacket> pktlist = ((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv
 					.get(hs.pkt.sender);
 
@@ -140,14 +140,14 @@ public class NetworkHost extends Host {
          * VM hosted on other machine.
 	 */
 	private void sendpackets() {
+		RoutingTable routingTable = ((NetworkDatacenter) getDatacenter()).getRoutingTable();
 		for (Vm vm : super.getVmList()) {
                     for (Entry<Integer, List<HostPacket>> es : ((NetworkCloudletSpaceSharedScheduler) vm
                                     .getCloudletScheduler()).pkttosend.entrySet()) {
                         List<HostPacket> pktlist = es.getValue();
                         for (HostPacket pkt : pktlist) {
                                 NetworkPacket hpkt = new NetworkPacket(getId(), pkt, vm.getId(), pkt.sender);
-                                Vm vm2 = VmList.getById(this.getVmList(), hpkt.recievervmid);
-                                if (vm2 != null) {
+                                if (routingTable.getHost(hpkt.recievervmid) == this) {
                                         packetTosendLocal.add(hpkt);
                                 } else {
                                         packetTosendGlobal.add(hpkt);
@@ -164,7 +164,7 @@ public class NetworkHost extends Host {
                     hs.stime = hs.rtime;
                     hs.pkt.recievetime = CloudSim.clock();
                     // insertthe packet in recievedlist
-                    Vm vm = VmList.getById(getVmList(), hs.pkt.reciever);
+                    Vm vm = routingTable.getVm(hs.pkt.reciever);
 
                     List<HostPacket> pktlist = ((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv
                                     .get(hs.pkt.sender);
@@ -184,10 +184,24 @@ public class NetworkHost extends Host {
 
 		// Sending packet to other VMs therefore packet is forwarded to a Edge switch
 		packetTosendLocal.clear();
+		NetworkFlowModel flowModel = ((NetworkDatacenter) getDatacenter()).getFlowModel();
+		if (flowModel != null) {
+			// or becomes a flow of the flow-level model, which delivers it to the Edge switch of the receiver
+			for (NetworkPacket hs : packetTosendGlobal) {
+				NetworkConstants.addDataTransfer(hs.pkt.data);
+			}
+			flowModel.startFlows(this, packetTosendGlobal);
+			packetTosendGlobal.clear();
+			return;
+		}
 		double avband = bandwidth / packetTosendGlobal.size();
+		NetworkMonitor monitor = ((NetworkDatacenter) getDatacenter()).getNetworkMonitor();
 		for (NetworkPacket hs : packetTosendGlobal) {
                     double delay = (1000 * hs.pkt.data) / avband;
-                    NetworkConstants.totaldatatransfer += hs.pkt.data;
+                    NetworkConstants.addDataTransfer(hs.pkt.data);
+                    if (monitor != null) {
+                            monitor.recordTransfer(NetworkMonitor.getHostKey(getId()), sw.getId(), hs.pkt.data, delay);
+                    }
 
                     CloudSim.send(getDatacenter().getId(), sw.getId(), delay, CloudSimTags.Network_Event_UP, hs);
                     // send to switch with delay
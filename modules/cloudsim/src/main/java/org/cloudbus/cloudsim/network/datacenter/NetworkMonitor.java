@@ -0,0 +1,634 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.WakeUpTimer;
+
+/**
+ * NetworkMonitor counts what crosses the links and the switches of a {@link NetworkDatacenter},
+ * so that the hot links and the bottleneck switches of a simulation can be found:
+ * <ul>
+ * <li>for every link, one way, the data and the packets sent over it and the time it has been
+ * busy, with a histogram of its utilization over the sampling intervals;</li>
+ * <li>for every switch, the data and the packets it has forwarded, the packets it has dropped for
+ * lack of a route, and the time-weighted average and the maximum number of packets waiting in its
+ * {@link Switch#uplinkswitchpktlist}, {@link Switch#downlinkswitchpktlist} and
+ * {@link Switch#packetTohost} queues.</li>
+ * </ul>
+ *
+ * <br/>The counters are sampled every interval, by a {@link WakeUpTimer} of the datacenter, into
+ * a time series of {@link Sample}s that can be exported with {@link #writeCsv(Writer)}. The
+ * sampling stops while nothing is in transit, so that it doesn't keep the simulation running, and
+ * the histograms only count the intervals with some activity in the network.
+ *
+ * <br/>A link is busy while a packet is being sent over it, for the delay of the hop. With the
+ * {@link NetworkFlowModel}, a flow is counted on the links of its path when it completes, as busy
+ * from its start: the part of it before the last sample only goes to the totals.
+ *
+ * @see NetworkDatacenter#setNetworkMonitor(NetworkMonitor)
+ * @since CloudSim Toolkit 5.0
+ */
+public class NetworkMonitor implements Serializable {
+
+	/** The number of buckets of the utilization histograms, the last one being for full use. */
+	public static final int HISTOGRAM_BUCKETS = 11;
+
+	/** The datacenter whose network is monitored. */
+	private final NetworkDatacenter dc;
+
+	/** The sampling interval. */
+	private final double interval;
+
+	/** The timer that wakes the datacenter up to take the samples. */
+	private final WakeUpTimer timer;
+
+	/** The links, in the order they were first used, by {@link #getLinkKey(int, int)}. */
+	private final Map<Long, LinkStats> links = new LinkedHashMap<Long, LinkStats>();
+
+	/** The switches, in the order they were first used, by id. */
+	private final Map<Integer, SwitchStats> switches = new LinkedHashMap<Integer, SwitchStats>();
+
+	/** The samples taken so far. */
+	private final List<Sample> samples = new ArrayList<Sample>();
+
+	/** The time of the last sample. */
+	private double lastSample;
+
+	/**
+	 * Creates a monitor for the network of a datacenter.
+	 *
+	 * @param dc the datacenter
+	 * @param interval the sampling interval
+	 */
+	public NetworkMonitor(NetworkDatacenter dc, double interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("The sampling interval has to be positive");
+		}
+		this.dc = dc;
+		this.interval = interval;
+		timer = new WakeUpTimer(dc, CloudSimTags.Network_Event_Sample);
+	}
+
+	/**
+	 * Takes note of a packet sent over a link, from now and for the given delay.
+	 *
+	 * @param from the id of the switch sending the packet, or the {@link #getHostKey(int)} of the
+	 *            host
+	 * @param to the id of the switch receiving the packet, or the {@link #getHostKey(int)} of the
+	 *            host
+	 * @param data the data of the packet
+	 * @param delay the time the packet takes over the link
+	 */
+	public void recordTransfer(int from, int to, double data, double delay) {
+		recordTransfer(from, to, data, CloudSim.clock(), CloudSim.clock() + delay);
+	}
+
+	/**
+	 * Takes note of data sent over a link during a period.
+	 *
+	 * @param from the id of the switch sending the data, or the {@link #getHostKey(int)} of the
+	 *            host
+	 * @param to the id of the switch receiving the data, or the {@link #getHostKey(int)} of the
+	 *            host
+	 * @param data the data
+	 * @param start the time the link starts being busy
+	 * @param end the time the link stops being busy
+	 */
+	public void recordTransfer(int from, int to, double data, double start, double end) {
+		Long key = getLinkKey(from, to);
+		LinkStats link = links.get(key);
+		if (link == null) {
+			link = new LinkStats(getNodeName(from) + "->" + getNodeName(to));
+			links.put(key, link);
+		}
+		link.data += data;
+		link.intervalData += data;
+		link.packets++;
+		link.intervalPackets++;
+		link.addBusyPeriod(Math.max(start, lastSample), end, end - start);
+
+		if (from >= 0) {
+			SwitchStats sw = getStats(from);
+			sw.data += data;
+			sw.intervalData += data;
+			sw.packets++;
+			sw.intervalPackets++;
+		}
+		requestSample();
+	}
+
+	/**
+	 * Takes note of the number of packets waiting in the queues of a switch, after they changed.
+	 *
+	 * @param sw the switch
+	 */
+	public void recordQueue(Switch sw) {
+		SwitchStats stats = getStats(sw.getId());
+		stats.advance(CloudSim.clock());
+		stats.queue = sw.getQueuedPacketCount();
+		stats.maxQueue = Math.max(stats.maxQueue, stats.queue);
+		stats.intervalMaxQueue = Math.max(stats.intervalMaxQueue, stats.queue);
+		if (stats.queue > 0) {
+			requestSample();
+		}
+	}
+
+	/**
+	 * Takes note of a packet a switch has dropped.
+	 *
+	 * @param sw the switch
+	 */
+	public void recordDrop(Switch sw) {
+		SwitchStats stats = getStats(sw.getId());
+		stats.drops++;
+		stats.intervalDrops++;
+		requestSample();
+	}
+
+	/**
+	 * Processes the wake-up event of the datacenter: takes a sample, and keeps sampling while there
+	 * are packets in transit.
+	 *
+	 * @param ev the event
+	 */
+	public void processEvent(SimEvent ev) {
+		timer.process(ev);
+		double time = CloudSim.clock();
+		double start = Math.max(lastSample, time - interval);
+		lastSample = time;
+
+		boolean active = false;
+		for (LinkStats link : links.values()) {
+			double busy = link.takeBusyTime(start, time);
+			if (link.intervalPackets > 0 || busy > 0) {
+				double utilization = busy / (time - start);
+				link.histogram[Math.min(HISTOGRAM_BUCKETS - 1, (int) (utilization * (HISTOGRAM_BUCKETS - 1)))]++;
+				samples.add(new Sample(time, link.name, link.intervalData, link.intervalPackets, utilization, 0, 0,
+						0));
+			}
+			active |= link.isBusyAfter(time);
+			link.intervalData = 0;
+			link.intervalPackets = 0;
+		}
+		for (Map.Entry<Integer, SwitchStats> entry : switches.entrySet()) {
+			SwitchStats sw = entry.getValue();
+			sw.advance(time);
+			if (sw.intervalPackets > 0 || sw.intervalQueueArea > 0 || sw.intervalDrops > 0) {
+				samples.add(new Sample(time, getNodeName(entry.getKey()), sw.intervalData, sw.intervalPackets, 0,
+						sw.intervalQueueArea / (time - start), sw.intervalMaxQueue, sw.intervalDrops));
+			}
+			active |= sw.queue > 0;
+			sw.intervalData = 0;
+			sw.intervalPackets = 0;
+			sw.intervalDrops = 0;
+			sw.intervalQueueArea = 0;
+			sw.intervalMaxQueue = sw.queue;
+		}
+
+		if (active) {
+			timer.schedule(interval);
+		}
+	}
+
+	/**
+	 * Gets the counters of a link.
+	 *
+	 * @param from the id of the switch the link starts from, or the {@link #getHostKey(int)} of
+	 *            the host
+	 * @param to the id of the switch the link ends to, or the {@link #getHostKey(int)} of the host
+	 * @return the counters, null if nothing has been sent over the link
+	 */
+	public LinkStats getLinkStats(int from, int to) {
+		return links.get(getLinkKey(from, to));
+	}
+
+	/**
+	 * Gets the counters of all the links used so far.
+	 *
+	 * @return the counters, in the order the links were first used
+	 */
+	public Collection<LinkStats> getLinkStats() {
+		return Collections.unmodifiableCollection(links.values());
+	}
+
+	/**
+	 * Gets the counters of a switch.
+	 *
+	 * @param switchId the id of the switch
+	 * @return the counters, null if the switch hasn't had any packet
+	 */
+	public SwitchStats getSwitchStats(int switchId) {
+		return switches.get(switchId);
+	}
+
+	/**
+	 * Gets the samples taken so far.
+	 *
+	 * @return the samples, by time
+	 */
+	public List<Sample> getSamples() {
+		return Collections.unmodifiableList(samples);
+	}
+
+	public double getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Writes the samples taken so far as comma-separated values, one line per link or switch
+	 * active in an interval, after a header line.
+	 *
+	 * @param out where to write
+	 * @throws IOException if the samples can't be written
+	 */
+	public void writeCsv(Writer out) throws IOException {
+		out.write("time,element,data,packets,utilization,queue_average,queue_max,drops\n");
+		for (Sample sample : samples) {
+			out.write(sample.getTime() + "," + sample.getElement() + "," + sample.getData() + ","
+					+ sample.getPackets() + "," + sample.getUtilization() + "," + sample.getQueueAverage() + ","
+					+ sample.getQueueMax() + "," + sample.getDrops() + "\n");
+		}
+		out.flush();
+	}
+
+	/**
+	 * Gets the key of a host among the nodes of the links, which can't be the id of a switch.
+	 *
+	 * @param hostId the id of the host
+	 * @return the key
+	 */
+	public static int getHostKey(int hostId) {
+		return -hostId - 1;
+	}
+
+	/**
+	 * Gets the key of a link.
+	 *
+	 * @param from the key of the node the link starts from
+	 * @param to the key of the node the link ends to
+	 * @return the key
+	 */
+	private static long getLinkKey(int from, int to) {
+		return ((long) from << 32) | (to & 0xffffffffL);
+	}
+
+	/**
+	 * Gets the name of a node: the name of the switch, or "host" and the id of the host.
+	 *
+	 * @param key the id of the switch or the key of the host
+	 * @return the name
+	 */
+	private String getNodeName(int key) {
+		if (key < 0) {
+			return "host" + (-key - 1);
+		}
+		Switch sw = dc.getRoutingTable().getSwitch(key);
+		return sw != null ? sw.getName() : "switch" + key;
+	}
+
+	/**
+	 * Gets the counters of a switch, creating them if needed.
+	 *
+	 * @param switchId the id of the switch
+	 * @return the counters
+	 */
+	private SwitchStats getStats(int switchId) {
+		SwitchStats stats = switches.get(switchId);
+		if (stats == null) {
+			stats = new SwitchStats(CloudSim.clock());
+			switches.put(switchId, stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Makes sure a sample is coming, at the end of the current interval.
+	 */
+	private void requestSample() {
+		if (!timer.isScheduled()) {
+			double time = CloudSim.clock();
+			timer.schedule((Math.floor(time / interval) + 1) * interval - time);
+		}
+	}
+
+	/**
+	 * The counters of a link, one way.
+	 */
+	public static class LinkStats implements Serializable {
+
+		/** The name of the link, from the name of its nodes. */
+		private final String name;
+
+		/** The utilization histogram, by tenth of utilization. */
+		private final int[] histogram = new int[HISTOGRAM_BUCKETS];
+
+		/** The periods the link is busy that haven't been sampled yet, as start, end pairs in order. */
+		private final List<double[]> busyPeriods = new ArrayList<double[]>();
+
+		private double data;
+
+		private long packets;
+
+		/** The sum of the durations of the transfers. */
+		private double transferTime;
+
+		/** The time the link has been busy, up to the last sample. */
+		private double busyTime;
+
+		private double intervalData;
+
+		private long intervalPackets;
+
+		private LinkStats(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Adds a period the link is busy, merging it with the ones it overlaps.
+		 *
+		 * @param start the start of the period
+		 * @param end the end of the period
+		 * @param duration the duration of the transfer, even before the last sample
+		 */
+		private void addBusyPeriod(double start, double end, double duration) {
+			transferTime += duration;
+			if (end <= start) {
+				return;
+			}
+			int i = 0;
+			while (i < busyPeriods.size() && busyPeriods.get(i)[1] < start) {
+				i++;
+			}
+			while (i < busyPeriods.size() && busyPeriods.get(i)[0] <= end) {
+				double[] period = busyPeriods.remove(i);
+				start = Math.min(start, period[0]);
+				end = Math.max(end, period[1]);
+			}
+			busyPeriods.add(i, new double[] {start, end});
+		}
+
+		/**
+		 * Takes the time the link has been busy during an interval, and forgets the periods before
+		 * its end.
+		 *
+		 * @param start the start of the interval
+		 * @param end the end of the interval
+		 * @return the time the link has been busy
+		 */
+		private double takeBusyTime(double start, double end) {
+			double busy = 0;
+			while (!busyPeriods.isEmpty() && busyPeriods.get(0)[0] < end) {
+				double[] period = busyPeriods.get(0);
+				busy += Math.max(0, Math.min(period[1], end) - Math.max(period[0], start));
+				if (period[1] <= end) {
+					busyPeriods.remove(0);
+				} else {
+					period[0] = end;
+					break;
+				}
+			}
+			busyTime += busy;
+			return busy;
+		}
+
+		/**
+		 * Checks whether the link is still busy after a time.
+		 *
+		 * @param time the time
+		 * @return true if the link is busy
+		 */
+		private boolean isBusyAfter(double time) {
+			return !busyPeriods.isEmpty() && busyPeriods.get(busyPeriods.size() - 1)[1] > time;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public double getData() {
+			return data;
+		}
+
+		public long getPackets() {
+			return packets;
+		}
+
+		/**
+		 * Gets the time the link has been busy, in the intervals sampled so far.
+		 *
+		 * @return the busy time
+		 */
+		public double getBusyTime() {
+			return busyTime;
+		}
+
+		/**
+		 * Gets the sum of the times the transfers over the link took, which is larger than the
+		 * busy time when the transfers share the link.
+		 *
+		 * @return the transfer time
+		 */
+		public double getTransferTime() {
+			return transferTime;
+		}
+
+		/**
+		 * Gets the utilization histogram: the number of sampling intervals in which the link was
+		 * used 0 to 10%, 10 to 20%, ... 90 to 100%, and fully.
+		 *
+		 * @return the histogram
+		 */
+		public int[] getHistogram() {
+			return histogram.clone();
+		}
+
+	}
+
+	/**
+	 * The counters of a switch.
+	 */
+	public static class SwitchStats implements Serializable {
+
+		private double data;
+
+		private long packets;
+
+		private int drops;
+
+		/** The number of packets in the queues. */
+		private int queue;
+
+		private int maxQueue;
+
+		/** The integral of the number of packets in the queues over time. */
+		private double queueArea;
+
+		/** The time the switch started being monitored. */
+		private final double startTime;
+
+		/** The time {@link #queueArea} refers to. */
+		private double lastChange;
+
+		private double intervalData;
+
+		private long intervalPackets;
+
+		private int intervalDrops;
+
+		private double intervalQueueArea;
+
+		private int intervalMaxQueue;
+
+		private SwitchStats(double startTime) {
+			this.startTime = startTime;
+			lastChange = startTime;
+		}
+
+		/**
+		 * Adds the packets in the queues to the integrals, up to a time.
+		 *
+		 * @param time the time
+		 */
+		private void advance(double time) {
+			double area = queue * Math.max(0, time - lastChange);
+			queueArea += area;
+			intervalQueueArea += area;
+			lastChange = Math.max(lastChange, time);
+		}
+
+		public double getData() {
+			return data;
+		}
+
+		public long getPackets() {
+			return packets;
+		}
+
+		public int getDrops() {
+			return drops;
+		}
+
+		public int getMaxQueue() {
+			return maxQueue;
+		}
+
+		/**
+		 * Gets the time-weighted average number of packets in the queues, from the first packet of
+		 * the switch to the last change of its queues.
+		 *
+		 * @return the average
+		 */
+		public double getAverageQueue() {
+			return lastChange > startTime ? queueArea / (lastChange - startTime) : 0;
+		}
+
+	}
+
+	/**
+	 * The activity of a link or a switch during a sampling interval.
+	 */
+	public static class Sample implements Serializable {
+
+		private final double time;
+
+		private final String element;
+
+		private final double data;
+
+		private final long packets;
+
+		private final double utilization;
+
+		private final double queueAverage;
+
+		private final int queueMax;
+
+		private final int drops;
+
+		private Sample(double time, String element, double data, long packets, double utilization,
+				double queueAverage, int queueMax, int drops) {
+			this.time = time;
+			this.element = element;
+			this.data = data;
+			this.packets = packets;
+			this.utilization = utilization;
+			this.queueAverage = queueAverage;
+			this.queueMax = queueMax;
+			this.drops = drops;
+		}
+
+		/**
+		 * Gets the time at the end of the interval.
+		 *
+		 * @return the time
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		/**
+		 * Gets the name of the link or of the switch.
+		 *
+		 * @return the name
+		 */
+		public String getElement() {
+			return element;
+		}
+
+		public double getData() {
+			return data;
+		}
+
+		public long getPackets() {
+			return packets;
+		}
+
+		/**
+		 * Gets the share of the interval the link was busy, 0 for a switch.
+		 *
+		 * @return the utilization
+		 */
+		public double getUtilization() {
+			return utilization;
+		}
+
+		/**
+		 * Gets the time-weighted average number of packets in the queues of the switch, 0 for a
+		 * link.
+		 *
+		 * @return the average
+		 */
+		public double getQueueAverage() {
+			return queueAverage;
+		}
+
+		public int getQueueMax() {
+			return queueMax;
+		}
+
+		public int getDrops() {
+			return drops;
+		}
+
+	}
+
+}
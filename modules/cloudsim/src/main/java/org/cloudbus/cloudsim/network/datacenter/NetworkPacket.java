@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
 /**
  * NewtorkPacket represents the packet which travel from one server to another. Each packet contains
  * IDs of the sender and receiver VM which are communicating, time at which it is sent and received, 
@@ -24,7 +26,7 @@ package org.cloudbus.cloudsim.network.datacenter;
  * @since CloudSim Toolkit 1.0
  * @todo Attributes should be private
  */
-public class NetworkPacket {
+public class NetworkPacket implements Serializable {
     /**
      * Information about the virtual send and receiver entities of the packet.
      */
@@ -66,20 +66,14 @@ public class RootSwitch extends Switch {
 
 		if (level == NetworkConstants.ROOT_LEVEL) {
 			// get id of edge router
-			int edgeswitchid = dc.VmToSwitchid.get(recvVMid);
+			int edgeswitchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
 			// search which aggregate switch has it
-			int aggSwtichid = -1;
-			;
-			for (Switch sw : downlinkswitches) {
-				for (Switch edge : sw.downlinkswitches) {
-					if (edge.getId() == edgeswitchid) {
-						aggSwtichid = sw.getId();
-						break;
-					}
-				}
-			}
+			int aggSwtichid = dc.getRoutingTable().getDownlinkSwitchId(getId(), edgeswitchid);
 			if (aggSwtichid < 0) {
 				System.out.println(" No destination for this packet");
+				if (getMonitor() != null) {
+					getMonitor().recordDrop(this);
+				}
 			} else {
 				List<NetworkPacket> pktlist = downlinkswitchpktlist.get(aggSwtichid);
 				if (pktlist == null) {
@@ -0,0 +1,317 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * RoutingTable keeps where the VMs and the switches of a {@link NetworkDatacenter} are, so that
+ * the hosts and the switches find where to forward a packet without scanning lists or boxing ids:
+ * the host and the edge switch of every VM, and, for every switch, the downlink switch through
+ * which every edge switch below it is reached.
+ *
+ * <br/>A switch with several uplinks, as in a fat-tree or a leaf-spine fabric, sends the packets
+ * up through one of them chosen by ECMP: either by hashing the flow of the packet, so that all the
+ * packets between two cloudlets take the same path, or in turn, packet by packet.
+ *
+ * <br/>The tables are arrays indexed by id, as the ids of the VMs, hosts and switches are small
+ * and dense. The VMs are added when they are created or migrated; the downlink switches are
+ * computed the first time a switch is asked for them, when the network has been built.
+ *
+ * @see NetworkDatacenter#getRoutingTable()
+ * @see FabricBuilder
+ * @since CloudSim Toolkit 5.0
+ */
+public class RoutingTable implements Serializable {
+
+	/**
+	 * ECMP mode: the uplink is chosen by hashing the sender and receiver VMs and cloudlets of
+	 * the packet.
+	 */
+	public static final int ECMP_PER_FLOW = 0;
+
+	/** ECMP mode: the uplinks are used in turn, packet by packet. */
+	public static final int ECMP_PER_PACKET = 1;
+
+	/** The ECMP mode. */
+	private int ecmpMode = ECMP_PER_FLOW;
+
+	/** The uplink every switch uses next in {@link #ECMP_PER_PACKET} mode, by switch id. */
+	private int[] nextUplinks = new int[16];
+
+	/** The VMs, by id. */
+	private Vm[] vms = new Vm[16];
+
+	/** The host of every VM, by VM id. */
+	private NetworkHost[] hosts = new NetworkHost[16];
+
+	/** The edge switch of every host, by host id, -1 if there is none. */
+	private int[] edgeSwitches = newTable(16);
+
+	/** The switches, by id. */
+	private Switch[] switches = new Switch[16];
+
+	/**
+	 * The downlink switch of every switch through which every edge switch is reached, by switch
+	 * id and edge switch id, -1 if the edge switch is not below the switch.
+	 */
+	private int[][] downlinks = new int[16][];
+
+	/**
+	 * Adds a VM, or moves it to another host.
+	 *
+	 * @param vm the VM
+	 * @param host the host the VM is on
+	 */
+	public void addVm(Vm vm, NetworkHost host) {
+		int id = vm.getId();
+		if (id >= vms.length) {
+			int length = Math.max(id + 1, vms.length * 2);
+			vms = Arrays.copyOf(vms, length);
+			hosts = Arrays.copyOf(hosts, length);
+		}
+		vms[id] = vm;
+		hosts[id] = host;
+
+		int hostId = host.getId();
+		if (hostId >= edgeSwitches.length) {
+			int length = Math.max(hostId + 1, edgeSwitches.length * 2);
+			int[] table = newTable(length);
+			System.arraycopy(edgeSwitches, 0, table, 0, edgeSwitches.length);
+			edgeSwitches = table;
+		}
+		edgeSwitches[hostId] = host.sw != null ? host.sw.getId() : -1;
+	}
+
+	/**
+	 * Adds a switch. The downlink switches computed so far are dropped, as the network is changing.
+	 *
+	 * @param sw the switch
+	 */
+	public void addSwitch(Switch sw) {
+		int id = sw.getId();
+		if (id >= switches.length) {
+			int length = Math.max(id + 1, switches.length * 2);
+			switches = Arrays.copyOf(switches, length);
+		}
+		switches[id] = sw;
+		downlinks = new int[switches.length][];
+		if (nextUplinks.length < switches.length) {
+			nextUplinks = Arrays.copyOf(nextUplinks, switches.length);
+		}
+	}
+
+	/**
+	 * Gets a VM.
+	 *
+	 * @param vmId the id of the VM
+	 * @return the VM, null if it has not been added
+	 */
+	public Vm getVm(int vmId) {
+		return vmId >= 0 && vmId < vms.length ? vms[vmId] : null;
+	}
+
+	/**
+	 * Gets the host of a VM.
+	 *
+	 * @param vmId the id of the VM
+	 * @return the host, null if the VM has not been added
+	 */
+	public NetworkHost getHost(int vmId) {
+		return vmId >= 0 && vmId < hosts.length ? hosts[vmId] : null;
+	}
+
+	/**
+	 * Gets the id of the host of a VM.
+	 *
+	 * @param vmId the id of the VM
+	 * @return the id of the host, -1 if the VM has not been added
+	 */
+	public int getHostId(int vmId) {
+		NetworkHost host = getHost(vmId);
+		return host != null ? host.getId() : -1;
+	}
+
+	/**
+	 * Gets the id of the edge switch of a VM.
+	 *
+	 * @param vmId the id of the VM
+	 * @return the id of the edge switch, -1 if the VM has not been added
+	 */
+	public int getEdgeSwitchId(int vmId) {
+		NetworkHost host = getHost(vmId);
+		return host != null ? getHostEdgeSwitchId(host.getId()) : -1;
+	}
+
+	/**
+	 * Gets the id of the edge switch of a host.
+	 *
+	 * @param hostId the id of the host
+	 * @return the id of the edge switch, -1 if no VM has been added to the host
+	 */
+	public int getHostEdgeSwitchId(int hostId) {
+		return hostId >= 0 && hostId < edgeSwitches.length ? edgeSwitches[hostId] : -1;
+	}
+
+	/**
+	 * Gets a switch.
+	 *
+	 * @param switchId the id of the switch
+	 * @return the switch, null if it has not been added
+	 */
+	public Switch getSwitch(int switchId) {
+		return switchId >= 0 && switchId < switches.length ? switches[switchId] : null;
+	}
+
+	/**
+	 * Gets the id of the first uplink switch of a switch.
+	 *
+	 * @param switchId the id of the switch
+	 * @return the id of the uplink switch, -1 if there is none
+	 */
+	public int getUplinkSwitchId(int switchId) {
+		Switch sw = getSwitch(switchId);
+		if (sw == null || sw.uplinkswitches == null || sw.uplinkswitches.isEmpty()) {
+			return -1;
+		}
+		return sw.uplinkswitches.get(0).getId();
+	}
+
+	/**
+	 * Chooses the uplink switch a switch sends a packet through, by ECMP if it has several.
+	 *
+	 * @param switchId the id of the switch
+	 * @param packet the packet
+	 * @return the id of the uplink switch, -1 if there is none
+	 */
+	public int getUplinkSwitchId(int switchId, NetworkPacket packet) {
+		Switch sw = getSwitch(switchId);
+		if (sw == null || sw.uplinkswitches == null || sw.uplinkswitches.isEmpty()) {
+			return -1;
+		}
+		int count = sw.uplinkswitches.size();
+		if (count == 1) {
+			return sw.uplinkswitches.get(0).getId();
+		}
+
+		int index;
+		if (ecmpMode == ECMP_PER_PACKET) {
+			index = nextUplinks[switchId];
+			nextUplinks[switchId] = (index + 1) % count;
+		} else {
+			HostPacket pkt = packet.pkt;
+			int hash = pkt.sender;
+			hash = 31 * hash + pkt.reciever;
+			hash = 31 * hash + pkt.virtualsendid;
+			hash = 31 * hash + pkt.virtualrecvid;
+			// mixed with the switch id, so that the switches of a level don't all take the same choice
+			index = (mix(hash ^ mix(switchId)) & Integer.MAX_VALUE) % count;
+		}
+		return sw.uplinkswitches.get(index).getId();
+	}
+
+	/**
+	 * Gets the id of the downlink switch of a switch through which an edge switch is reached.
+	 *
+	 * @param switchId the id of the switch
+	 * @param edgeId the id of the edge switch
+	 * @return the id of the downlink switch, -1 if the edge switch is not below the switch
+	 */
+	public int getDownlinkSwitchId(int switchId, int edgeId) {
+		if (switchId < 0 || switchId >= switches.length || edgeId < 0 || edgeId >= switches.length) {
+			return -1;
+		}
+		int[] table = downlinks[switchId];
+		if (table == null) {
+			table = newTable(switches.length);
+			Switch sw = switches[switchId];
+			if (sw != null && sw.downlinkswitches != null) {
+				for (Switch down : sw.downlinkswitches) {
+					addDownlink(table, down, down.getId());
+				}
+			}
+			downlinks[switchId] = table;
+		}
+		return table[edgeId];
+	}
+
+	/**
+	 * Takes note of the edge switches reached through a downlink switch, the first downlink that
+	 * reaches an edge switch is the one kept.
+	 *
+	 * @param table the downlink switches of a switch, by edge switch id
+	 * @param sw a switch below the downlink
+	 * @param downlinkId the id of the downlink switch
+	 */
+	private static void addDownlink(int[] table, Switch sw, int downlinkId) {
+		if (sw.level == NetworkConstants.EDGE_LEVEL) {
+			if (sw.getId() < table.length && table[sw.getId()] < 0) {
+				table[sw.getId()] = downlinkId;
+			}
+			return;
+		}
+		if (sw.downlinkswitches != null) {
+			for (Switch down : sw.downlinkswitches) {
+				addDownlink(table, down, downlinkId);
+			}
+		}
+	}
+
+	/**
+	 * Gets how a switch with several uplinks chooses the one to send a packet through.
+	 *
+	 * @return {@link #ECMP_PER_FLOW} or {@link #ECMP_PER_PACKET}
+	 */
+	public int getEcmpMode() {
+		return ecmpMode;
+	}
+
+	/**
+	 * Sets how a switch with several uplinks chooses the one to send a packet through.
+	 *
+	 * @param ecmpMode {@link #ECMP_PER_FLOW} or {@link #ECMP_PER_PACKET}
+	 */
+	public void setEcmpMode(int ecmpMode) {
+		if (ecmpMode != ECMP_PER_FLOW && ecmpMode != ECMP_PER_PACKET) {
+			throw new IllegalArgumentException("Unknown ECMP mode " + ecmpMode);
+		}
+		this.ecmpMode = ecmpMode;
+	}
+
+	/**
+	 * Mixes the bits of a hash, as the finalizer of MurmurHash3 does.
+	 *
+	 * @param hash the hash
+	 * @return the mixed hash
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * Creates a table with no entries.
+	 *
+	 * @param length the length of the table
+	 * @return the table, filled with -1
+	 */
+	private static int[] newTable(int length) {
+		int[] table = new int[length];
+		Arrays.fill(table, -1);
+		return table;
+	}
+
+}
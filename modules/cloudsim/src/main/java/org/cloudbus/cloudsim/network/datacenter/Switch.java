@@ -9,6 +9,7 @@
 package org.cloudbus.cloudsim.network.datacenter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -24,7 +25,6 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.core.predicates.PredicateType;
-import org.cloudbus.cloudsim.lists.VmList;
 
 /**
  * Represents a Network Switch.
@@ -156,6 +156,9 @@ public class Switch extends SimEntity {
 		super(name);
 		this.level = level;
 		this.dc = dc;
+		if (dc != null) {
+			dc.getRoutingTable().addSwitch(this);
+		}
 	}
 
 	@Override
@@ -191,7 +194,10 @@ public class Switch extends SimEntity {
 			// other unknown tags are processed by this method
 			default:
 				processOtherEvent(ev);
-				break;
+				return;
+		}
+		if (getMonitor() != null) {
+			getMonitor().recordQueue(this);
 		}
 	}
 
@@ -202,7 +208,7 @@ public class Switch extends SimEntity {
 	protected void processhostpacket(SimEvent ev) {
 		// Send packet to host
 		NetworkPacket hspkt = (NetworkPacket) ev.getData();
-		NetworkHost hs = hostlist.get(hspkt.recieverhostid);
+		NetworkHost hs = dc.getRoutingTable().getHost(hspkt.pkt.reciever);
 		hs.packetrecieved.add(hspkt);
 	}
 
@@ -224,7 +230,7 @@ public class Switch extends SimEntity {
 		schedule(getId(), latency, CloudSimTags.Network_Event_send);
 		if (level == NetworkConstants.EDGE_LEVEL) {
 			// packet is to be recieved by host
-			int hostid = dc.VmtoHostlist.get(recvVMid);
+			int hostid = dc.getRoutingTable().getHostId(recvVMid);
 			hspkt.recieverhostid = hostid;
 			List<NetworkPacket> pktlist = packetTohost.get(hostid);
 			if (pktlist == null) {
@@ -237,7 +243,7 @@ public class Switch extends SimEntity {
 		if (level == NetworkConstants.Agg_LEVEL) {
 			// packet is coming from root so need to be sent to edgelevel swich
 			// find the id for edgelevel switch
-			int switchid = dc.VmToSwitchid.get(recvVMid);
+			int switchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
 			List<NetworkPacket> pktlist = downlinkswitchpktlist.get(switchid);
 			if (pktlist == null) {
 				pktlist = new ArrayList<NetworkPacket>();
@@ -270,10 +276,10 @@ public class Switch extends SimEntity {
 			// packet is to be sent to aggregate level or to another host in the
 			// same level
 
-			int hostid = dc.VmtoHostlist.get(recvVMid);
-			NetworkHost hs = hostlist.get(hostid);
+			NetworkHost hs = dc.getRoutingTable().getHost(recvVMid);
+			int hostid = hs.getId();
 			hspkt.recieverhostid = hostid;
-			if (hs != null) {
+			if (hs.sw == this) {
 				// packet to be sent to host connected to the switch
 				List<NetworkPacket> pktlist = packetTohost.get(hostid);
 				if (pktlist == null) {
@@ -285,13 +291,13 @@ public class Switch extends SimEntity {
 
 			}
 			// packet is to be sent to upper switch
-			// ASSUMPTION EACH EDGE is Connected to one aggregate level switch
+			// through one of the aggregate level switches, chosen by ECMP if there are more than one
 
-			Switch sw = uplinkswitches.get(0);
-			List<NetworkPacket> pktlist = uplinkswitchpktlist.get(sw.getId());
+			int uplinkid = dc.getRoutingTable().getUplinkSwitchId(getId(), hspkt);
+			List<NetworkPacket> pktlist = uplinkswitchpktlist.get(uplinkid);
 			if (pktlist == null) {
 				pktlist = new ArrayList<NetworkPacket>();
-				uplinkswitchpktlist.put(sw.getId(), pktlist);
+				uplinkswitchpktlist.put(uplinkid, pktlist);
 			}
 			pktlist.add(hspkt);
 			return;
@@ -300,14 +306,8 @@ public class Switch extends SimEntity {
 			// packet is coming from edge level router so need to be sent to
 			// either root or another edge level swich
 			// find the id for edgelevel switch
-			int switchid = dc.VmToSwitchid.get(recvVMid);
-			boolean flagtoswtich = false;
-			for (Switch sw : downlinkswitches) {
-				if (switchid == sw.getId()) {
-					flagtoswtich = true;
-				}
-			}
-			if (flagtoswtich) {
+			int switchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
+			if (dc.getRoutingTable().getDownlinkSwitchId(getId(), switchid) == switchid) {
 				List<NetworkPacket> pktlist = downlinkswitchpktlist.get(switchid);
 				if (pktlist == null) {
 					pktlist = new ArrayList<NetworkPacket>();
@@ -316,31 +316,25 @@ public class Switch extends SimEntity {
 				pktlist.add(hspkt);
 			} else// send to up
 			{
-				Switch sw = uplinkswitches.get(0);
-				List<NetworkPacket> pktlist = uplinkswitchpktlist.get(sw.getId());
+				int uplinkid = dc.getRoutingTable().getUplinkSwitchId(getId(), hspkt);
+				List<NetworkPacket> pktlist = uplinkswitchpktlist.get(uplinkid);
 				if (pktlist == null) {
 					pktlist = new ArrayList<NetworkPacket>();
-					uplinkswitchpktlist.put(sw.getId(), pktlist);
+					uplinkswitchpktlist.put(uplinkid, pktlist);
 				}
 				pktlist.add(hspkt);
 			}
 		}
 		if (level == NetworkConstants.ROOT_LEVEL) {
 			// get id of edge router
-			int edgeswitchid = dc.VmToSwitchid.get(recvVMid);
+			int edgeswitchid = dc.getRoutingTable().getEdgeSwitchId(recvVMid);
 			// search which aggregate switch has it
-			int aggSwtichid = -1;
-			;
-			for (Switch sw : downlinkswitches) {
-				for (Switch edge : sw.downlinkswitches) {
-					if (edge.getId() == edgeswitchid) {
-						aggSwtichid = sw.getId();
-						break;
-					}
-				}
-			}
+			int aggSwtichid = dc.getRoutingTable().getDownlinkSwitchId(getId(), edgeswitchid);
 			if (aggSwtichid < 0) {
 				System.out.println(" No destination for this packet");
+				if (getMonitor() != null) {
+					getMonitor().recordDrop(this);
+				}
 			} else {
 				List<NetworkPacket> pktlist = downlinkswitchpktlist.get(aggSwtichid);
 				if (pktlist == null) {
@@ -395,6 +389,7 @@ public class Switch extends SimEntity {
 	 */
 	protected void processpacketforward(SimEvent ev) {
 		// search for the host and packets..send to them
+		NetworkMonitor monitor = getMonitor();
 		if (downlinkswitchpktlist != null) {
 			for (Entry<Integer, List<NetworkPacket>> es : downlinkswitchpktlist.entrySet()) {
 				int tosend = es.getKey();
@@ -405,6 +400,9 @@ public class Switch extends SimEntity {
 					while (it.hasNext()) {
 						NetworkPacket hspkt = it.next();
 						double delay = 1000 * hspkt.pkt.data / avband;
+						if (monitor != null) {
+							monitor.recordTransfer(getId(), tosend, hspkt.pkt.data, delay);
+						}
 
 						this.send(tosend, delay, CloudSimTags.Network_Event_DOWN, hspkt);
 					}
@@ -422,6 +420,9 @@ public class Switch extends SimEntity {
 					while (it.hasNext()) {
 						NetworkPacket hspkt = it.next();
 						double delay = 1000 * hspkt.pkt.data / avband;
+						if (monitor != null) {
+							monitor.recordTransfer(getId(), tosend, hspkt.pkt.data, delay);
+						}
 
 						this.send(tosend, delay, CloudSimTags.Network_Event_UP, hspkt);
 					}
@@ -439,6 +440,10 @@ public class Switch extends SimEntity {
 						NetworkPacket hspkt = it.next();
 						// hspkt.recieverhostid=tosend;
 						// hs.packetrecieved.add(hspkt);
+						if (monitor != null) {
+							monitor.recordTransfer(getId(), NetworkMonitor.getHostKey(es.getKey()), hspkt.pkt.data,
+									hspkt.pkt.data / avband);
+						}
 						this.send(getId(), hspkt.pkt.data / avband, CloudSimTags.Network_Event_Host, hspkt);
 					}
 					hspktlist.clear();
@@ -451,19 +456,42 @@ public class Switch extends SimEntity {
 
 	}
 
+	/**
+	 * Gets the number of packets waiting in the queues of the switch, to the uplink switches,
+	 * to the downlink switches and to the hosts.
+	 * 
+	 * @return the number of packets
+	 */
+	public int getQueuedPacketCount() {
+		int count = 0;
+		for (Map<Integer, List<NetworkPacket>> queues : Arrays.asList(uplinkswitchpktlist, downlinkswitchpktlist,
+				packetTohost)) {
+			if (queues != null) {
+				for (List<NetworkPacket> queue : queues.values()) {
+					count += queue.size();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the monitor of the network of the datacenter.
+	 * 
+	 * @return the monitor, null if the network is not monitored
+	 */
+	protected NetworkMonitor getMonitor() {
+		return dc != null ? dc.getNetworkMonitor() : null;
+	}
+
         /**
          * Gets the host of a given VM.
          * @param vmid The id of the VM
          * @return the host of the VM
          */
 	protected NetworkHost getHostwithVM(int vmid) {
-		for (Entry<Integer, NetworkHost> es : hostlist.entrySet()) {
-			Vm vm = VmList.getById(es.getValue().getVmList(), vmid);
-			if (vm != null) {
-				return es.getValue();
-			}
-		}
-		return null;
+		NetworkHost host = dc.getRoutingTable().getHost(vmid);
+		return host != null && host.sw == this ? host : null;
 	}
 
         /**
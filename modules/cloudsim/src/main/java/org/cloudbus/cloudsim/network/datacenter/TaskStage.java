@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
 /**
  * TaskStage represents various stages a {@link NetworkCloudlet} can have during execution. 
  * Four stage types which are possible: {@link NetworkConstants#EXECUTION}, 
@@ -25,7 +27,7 @@ package org.cloudbus.cloudsim.network.datacenter;
  * @since CloudSim Toolkit 1.0
  * @todo Attributes should be defined as private.
  */
-public class TaskStage {
+public class TaskStage implements Serializable {
 	int vpeer;
 
         /**
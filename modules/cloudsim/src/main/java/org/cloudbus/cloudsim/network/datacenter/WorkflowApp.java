@@ -56,7 +56,7 @@ public class WorkflowApp extends AppCloudlet {
 		int i = 0;
 		// Task A
 		NetworkCloudlet cl = new NetworkCloudlet(
-				NetworkConstants.currentCloudletId,
+				NetworkConstants.nextCloudletId(),
 				0,
 				1,
 				fileSize,
@@ -66,7 +66,6 @@ public class WorkflowApp extends AppCloudlet {
 				utilizationModel,
 				utilizationModel);
 		cl.numStage = 2;
-		NetworkConstants.currentCloudletId++;
 		cl.setUserId(userId);
 		cl.submittime = CloudSim.clock();
 		cl.currStagenum = -1;
@@ -81,7 +80,7 @@ public class WorkflowApp extends AppCloudlet {
 		i++;
 		// Task B
 		NetworkCloudlet clb = new NetworkCloudlet(
-				NetworkConstants.currentCloudletId,
+				NetworkConstants.nextCloudletId(),
 				0,
 				1,
 				fileSize,
@@ -91,7 +90,6 @@ public class WorkflowApp extends AppCloudlet {
 				utilizationModel,
 				utilizationModel);
 		clb.numStage = 2;
-		NetworkConstants.currentCloudletId++;
 		clb.setUserId(userId);
 		clb.submittime = CloudSim.clock();
 		clb.currStagenum = -1;
@@ -114,7 +112,7 @@ public class WorkflowApp extends AppCloudlet {
 
 		// Task C
 		NetworkCloudlet clc = new NetworkCloudlet(
-				NetworkConstants.currentCloudletId,
+				NetworkConstants.nextCloudletId(),
 				0,
 				1,
 				fileSize,
@@ -124,7 +122,6 @@ public class WorkflowApp extends AppCloudlet {
 				utilizationModel,
 				utilizationModel);
 		clc.numStage = 2;
-		NetworkConstants.currentCloudletId++;
 		clc.setUserId(userId);
 		clc.submittime = CloudSim.clock();
 		clc.currStagenum = -1;
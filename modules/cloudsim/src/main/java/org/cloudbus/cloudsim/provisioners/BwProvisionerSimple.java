@@ -25,6 +25,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class BwProvisionerSimple extends BwProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The BW map, where each key is a VM id and each value
          * is the amount of BW allocated to that VM. */
 	private Map<String, Long> bwTable;
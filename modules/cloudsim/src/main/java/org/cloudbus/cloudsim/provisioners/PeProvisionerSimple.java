@@ -26,6 +26,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class PeProvisionerSimple extends PeProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The PE map, where each key is a VM id and each value
          * is the list of PEs (in terms of their amount of MIPS) 
          * allocated to that VM. */
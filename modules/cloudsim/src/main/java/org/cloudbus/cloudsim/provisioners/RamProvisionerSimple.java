@@ -24,6 +24,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class RamProvisionerSimple extends RamProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The RAM map, where each key is a VM id and each value
          * is the amount of RAM allocated to that VM. */
 	private Map<String, Integer> ramTable;
@@ -0,0 +1,129 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HarddriveStorageTest {
+
+	private static final double CAPACITY = 100000;
+
+	private static final double RATE = 133;
+
+	private HarddriveStorage storage;
+
+	@Before
+	public void setUp() throws Exception {
+		// files take their creation time from the simulation calendar
+		CloudSim.init(1, Calendar.getInstance(), false);
+		storage = new HarddriveStorage("HDD", CAPACITY);
+	}
+
+	@Test
+	public void testAddFile() throws Exception {
+		File file = new File("a", 100);
+		double expected = 100 / CAPACITY + 100 * RATE / CAPACITY;
+		assertEquals(expected, storage.addFile(file), 0);
+		assertEquals(expected, file.getTransactionTime(), 0);
+		assertTrue(storage.contains("a"));
+		assertEquals(100, storage.getCurrentSize(), 0);
+
+		// a file with the same name is not added again
+		assertEquals(0, storage.addFile(new File("a", 200)), 0);
+		assertEquals(1, storage.getNumStoredFile());
+		assertEquals(100, storage.getCurrentSize(), 0);
+	}
+
+	@Test
+	public void testGetFileSeekOffset() throws Exception {
+		storage.addFile(new File("a", 100));
+		storage.addFile(new File("b", 200));
+		storage.addFile(new File("c", 300));
+
+		// the seek offset is the size of all the files stored up to the requested one
+		File file = storage.getFile("b");
+		assertEquals(300 / CAPACITY + 200 * RATE / CAPACITY, file.getTransactionTime(), 0);
+		file = storage.getFile("c");
+		assertEquals(600 / CAPACITY + 300 * RATE / CAPACITY, file.getTransactionTime(), 0);
+		assertNull(storage.getFile("d"));
+	}
+
+	@Test
+	public void testDeleteFile() throws Exception {
+		storage.addFile(new File("a", 100));
+		storage.addFile(new File("b", 200));
+		storage.addFile(new File("c", 300));
+
+		File deleted = storage.deleteFile("a");
+		assertEquals("a", deleted.getName());
+		assertFalse(storage.contains("a"));
+		assertNull(storage.deleteFile("a"));
+		assertEquals(500, storage.getCurrentSize(), 0);
+
+		// the deleted file no longer counts in the offset of the following ones
+		File file = storage.getFile("c");
+		assertEquals(500 / CAPACITY + 300 * RATE / CAPACITY, file.getTransactionTime(), 0);
+
+		// a new file goes after all the others
+		storage.addFile(new File("a", 400));
+		file = storage.getFile("a");
+		assertEquals(900 / CAPACITY + 400 * RATE / CAPACITY, file.getTransactionTime(), 0);
+	}
+
+	@Test
+	public void testManyFiles() throws Exception {
+		int count = 1000;
+		for (int i = 0; i < count; i++) {
+			storage.addFile(new File("f" + i, i % 7 + 1));
+		}
+		for (int i = 0; i < count; i += 3) {
+			storage.deleteFile("f" + i);
+		}
+
+		long offset = 0;
+		for (int i = 0; i < count; i++) {
+			if (i % 3 == 0) {
+				assertFalse(storage.contains("f" + i));
+				continue;
+			}
+			int size = i % 7 + 1;
+			offset += size;
+			File file = storage.getFile("f" + i);
+			assertEquals(offset / CAPACITY + size * RATE / CAPACITY, file.getTransactionTime(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testRenameFile() throws Exception {
+		File a = new File("a", 100);
+		storage.addFile(a);
+		storage.addFile(new File("b", 200));
+
+		assertFalse(storage.renameFile(a, "b"));
+		assertTrue(storage.renameFile(a, "z"));
+		assertFalse(storage.contains("a"));
+		assertTrue(storage.getFileNameList().contains("z"));
+		assertFalse(storage.getFileNameList().contains("a"));
+
+		// the renamed file keeps its place on the disk
+		assertSame(a, storage.getFile("z"));
+		assertEquals(100 / CAPACITY + 100 * RATE / CAPACITY, a.getTransactionTime(), 0);
+	}
+
+}
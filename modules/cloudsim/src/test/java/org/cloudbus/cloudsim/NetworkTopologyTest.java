@@ -0,0 +1,103 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.junit.Test;
+
+public class NetworkTopologyTest {
+
+	private static final int NODES = 40;
+
+	private static final double DELTA = 1e-4;
+
+	@Test
+	public void testAddLinks() throws Exception {
+		new Simulation().execute(new Callable<Void>() {
+
+			@Override
+			public Void call() throws Exception {
+				NetworkTopology.addLink(1, 2, 100, 1);
+				NetworkTopology.addLink(2, 3, 100, 1);
+				assertTrue(NetworkTopology.isNetworkEnabled());
+				assertEquals(2, NetworkTopology.getDelay(1, 3), DELTA);
+
+				// the delays are updated by the shorter link, and to the new node
+				NetworkTopology.addLink(1, 3, 100, 0.5);
+				assertEquals(0.5, NetworkTopology.getDelay(1, 3), DELTA);
+				assertEquals(1, NetworkTopology.getDelay(2, 3), DELTA);
+				NetworkTopology.addLink(3, 4, 100, 1);
+				assertEquals(1.5, NetworkTopology.getDelay(1, 4), DELTA);
+				assertEquals(2, NetworkTopology.getPath(1, 4).size());
+
+				// a second link between two nodes replaces the first one
+				NetworkTopology.addLink(1, 2, 100, 5);
+				assertEquals(1.5, NetworkTopology.getDelay(1, 2), DELTA);
+				assertEquals(0, NetworkTopology.getDelay(1, 1), DELTA);
+				return null;
+			}
+
+		});
+	}
+
+	@Test
+	public void testIncrementalDelays() throws Exception {
+		final float[][] links = new float[120][];
+		Random random = new Random(7);
+		for (int i = 0; i < links.length; i++) {
+			links[i] = new float[] {1 + random.nextInt(NODES), 1 + random.nextInt(NODES), 1 + 9 * random.nextFloat()};
+		}
+
+		// the delays updated after every link are the ones computed once for all of them
+		final double[][] incremental = getDelays(links, true);
+		final double[][] batched = getDelays(links, false);
+		for (int i = 1; i <= NODES; i++) {
+			for (int j = 1; j <= NODES; j++) {
+				assertEquals(batched[i][j], incremental[i][j], DELTA * Math.max(1, batched[i][j]));
+			}
+		}
+	}
+
+	/**
+	 * Builds a topology in a simulation of its own and gets the delays between all its nodes.
+	 *
+	 * @param links the links, as source, destination and delay
+	 * @param incremental true to use the delays after every link
+	 * @return the delays, by entity id
+	 */
+	private static double[][] getDelays(final float[][] links, final boolean incremental) throws Exception {
+		return new Simulation().execute(new Callable<double[][]>() {
+
+			@Override
+			public double[][] call() throws Exception {
+				for (float[] link : links) {
+					NetworkTopology.addLink((int) link[0], (int) link[1], 100, link[2]);
+					if (incremental) {
+						NetworkTopology.getDelay((int) link[0], (int) link[1]);
+					}
+				}
+				double[][] delays = new double[NODES + 1][NODES + 1];
+				for (int i = 1; i <= NODES; i++) {
+					for (int j = 1; j <= NODES; j++) {
+						delays[i][j] = NetworkTopology.getDelay(i, j);
+					}
+				}
+				return delays;
+			}
+
+		});
+	}
+
+}
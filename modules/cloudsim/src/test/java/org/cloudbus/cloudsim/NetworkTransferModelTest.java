@@ -0,0 +1,69 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NetworkTransferModelTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Builds the topology a - b - c - d, with a 10 bandwidth link between b and c, and a branch
+	 * b - e. All the other links have 100 bandwidth. The topology is shared by all the tests, so
+	 * every test uses its own entity ids.
+	 */
+	private static void addLinks(int a, int b, int c, int d, int e) {
+		NetworkTopology.addLink(a, b, 100, 1);
+		NetworkTopology.addLink(b, c, 10, 1);
+		NetworkTopology.addLink(c, d, 100, 1);
+		NetworkTopology.addLink(b, e, 100, 1);
+	}
+
+	@Test
+	public void testBottleneck() {
+		addLinks(1001, 1002, 1003, 1004, 1005);
+
+		assertEquals(3, NetworkTopology.getPath(1001, 1004).size());
+		assertEquals(10, NetworkTopology.getBandwidth(1001, 1004), DELTA);
+		assertEquals(100, NetworkTopology.getBandwidth(1001, 1005), DELTA);
+		assertEquals(0, NetworkTopology.getPath(1001, 9999).size());
+		assertEquals(Double.POSITIVE_INFINITY, NetworkTopology.getBandwidth(1001, 9999), 0);
+
+		// without fair sharing every transfer gets the whole bottleneck
+		NetworkTransferModel model = new NetworkTransferModel();
+		assertEquals(5.0, model.getTransferTime(0, 1001, 1004, 50), DELTA);
+		assertEquals(5.0, model.getTransferTime(0, 1001, 1004, 50), DELTA);
+		assertEquals(0.0, model.getTransferTime(0, 1001, 9999, 50), DELTA);
+	}
+
+	@Test
+	public void testFairSharing() {
+		addLinks(2001, 2002, 2003, 2004, 2005);
+		NetworkTransferModel model = new NetworkTransferModel(true);
+
+		assertEquals(1.0, model.getTransferTime(0, 2001, 2004, 10), DELTA);
+
+		// the first transfer is limited to 10 by b - c, so the second one gets the other 90 of a - b,
+		// and the whole link once the first completes
+		assertEquals(1.1, model.getTransferTime(0, 2001, 2005, 100), DELTA);
+
+		// a third transfer halves the share of the first one on b - c
+		assertEquals(2.0, model.getTransferTime(0, 2001, 2004, 10), DELTA);
+
+		assertEquals(3, model.getActiveTransfers(0));
+		// the transfer to e completes at 100 / 90, the other two at 2
+		assertEquals(2, model.getActiveTransfers(1.5));
+		assertEquals(0, model.getActiveTransfers(2.0 + DELTA));
+		assertEquals(120, model.getTransferredData(), DELTA);
+	}
+
+}
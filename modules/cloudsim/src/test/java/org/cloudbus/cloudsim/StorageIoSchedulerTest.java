@@ -0,0 +1,67 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StorageIoSchedulerTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testFifo() {
+		StorageIoScheduler scheduler = new StorageIoSchedulerFifo();
+
+		assertEquals(1.0, scheduler.submit(0, 1, 10), DELTA);
+		// the second operation waits for the first one
+		assertEquals(2.0, scheduler.submit(0, 1, 10), DELTA);
+		assertEquals(2.5, scheduler.submit(0.5, 1, 10), DELTA);
+
+		assertEquals(2, scheduler.getQueueLength(1.5));
+		assertEquals(1.5, scheduler.getBacklog(1.5), DELTA);
+		assertEquals(1.5, scheduler.getBusyTime(1.5), DELTA);
+
+		assertEquals(3, scheduler.getOperations());
+		assertEquals(30, scheduler.getTransferredData(), DELTA);
+		assertEquals(2.5, scheduler.getMaxResponseTime(), DELTA);
+		assertEquals((0 + 1 + 1.5) / 3, scheduler.getAverageWaitingTime(), DELTA);
+
+		// idle for 3 seconds, the next operation doesn't wait
+		assertEquals(0, scheduler.getQueueLength(6));
+		assertEquals(0.5, scheduler.getUtilization(6), DELTA);
+		assertEquals(1.0, scheduler.submit(6, 1, 10), DELTA);
+	}
+
+	@Test
+	public void testFairShare() {
+		StorageIoScheduler scheduler = new StorageIoSchedulerFairShare();
+
+		assertEquals(1.0, scheduler.submit(0, 1, 10), DELTA);
+		// two operations at the same time get half of the bandwidth each
+		assertEquals(2.0, scheduler.submit(0, 1, 10), DELTA);
+
+		// after one second, both operations are half done
+		assertEquals(2, scheduler.getQueueLength(1));
+		assertEquals(1.0, scheduler.getBacklog(1), DELTA);
+
+		// a short operation is only slowed down by what it shares with the others
+		assertEquals(0.3, scheduler.submit(1, 0.1, 1), DELTA);
+		assertEquals(3, scheduler.getQueueLength(1));
+
+		// the short operation is done at 1.3, the other two at 2.1
+		assertEquals(2, scheduler.getQueueLength(1.3 + DELTA));
+		assertEquals(0.8, scheduler.getBacklog(1.3 + DELTA), 1e-6);
+		assertEquals(2, scheduler.getQueueLength(2.0));
+		assertEquals(0, scheduler.getQueueLength(2.1 + DELTA));
+		assertEquals(2.1, scheduler.getBusyTime(4), DELTA);
+	}
+
+}
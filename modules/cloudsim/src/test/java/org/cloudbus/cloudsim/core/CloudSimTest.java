@@ -0,0 +1,140 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CloudSimTest {
+
+	private static final int PING = 1;
+
+	private static final int PONG = 2;
+
+	private static final int WAKE_UP = 3;
+
+	private List<String> log;
+
+	/**
+	 * Sends a ping to a peer, which answers with a pong after a second, a given number of times.
+	 */
+	private class Pinger extends SimEntity {
+
+		private int peer;
+
+		private int pings;
+
+		public Pinger(String name, int pings) {
+			super(name);
+			this.pings = pings;
+		}
+
+		@Override
+		public void startEntity() {
+			if (pings > 0) {
+				schedule(peer, 1, PING);
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			log.add(CloudSim.clock() + " " + getName() + " " + ev.getTag());
+			if (ev.getTag() == PING) {
+				schedule(ev.getSource(), 1, PONG);
+			} else if (ev.getTag() == PONG && --pings > 0) {
+				schedule(peer, 0, PING);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * Holds for a while as soon as it starts, and remembers the last time it runs.
+	 */
+	private class Sleeper extends SimEntity {
+
+		private double lastRun = -1;
+
+		public Sleeper(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 0, WAKE_UP);
+		}
+
+		@Override
+		public void run() {
+			lastRun = CloudSim.clock();
+			super.run();
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			log.add(CloudSim.clock() + " " + getName() + " " + ev.getTag());
+			if (ev.getTag() == WAKE_UP) {
+				pause(2.5);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		log = new ArrayList<String>();
+	}
+
+	@Test
+	public void testEventOrder() {
+		Pinger a = new Pinger("a", 2);
+		Pinger b = new Pinger("b", 0);
+		Pinger c = new Pinger("c", 1);
+		a.peer = b.getId();
+		c.peer = b.getId();
+		Sleeper s = new Sleeper("s");
+
+		// a ping that reaches the sleeper while it holds is processed when it wakes up
+		Pinger d = new Pinger("d", 1);
+		d.peer = s.getId();
+
+		CloudSim.startSimulation();
+
+		List<String> expected = new ArrayList<String>();
+		expected.add("0.0 s 3");
+		expected.add("1.0 b 1");
+		expected.add("1.0 b 1");
+		expected.add("2.0 a 2");
+		expected.add("2.0 c 2");
+		// a's second ping is sent at 2.0, so it is delivered at the next clock tick
+		expected.add("2.0 b 1");
+		expected.add("2.5 s 1");
+		expected.add("3.0 a 2");
+		assertEquals(expected, log);
+
+		// the sleeper overrides run, so it runs at every clock tick, even without events
+		assertEquals(3.0, s.lastRun, 0);
+	}
+
+}
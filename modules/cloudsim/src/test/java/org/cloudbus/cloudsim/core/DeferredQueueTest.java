@@ -0,0 +1,107 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class DeferredQueueTest {
+
+	private static SimEvent event(double time, int dest) {
+		return new SimEvent(SimEvent.SEND, time, 0, dest, 0, null);
+	}
+
+	@Test
+	public void testMailboxes() {
+		DeferredQueue queue = new DeferredQueue();
+		assertNull(queue.getLast());
+
+		SimEvent a = event(1, 2);
+		SimEvent b = event(1, 5);
+		SimEvent c = event(2, 2);
+		SimEvent d = event(1, 2);
+		queue.addEvent(a);
+		queue.addEvent(b);
+		queue.addEvent(c);
+		// an event out of order goes after those with the same time
+		queue.addEvent(d);
+
+		assertEquals(4, queue.size());
+		assertEquals(3, queue.size(2));
+		assertEquals(1, queue.size(5));
+		assertEquals(0, queue.size(3));
+		assertEquals(0, queue.size(100));
+		assertSame(c, queue.getLast());
+
+		Iterator<SimEvent> iterator = queue.iterator(2);
+		assertSame(a, iterator.next());
+		assertSame(d, iterator.next());
+		iterator.remove();
+		assertSame(c, iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(3, queue.size());
+		assertEquals(2, queue.size(2));
+
+		// the whole queue, grouped by destination
+		iterator = queue.iterator();
+		assertSame(a, iterator.next());
+		assertSame(c, iterator.next());
+		iterator.remove();
+		assertSame(b, iterator.next());
+		assertFalse(iterator.hasNext());
+		assertEquals(2, queue.size());
+		assertSame(b, queue.getLast());
+
+		queue.clear();
+		assertEquals(0, queue.size());
+		assertFalse(queue.iterator().hasNext());
+	}
+
+	@Test
+	public void testLast() {
+		DeferredQueue queue = new DeferredQueue();
+		SimEvent a = event(1, 2);
+		SimEvent b = event(3, 5);
+		SimEvent c = event(2, 2);
+		queue.addEvent(a);
+		queue.addEvent(b);
+		queue.addEvent(c);
+		assertSame(b, queue.getLast());
+
+		// removing another event keeps the last one, removing it finds the one before
+		Iterator<SimEvent> iterator = queue.iterator(2);
+		iterator.next();
+		iterator.remove();
+		assertSame(b, queue.getLast());
+		iterator = queue.iterator(5);
+		iterator.next();
+		iterator.remove();
+		assertSame(c, queue.getLast());
+
+		// a later event added after the removal is the last one
+		SimEvent d = event(4, 3);
+		queue.addEvent(d);
+		assertSame(d, queue.getLast());
+		iterator = queue.iterator(3);
+		iterator.next();
+		iterator.remove();
+		iterator = queue.iterator(2);
+		iterator.next();
+		iterator.remove();
+		assertNull(queue.getLast());
+		assertEquals(0, queue.size());
+	}
+
+}
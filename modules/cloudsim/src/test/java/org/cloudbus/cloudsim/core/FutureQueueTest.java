@@ -0,0 +1,245 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.Test;
+
+public class FutureQueueTest {
+
+	private static SimEvent event(double time, int tag) {
+		return new SimEvent(SimEvent.SEND, time, 0, 0, tag, null);
+	}
+
+	private static SimEvent event(double time, int src, int tag) {
+		return new SimEvent(SimEvent.SEND, time, src, 0, tag, null);
+	}
+
+	@Test
+	public void testTreeSet() {
+		checkQueue(new FutureEventListTreeSet());
+	}
+
+	@Test
+	public void testHeap() {
+		checkQueue(new FutureEventListHeap());
+	}
+
+	@Test
+	public void testCalendar() {
+		checkQueue(new FutureEventListCalendar());
+	}
+
+	private void checkQueue(FutureEventList list) {
+		FutureQueue queue = new FutureQueue(list);
+		assertNull(queue.peek());
+		assertEquals(0, queue.pollFirstEvents(new ArrayList<SimEvent>()));
+
+		SimEvent a = event(2, 1);
+		SimEvent b = event(1, 2);
+		SimEvent c = event(2, 3);
+		SimEvent d = event(3, 4);
+		queue.addEvent(a);
+		queue.addEvent(b);
+		queue.addEvent(c);
+		queue.addEvent(d);
+		assertSame(b, queue.peek());
+
+		// the iterator returns the events in order
+		Iterator<SimEvent> iterator = queue.iterator();
+		assertSame(b, iterator.next());
+		assertSame(a, iterator.next());
+		assertSame(c, iterator.next());
+		assertSame(d, iterator.next());
+		assertFalse(iterator.hasNext());
+
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		assertEquals(1, queue.pollFirstEvents(events));
+		assertSame(b, events.get(0));
+
+		// events at the same time are removed together, in the order they were added
+		events.clear();
+		assertEquals(2, queue.pollFirstEvents(events));
+		assertSame(a, events.get(0));
+		assertSame(c, events.get(1));
+
+		// an event added first goes before those at the same time
+		SimEvent e = event(3, 5);
+		queue.addEventFirst(e);
+		assertSame(e, queue.peek());
+
+		assertTrue(queue.remove(d));
+		assertFalse(queue.remove(d));
+		iterator = queue.iterator();
+		assertSame(e, iterator.next());
+		iterator.remove();
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testSameOrder() {
+		FutureQueue[] queues = { new FutureQueue(new FutureEventListTreeSet()),
+				new FutureQueue(new FutureEventListHeap()), new FutureQueue(new FutureEventListCalendar()) };
+		List<List<SimEvent>> popped = new ArrayList<List<SimEvent>>();
+		for (FutureQueue queue : queues) {
+			popped.add(new ArrayList<SimEvent>());
+		}
+
+		// a simulation-like pattern: events are scheduled after the current time, often at the
+		// same time, and some are cancelled
+		Random random = new Random(1);
+		double clock = 0;
+		int tag = 0;
+		for (int step = 0; step < 20000; step++) {
+			int operation = random.nextInt(10);
+			if (operation < 6) {
+				double delay = random.nextInt(4) == 0 ? 0 : random.nextInt(1000) / 10.0;
+				double time = clock + delay;
+				tag++;
+				for (FutureQueue queue : queues) {
+					queue.addEvent(event(time, tag));
+				}
+			} else if (operation < 9) {
+				List<Integer> tags = new ArrayList<Integer>();
+				for (int i = 0; i < queues.length; i++) {
+					List<SimEvent> events = new ArrayList<SimEvent>();
+					queues[i].pollFirstEvents(events);
+					if (!events.isEmpty()) {
+						clock = events.get(0).eventTime();
+					}
+					for (SimEvent event : events) {
+						assertEquals(clock, event.eventTime(), 0);
+					}
+					popped.get(i).addAll(events);
+				}
+			} else if (queues[0].size() > 0) {
+				// cancels a random event, the same in every queue
+				int index = random.nextInt(queues[0].size());
+				for (FutureQueue queue : queues) {
+					Iterator<SimEvent> iterator = queue.iterator();
+					for (int i = 0; i < index; i++) {
+						iterator.next();
+					}
+					iterator.next();
+					iterator.remove();
+				}
+			}
+
+			assertEquals(queues[0].size(), queues[1].size());
+			assertEquals(queues[0].size(), queues[2].size());
+		}
+
+		for (int i = 1; i < queues.length; i++) {
+			assertEquals(popped.get(0).size(), popped.get(i).size());
+			for (int j = 0; j < popped.get(0).size(); j++) {
+				assertEquals(popped.get(0).get(j).getTag(), popped.get(i).get(j).getTag());
+			}
+		}
+	}
+
+	@Test
+	public void testCancel() {
+		checkCancel(new FutureEventListTreeSet());
+		checkCancel(new FutureEventListHeap());
+		checkCancel(new FutureEventListCalendar());
+	}
+
+	private void checkCancel(FutureEventList list) {
+		FutureQueue queue = new FutureQueue(list);
+		SimEvent a = event(3, 1, 10);
+		SimEvent b = event(1, 1, 10);
+		SimEvent c = event(2, 1, 20);
+		SimEvent d = event(1, 2, 10);
+		queue.addEvent(a);
+		queue.addEvent(b);
+		queue.addEvent(c);
+		queue.addEvent(d);
+
+		// the first event in temporal order is cancelled, even if it was added later
+		assertSame(b, queue.cancel(1, new PredicateType(10)));
+		assertEquals(3, queue.size());
+		assertNull(queue.cancel(3, new PredicateType(10)));
+		assertNull(queue.cancel(1, new PredicateType(30)));
+
+		// the events of the other entities are left alone
+		assertEquals(1, queue.cancelAll(1, new PredicateType(new int[] { 10, 30 })));
+		assertEquals(2, queue.size());
+		assertSame(d, queue.peek());
+		assertFalse(queue.remove(a));
+
+		// the cancelled events are never polled
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		assertEquals(1, queue.pollFirstEvents(events));
+		assertSame(d, events.get(0));
+		events.clear();
+		assertEquals(1, queue.pollFirstEvents(events));
+		assertSame(c, events.get(0));
+		assertEquals(0, queue.size());
+		assertNull(queue.peek());
+
+		// a polled event can't be cancelled anymore
+		assertEquals(0, queue.cancelAll(1, new PredicateAny()));
+
+		// rescheduling an event many times keeps the queue small and in order
+		queue.addEvent(event(1000000, 3, 10));
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i == 0 ? 0 : 1, queue.cancelAll(1, new PredicateType(10)));
+			queue.addEvent(event(10 + i, 1, 10));
+		}
+		assertEquals(2, queue.size());
+		assertTrue(list.size() < 2 * 1024 + 2);
+		events.clear();
+		queue.pollFirstEvents(events);
+		assertEquals(1, events.size());
+		assertEquals(10009, events.get(0).eventTime(), 0);
+	}
+
+	@Test
+	public void testIndexPruning() {
+		FutureQueue queue = new FutureQueue();
+		for (int src = 0; src < 50; src++) {
+			for (int tag = 0; tag < 20; tag++) {
+				queue.addEvent(event(1 + src + tag, src, tag));
+			}
+		}
+		assertEquals(1000, queue.getIndexSize());
+
+		// the entries of the index go away with their last event, however it leaves the queue
+		for (int src = 0; src < 50; src += 2) {
+			assertEquals(20, queue.cancelAll(src, new PredicateAny()));
+		}
+		assertEquals(500, queue.getIndexSize());
+		assertEquals(1, queue.cancelAll(1, new PredicateType(new int[] { 3, 3 })));
+		assertEquals(499, queue.getIndexSize());
+		SimEvent removed = queue.cancel(1, new PredicateType(4));
+		assertEquals(498, queue.getIndexSize());
+		assertFalse(queue.remove(removed));
+
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		while (queue.pollFirstEvents(events) > 0) {
+			// the events are polled until the queue is empty
+		}
+		assertEquals(498, events.size());
+		assertEquals(0, queue.getIndexSize());
+		assertEquals(0, queue.size());
+	}
+
+}
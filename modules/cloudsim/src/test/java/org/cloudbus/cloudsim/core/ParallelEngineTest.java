@@ -0,0 +1,220 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.NetworkTransferModel;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelEngineTest {
+
+	private static final int PING = 1;
+
+	/**
+	 * Sends pings to itself, a second apart, and logs the time of every one.
+	 */
+	private static class Ticker extends SimEntity {
+
+		private final int ticks;
+
+		private int received;
+
+		public Ticker(String name, int ticks) {
+			super(name);
+			this.ticks = ticks;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 1, PING);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			Log.printLine(CloudSim.clock() + " " + getName());
+			if (++received < ticks) {
+				schedule(getId(), 1, PING);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * Runs two tickers on a simulation of their own, with every entity mapped to the topology, and
+	 * returns the log. The tickers are the given delay apart from each other, and from the
+	 * entities created by {@link CloudSim#init(int, java.util.Calendar, boolean)}.
+	 */
+	private static String runTickers(final Simulation simulation, final double delay) throws Exception {
+		return simulation.execute(new Callable<String>() {
+
+			@Override
+			public String call() {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				Log.enable();
+				Log.setOutput(out);
+				CloudSim.init(1, null, false);
+				Ticker a = new Ticker("a", 50);
+				Ticker b = new Ticker("b", 50);
+				NetworkTopology.addLink(a.getId(), b.getId(), 10, delay);
+				NetworkTopology.addLink(a.getId(), simulation.getCloudInfoServiceEntityId(), 10, delay);
+				NetworkTopology.addLink(b.getId(), simulation.getShutdownId(), 10, delay);
+				CloudSim.startSimulation();
+				Log.disable();
+				return out.toString();
+			}
+
+		});
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testLookahead() throws Exception {
+		final Simulation simulation = new Simulation();
+		simulation.execute(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				Log.disable();
+				CloudSim.init(1, null, false);
+				int a = new Ticker("a", 1).getId();
+				int b = new Ticker("b", 1).getId();
+				int c = new Ticker("c", 1).getId();
+				int d = new Ticker("d", 1).getId();
+				int e = new Ticker("e", 1).getId();
+				NetworkTopology.addLink(a, b, 10, 1);
+				NetworkTopology.addLink(b, c, 10, 2);
+				NetworkTopology.addLink(c, d, 10, 4);
+
+				// c and d share a logical process, e is not mapped and goes with the entities of CloudSim
+				simulation.setLogicalProcess(c, 0);
+				simulation.setLogicalProcess(d, 0);
+				simulation.runStart();
+				ParallelEngine engine = new ParallelEngine(simulation, 2);
+				assertEquals(4, engine.getProcessCount());
+
+				// the lowest latency between the entities of the two logical processes
+				assertEquals(1, engine.getLookahead(a, b), 0);
+				assertEquals(1, engine.getLookahead(b, a), 0);
+				assertEquals(2, engine.getLookahead(b, d), 0);
+				assertEquals(3, engine.getLookahead(a, c), 0);
+				assertEquals(0, engine.getLookahead(c, d), 0);
+
+				// an entity that is not mapped has no lookahead, nor has the one that shuts the simulation down
+				assertEquals(0, engine.getLookahead(a, e), 0);
+				assertEquals(0, engine.getLookahead(e, a), 0);
+				assertEquals(0, engine.getLookahead(simulation.getShutdownId(), b), 0);
+
+				// so events can go through it from a logical process to any other at once
+				assertEquals(0, engine.getDistance(a, b), 0);
+				assertEquals(0, engine.getDistance(c, a), 0);
+
+				engine.run();
+				return null;
+			}
+
+		});
+	}
+
+	@Test
+	public void testDistance() throws Exception {
+		final Simulation simulation = new Simulation();
+		simulation.execute(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				Log.disable();
+				CloudSim.init(1, null, false);
+				int a = new Ticker("a", 1).getId();
+				int b = new Ticker("b", 1).getId();
+				int c = new Ticker("c", 1).getId();
+				int cis = simulation.getCloudInfoServiceEntityId();
+				int shutdown = simulation.getShutdownId();
+				NetworkTopology.addLink(a, b, 10, 5);
+				NetworkTopology.addLink(b, c, 10, 1);
+				NetworkTopology.addLink(a, cis, 10, 1);
+				NetworkTopology.addLink(c, shutdown, 10, 2);
+
+				// a and c are grouped, so the events between b and their logical process take 1
+				simulation.setLogicalProcess(a, 0);
+				simulation.setLogicalProcess(c, 0);
+				simulation.runStart();
+				ParallelEngine engine = new ParallelEngine(simulation, 2);
+				assertEquals(4, engine.getProcessCount());
+				assertEquals(1, engine.getLookahead(a, b), 0);
+				assertEquals(1, engine.getDistance(a, b), 0);
+
+				// the Cloud Information Service is 6 from b, but what b sends can make a send it an
+				// event after 2; the shutdown entity has no lookahead, so once an event of b has
+				// reached it, after 3, it can send to all the others at once
+				assertEquals(6, engine.getLookahead(b, cis), 0);
+				assertEquals(2, engine.getDistance(b, cis), 0);
+				assertEquals(2, engine.getDistance(cis, b), 0);
+				assertEquals(3, engine.getDistance(b, shutdown), 0);
+				assertEquals(0, engine.getDistance(shutdown, b), 0);
+
+				engine.run();
+				return null;
+			}
+
+		});
+	}
+
+	@Test
+	public void testWindow() throws Exception {
+		String expected = runTickers(new Simulation(), 10);
+
+		// with a lookahead of 10 seconds every logical process runs 10 ticks in a step, after the
+		// first step in which the events sent when the entities started are delivered
+		Simulation simulation = new Simulation();
+		simulation.setParallelism(2);
+		assertEquals(expected, runTickers(simulation, 10));
+		assertEquals(6, simulation.getParallelSteps());
+
+		// with a lookahead shorter than the time between two ticks, they run one tick at a time
+		simulation = new Simulation();
+		simulation.setParallelism(2);
+		assertEquals(expected, runTickers(simulation, 0.5));
+		assertEquals(51, simulation.getParallelSteps());
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		// a simulation with a transfer model is run sequentially, with the same results
+		String expected = runTickers(new Simulation(), 10);
+		final Simulation simulation = new Simulation();
+		simulation.setParallelism(2);
+		simulation.execute(new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				NetworkTopology.setTransferModel(new NetworkTransferModel());
+				return null;
+			}
+
+		});
+		assertEquals(expected, runTickers(simulation, 10));
+		assertEquals(0, simulation.getParallelSteps());
+	}
+
+}
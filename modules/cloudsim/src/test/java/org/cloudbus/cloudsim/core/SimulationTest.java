@@ -0,0 +1,335 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.junit.After;
+import org.junit.Test;
+
+public class SimulationTest {
+
+	private static final int PING = 1;
+
+	/**
+	 * Sends pings to itself, a second apart, and records the time of every one.
+	 */
+	private static class Ticker extends SimEntity {
+
+		private final int ticks;
+
+		private final List<String> log;
+
+		/** The events the ticker has processed, every one counted once however many times it is reused. */
+		private final Set<SimEvent> events = Collections.newSetFromMap(new IdentityHashMap<SimEvent, Boolean>());
+
+		public Ticker(String name, int ticks, List<String> log) {
+			super(name);
+			this.ticks = ticks;
+			this.log = log;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 1, PING);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			log.add(CloudSim.clock() + " " + getName());
+			events.add(ev);
+			if (log.size() < ticks) {
+				schedule(getId(), 1, PING);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * Passes tokens to the next relay of a ring, through the network, and ticks in between.
+	 */
+	private static class Relay extends SimEntity {
+
+		private final int tokens;
+
+		private int received;
+
+		public Relay(String name, int tokens) {
+			super(name);
+			this.tokens = tokens;
+		}
+
+		@Override
+		public void startEntity() {
+			send(next(), 0, PING);
+			schedule(getId(), 0.5, PING);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			Log.printLine(CloudSim.clock() + " " + getName() + " from " + ev.getSource());
+			if (ev.getSource() != getId() && ++received < tokens) {
+				send(next(), 0, PING);
+				schedule(getId(), 0.25, PING);
+			}
+		}
+
+		private int next() {
+			int id = getId() + 1;
+			return id < CloudSim.getNumEntities() ? id : CloudSim.getEntityId("relay0");
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	/**
+	 * A simulation component that cannot be created.
+	 */
+	public static class BrokenComponent {
+
+		public BrokenComponent() {
+			throw new IllegalStateException("broken");
+		}
+
+	}
+
+	/**
+	 * Runs a ring of relays on the current simulation, and returns the log and the end clock.
+	 */
+	private static String runRelays() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Log.enable();
+		Log.setOutput(out);
+		CloudSim.init(1, null, false);
+		List<Relay> relays = new ArrayList<Relay>();
+		for (int i = 0; i < 4; i++) {
+			relays.add(new Relay("relay" + i, 20));
+		}
+		for (int i = 0; i < relays.size(); i++) {
+			Relay next = relays.get((i + 1) % relays.size());
+			NetworkTopology.addLink(relays.get(i).getId(), next.getId(), 10, 1 + i);
+		}
+		// two of the relays share a logical process
+		Simulation.getCurrent().setLogicalProcess(relays.get(2).getId(), 0);
+		Simulation.getCurrent().setLogicalProcess(relays.get(3).getId(), 0);
+		double clock = CloudSim.startSimulation();
+		Log.disable();
+		return out.toString() + clock;
+	}
+
+	/**
+	 * Runs a simulation with a ticker on the current simulation.
+	 */
+	private static List<String> runTicker(int ticks) {
+		Log.disable();
+		CloudSim.init(1, null, false);
+		List<String> log = new ArrayList<String>();
+		new Ticker("ticker", ticks, log);
+		CloudSim.startSimulation();
+		return log;
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testCurrent() throws Exception {
+		assertSame(Simulation.getDefault(), Simulation.getCurrent());
+
+		final Simulation simulation = new Simulation();
+		double delay = simulation.execute(new Callable<Double>() {
+
+			@Override
+			public Double call() {
+				assertSame(simulation, Simulation.getCurrent());
+				NetworkTopology.addLink(1, 2, 10, 1);
+				return NetworkTopology.getDelay(1, 2);
+			}
+
+		});
+		assertEquals(1.0, delay, 0);
+		assertSame(Simulation.getDefault(), Simulation.getCurrent());
+
+		// the topology built in the other simulation isn't seen by the default one
+		assertEquals(0.0, NetworkTopology.getDelay(1, 2), 0);
+		assertNotSame(simulation.getComponent(NetworkTopology.State.class),
+				Simulation.getDefault().getComponent(NetworkTopology.State.class));
+	}
+
+	@Test
+	public void testComponentFailure() {
+		try {
+			new Simulation().getComponent(BrokenComponent.class);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// the exception of the constructor is the cause, not the reflection wrapper
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testEventPooling() throws Exception {
+		List<String> expected = runTicker(50);
+
+		// every ping is sent while the previous one is processed, which is given back right after:
+		// two events are used in turn, instead of one for every ping
+		for (final boolean pooling : new boolean[] { false, true }) {
+			final Simulation simulation = new Simulation();
+			simulation.setEventPooling(pooling);
+			Ticker ticker = simulation.execute(new Callable<Ticker>() {
+
+				@Override
+				public Ticker call() {
+					Log.disable();
+					CloudSim.init(1, null, false);
+					Ticker ticker = new Ticker("ticker", 50, new ArrayList<String>());
+					CloudSim.startSimulation();
+					return ticker;
+				}
+
+			});
+			assertEquals(expected, ticker.log);
+			assertEquals(pooling ? 2 : 50, ticker.events.size());
+		}
+	}
+
+	@Test
+	public void testCheckpoint() throws Exception {
+		List<String> expected = runTicker(50);
+
+		final Simulation simulation = new Simulation();
+		boolean finished = simulation.execute(new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() {
+				Log.disable();
+				CloudSim.init(1, null, false);
+				new Ticker("ticker", 50, new ArrayList<String>());
+				return simulation.runUntil(20);
+			}
+
+		});
+		assertFalse(finished);
+		assertEquals(20.0, simulation.clock(), 0);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		simulation.checkpoint(out);
+
+		// every simulation restored from the checkpoint, and the saved one, go on the same way
+		List<Simulation> simulations = new ArrayList<Simulation>();
+		simulations.add(Simulation.restore(new ByteArrayInputStream(out.toByteArray())));
+		simulations.add(Simulation.restore(new ByteArrayInputStream(out.toByteArray())));
+		simulations.add(simulation.fork());
+		simulations.add(simulation);
+		for (Simulation restored : simulations) {
+			List<String> log = restored.execute(new Callable<List<String>>() {
+
+				@Override
+				public List<String> call() {
+					Ticker ticker = (Ticker) CloudSim.getEntity("ticker");
+					CloudSim.startSimulation();
+					return ticker.log;
+				}
+
+			});
+			assertEquals(expected, log);
+		}
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		Simulation sequential = new Simulation();
+		String expected = sequential.execute(new Callable<String>() {
+
+			@Override
+			public String call() {
+				return runRelays();
+			}
+
+		});
+		assertEquals(0, sequential.getParallelSteps());
+
+		final Simulation simulation = new Simulation();
+		simulation.setParallelism(4);
+		String log = simulation.execute(new Callable<String>() {
+
+			@Override
+			public String call() {
+				return runRelays();
+			}
+
+		});
+		assertEquals(expected, log);
+
+		// the relays have been run by the parallel engine, and not by the sequential one it falls back to
+		assertTrue(simulation.getParallelSteps() > 0);
+	}
+
+	@Test
+	public void testConcurrentSimulations() throws Exception {
+		List<String> expected = runTicker(50);
+		assertEquals(50, expected.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<List<String>>() {
+
+					@Override
+					public List<String> call() throws Exception {
+						return new Simulation().execute(new Callable<List<String>>() {
+
+							@Override
+							public List<String> call() {
+								return runTicker(50);
+							}
+
+						});
+					}
+
+				}));
+			}
+			for (Future<List<String>> result : results) {
+				assertEquals(expected, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
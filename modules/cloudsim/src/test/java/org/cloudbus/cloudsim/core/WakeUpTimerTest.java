@@ -0,0 +1,116 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WakeUpTimerTest {
+
+	private static final int START = 1;
+
+	private static final int WAKE_UP = 2;
+
+	private List<String> log;
+
+	/**
+	 * Requests some wake-ups when it starts and, if it is told so, replaces them with a wake-up a
+	 * second later every time it is woken up, until time 7.
+	 */
+	private class Sleeper extends SimEntity {
+
+		private final WakeUpTimer timer = new WakeUpTimer(this, WAKE_UP);
+
+		private final boolean cancel;
+
+		public Sleeper(String name, boolean cancel) {
+			super(name);
+			this.cancel = cancel;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 1, START);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			if (ev.getTag() == START) {
+				timer.schedule(5);
+				timer.schedule(3);
+				timer.schedule(3);
+				timer.schedule(8);
+				log.add(timer.getScheduledTime() + " " + timer.getRequestCount());
+				return;
+			}
+
+			timer.process(ev);
+			log.add(CloudSim.clock() + " " + getName());
+			if (cancel && CloudSim.clock() < 7) {
+				timer.cancel();
+				timer.schedule(1);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		Log.disable();
+		CloudSim.init(1, null, false);
+		log = new ArrayList<String>();
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testWakeUps() {
+		new Sleeper("s", false);
+		CloudSim.startSimulation();
+
+		List<String> expected = new ArrayList<String>();
+		// every time is woken up once, even if it was requested twice
+		expected.add("4.0 3");
+		expected.add("4.0 s");
+		expected.add("6.0 s");
+		expected.add("9.0 s");
+		assertEquals(expected, log);
+	}
+
+	@Test
+	public void testCancel() {
+		Sleeper sleeper = new Sleeper("s", true);
+		CloudSim.startSimulation();
+
+		// the wake-ups requested when the sleeper starts are replaced by one a second later
+		List<String> expected = new ArrayList<String>();
+		expected.add("4.0 3");
+		expected.add("4.0 s");
+		expected.add("5.0 s");
+		expected.add("6.0 s");
+		expected.add("7.0 s");
+		assertEquals(expected, log);
+		assertEquals(0, sleeper.timer.getRequestCount());
+	}
+
+}
@@ -0,0 +1,280 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockPlacementIndexTest {
+
+    private static final int BLOCK_SIZE = 64;
+
+    // the placement of the NameNode before the index: every write scanned all the DataNodes and all the racks. The
+    // counter of the acceptable nodes is reset for every rack, the old code forgot to
+    private static class LinearScan {
+
+        private final List<Integer> dataNodeList = new ArrayList<Integer>();
+
+        private final Map<Integer, Integer> mapDataNodeToRackId = new HashMap<Integer, Integer>();
+
+        private final Map<Integer, Integer> mapDataNodeToCapacity = new HashMap<Integer, Integer>();
+
+        private final Map<Integer, Double> mapDataNodeToUsage = new HashMap<Integer, Double>();
+
+        private final Map<Integer, List<String>> mapDataNodeToBlocks = new HashMap<Integer, List<String>>();
+
+        void addDataNode(int dataNodeId, int rackId, int capacity) {
+            dataNodeList.add(dataNodeId);
+            mapDataNodeToRackId.put(dataNodeId, rackId);
+            mapDataNodeToCapacity.put(dataNodeId, capacity);
+            mapDataNodeToUsage.put(dataNodeId, 0.0);
+        }
+
+        double findRackOverallUsage(Integer rackId) {
+            int totalCapacity = 0;
+            double totalSpaceUsed = 0.0;
+            for (Integer i : mapDataNodeToRackId.keySet()) {
+                if (mapDataNodeToRackId.get(i).equals(rackId)) {
+                    totalCapacity += mapDataNodeToCapacity.get(i);
+                    totalSpaceUsed += mapDataNodeToUsage.get(i) * mapDataNodeToCapacity.get(i);
+                }
+            }
+            return totalSpaceUsed / totalCapacity;
+        }
+
+        List<Integer> chooseTargets(String fileName, int replicasNumber) {
+            List<Integer> destinationIds = new ArrayList<Integer>();
+            List<Integer> acceptableDestinations = new ArrayList<Integer>();
+            for (Integer node : dataNodeList) {
+                if (!mapDataNodeToBlocks.containsKey(node) || !mapDataNodeToBlocks.get(node).contains(fileName)) {
+                    acceptableDestinations.add(node);
+                }
+            }
+            if (acceptableDestinations.isEmpty()) {
+                return destinationIds;
+            }
+
+            double minUsage = 999.9;
+            Integer firstNode = null;
+            for (Integer node : acceptableDestinations) {
+                if (mapDataNodeToUsage.get(node) < minUsage) {
+                    firstNode = node;
+                    minUsage = mapDataNodeToUsage.get(node);
+                }
+            }
+            destinationIds.add(firstNode);
+            acceptableDestinations.remove(firstNode);
+            replicasNumber--;
+
+            Set<Integer> acceptableRacks = new HashSet<Integer>(mapDataNodeToRackId.values());
+            acceptableRacks.remove(mapDataNodeToRackId.get(firstNode));
+
+            int cycles = (int) Math.ceil(replicasNumber / (double) 2);
+            for (int i = 1; i <= cycles; i++) {
+                for (Integer rack : new ArrayList<Integer>(acceptableRacks)) {
+                    int validNodesPerRack = 0;
+                    for (Integer node : acceptableDestinations) {
+                        if (mapDataNodeToRackId.get(node).equals(rack)) {
+                            validNodesPerRack++;
+                        }
+                    }
+                    if (validNodesPerRack < 2) {
+                        acceptableRacks.remove(rack);
+                    }
+                }
+
+                double currentMinRackUsage = 999.9;
+                Integer chosenRack = null;
+                for (Integer rack : acceptableRacks) {
+                    if (findRackOverallUsage(rack) < currentMinRackUsage) {
+                        chosenRack = rack;
+                        currentMinRackUsage = findRackOverallUsage(rack);
+                    }
+                }
+                acceptableRacks.remove(chosenRack);
+
+                Integer previousNode = null;
+                for (int k = 0; k < 2; k++) {
+                    double minNodeUsage = 999.9;
+                    Integer chosenNode = null;
+                    for (Integer node : acceptableDestinations) {
+                        if (mapDataNodeToUsage.get(node) < minNodeUsage && mapDataNodeToRackId.get(node).equals(chosenRack)
+                                && !node.equals(previousNode)) {
+                            chosenNode = node;
+                            minNodeUsage = mapDataNodeToUsage.get(node);
+                        }
+                    }
+                    if (chosenNode != null) {
+                        previousNode = chosenNode;
+                        destinationIds.add(chosenNode);
+                        acceptableDestinations.remove(chosenNode);
+                        replicasNumber--;
+                        if (replicasNumber == 0) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return destinationIds;
+        }
+
+        void write(String fileName, List<Integer> destinationIds) {
+            for (Integer node : destinationIds) {
+                double capacity = mapDataNodeToCapacity.get(node);
+                mapDataNodeToUsage.put(node, (mapDataNodeToUsage.get(node) * capacity + BLOCK_SIZE) / capacity);
+                if (mapDataNodeToBlocks.get(node) == null) {
+                    mapDataNodeToBlocks.put(node, new ArrayList<String>());
+                }
+                mapDataNodeToBlocks.get(node).add(fileName);
+            }
+        }
+    }
+
+    private NameNode nameNode;
+
+    private BlockPlacementIndex index;
+
+    @Before
+    public void setUp() {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+        nameNode = new NameNode("NameNode", BLOCK_SIZE, 3, new BlockPlacementPolicyLeastUsed());
+        index = nameNode.getPlacementIndex();
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // records a write in the index the way the NameNode does
+    private void write(String fileName, List<Integer> destinationIds) {
+        for (Integer node : destinationIds) {
+            double capacity = index.mapDataNodeToCapacity.get(node);
+            index.setNodeUsage(node, (index.getNodeUsage(node) * capacity + BLOCK_SIZE) / capacity);
+            index.addBlock(fileName, node);
+        }
+    }
+
+    // registers the same random cluster in the index and in the scan, and checks that they place a long sequence of
+    // blocks the same way. Some blocks are written again, so their holders have to be skipped
+    private void checkSameAsLinearScan(long seed, boolean mixedCapacities) {
+        Random random = new Random(seed);
+        LinearScan scan = new LinearScan();
+        int nodes = 5 + random.nextInt(20);
+        int racks = 1 + random.nextInt(5);
+        for (int i = 0; i < nodes; i++) {
+            // ids and racks are not registered in order, the capacities are powers of two so that the usages are exact
+            int dataNodeId = 3 * i + random.nextInt(3);
+            int rackId = 2 * random.nextInt(racks);
+            int capacity = mixedCapacities ? 1024 << random.nextInt(3) : 1024;
+            index.addDataNode(dataNodeId, rackId, capacity);
+            scan.addDataNode(dataNodeId, rackId, capacity);
+        }
+
+        BlockPlacementPolicy policy = nameNode.getPlacementPolicy();
+        for (int i = 0; i < 300; i++) {
+            String fileName = "Block_" + random.nextInt(100);
+            int replicas = 1 + random.nextInt(5);
+            List<Integer> expected = scan.chooseTargets(fileName, replicas);
+            List<Integer> actual = policy.chooseTargets(nameNode, fileName, replicas, -1, -1);
+            assertEquals("seed " + seed + ", write " + i, expected, actual);
+            scan.write(fileName, expected);
+            write(fileName, actual);
+        }
+
+        for (Integer rack : index.getRacks()) {
+            assertEquals(scan.findRackOverallUsage(rack), index.getRackUsage(rack), 1e-12);
+        }
+    }
+
+    @Test
+    public void testSameAsLinearScanWithTies() {
+        // every DataNode has the same capacity, so the usages are often equal
+        for (long seed = 0; seed < 20; seed++) {
+            setUp();
+            checkSameAsLinearScan(seed, false);
+        }
+    }
+
+    @Test
+    public void testSameAsLinearScanWithMixedCapacities() {
+        for (long seed = 0; seed < 20; seed++) {
+            setUp();
+            checkSameAsLinearScan(seed, true);
+        }
+    }
+
+    @Test
+    public void testTies() {
+        // equal usages: the nodes are taken in registration order, the racks by ascending id
+        index.addDataNode(9, 4, 1024);
+        index.addDataNode(2, 4, 1024);
+        index.addDataNode(7, 1, 1024);
+        index.addDataNode(5, 1, 1024);
+        index.addDataNode(4, 3, 1024);
+        index.addDataNode(3, 3, 1024);
+
+        assertEquals(Integer.valueOf(9), index.findLeastUsedNode("Block_0", Collections.<Integer>emptySet()));
+        assertEquals(Arrays.asList(9, 2, 7, 5, 4, 3), new ArrayList<Integer>(index.getNodesByUsage()));
+        assertEquals(Integer.valueOf(1), index.findLeastUsedRack("Block_0", Collections.singleton(4),
+                Collections.<Integer>emptySet(), 2));
+        assertEquals(Arrays.asList(7, 5), index.findLeastUsedNodesInRack(1, "Block_0",
+                Collections.<Integer>emptySet(), 2));
+
+        // a used node goes after the others, and its rack after the other racks
+        index.setNodeUsage(9, 0.5);
+        assertEquals(Integer.valueOf(2), index.findLeastUsedNode("Block_0", Collections.<Integer>emptySet()));
+        assertEquals(Arrays.asList(2, 7, 5, 4, 3, 9), new ArrayList<Integer>(index.getNodesByUsage()));
+        assertEquals(Integer.valueOf(1), index.findLeastUsedRack("Block_0", Collections.<Integer>emptySet(),
+                Collections.<Integer>emptySet(), 2));
+
+        // the holders of the block don't count, so the rack 1 no longer has two nodes for it
+        index.addBlock("Block_0", 7);
+        assertEquals(Integer.valueOf(3), index.findLeastUsedRack("Block_0", Collections.<Integer>emptySet(),
+                Collections.<Integer>emptySet(), 2));
+        assertEquals(Collections.singletonList(5), index.findLeastUsedNodesInRack(1, "Block_0",
+                Collections.<Integer>emptySet(), 2));
+        assertNull(index.findLeastUsedRack("Block_0", new HashSet<Integer>(Arrays.asList(3, 4)),
+                Collections.<Integer>emptySet(), 2));
+    }
+
+    @Test
+    public void testRackUsage() {
+        index.addDataNode(0, 0, 1000);
+        index.addDataNode(1, 0, 3000);
+        index.addDataNode(2, 1, 500);
+        assertEquals(0, index.getRackUsage(0), 0);
+
+        // the usage of a rack is the space used by its nodes over their capacity, whatever the order of the updates
+        index.setNodeUsage(0, 0.5);
+        index.setNodeUsage(1, 0.1);
+        index.setNodeUsage(0, 0.2);
+        index.setNodeUsage(2, 0.4);
+        assertEquals((0.2 * 1000 + 0.1 * 3000) / 4000, index.getRackUsage(0), 1e-12);
+        assertEquals(0.4, index.getRackUsage(1), 1e-12);
+
+        // a node registered later adds its capacity to the rack
+        index.addDataNode(3, 1, 1500);
+        assertEquals(0.4 * 500 / 2000, index.getRackUsage(1), 1e-12);
+        assertEquals(Arrays.asList(2, 3), index.getRackNodes(1));
+    }
+
+}
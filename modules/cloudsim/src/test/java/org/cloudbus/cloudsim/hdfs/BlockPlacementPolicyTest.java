@@ -0,0 +1,186 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockPlacementPolicyTest {
+
+    // the broker of the writer, it is not a DataNode
+    private static final int WRITER = 300;
+
+    private NameNode nameNode;
+
+    private BlockPlacementIndex index;
+
+    // every test has a simulation of its own, so the links it adds to the topology don't reach the other tests
+    @Before
+    public void setUp() {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+        nameNode = new NameNode("NameNode", 64, 3);
+        index = nameNode.getPlacementIndex();
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // the DataNodes 10, 11 and 12 are in the rack 0, 13, 14 and 15 in the rack 1, and so on. The rack i is the whole
+    // Datacenter 200 + i
+    private void createCluster(int racks, int nodesPerRack) {
+        for (int rack = 0; rack < racks; rack++) {
+            for (int i = 0; i < nodesPerRack; i++) {
+                int dataNodeId = 10 + rack * nodesPerRack + i;
+                index.addDataNode(dataNodeId, rack, 1000);
+                nameNode.getMapDataNodeToDatacenter().put(dataNodeId, 200 + rack);
+            }
+        }
+    }
+
+    private Map<Integer, Integer> countPerRack(List<Integer> targets) {
+        Map<Integer, Integer> replicasPerRack = new HashMap<Integer, Integer>();
+        for (Integer node : targets) {
+            Integer count = replicasPerRack.get(index.getRackId(node));
+            replicasPerRack.put(index.getRackId(node), count == null ? 1 : count + 1);
+        }
+        return replicasPerRack;
+    }
+
+    @Test
+    public void testDefaultRackLayout() {
+        createCluster(4, 3);
+        for (long seed = 0; seed < 50; seed++) {
+            BlockPlacementPolicy policy = new BlockPlacementPolicyDefault(seed);
+            List<Integer> targets = policy.chooseTargets(nameNode, "Block_0", 6, 14, WRITER);
+
+            // the writer is a DataNode, so it keeps the first replica; the second is on a remote rack and the third
+            // beside it
+            assertEquals(6, targets.size());
+            assertEquals(6, new HashSet<Integer>(targets).size());
+            assertEquals(Integer.valueOf(14), targets.get(0));
+            assertFalse(index.getRackId(14).equals(index.getRackId(targets.get(1))));
+            assertEquals(index.getRackId(targets.get(1)), index.getRackId(targets.get(2)));
+            for (Integer count : countPerRack(targets).values()) {
+                assertTrue(count <= 2);
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultWriterNotDataNode() {
+        createCluster(2, 3);
+        for (long seed = 0; seed < 50; seed++) {
+            List<Integer> targets = new BlockPlacementPolicyDefault(seed).chooseTargets(nameNode, "Block_0", 3, 5,
+                    WRITER);
+            assertEquals(3, targets.size());
+            assertFalse(index.getRackId(targets.get(0)).equals(index.getRackId(targets.get(1))));
+            assertEquals(index.getRackId(targets.get(1)), index.getRackId(targets.get(2)));
+        }
+
+        // the same seed places the same way
+        assertEquals(new BlockPlacementPolicyDefault(7).chooseTargets(nameNode, "Block_0", 3, 5, WRITER),
+                new BlockPlacementPolicyDefault(7).chooseTargets(nameNode, "Block_0", 3, 5, WRITER));
+    }
+
+    @Test
+    public void testDefaultSkipsHolders() {
+        createCluster(2, 3);
+        index.addBlock("Block_0", 10);
+        index.addBlock("Block_0", 14);
+        for (long seed = 0; seed < 50; seed++) {
+            // the writer already has the block, so the first replica goes elsewhere
+            List<Integer> targets = new BlockPlacementPolicyDefault(seed).chooseTargets(nameNode, "Block_0", 4, 10,
+                    WRITER);
+            assertEquals(4, targets.size());
+            assertFalse(targets.contains(10));
+            assertFalse(targets.contains(14));
+        }
+    }
+
+    @Test
+    public void testDefaultShortCluster() {
+        // a single rack: the second replica falls back to the same rack, and there are only two nodes to write to
+        createCluster(1, 2);
+        List<Integer> targets = new BlockPlacementPolicyDefault(1).chooseTargets(nameNode, "Block_0", 3, 10, WRITER);
+        assertEquals(Arrays.asList(10, 11), targets);
+
+        assertTrue(new BlockPlacementPolicyDefault(1).chooseTargets(nameNode, "Block_0", 0, 10, WRITER).isEmpty());
+        index.addBlock("Block_1", 10);
+        index.addBlock("Block_1", 11);
+        assertTrue(new BlockPlacementPolicyDefault(1).chooseTargets(nameNode, "Block_1", 3, 10, WRITER).isEmpty());
+    }
+
+    @Test
+    public void testLeastUsed() {
+        createCluster(3, 3);
+        index.setNodeUsage(10, 0.3);
+        index.setNodeUsage(11, 0.3);
+        index.setNodeUsage(12, 0.1);
+        index.setNodeUsage(13, 0.4);
+        index.setNodeUsage(16, 0.2);
+        index.setNodeUsage(17, 0.2);
+
+        // the least used node of the cluster, then the two least used nodes of the least used remote rack, then the
+        // least used node of the rack that is left
+        BlockPlacementPolicy policy = new BlockPlacementPolicyLeastUsed();
+        assertEquals(Arrays.asList(14, 18, 16, 12), policy.chooseTargets(nameNode, "Block_0", 4, 10, WRITER));
+
+        // the rack 2 has a single node left for the block, so it can't take the two remote replicas
+        index.addBlock("Block_1", 16);
+        index.addBlock("Block_1", 17);
+        assertEquals(Arrays.asList(14, 12, 10), policy.chooseTargets(nameNode, "Block_1", 4, 10, WRITER));
+    }
+
+    @Test
+    public void testTopologyAwareWithoutTopology() {
+        createCluster(3, 3);
+        index.setNodeUsage(10, 0.3);
+        index.setNodeUsage(11, 0.1);
+        index.setNodeUsage(12, 0.3);
+        index.setNodeUsage(13, 0.2);
+        index.setNodeUsage(14, 0.4);
+        index.setNodeUsage(15, 0.2);
+
+        // every delay is the same, so the least used node wins, within the rack rules
+        BlockPlacementPolicy policy = new BlockPlacementPolicyTopologyAware();
+        assertEquals(Arrays.asList(16, 11, 10, 17), policy.chooseTargets(nameNode, "Block_0", 4, 10, WRITER));
+    }
+
+    @Test
+    public void testTopologyAwareFollowsTheDelays() {
+        createCluster(3, 3);
+        // the rack 1 is the most used, but its Datacenter is the closest to the writer, and the Datacenter of the rack
+        // 2 is closer to it than the one of the rack 0
+        index.setNodeUsage(13, 0.5);
+        index.setNodeUsage(14, 0.2);
+        index.setNodeUsage(15, 0.3);
+        index.setNodeUsage(16, 0.1);
+        index.setNodeUsage(18, 0.4);
+        NetworkTopology.addLink(WRITER, 201, 1000, 0.1);
+        NetworkTopology.addLink(201, 202, 1000, 0.1);
+        NetworkTopology.addLink(201, 200, 1000, 0.5);
+
+        // the pipeline goes to the rack 1, then twice to the rack 2, least used first, then back to the rack 1
+        BlockPlacementPolicy policy = new BlockPlacementPolicyTopologyAware();
+        assertEquals(Arrays.asList(14, 17, 16, 15), policy.chooseTargets(nameNode, "Block_0", 4, -1, WRITER));
+    }
+
+}
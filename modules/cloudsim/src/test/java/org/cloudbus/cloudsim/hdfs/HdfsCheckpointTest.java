@@ -0,0 +1,179 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.NetworkTransferModel;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Test;
+
+public class HdfsCheckpointTest {
+
+    private static final int BLOCKS = 20;
+
+    private static final int BLOCK_SIZE = 64;
+
+    // a client datacenter with the blocks to write, and a datacenter of 6 DataNodes on 2 racks. The NameNode is in
+    // the topology, so the messages between it and the broker are in flight for a while
+    private static void createScenario() throws Exception {
+        Log.disable();
+        CloudSim.init(2, null, false);
+
+        List<HdfsHost> clientHosts = createHosts(1);
+        List<Storage> clientDrives = createDrives(clientHosts);
+        HdfsDatacenter clientDc = new HdfsDatacenter("DC0", createCharacteristics(clientHosts),
+                new VmAllocationPolicySimple(clientHosts), clientDrives, 0);
+
+        List<HdfsHost> dataNodeHosts = createHosts(6);
+        for (int i = 0; i < dataNodeHosts.size(); i++) {
+            dataNodeHosts.get(i).setRackId(i / 3);
+        }
+        HdfsDatacenter dataNodeDc = new HdfsDatacenter("DC1", 0, createCharacteristics(dataNodeHosts),
+                new VmAllocationPolicySimple(dataNodeHosts), createDrives(dataNodeHosts), 0);
+
+        HdfsDatacenterBroker broker = new HdfsDatacenterBroker("Broker");
+        HdfsReplicationBroker replicationBroker = new HdfsReplicationBroker("ReplicationBroker", 100000);
+        dataNodeDc.setReplicationBrokerId(replicationBroker.getId());
+        broker.getReplicationBrokersId().add(replicationBroker.getId());
+        NameNode nameNode = new NameNode("NameNode", BLOCK_SIZE, 3);
+        broker.setNameNodeId(nameNode.getId());
+
+        List<HdfsVm> vms = new ArrayList<HdfsVm>();
+        List<HdfsVm> dataNodes = new ArrayList<HdfsVm>();
+        for (int i = 0; i <= dataNodeHosts.size(); i++) {
+            HdfsVm vm = new HdfsVm(i, broker.getId(), 250, 1, 2048, 1000, 10000, "Xen",
+                    new CloudletSchedulerTimeShared());
+            vm.setHdfsType(i == 0 ? CloudSimTags.HDFS_CLIENT : CloudSimTags.HDFS_DN);
+            if (i > 0) {
+                dataNodes.add(vm);
+            }
+            vms.add(vm);
+        }
+        broker.submitVmList(vms);
+        replicationBroker.submitVmList(dataNodes);
+
+        List<File> blocks = new ArrayList<File>();
+        List<HdfsCloudlet> cloudlets = new ArrayList<HdfsCloudlet>();
+        for (int i = 0; i < BLOCKS; i++) {
+            blocks.add(new File("Block_" + i, BLOCK_SIZE));
+            HdfsCloudlet cloudlet = new HdfsCloudlet(i, 1, 1, 300, 300, new UtilizationModelFull(),
+                    new UtilizationModelFull(), new UtilizationModelFull(),
+                    Collections.singletonList("Block_" + i), BLOCK_SIZE);
+            cloudlet.setUserId(broker.getId());
+            cloudlet.setVmId(0);
+            cloudlets.add(cloudlet);
+        }
+        clientDc.addFiles(blocks);
+        broker.submitCloudletList(cloudlets);
+
+        NetworkTopology.addLink(broker.getId(), nameNode.getId(), 100, 0.5);
+        NetworkTopology.addLink(broker.getId(), clientDc.getId(), 1000, 0.1);
+        NetworkTopology.addLink(broker.getId(), dataNodeDc.getId(), 1000, 0.2);
+        NetworkTopology.setTransferModel(new NetworkTransferModel());
+    }
+
+    private static List<HdfsHost> createHosts(int count) {
+        List<HdfsHost> hosts = new ArrayList<HdfsHost>();
+        for (int i = 0; i < count; i++) {
+            List<Pe> peList = new ArrayList<Pe>();
+            peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+            hosts.add(new HdfsHost(i, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 100000,
+                    peList, new VmSchedulerTimeShared(peList)));
+        }
+        return hosts;
+    }
+
+    private static List<Storage> createDrives(List<HdfsHost> hosts) throws Exception {
+        List<Storage> drives = new ArrayList<Storage>();
+        for (HdfsHost host : hosts) {
+            HarddriveStorage drive = new HarddriveStorage("HDD_Host" + host.getId(), 100000, host.getId());
+            host.setProperStorage(drive);
+            drives.add(drive);
+        }
+        return drives;
+    }
+
+    private static DatacenterCharacteristics createCharacteristics(List<HdfsHost> hosts) {
+        return new DatacenterCharacteristics("x86", "Linux", "Xen", hosts, 10, 3, 0.05, 0.001, 0);
+    }
+
+    // runs the simulation to its end and describes how every block was written
+    private static String finish() {
+        HdfsDatacenterBroker broker = (HdfsDatacenterBroker) CloudSim.getEntity("Broker");
+        HdfsDatacenter dataNodeDc = (HdfsDatacenter) CloudSim.getEntity("DC1");
+        StringBuilder result = new StringBuilder();
+        result.append(CloudSim.startSimulation());
+        for (Storage drive : dataNodeDc.getStorageList()) {
+            result.append(' ').append(drive.getFileNameList());
+        }
+        result.append(' ').append(broker.getWriteLatencies());
+        result.append(' ').append(broker.getCloudletReceivedList().size());
+        return result.toString();
+    }
+
+    @Test
+    public void testCheckpointMidWrite() throws Exception {
+        final String expected = new Simulation().execute(new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                createScenario();
+                return finish();
+            }
+
+        });
+        final double end = Double.parseDouble(expected.substring(0, expected.indexOf(' ')));
+
+        // the checkpoints are taken while the blocks are being written, with messages of every kind in flight
+        for (int i = 1; i < 4; i++) {
+            final double time = end * i / 4;
+            final Simulation simulation = new Simulation();
+            boolean finished = simulation.execute(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() throws Exception {
+                    createScenario();
+                    return simulation.runUntil(time);
+                }
+
+            });
+            assertFalse(finished);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            simulation.checkpoint(out);
+            Simulation restored = Simulation.restore(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(expected, restored.execute(new Callable<String>() {
+
+                @Override
+                public String call() {
+                    return finish();
+                }
+
+            }));
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HdfsCloudletTest {
+
+    private HdfsCloudlet cloudlet;
+
+    // a client cloudlet that writes the file File_0, with blocks of 64 MB and 2 replicas
+    @Before
+    public void setUp() {
+        cloudlet = new HdfsCloudlet(0, 1, 1, 300, 300, new UtilizationModelFull(), new UtilizationModelFull(),
+                new UtilizationModelFull(), Collections.singletonList("File_0"), 64, 2);
+        cloudlet.setUserId(3);
+    }
+
+    @Test
+    public void testBlockCount() {
+        // without a file size the file is a single block
+        assertEquals(1, cloudlet.getBlockCount());
+        cloudlet.setFileSize(64);
+        assertEquals(1, cloudlet.getBlockCount());
+        cloudlet.setFileSize(65);
+        assertEquals(2, cloudlet.getBlockCount());
+        cloudlet.setFileSize(256);
+        assertEquals(4, cloudlet.getBlockCount());
+        cloudlet.setFileSize(200);
+        assertEquals(4, cloudlet.getBlockCount());
+        cloudlet.setBlockSize(0);
+        assertEquals(1, cloudlet.getBlockCount());
+    }
+
+    @Test
+    public void testCloneBlockCloudlet() {
+        // 200 MB are three full blocks and one of 8 MB
+        cloudlet.setFileSize(200);
+        for (int i = 0; i < 4; i++) {
+            HdfsCloudlet block = HdfsCloudlet.cloneBlockCloudlet(cloudlet, 10 + i, i);
+            assertEquals(10 + i, block.getCloudletId());
+            assertEquals(Collections.singletonList("File_0_blk_" + i), block.getRequiredFiles());
+            assertEquals(HdfsCloudlet.getBlockName("File_0", i), block.getRequiredFiles().get(0));
+            assertEquals("File_0", block.getHdfsFileName());
+            assertEquals(i < 3 ? 64 : 8, block.getBlockSize());
+            assertEquals(200, block.getFileSize());
+            assertEquals(2, block.getReplicaNum());
+            assertEquals(3, block.getUserId());
+        }
+
+        // the client cloudlet still describes the whole file
+        assertEquals(Collections.singletonList("File_0"), cloudlet.getRequiredFiles());
+        assertEquals(64, cloudlet.getBlockSize());
+        assertNull(cloudlet.getHdfsFileName());
+    }
+
+}
@@ -0,0 +1,358 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.NetworkTransferModel;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.StorageIoSchedulerFifo;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HdfsDatacenterBrokerTest {
+
+    // the Datacenter of the client, and two remote ones, the second one closer to the broker
+    private static final int CLIENT_DC = 100;
+
+    private static final int FAR_DC = 101;
+
+    private static final int NEAR_DC = 102;
+
+    // a broker whose only vm is the client, the DataNodes belong to another broker as in HdfsExample1
+    private static class ClientBroker extends HdfsDatacenterBroker {
+
+        public ClientBroker(String name) throws Exception {
+            super(name);
+        }
+
+        public void addCreatedVm(HdfsVm vm, int datacenterId) {
+            getVmsToDatacentersMap().put(vm.getId(), datacenterId);
+            getVmsCreatedList().add(vm);
+        }
+
+        public void moveVm(int vmId, int datacenterId) {
+            getVmsToDatacentersMap().put(vmId, datacenterId);
+        }
+    }
+
+    private ClientBroker broker;
+
+    private HdfsCloudlet cloudlet;
+
+    // the client vm 0 is on the host 2, in the rack 1 of its Datacenter. Every test has a simulation of its own, so
+    // the links it adds to the topology don't reach the other tests
+    @Before
+    public void setUp() throws Exception {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+        broker = new ClientBroker("Broker");
+
+        List<Pe> peList = new ArrayList<Pe>();
+        peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+        HdfsHost host = new HdfsHost(2, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 100000,
+                peList, new VmSchedulerTimeShared(peList));
+        host.setRackId(1);
+        HdfsVm client = new HdfsVm(0, broker.getId(), 250, 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerTimeShared());
+        client.setHost(host);
+        broker.addCreatedVm(client, CLIENT_DC);
+
+        cloudlet = new HdfsCloudlet(0, 1, 1, 300, 300, new UtilizationModelFull(), new UtilizationModelFull(),
+                new UtilizationModelFull(), Collections.singletonList("Block_0"), 64);
+        cloudlet.setSourceVmId(0);
+
+        NetworkTopology.addLink(broker.getId(), CLIENT_DC, 1000, 0.1);
+        NetworkTopology.addLink(broker.getId(), FAR_DC, 1000, 0.5);
+        NetworkTopology.addLink(broker.getId(), NEAR_DC, 1000, 0.2);
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // a replica as (DataNode vm id, Datacenter id, rack id, host id)
+    private static int[] replica(int dataNodeId, int datacenterId, int rackId, int hostId) {
+        return new int[]{dataNodeId, datacenterId, rackId, hostId};
+    }
+
+    @Test
+    public void testNodeLocal() {
+        // the DataNode 7 shares the host of the client, even if this broker doesn't know about it
+        List<int[]> locations = Arrays.asList(replica(5, NEAR_DC, 1, 2), replica(6, CLIENT_DC, 1, 3),
+                replica(7, CLIENT_DC, 1, 2));
+        assertEquals(7, broker.chooseReadReplica(cloudlet, locations)[0]);
+    }
+
+    @Test
+    public void testRackLocal() {
+        // the same host id in another Datacenter is another host
+        List<int[]> locations = Arrays.asList(replica(5, NEAR_DC, 1, 2), replica(6, CLIENT_DC, 0, 3),
+                replica(8, CLIENT_DC, 1, 4));
+        assertEquals(8, broker.chooseReadReplica(cloudlet, locations)[0]);
+    }
+
+    @Test
+    public void testRemote() {
+        // without local replicas, the closest Datacenter wins, whatever the rack
+        List<int[]> locations = Arrays.asList(replica(5, FAR_DC, 1, 2), replica(6, NEAR_DC, 0, 5),
+                replica(8, CLIENT_DC, 0, 4));
+        assertEquals(8, broker.chooseReadReplica(cloudlet, locations)[0]);
+        locations = Arrays.asList(replica(5, FAR_DC, 1, 2), replica(6, NEAR_DC, 0, 5));
+        assertEquals(6, broker.chooseReadReplica(cloudlet, locations)[0]);
+    }
+
+    @Test
+    public void testBlockTransferTime() {
+        // the Datacenter of the DataNode 1 records when the block reaches it
+        final List<Double> arrivals = new ArrayList<Double>();
+        SimEntity dataNodeDc = new SimEntity("DataNodeDc") {
+
+            @Override
+            public void startEntity() {
+                broker.submitDNCloudlets();
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT) {
+                    arrivals.add(CloudSim.clock());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        HdfsVm dataNode = new HdfsVm(1, broker.getId(), 250, 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerTimeShared());
+        broker.addCreatedVm(dataNode, dataNodeDc.getId());
+        cloudlet.setVmId(1);
+        broker.getCloudletList().add(cloudlet);
+        NetworkTopology.addLink(broker.getId(), dataNodeDc.getId(), 100, 0.5);
+        NetworkTopology.setTransferModel(new NetworkTransferModel());
+        CloudSim.startSimulation();
+
+        // the block of 64 MB is 512 Mb, it takes 5.12 seconds on a link of 100 Mb/s, plus the latency
+        assertEquals(1, arrivals.size());
+        assertEquals(5.62, arrivals.get(0), 1e-9);
+    }
+
+    @Test
+    public void testPipelinedBlockTransferTime() throws Exception {
+        // the Datacenter of the DataNode 1 streams the blocks in packets of a tenth of a block, and forwards them to
+        // a replication broker that records when the first packet has been read
+        List<Pe> peList = new ArrayList<Pe>();
+        peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+        HdfsHost host = new HdfsHost(0, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 100000,
+                peList, new VmSchedulerTimeShared(peList));
+        final HarddriveStorage drive = new HarddriveStorage("HDD_Host0", 100000, 0);
+        drive.setIoScheduler(new StorageIoSchedulerFifo());
+        host.setProperStorage(drive);
+        List<HdfsHost> hosts = Collections.singletonList(host);
+        final HdfsDatacenter dataNodeDc = new HdfsDatacenter("DataNodeDc", 0, new DatacenterCharacteristics("x86",
+                "Linux", "Xen", hosts, 10, 3, 0.05, 0.001, 0), new VmAllocationPolicySimple(hosts),
+                Collections.<Storage>singletonList(drive), 0);
+        dataNodeDc.setPipelinedReplication(true);
+        dataNodeDc.setPacketSize(6.4);
+
+        final List<Double> arrivals = new ArrayList<Double>();
+        final List<HdfsCloudlet> returned = new ArrayList<HdfsCloudlet>();
+        SimEntity replicationBroker = new SimEntity("ReplicationBroker") {
+
+            @Override
+            public void startEntity() {
+                broker.submitDNCloudlets();
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_DN_CLOUDLET_RETURN) {
+                    arrivals.add(CloudSim.clock());
+                    returned.add((HdfsCloudlet) ev.getData());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        HdfsVm dataNode = new HdfsVm(1, replicationBroker.getId(), 250, 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerTimeShared());
+        dataNode.setHdfsType(CloudSimTags.HDFS_DN);
+        dataNodeDc.getVmAllocationPolicy().allocateHostForVm(dataNode, host);
+        dataNodeDc.getVmList().add(dataNode);
+        dataNodeDc.getMapVmToHost().put(dataNode.getId(), host);
+        dataNodeDc.setReplicationBrokerId(replicationBroker.getId());
+        broker.addCreatedVm(dataNode, dataNodeDc.getId());
+        cloudlet.setUserId(replicationBroker.getId());
+        cloudlet.setVmId(1);
+        cloudlet.setDestVmIds(new ArrayList<Integer>(Collections.singletonList(2)));
+        broker.getCloudletList().add(cloudlet);
+        NetworkTopology.addLink(broker.getId(), dataNodeDc.getId(), 100, 0.5);
+        NetworkTopology.setTransferModel(new NetworkTransferModel());
+        CloudSim.startSimulation();
+
+        // the first packet crosses the link in 0.512 seconds after the latency, and is forwarded once it has been
+        // read, which waits for the write of the block on the drive. The last packet gets there after the 5.12
+        // seconds of the whole block, and is written in a tenth of the time of the block
+        double diskTime = drive.getFile("Block_0").getTransactionTime();
+        assertEquals(1, arrivals.size());
+        assertEquals(0.5 + 0.512 + diskTime + diskTime / 10, arrivals.get(0), 1e-9);
+        assertEquals(0.5 + 5.12 + diskTime / 10, returned.get(0).getPipelineFinishTime(), 1e-9);
+
+        // only the first packet is read back from the drive
+        assertEquals(64 + 6.4, drive.getIoScheduler().getTransferredData(), 1e-9);
+    }
+
+    @Test
+    public void testReplicaTransferTime() throws Exception {
+        // the DataNode 1 has stored the block and returns it twice to the replication broker, once for the DataNode 2
+        // in its own Datacenter, once for the DataNode 3 in the other one; both Datacenters record when it reaches them
+        final HdfsReplicationBroker replicationBroker = new HdfsReplicationBroker("ReplicationBroker", 100000);
+        final List<Double> localArrivals = new ArrayList<Double>();
+        final List<Double> remoteArrivals = new ArrayList<Double>();
+        final SimEntity remoteDc = new SimEntity("RemoteDc") {
+
+            @Override
+            public void startEntity() {
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT) {
+                    remoteArrivals.add(CloudSim.clock());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        final SimEntity localDc = new SimEntity("LocalDc") {
+
+            @Override
+            public void startEntity() {
+                // the replication broker learns where the DataNodes are, as the client broker tells it
+                for (int dataNodeId = 1; dataNodeId <= 3; dataNodeId++) {
+                    int datacenterId = dataNodeId < 3 ? getId() : remoteDc.getId();
+                    sendNow(replicationBroker.getId(), CloudSimTags.HDFS_REP_BROKER_ADD_DN,
+                            new DataNodeRegistration(dataNodeId, datacenterId, 0, dataNodeId, 100000));
+                }
+                for (int dataNodeId : Arrays.asList(2, 3)) {
+                    HdfsCloudlet replica = HdfsCloudlet.cloneCloudletAssignNewId(cloudlet, dataNodeId);
+                    replica.setVmId(1);
+                    replica.setDestVmIds(new ArrayList<Integer>(Collections.singletonList(dataNodeId)));
+                    sendNow(replicationBroker.getId(), CloudSimTags.HDFS_DN_CLOUDLET_RETURN, replica);
+                }
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT) {
+                    localArrivals.add(CloudSim.clock());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        List<HdfsVm> dataNodes = new ArrayList<HdfsVm>();
+        for (int i = 1; i <= 3; i++) {
+            dataNodes.add(new HdfsVm(i, broker.getId(), 250, 1, 512, 1000, 10000, "Xen",
+                    new CloudletSchedulerTimeShared()));
+        }
+        replicationBroker.submitVmList(dataNodes);
+        NetworkTopology.addLink(localDc.getId(), remoteDc.getId(), 100, 0.5);
+        NetworkTopology.setTransferModel(new NetworkTransferModel());
+        CloudSim.startSimulation();
+
+        // the block of 64 MB is 512 Mb, it takes 5.12 seconds on the link of 100 Mb/s between the Datacenters, and
+        // no time at all to reach a DataNode of the Datacenter it is already in
+        assertEquals(1, localArrivals.size());
+        assertEquals(1, remoteArrivals.size());
+        assertEquals(0.0, localArrivals.get(0), 1e-9);
+        assertEquals(5.12, remoteArrivals.get(0), 1e-9);
+    }
+
+    @Test
+    public void testClientCloudletReturnedBeforeItsBlock() {
+        // the client Datacenter returns the cloudlet right away, but the block it read only a second later. The
+        // same entity is the NameNode, which writes every block in the DataNode 1, and the Datacenter of that DataNode
+        final List<Double> arrivals = new ArrayList<Double>();
+        SimEntity hdfs = new SimEntity("Hdfs") {
+
+            @Override
+            public void startEntity() {
+                broker.submitCloudletList(Collections.singletonList(cloudlet));
+                broker.submitCloudlets();
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                switch (ev.getTag()) {
+                    case CloudSimTags.HDFS_CLIENT_CLOUDLET_SUBMIT:
+                        sendNow(broker.getId(), CloudSimTags.CLOUDLET_RETURN, ev.getData());
+                        send(broker.getId(), 1, CloudSimTags.HDFS_CLIENT_CLOUDLET_RETURN, ev.getData());
+                        break;
+                    case CloudSimTags.HDFS_NAMENODE_WRITE_FILE:
+                        BlockWriteRequest request = (BlockWriteRequest) ev.getData();
+                        sendNow(broker.getId(), CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST,
+                                new BlockWriteTargets(request.getWriteId(), Collections.singletonList(1)));
+                        break;
+                    case CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT:
+                        arrivals.add(CloudSim.clock());
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        broker.moveVm(0, hdfs.getId());
+        broker.addCreatedVm(new HdfsVm(1, broker.getId(), 250, 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerTimeShared()), hdfs.getId());
+        broker.setNameNodeId(hdfs.getId());
+        cloudlet.setUserId(broker.getId());
+        cloudlet.setVmId(0);
+        CloudSim.startSimulation();
+
+        // the write of the block was still to come, so the broker didn't finish and destroy the DataNode
+        assertEquals(1, arrivals.size());
+        assertEquals(1.0, arrivals.get(0), 1e-9);
+    }
+
+}
@@ -0,0 +1,214 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.NetworkTransferModel;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.StorageIoSchedulerFifo;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.VmAllocationPolicySimple;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HdfsDatacenterTest {
+
+    private List<HdfsHost> hosts;
+
+    private HdfsDatacenter dc;
+
+    // a DataNode Datacenter of 2 hosts, each with a drive, on the rack 0, in a simulation of its own
+    @Before
+    public void setUp() throws Exception {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+
+        hosts = new ArrayList<HdfsHost>();
+        List<Storage> drives = new ArrayList<Storage>();
+        for (int i = 0; i < 2; i++) {
+            List<Pe> peList = new ArrayList<Pe>();
+            peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+            HdfsHost host = new HdfsHost(i, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 100000,
+                    peList, new VmSchedulerTimeShared(peList));
+            HarddriveStorage drive = new HarddriveStorage("HDD_Host" + i, 100000, i);
+            host.setProperStorage(drive);
+            drives.add(drive);
+            hosts.add(host);
+        }
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+                10, 3, 0.05, 0.001, 0);
+        dc = new HdfsDatacenter("DC", 0, characteristics, new VmAllocationPolicySimple(hosts), drives, 0);
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // creates a DataNode vm on a host of the Datacenter, which writes its blocks to the drives of that host
+    private HdfsVm createDataNode(int id, int userId, HdfsHost host) {
+        HdfsVm vm = new HdfsVm(id, userId, 250, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerTimeShared());
+        vm.setHdfsType(CloudSimTags.HDFS_DN);
+        dc.getVmAllocationPolicy().allocateHostForVm(vm, host);
+        dc.getVmList().add(vm);
+        dc.getMapVmToHost().put(id, host);
+        return vm;
+    }
+
+    @Test
+    public void testReadTransferTime() throws Exception {
+        // the client asks the Datacenter for the block 0 on the DataNode 0, and records when it gets it
+        final List<Double> arrivals = new ArrayList<Double>();
+        final HdfsCloudlet cloudlet = new HdfsCloudlet(0, 1, 1, 300, 300, new UtilizationModelFull(),
+                new UtilizationModelFull(), new UtilizationModelFull(), Collections.singletonList("Block_0"), 64);
+        SimEntity client = new SimEntity("Client") {
+
+            @Override
+            public void startEntity() {
+                sendNow(dc.getId(), CloudSimTags.HDFS_READ_CLOUDLET_SUBMIT, cloudlet);
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_READ_CLOUDLET_RETURN) {
+                    arrivals.add(CloudSim.clock());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        createDataNode(0, client.getId(), hosts.get(0));
+        hosts.get(0).getProperStorage().addFile(new File("Block_0", 64));
+        cloudlet.setUserId(client.getId());
+        cloudlet.setVmId(0);
+        NetworkTopology.addLink(client.getId(), dc.getId(), 10, 0.25);
+        NetworkTopology.setTransferModel(new NetworkTransferModel());
+        CloudSim.startSimulation();
+
+        // the block of 64 MB is 512 Mb, on a link of 10 Mb/s it takes longer to send than to read from the drive
+        assertEquals(1, arrivals.size());
+        assertEquals(0.25 + 51.2 + 0.25, arrivals.get(0), 1e-9);
+    }
+
+    @Test
+    public void testForwardRead() {
+        // the replication broker writes the block 0 in the DataNode 0, which forwards it to the DataNode 1, the last of
+        // the pipeline. Every drive counts the data it reads and writes
+        for (HdfsHost host : hosts) {
+            host.getProperStorage().setIoScheduler(new StorageIoSchedulerFifo());
+        }
+        final HdfsCloudlet cloudlet = new HdfsCloudlet(0, 1, 1, 300, 300, new UtilizationModelFull(),
+                new UtilizationModelFull(), new UtilizationModelFull(), Collections.singletonList("Block_0"), 64);
+        SimEntity replicationBroker = new SimEntity("ReplicationBroker") {
+
+            @Override
+            public void startEntity() {
+                sendNow(dc.getId(), CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT, cloudlet);
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                HdfsCloudlet returned = (HdfsCloudlet) ev.getData();
+                if (ev.getTag() == CloudSimTags.HDFS_DN_CLOUDLET_RETURN && !returned.getDestVmIds().isEmpty()) {
+                    HdfsCloudlet replica = HdfsCloudlet.cloneCloudletAssignNewId(returned, 1);
+                    replica.setVmId(returned.getDestVmIds().get(0));
+                    replica.setDestVmIds(new ArrayList<Integer>());
+                    sendNow(dc.getId(), CloudSimTags.HDFS_DN_CLOUDLET_SUBMIT, replica);
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        createDataNode(0, replicationBroker.getId(), hosts.get(0));
+        createDataNode(1, replicationBroker.getId(), hosts.get(1));
+        dc.setReplicationBrokerId(replicationBroker.getId());
+        cloudlet.setUserId(replicationBroker.getId());
+        cloudlet.setVmId(0);
+        cloudlet.setDestVmIds(new ArrayList<Integer>(Collections.singletonList(1)));
+        CloudSim.startSimulation();
+
+        // the DataNode 0 reads the block it has written from its own drive, the DataNode 1 doesn't read it at all
+        assertEquals(2 * 64, hosts.get(0).getProperStorage().getIoScheduler().getTransferredData(), 1e-9);
+        assertEquals(64, hosts.get(1).getProperStorage().getIoScheduler().getTransferredData(), 1e-9);
+    }
+
+    @Test
+    public void testVmMigrateAndDestroy() {
+        // a broker creates a DataNode, moves it to the other host at 1 and destroys it at 2, and looks at the hosts
+        // the Datacenter writes its blocks to right after every step
+        final HdfsVm vm = new HdfsVm(0, 0, 250, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerTimeShared());
+        vm.setHdfsType(CloudSimTags.HDFS_DN);
+        final List<HdfsHost> writingHosts = new ArrayList<HdfsHost>();
+        new SimEntity("Broker") {
+
+            @Override
+            public void startEntity() {
+                sendNow(dc.getId(), CloudSimTags.VM_CREATE, vm);
+                schedule(getId(), 0.5, 0);
+                schedule(getId(), 1.5, 0);
+                schedule(getId(), 2.5, 0);
+                schedule(getId(), 1, 1);
+                send(dc.getId(), 2, CloudSimTags.VM_DESTROY, vm);
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == 0) {
+                    writingHosts.add(dc.getMapVmToHost().get(vm.getId()));
+                } else {
+                    hosts.get(1).addMigratingInVm(vm);
+                    Map<String, Object> migrate = new HashMap<String, Object>();
+                    migrate.put("vm", vm);
+                    migrate.put("host", hosts.get(1));
+                    sendNow(dc.getId(), CloudSimTags.VM_MIGRATE, migrate);
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        CloudSim.startSimulation();
+
+        assertEquals(3, writingHosts.size());
+        assertSame(hosts.get(0), writingHosts.get(0));
+        assertSame(hosts.get(1), writingHosts.get(1));
+        assertNull(writingHosts.get(2));
+        assertFalse(dc.getMapVmToHost().containsKey(vm.getId()));
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.HarddriveStorage;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HdfsHostTest {
+
+    private HdfsHost host;
+
+    private List<HarddriveStorage> drives;
+
+    // a host with three drives of 200, 100 and 300 MB, in a simulation of its own
+    @Before
+    public void setUp() throws Exception {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+
+        List<Pe> peList = new ArrayList<Pe>();
+        peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+        host = new HdfsHost(4, new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 100000, peList,
+                new VmSchedulerTimeShared(peList));
+        drives = new ArrayList<HarddriveStorage>();
+        int[] capacities = {200, 100, 300};
+        for (int i = 0; i < capacities.length; i++) {
+            HarddriveStorage drive = new HarddriveStorage("HDD_" + i, capacities[i]);
+            host.addDrive(drive);
+            drives.add(drive);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // lets the host choose the drive of a new block, and writes the block to it
+    private HarddriveStorage write(String name, int size) throws Exception {
+        File block = new File(name, size);
+        HarddriveStorage drive = host.chooseDrive(block);
+        if (drive != null) {
+            drive.addFile(block);
+        }
+        return drive;
+    }
+
+    @Test
+    public void testDrives() throws Exception {
+        // a drive attached twice counts once, and takes the id of the host
+        host.addDrive(drives.get(0));
+        assertEquals(drives, host.getDriveList());
+        assertEquals(4, drives.get(2).getHostId());
+        assertEquals(600, host.getDriveCapacity(), 0);
+        assertSame(drives.get(0), host.getProperStorage());
+
+        write("Block_0", 64);
+        write("Block_1", 64);
+        assertSame(drives.get(1), host.findDrive("Block_1"));
+        assertNull(host.findDrive("Block_2"));
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        // the drives take the blocks in turn, the small one is skipped once it is full
+        List<HarddriveStorage> chosen = new ArrayList<HarddriveStorage>();
+        for (int i = 0; i < 7; i++) {
+            chosen.add(write("Block_" + i, 64));
+        }
+        assertEquals(drives.get(0), chosen.get(0));
+        assertEquals(drives.get(1), chosen.get(1));
+        assertEquals(drives.get(2), chosen.get(2));
+        assertEquals(drives.get(0), chosen.get(3));
+        assertEquals(drives.get(2), chosen.get(4));
+        assertEquals(drives.get(0), chosen.get(5));
+        assertEquals(drives.get(2), chosen.get(6));
+
+        // 8 MB are left on the first drive, 36 on the second and 108 on the third
+        assertSame(drives.get(2), write("Block_7", 100));
+        assertNull(write("Block_8", 40));
+    }
+
+    @Test
+    public void testAvailableSpace() throws Exception {
+        host.setVolumeChoosingPolicy(new VolumeChoosingPolicyAvailableSpace());
+
+        // the drive with the most space left takes the block, the first attached one on a tie
+        assertSame(drives.get(2), write("Block_0", 100));
+        assertSame(drives.get(0), write("Block_1", 100));
+        assertSame(drives.get(2), write("Block_2", 100));
+        assertSame(drives.get(0), write("Block_3", 100));
+        assertSame(drives.get(1), write("Block_4", 50));
+        assertSame(drives.get(2), write("Block_5", 100));
+        assertNull(write("Block_6", 100));
+    }
+
+    @Test
+    public void testNoDrives() throws Exception {
+        host.getDriveList().clear();
+        assertNull(write("Block_0", 64));
+        assertNull(host.getProperStorage());
+        assertEquals(0, host.getDriveCapacity(), 0);
+    }
+
+}
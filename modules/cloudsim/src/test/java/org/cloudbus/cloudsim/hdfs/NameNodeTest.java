@@ -0,0 +1,108 @@
+package org.cloudbus.cloudsim.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NameNodeTest {
+
+    private NameNode nameNode;
+
+    // the answers of the NameNode, in the order they arrive
+    private List<BlockWriteTargets> answers;
+
+    @Before
+    public void setUp() {
+        Simulation.setCurrent(new Simulation());
+        Log.disable();
+        CloudSim.init(1, null, false);
+        nameNode = new NameNode("NameNode", 64, 2);
+        answers = new ArrayList<BlockWriteTargets>();
+    }
+
+    @After
+    public void tearDown() {
+        Log.enable();
+        Simulation.setCurrent(null);
+    }
+
+    // a broker that registers four DataNodes on two racks and then asks the NameNode to place the given blocks, every
+    // one of them as (block name, file name)
+    private void write(final String[]... blocks) {
+        new SimEntity("Broker") {
+
+            @Override
+            public void startEntity() {
+                for (int i = 0; i < 4; i++) {
+                    sendNow(nameNode.getId(), CloudSimTags.HDFS_NAMENODE_ADD_DN,
+                            new DataNodeRegistration(10 + i, 100, i / 2, i, 1000));
+                }
+                for (int i = 0; i < blocks.length; i++) {
+                    sendNow(nameNode.getId(), CloudSimTags.HDFS_NAMENODE_WRITE_FILE,
+                            new BlockWriteRequest(blocks[i][0], 0, 64, getId(), 0, i, blocks[i][1]));
+                }
+            }
+
+            @Override
+            public void processEvent(SimEvent ev) {
+                if (ev.getTag() == CloudSimTags.HDFS_NAMENODE_RETURN_DN_LIST) {
+                    answers.add((BlockWriteTargets) ev.getData());
+                }
+            }
+
+            @Override
+            public void shutdownEntity() {
+            }
+
+        };
+        CloudSim.startSimulation();
+    }
+
+    @Test
+    public void testFileBlocks() {
+        // the blocks of two files arrive interleaved, and the block 1 of File_0 is written a second time
+        write(new String[]{"File_0_blk_0", "File_0"}, new String[]{"File_1_blk_0", "File_1"},
+                new String[]{"File_0_blk_1", "File_0"}, new String[]{"File_0_blk_1", "File_0"},
+                new String[]{"File_0_blk_2", "File_0"});
+
+        assertEquals(5, answers.size());
+        assertFalse(answers.get(3).getDataNodeIds().isEmpty());
+
+        // every file lists its blocks once, in the order they were first written
+        assertEquals(Arrays.asList("File_0_blk_0", "File_0_blk_1", "File_0_blk_2"), nameNode.getFileBlocks("File_0"));
+        assertEquals(Arrays.asList("File_1_blk_0"), nameNode.getFileBlocks("File_1"));
+        assertTrue(nameNode.getFileBlocks("File_2").isEmpty());
+    }
+
+    @Test
+    public void testFileBlocksWithoutRoom() {
+        // by the last write every DataNode holds the block, so there is nowhere to write it
+        write(new String[]{"File_0_blk_0", "File_0"}, new String[]{"File_0_blk_0", "File_0"},
+                new String[]{"File_0_blk_0", "File_0"}, new String[]{"File_0_blk_0", "File_0"});
+
+        assertEquals(4, answers.size());
+        assertTrue(answers.get(3).getDataNodeIds().isEmpty());
+        assertEquals(Arrays.asList("File_0_blk_0"), nameNode.getFileBlocks("File_0"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFileBlocksUnmodifiable() {
+        write(new String[]{"File_0_blk_0", "File_0"});
+        nameNode.getFileBlocks("File_0").add("File_0_blk_1");
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FabricBuilderTest {
+
+	private List<NetworkHost> hosts;
+
+	private NetworkDatacenter dc;
+
+	@Before
+	public void setUp() throws Exception {
+		Log.disable();
+		CloudSim.init(1, null, false);
+
+		hosts = new ArrayList<NetworkHost>();
+		for (int i = 0; i < 16; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+			hosts.add(new NetworkHost(i, new RamProvisionerSimple(1024), new BwProvisionerSimple(1000), 1000,
+					peList, new VmSchedulerTimeShared(peList)));
+		}
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+				10, 3, 0.05, 0.001, 0);
+		dc = new NetworkDatacenter("dc", characteristics, new NetworkVmAllocationPolicy(hosts),
+				new LinkedList<Storage>(), 0);
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	/**
+	 * Puts the VM i on host i.
+	 */
+	private void addVms() {
+		for (NetworkHost host : hosts) {
+			NetworkVm vm = new NetworkVm(host.getId(), 0, 1000, 1, 128, 10, 100, "Xen",
+					new NetworkCloudletSpaceSharedScheduler());
+			dc.getRoutingTable().addVm(vm, host);
+		}
+	}
+
+	private static NetworkPacket createPacket(int sender, int receiver, int cloudlet) {
+		return new NetworkPacket(sender, new HostPacket(sender, receiver, 1, 0, -1, cloudlet, cloudlet), sender,
+				cloudlet);
+	}
+
+	@Test
+	public void testFatTree() {
+		FabricBuilder builder = new FabricBuilder(dc);
+		builder.buildFatTree(4);
+		addVms();
+
+		assertEquals(4, builder.getRootSwitches().size());
+		assertEquals(8, builder.getAggregateSwitches().size());
+		assertEquals(8, builder.getEdgeSwitches().size());
+		assertEquals(20, dc.Switchlist.size());
+		assertSame(builder.getEdgeSwitches().get(7), hosts.get(15).sw);
+		assertEquals(2, builder.getEdgeSwitches().get(0).uplinkswitches.size());
+		assertEquals(2, builder.getAggregateSwitches().get(0).uplinkswitches.size());
+		assertEquals(1.0, builder.getOversubscription(), 0);
+
+		// every root switch reaches every edge switch, through a single aggregate switch per pod
+		RoutingTable table = dc.getRoutingTable();
+		for (Switch root : builder.getRootSwitches()) {
+			for (Switch edge : builder.getEdgeSwitches()) {
+				Switch agg = table.getSwitch(table.getDownlinkSwitchId(root.getId(), edge.getId()));
+				assertTrue(agg.downlinkswitches.contains(edge));
+				assertTrue(agg.uplinkswitches.contains(root));
+			}
+		}
+	}
+
+	@Test
+	public void testEcmp() {
+		FabricBuilder builder = new FabricBuilder(dc);
+		builder.buildFatTree(4);
+		addVms();
+		RoutingTable table = dc.getRoutingTable();
+		int edgeId = builder.getEdgeSwitches().get(0).getId();
+
+		// per flow, the packets of a flow take the same uplink, and the flows use both uplinks
+		Set<Integer> uplinks = new HashSet<Integer>();
+		for (int cloudlet = 0; cloudlet < 16; cloudlet++) {
+			int uplink = table.getUplinkSwitchId(edgeId, createPacket(0, 15, cloudlet));
+			assertEquals(uplink, table.getUplinkSwitchId(edgeId, createPacket(0, 15, cloudlet)));
+			uplinks.add(uplink);
+		}
+		assertEquals(2, uplinks.size());
+
+		// per packet, the uplinks are used in turn
+		table.setEcmpMode(RoutingTable.ECMP_PER_PACKET);
+		NetworkPacket packet = createPacket(0, 15, 0);
+		int first = table.getUplinkSwitchId(edgeId, packet);
+		int second = table.getUplinkSwitchId(edgeId, packet);
+		assertTrue(first != second);
+		assertEquals(first, table.getUplinkSwitchId(edgeId, packet));
+	}
+
+	@Test
+	public void testLeafSpine() {
+		FabricBuilder builder = new FabricBuilder(dc);
+		builder.setEdgeBandwidth(100);
+		builder.setHostBandwidth(100);
+		builder.buildLeafSpine(4, 2, 4);
+		addVms();
+		dc.setFlowModel(new NetworkFlowModel(dc));
+
+		assertEquals(0, builder.getRootSwitches().size());
+		assertEquals(2, builder.getAggregateSwitches().size());
+		assertEquals(4, builder.getEdgeSwitches().get(3).hostlist.size());
+		assertEquals(2.0, builder.getOversubscription(), 0);
+
+		// the flows from the hosts of leaf 0 to the hosts of leaf 1 cross a single spine each
+		new SimEntity("sender") {
+
+			@Override
+			public void startEntity() {
+				schedule(getId(), 1, 0);
+			}
+
+			@Override
+			public void processEvent(SimEvent ev) {
+				for (int i = 0; i < 4; i++) {
+					List<NetworkPacket> packets = new ArrayList<NetworkPacket>();
+					packets.add(createPacket(i, 4 + i, i));
+					dc.getFlowModel().startFlows(hosts.get(i), packets);
+				}
+			}
+
+			@Override
+			public void shutdownEntity() {
+			}
+
+		};
+		CloudSim.startSimulation();
+
+		int received = 0;
+		for (int i = 4; i < 8; i++) {
+			received += hosts.get(i).packetrecieved.size();
+		}
+		assertEquals(4, received);
+		assertEquals(4, dc.getFlowModel().getFlowCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyHosts() {
+		new FabricBuilder(dc).buildFatTree(2);
+	}
+
+}
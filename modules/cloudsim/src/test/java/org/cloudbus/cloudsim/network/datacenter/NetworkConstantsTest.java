@@ -0,0 +1,50 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.Callable;
+
+import org.cloudbus.cloudsim.core.Simulation;
+import org.junit.Test;
+
+@SuppressWarnings("deprecation")
+public class NetworkConstantsTest {
+
+	@Test
+	public void testStaticFields() throws Exception {
+		// the deprecated fields follow the counters of the default simulation
+		int cloudletId = NetworkConstants.nextCloudletId();
+		int appId = NetworkConstants.nextAppId();
+		NetworkConstants.addDataTransfer(100);
+		assertEquals(cloudletId + 1, NetworkConstants.currentCloudletId);
+		assertEquals(NetworkConstants.getCurrentCloudletId(), NetworkConstants.currentCloudletId);
+		assertEquals(appId + 1, NetworkConstants.currentAppId);
+		assertEquals(NetworkConstants.getCurrentAppId(), NetworkConstants.currentAppId);
+		assertEquals(NetworkConstants.getTotalDataTransfer(), NetworkConstants.totaldatatransfer);
+
+		// another simulation has counters of its own, and leaves the fields alone
+		int otherId = new Simulation().execute(new Callable<Integer>() {
+
+			@Override
+			public Integer call() {
+				NetworkConstants.addDataTransfer(50);
+				NetworkConstants.nextAppId();
+				return NetworkConstants.nextCloudletId();
+			}
+
+		});
+		assertEquals(0, otherId);
+		assertEquals(cloudletId + 1, NetworkConstants.currentCloudletId);
+		assertEquals(appId + 1, NetworkConstants.currentAppId);
+		assertEquals(NetworkConstants.getTotalDataTransfer(), NetworkConstants.totaldatatransfer);
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkFlowModelTest {
+
+	private static final int START = 1;
+
+	private List<String> log;
+
+	private List<NetworkHost> hosts;
+
+	private NetworkDatacenter dc;
+
+	/**
+	 * Builds a datacenter with hosts 0 and 1 on an edge switch, host 2 on another one, and an
+	 * aggregate switch above both. All the links have 100 bandwidth, and the VM i is on host i.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Log.disable();
+		CloudSim.init(1, null, false);
+		log = new ArrayList<String>();
+
+		hosts = new ArrayList<NetworkHost>();
+		for (int i = 0; i < 3; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+			hosts.add(new NetworkHost(i, new RamProvisionerSimple(1024), new BwProvisionerSimple(1000), 1000,
+					peList, new VmSchedulerTimeShared(peList)));
+		}
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+				10, 3, 0.05, 0.001, 0);
+		dc = new NetworkDatacenter("dc", characteristics, new NetworkVmAllocationPolicy(hosts),
+				new LinkedList<Storage>(), 0);
+
+		AggregateSwitch agg = new AggregateSwitch("agg", NetworkConstants.Agg_LEVEL, dc);
+		agg.switching_delay = 0.02;
+		agg.downlinkbandwidth = 100;
+		List<Switch> edges = new ArrayList<Switch>();
+		for (int i = 0; i < 2; i++) {
+			EdgeSwitch edge = new EdgeSwitch("edge" + i, NetworkConstants.EDGE_LEVEL, dc) {
+
+				@Override
+				protected void processhostpacket(SimEvent ev) {
+					NetworkPacket packet = (NetworkPacket) ev.getData();
+					log.add(CloudSim.clock() + " " + packet.pkt.data + " to host " + packet.recieverhostid);
+					super.processhostpacket(ev);
+				}
+
+			};
+			edge.switching_delay = 0.01;
+			edge.latency = 0.03;
+			edge.uplinkbandwidth = 100;
+			edge.downlinkbandwidth = 100;
+			edge.uplinkswitches.add(agg);
+			agg.downlinkswitches.add(edge);
+			edges.add(edge);
+		}
+		for (NetworkHost host : hosts) {
+			host.bandwidth = 100;
+			host.sw = edges.get(host.getId() < 2 ? 0 : 1);
+			host.sw.hostlist.put(host.getId(), host);
+			NetworkVm vm = new NetworkVm(host.getId(), 0, 1000, 1, 128, 10, 100, "Xen",
+					new NetworkCloudletSpaceSharedScheduler());
+			dc.getRoutingTable().addVm(vm, host);
+		}
+		dc.setFlowModel(new NetworkFlowModel(dc));
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	/**
+	 * Makes host 0 send the given amounts of data to the VMs of the given hosts, at time 1.
+	 */
+	private void send(final double[] data, final int[] receivers) {
+		new SimEntity("sender") {
+
+			@Override
+			public void startEntity() {
+				schedule(getId(), 1, START);
+			}
+
+			@Override
+			public void processEvent(SimEvent ev) {
+				List<NetworkPacket> packets = new ArrayList<NetworkPacket>();
+				for (int i = 0; i < data.length; i++) {
+					HostPacket pkt = new HostPacket(0, receivers[i], data[i], CloudSim.clock(), -1, 0, 0);
+					packets.add(new NetworkPacket(0, pkt, 0, 0));
+				}
+				dc.getFlowModel().startFlows(hosts.get(0), packets);
+			}
+
+			@Override
+			public void shutdownEntity() {
+			}
+
+		};
+	}
+
+	@Test
+	public void testFairSharing() {
+		// both flows share the link from host 0: the one to host 1 completes at 1 + 50 / 50, then
+		// the other one gets the whole link for the 50 it has left
+		send(new double[] {0.1, 0.05}, new int[] {2, 1});
+		CloudSim.startSimulation();
+
+		List<String> expected = new ArrayList<String>();
+		expected.add("2.01 0.05 to host 1");
+		expected.add("2.56 0.1 to host 2");
+		assertEquals(expected, round(log));
+		assertEquals(2, dc.getFlowModel().getFlowCount());
+		assertEquals(0, dc.getFlowModel().getActiveFlowCount());
+		assertEquals(2, dc.getFlowModel().getRateUpdateCount());
+		assertEquals(2, hosts.get(2).packetrecieved.size() + hosts.get(1).packetrecieved.size());
+	}
+
+	@Test
+	public void testBottleneck() {
+		// the flows to host 2 share the uplink of the edge switch, so they are limited to 50 and
+		// leave more of the link from host 0 to the flow to host 1
+		hosts.get(0).bandwidth = 300;
+		hosts.get(0).sw.downlinkbandwidth = 300;
+		send(new double[] {0.1, 0.1, 0.3}, new int[] {2, 2, 1});
+		CloudSim.startSimulation();
+
+		// the flow to host 1 gets the 200 left on the link from host 0, until 1 + 300 / 200
+		List<String> expected = new ArrayList<String>();
+		expected.add("2.51 0.3 to host 1");
+		expected.add("3.06 0.1 to host 2");
+		expected.add("3.06 0.1 to host 2");
+		assertEquals(expected, round(log));
+	}
+
+	/**
+	 * Rounds the times of the log to hundredths.
+	 */
+	private static List<String> round(List<String> log) {
+		List<String> rounded = new ArrayList<String>();
+		for (String line : log) {
+			int space = line.indexOf(' ');
+			double time = Math.round(Double.parseDouble(line.substring(0, space)) * 100) / 100.0;
+			rounded.add(time + line.substring(space));
+		}
+		return rounded;
+	}
+
+}
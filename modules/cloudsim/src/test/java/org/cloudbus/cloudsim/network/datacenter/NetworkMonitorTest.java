@@ -0,0 +1,195 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkMonitorTest {
+
+	private List<NetworkHost> hosts;
+
+	private List<Switch> edges;
+
+	private AggregateSwitch agg;
+
+	private NetworkDatacenter dc;
+
+	private NetworkMonitor monitor;
+
+	/**
+	 * Builds a datacenter with hosts 0 and 1 on an edge switch, host 2 on another one, and an
+	 * aggregate switch above both, monitored every time unit. The links between the switches have
+	 * 100 bandwidth, and the VM i is on host i.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		Log.disable();
+		CloudSim.init(1, null, false);
+
+		hosts = new ArrayList<NetworkHost>();
+		for (int i = 0; i < 3; i++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+			hosts.add(new NetworkHost(i, new RamProvisionerSimple(1024), new BwProvisionerSimple(1000), 1000,
+					peList, new VmSchedulerTimeShared(peList)));
+		}
+		DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hosts,
+				10, 3, 0.05, 0.001, 0);
+		dc = new NetworkDatacenter("dc", characteristics, new NetworkVmAllocationPolicy(hosts),
+				new LinkedList<Storage>(), 0);
+
+		agg = new AggregateSwitch("agg", NetworkConstants.Agg_LEVEL, dc);
+		agg.switching_delay = 0.02;
+		agg.downlinkbandwidth = 100;
+		edges = new ArrayList<Switch>();
+		for (int i = 0; i < 2; i++) {
+			EdgeSwitch edge = new EdgeSwitch("edge" + i, NetworkConstants.EDGE_LEVEL, dc);
+			edge.switching_delay = 0.01;
+			edge.latency = 0.03;
+			edge.uplinkbandwidth = 100;
+			edge.downlinkbandwidth = 100;
+			edge.uplinkswitches.add(agg);
+			agg.downlinkswitches.add(edge);
+			edges.add(edge);
+		}
+		for (NetworkHost host : hosts) {
+			host.sw = edges.get(host.getId() < 2 ? 0 : 1);
+			host.sw.hostlist.put(host.getId(), host);
+			NetworkVm vm = new NetworkVm(host.getId(), 0, 1000, 1, 128, 10, 100, "Xen",
+					new NetworkCloudletSpaceSharedScheduler());
+			dc.getRoutingTable().addVm(vm, host);
+		}
+		monitor = new NetworkMonitor(dc, 1);
+		dc.setNetworkMonitor(monitor);
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testForwarding() throws Exception {
+		// a packet from VM 0 to VM 2 reaches the first edge switch at time 1
+		new SimEntity("sender") {
+
+			@Override
+			public void startEntity() {
+				HostPacket pkt = new HostPacket(0, 2, 0.1, 1, -1, 0, 0);
+				send(edges.get(0).getId(), 1, CloudSimTags.Network_Event_UP, new NetworkPacket(0, pkt, 0, 0));
+			}
+
+			@Override
+			public void processEvent(SimEvent ev) {
+			}
+
+			@Override
+			public void shutdownEntity() {
+			}
+
+		};
+		CloudSim.startSimulation();
+		assertEquals(1, hosts.get(2).packetrecieved.size());
+
+		// it crosses the uplink from 1.01 to 2.01, and the downlink from 2.03 to 3.03
+		NetworkMonitor.LinkStats up = monitor.getLinkStats(edges.get(0).getId(), agg.getId());
+		assertEquals("edge0->agg", up.getName());
+		assertEquals(1, up.getPackets());
+		assertEquals(0.1, up.getData(), 1e-9);
+		assertEquals(1.0, up.getBusyTime(), 1e-9);
+		assertEquals(1, up.getHistogram()[9]);
+		assertEquals(1, up.getHistogram()[0]);
+		assertEquals(1, monitor.getLinkStats(agg.getId(), edges.get(1).getId()).getPackets());
+		assertEquals(1, monitor.getLinkStats(edges.get(1).getId(), NetworkMonitor.getHostKey(2)).getPackets());
+		assertEquals(3, monitor.getLinkStats().size());
+
+		// the first edge switch held the packet for its switching delay
+		NetworkMonitor.SwitchStats edge = monitor.getSwitchStats(edges.get(0).getId());
+		assertEquals(1, edge.getPackets());
+		assertEquals(1, edge.getMaxQueue());
+		assertEquals(0, edge.getDrops());
+
+		NetworkMonitor.Sample first = monitor.getSamples().get(0);
+		assertEquals(2.0, first.getTime(), 1e-9);
+		assertEquals("edge0->agg", first.getElement());
+		assertEquals(0.99, first.getUtilization(), 1e-9);
+		double queue = 0;
+		for (NetworkMonitor.Sample sample : monitor.getSamples()) {
+			if (sample.getTime() == 2.0 && sample.getElement().equals("edge0")) {
+				queue = sample.getQueueAverage();
+			}
+		}
+		assertEquals(0.01, queue, 1e-9);
+
+		// the sampling stops once the packet has been delivered
+		NetworkMonitor.Sample last = monitor.getSamples().get(monitor.getSamples().size() - 1);
+		assertEquals(4.0, last.getTime(), 1e-9);
+
+		StringWriter out = new StringWriter();
+		monitor.writeCsv(out);
+		assertTrue(out.toString().startsWith("time,element,data,packets,utilization,queue_average,queue_max,drops\n"
+				+ "2.0,edge0->agg,0.1,1,"));
+	}
+
+	@Test
+	public void testSharedLink() {
+		// two transfers overlap on the same link: it is busy from 1.2 to 1.7
+		new SimEntity("sender") {
+
+			@Override
+			public void startEntity() {
+				schedule(getId(), 1.2, 0);
+			}
+
+			@Override
+			public void processEvent(SimEvent ev) {
+				monitor.recordTransfer(edges.get(0).getId(), agg.getId(), 1, 0.5);
+				monitor.recordTransfer(edges.get(0).getId(), agg.getId(), 2, 0.3);
+			}
+
+			@Override
+			public void shutdownEntity() {
+			}
+
+		};
+		CloudSim.startSimulation();
+
+		NetworkMonitor.LinkStats link = monitor.getLinkStats(edges.get(0).getId(), agg.getId());
+		assertEquals(2, link.getPackets());
+		assertEquals(3, link.getData(), 0);
+		assertEquals(0.5, link.getBusyTime(), 1e-9);
+		assertEquals(0.8, link.getTransferTime(), 1e-9);
+		assertEquals(1, link.getHistogram()[5]);
+		assertEquals(2, monitor.getSwitchStats(edges.get(0).getId()).getPackets());
+		assertEquals(2, monitor.getSamples().size());
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.VmSchedulerTimeShared;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.After;
+import org.junit.Test;
+
+public class RoutingTableTest {
+
+	private static NetworkHost createHost(int id, Switch sw) {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerSimple(1000)));
+		NetworkHost host = new NetworkHost(id, new RamProvisionerSimple(1024), new BwProvisionerSimple(1000), 1000,
+				peList, new VmSchedulerTimeShared(peList));
+		host.sw = sw;
+		return host;
+	}
+
+	private static void connect(Switch up, Switch down) {
+		up.downlinkswitches.add(down);
+		down.uplinkswitches.add(up);
+	}
+
+	@After
+	public void tearDown() {
+		Log.enable();
+	}
+
+	@Test
+	public void testRoutes() {
+		Log.disable();
+		CloudSim.init(1, null, false);
+
+		// a root above two aggregate switches, with two edge switches each
+		RoutingTable table = new RoutingTable();
+		RootSwitch root = new RootSwitch("root", NetworkConstants.ROOT_LEVEL, null);
+		table.addSwitch(root);
+		List<Switch> aggs = new ArrayList<Switch>();
+		List<Switch> edges = new ArrayList<Switch>();
+		for (int i = 0; i < 2; i++) {
+			AggregateSwitch agg = new AggregateSwitch("agg" + i, NetworkConstants.Agg_LEVEL, null);
+			table.addSwitch(agg);
+			connect(root, agg);
+			aggs.add(agg);
+			for (int j = 0; j < 2; j++) {
+				EdgeSwitch edge = new EdgeSwitch("edge" + i + j, NetworkConstants.EDGE_LEVEL, null);
+				table.addSwitch(edge);
+				connect(agg, edge);
+				edges.add(edge);
+			}
+		}
+
+		assertEquals(aggs.get(1).getId(), table.getDownlinkSwitchId(root.getId(), edges.get(3).getId()));
+		assertEquals(edges.get(1).getId(), table.getDownlinkSwitchId(aggs.get(0).getId(), edges.get(1).getId()));
+		assertEquals(-1, table.getDownlinkSwitchId(aggs.get(0).getId(), edges.get(2).getId()));
+		assertEquals(aggs.get(1).getId(), table.getUplinkSwitchId(edges.get(2).getId()));
+		assertEquals(-1, table.getUplinkSwitchId(root.getId()));
+		assertSame(edges.get(2), table.getSwitch(edges.get(2).getId()));
+
+		// a VM moved to another host is routed to the edge switch of the new host
+		NetworkHost host0 = createHost(0, edges.get(0));
+		NetworkHost host5 = createHost(5, edges.get(3));
+		NetworkVm vm = new NetworkVm(40, 0, 1000, 1, 128, 10, 100, "Xen", new NetworkCloudletSpaceSharedScheduler());
+		table.addVm(vm, host0);
+		assertSame(vm, table.getVm(40));
+		assertEquals(0, table.getHostId(40));
+		assertEquals(edges.get(0).getId(), table.getEdgeSwitchId(40));
+		table.addVm(vm, host5);
+		assertSame(host5, table.getHost(40));
+		assertEquals(edges.get(3).getId(), table.getEdgeSwitchId(40));
+		assertEquals(edges.get(3).getId(), table.getHostEdgeSwitchId(5));
+
+		assertNull(table.getVm(7));
+		assertEquals(-1, table.getHostId(1000));
+		assertEquals(-1, table.getEdgeSwitchId(-1));
+	}
+
+}